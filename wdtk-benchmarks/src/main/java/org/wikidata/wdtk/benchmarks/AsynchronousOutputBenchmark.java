@@ -0,0 +1,154 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wikidata.wdtk.util.RingBufferOutputStream;
+
+/**
+ * Benchmarks for handing output over to a separate writer thread, as done by
+ * the client before compressing dump exports. The time that the producing
+ * thread needs to write the data and close the stream is compared for
+ * {@link RingBufferOutputStream} and for the pair of piped streams that was
+ * used before. The consumer discards all data, so that the results show the
+ * time that the producer stalls on the hand-over itself. Results are
+ * reported per MiB of data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsynchronousOutputBenchmark {
+
+	static final int MEGABYTES = 16;
+	static final int DATA_SIZE = MEGABYTES * 1024 * 1024;
+	/**
+	 * Buffer size of the piped streams, as used in the client.
+	 */
+	static final int PIPE_SIZE = 1024 * 1024 * 10;
+
+	/**
+	 * Size of the chunks that the producer writes; JSON serialization
+	 * typically writes small chunks through a buffered writer.
+	 */
+	@Param({ "64", "8192" })
+	int chunkSize;
+
+	byte[] data;
+
+	@Setup
+	public void setUp() {
+		this.data = new byte[DATA_SIZE];
+		new Random(BenchmarkDocuments.SEED).nextBytes(this.data);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MEGABYTES)
+	public long ringBuffer() throws IOException {
+		NullOutputStream out = new NullOutputStream();
+		RingBufferOutputStream stream = new RingBufferOutputStream(out,
+				RingBufferOutputStream.DEFAULT_BUFFER_SIZE,
+				"benchmark-output-stream");
+		writeData(stream);
+		return out.byteCount + stream.getProducerStallTime();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MEGABYTES)
+	public long pipe() throws IOException, InterruptedException {
+		NullOutputStream out = new NullOutputStream();
+		final PipedOutputStream pos = new PipedOutputStream();
+		final PipedInputStream pis = new PipedInputStream(pos, PIPE_SIZE);
+		Thread thread = new Thread(new PipeReader(pis, out),
+				"benchmark-output-stream");
+		thread.start();
+		writeData(pos);
+		thread.join();
+		return out.byteCount;
+	}
+
+	/**
+	 * Writes the test data to the given stream in chunks of
+	 * {@link #chunkSize} bytes and closes it.
+	 *
+	 * @param stream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the stream could not be written to
+	 */
+	void writeData(OutputStream stream) throws IOException {
+		for (int offset = 0; offset < DATA_SIZE; offset += this.chunkSize) {
+			stream.write(this.data, offset,
+					Math.min(this.chunkSize, DATA_SIZE - offset));
+		}
+		stream.close();
+	}
+
+	/**
+	 * Copies all data from a pipe to an output stream, like the writer thread
+	 * that the client used with piped streams.
+	 */
+	static class PipeReader implements Runnable {
+
+		final PipedInputStream input;
+		final OutputStream output;
+
+		PipeReader(PipedInputStream input, OutputStream output) {
+			this.input = input;
+			this.output = output;
+		}
+
+		@Override
+		public void run() {
+			byte[] bytes = new byte[PIPE_SIZE];
+			try {
+				for (int len; (len = this.input.read(bytes)) > 0;) {
+					this.output.write(bytes, 0, len);
+				}
+				this.input.close();
+				this.output.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+}
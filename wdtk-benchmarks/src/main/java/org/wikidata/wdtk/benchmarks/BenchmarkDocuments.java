@@ -0,0 +1,92 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Input data that is shared by the benchmarks. All benchmarks that process
+ * documents use the same {@link #DOCUMENT_COUNT} synthetic documents and
+ * report their results per document, so that results remain comparable
+ * across benchmarks and releases.
+ */
+class BenchmarkDocuments {
+
+	/**
+	 * Number of documents processed in one benchmark invocation.
+	 */
+	static final int DOCUMENT_COUNT = 1000;
+
+	/**
+	 * Seed for generating documents. Changing this would make results
+	 * incomparable to those of earlier releases.
+	 */
+	static final long SEED = 42;
+
+	static List<ItemDocument> itemDocuments;
+
+	/**
+	 * Returns the synthetic item documents used in the benchmarks.
+	 *
+	 * @return list of {@link #DOCUMENT_COUNT} item documents
+	 */
+	static synchronized List<ItemDocument> getItemDocuments() {
+		if (itemDocuments == null) {
+			itemDocuments = new SyntheticEntities(SEED)
+					.makeItemDocuments(DOCUMENT_COUNT);
+		}
+		return itemDocuments;
+	}
+
+	/**
+	 * Entity document processor that passes the main parts of each document
+	 * to a {@link Blackhole}, so that lazily decoded documents are decoded
+	 * and no work is optimized away.
+	 */
+	static class BlackholeEntityDocumentProcessor implements
+			EntityDocumentProcessor {
+
+		final Blackhole blackhole;
+
+		BlackholeEntityDocumentProcessor(Blackhole blackhole) {
+			this.blackhole = blackhole;
+		}
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			this.blackhole.consume(itemDocument.getLabels());
+			this.blackhole.consume(itemDocument.getStatementGroups());
+			this.blackhole.consume(itemDocument.getSiteLinks());
+		}
+
+		@Override
+		public void processPropertyDocument(PropertyDocument propertyDocument) {
+			this.blackhole.consume(propertyDocument.getLabels());
+			this.blackhole.consume(propertyDocument.getStatementGroups());
+		}
+	}
+
+}
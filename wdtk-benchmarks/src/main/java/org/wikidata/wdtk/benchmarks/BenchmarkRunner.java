@@ -0,0 +1,89 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this module. All command line arguments are passed
+ * on to JMH; for example, "-l" lists all benchmarks and a regular expression
+ * selects the benchmarks to run. Unless a result file is given, results are
+ * stored in JSON format in the file "wdtk-benchmarks-VERSION.json", where
+ * VERSION is the version of the Wikidata Toolkit. Such files can be compared
+ * across releases to find changes in performance.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws CommandLineOptionException,
+			RunnerException, IOException {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			options.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLineOptions.getResult().hasValue()) {
+			options.result("wdtk-benchmarks-" + getVersion() + ".json");
+		}
+
+		Runner runner = new Runner(options.build());
+		if (commandLineOptions.shouldList()) {
+			runner.list();
+		} else {
+			runner.run();
+		}
+	}
+
+	/**
+	 * Returns the version of the Wikidata Toolkit that is benchmarked.
+	 *
+	 * @return version string
+	 * @throws IOException
+	 *             if the version information cannot be read
+	 */
+	static String getVersion() throws IOException {
+		Properties properties = new Properties();
+		try (InputStream in = BenchmarkRunner.class
+				.getResourceAsStream("/wdtk-benchmarks.properties")) {
+			if (in == null) {
+				return "unknown";
+			}
+			properties.load(in);
+		}
+		return properties.getProperty("version", "unknown");
+	}
+
+}
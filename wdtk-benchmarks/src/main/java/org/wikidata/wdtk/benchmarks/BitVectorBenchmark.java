@@ -0,0 +1,122 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wikidata.wdtk.storage.datastructures.BitVectorImpl;
+import org.wikidata.wdtk.storage.datastructures.RankedBitVectorImpl;
+
+/**
+ * Benchmarks for the bit vectors of wdtk-storage. Results are reported per
+ * bit operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitVectorBenchmark {
+
+	static final int SIZE = 1 << 20;
+	static final int OPERATIONS = 1 << 16;
+
+	BitVectorImpl bitVector;
+	RankedBitVectorImpl rankedBitVector;
+	long[] positions;
+	long[] occurrences;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(BenchmarkDocuments.SEED);
+		this.bitVector = new BitVectorImpl();
+		this.rankedBitVector = new RankedBitVectorImpl();
+		for (int i = 0; i < SIZE; i++) {
+			boolean bit = random.nextBoolean();
+			this.bitVector.addBit(bit);
+			this.rankedBitVector.addBit(bit);
+		}
+		long trueBits = this.rankedBitVector.countBits(true, SIZE - 1);
+
+		this.positions = new long[OPERATIONS];
+		this.occurrences = new long[OPERATIONS];
+		for (int i = 0; i < OPERATIONS; i++) {
+			this.positions[i] = random.nextInt(SIZE);
+			this.occurrences[i] = 1 + (long) (random.nextDouble() * trueBits);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public long addBits() {
+		BitVectorImpl result = new BitVectorImpl();
+		for (int i = 0; i < SIZE; i++) {
+			result.addBit((i & 3) == 0);
+		}
+		return result.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public int getBit() {
+		int count = 0;
+		for (long position : this.positions) {
+			if (this.bitVector.getBit(position)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public long countBits() {
+		long sum = 0;
+		for (long position : this.positions) {
+			sum += this.rankedBitVector.countBits(true, position);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPERATIONS)
+	public long findPosition() {
+		long sum = 0;
+		for (long occurrence : this.occurrences) {
+			sum += this.rankedBitVector.findPosition(true, occurrence);
+		}
+		return sum;
+	}
+
+}
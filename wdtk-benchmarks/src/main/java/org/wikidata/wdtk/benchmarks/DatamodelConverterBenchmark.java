@@ -0,0 +1,127 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.helpers.FilteredItemDocument;
+import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+
+/**
+ * Benchmarks for copying documents with {@link DatamodelConverter} and for
+ * filtering them, either by copying or through a {@link FilteredItemDocument}
+ * view.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatamodelConverterBenchmark {
+
+	/**
+	 * The filter that is applied: "none" keeps all data, "selective" keeps
+	 * English terms, two properties and the English Wikipedia site link.
+	 */
+	@Param({ "none", "selective" })
+	String filter;
+
+	List<ItemDocument> documents;
+	DocumentDataFilter documentDataFilter;
+	DatamodelConverter converter;
+	DatamodelConverter jacksonConverter;
+
+	@Setup
+	public void setUp() {
+		this.documents = BenchmarkDocuments.getItemDocuments();
+		this.documentDataFilter = new DocumentDataFilter();
+		if ("selective".equals(this.filter)) {
+			this.documentDataFilter.setLanguageFilter(Collections
+					.singleton("en"));
+			this.documentDataFilter.setPropertyFilter(new HashSet<>(Arrays
+					.asList(Datamodel.makeWikidataPropertyIdValue("P31"),
+							Datamodel.makeWikidataPropertyIdValue("P17"))));
+			this.documentDataFilter.setSiteLinkFilter(Collections
+					.singleton("enwiki"));
+		}
+		this.converter = new DatamodelConverter(new DataObjectFactoryImpl());
+		this.converter.setOptionFilter(this.documentDataFilter);
+		this.jacksonConverter = new DatamodelConverter(
+				new JacksonObjectFactory());
+		this.jacksonConverter.setOptionFilter(this.documentDataFilter);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void copy(Blackhole blackhole) {
+		for (ItemDocument document : this.documents) {
+			blackhole.consume(this.converter.copy(document));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void copyToJackson(Blackhole blackhole) {
+		for (ItemDocument document : this.documents) {
+			blackhole.consume(this.jacksonConverter.copy(document));
+		}
+	}
+
+	/**
+	 * Creates filtered views and accesses the main parts of each view, as a
+	 * processor behind a filter would.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void filterView(Blackhole blackhole) {
+		for (ItemDocument document : this.documents) {
+			ItemDocument view = new FilteredItemDocument(document,
+					this.documentDataFilter);
+			blackhole.consume(view.getLabels().size());
+			blackhole.consume(view.getStatementGroups().size());
+			blackhole.consume(view.getSiteLinks().size());
+		}
+	}
+
+}
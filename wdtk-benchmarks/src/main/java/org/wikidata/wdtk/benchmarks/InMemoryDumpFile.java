@@ -0,0 +1,89 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+import org.wikidata.wdtk.dumpfiles.DumpContentType;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+
+/**
+ * Dump file whose contents are kept in memory, so that benchmarks do not
+ * measure disk access.
+ */
+class InMemoryDumpFile implements MwDumpFile {
+
+	final byte[] contents;
+	final DumpContentType dumpContentType;
+
+	InMemoryDumpFile(byte[] contents, DumpContentType dumpContentType) {
+		this.contents = contents;
+		this.dumpContentType = dumpContentType;
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return true;
+	}
+
+	@Override
+	public String getProjectName() {
+		return "wikidatawiki";
+	}
+
+	@Override
+	public String getDateStamp() {
+		return "20150101";
+	}
+
+	@Override
+	public DumpContentType getDumpContentType() {
+		return this.dumpContentType;
+	}
+
+	@Override
+	public InputStream getDumpFileStream() {
+		return new ByteArrayInputStream(this.contents);
+	}
+
+	@Override
+	public BufferedReader getDumpFileReader() {
+		return new BufferedReader(new InputStreamReader(getDumpFileStream(),
+				StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void prepareDumpFile() {
+		// nothing to do
+	}
+
+	@Override
+	public String toString() {
+		return getProjectName() + "-"
+				+ this.dumpContentType.toString().toLowerCase() + "-"
+				+ getDateStamp();
+	}
+
+}
@@ -0,0 +1,237 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.benchmarks.BenchmarkDocuments.BlackholeEntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerEntityId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueGlobeCoordinates;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueItemId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueMonolingualText;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValuePropertyId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueQuantity;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueString;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueTime;
+import org.wikidata.wdtk.dumpfiles.DumpContentType;
+import org.wikidata.wdtk.dumpfiles.JsonDumpFileProcessor;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Benchmarks for decoding entities from JSON dumps, with each of the
+ * decoding methods of {@link JsonDumpFileProcessor}, and for decoding single
+ * data values with the
+ * {@link org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueDeserializer}.
+ * The latter is compared to the way values were decoded before, by reading
+ * them into a tree of JSON nodes first. Run these benchmarks with "-prof gc"
+ * to see the number of bytes allocated per value.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodingBenchmark {
+
+	/**
+	 * Number of values decoded in one invocation of the value benchmarks.
+	 */
+	static final int VALUE_COUNT = 10000;
+
+	MwDumpFile dumpFile;
+	List<String> jsonValues;
+	ObjectMapper mapper;
+	ObjectReader valueReader;
+
+	@Setup
+	public void setUp() throws IOException {
+		List<ItemDocument> documents = BenchmarkDocuments.getItemDocuments();
+		this.dumpFile = new InMemoryDumpFile(
+				SyntheticEntities.toJsonDump(documents), DumpContentType.JSON);
+
+		DatamodelConverter converter = new DatamodelConverter(
+				new JacksonObjectFactory());
+		this.mapper = new ObjectMapper();
+		List<String> values = new ArrayList<>();
+		for (ItemDocument document : documents) {
+			for (StatementGroup statementGroup : document.getStatementGroups()) {
+				for (Statement statement : statementGroup.getStatements()) {
+					if (statement.getClaim().getMainSnak() instanceof ValueSnak) {
+						ValueSnak snak = (ValueSnak) statement.getClaim()
+								.getMainSnak();
+						values.add(toDumpJson(converter.copyValue(snak
+								.getValue())));
+					}
+				}
+			}
+		}
+		this.jsonValues = new ArrayList<>(VALUE_COUNT);
+		for (int i = 0; i < VALUE_COUNT; i++) {
+			this.jsonValues.add(values.get(i % values.size()));
+		}
+		this.valueReader = this.mapper.reader(JacksonValue.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void decodeWithMappingIterator(Blackhole blackhole)
+			throws IOException {
+		decodeJsonDump(blackhole, false, false);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void decodeWithDocumentDecoder(Blackhole blackhole)
+			throws IOException {
+		decodeJsonDump(blackhole, true, false);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void decodeLazily(Blackhole blackhole) throws IOException {
+		decodeJsonDump(blackhole, false, true);
+	}
+
+	/**
+	 * Decodes values with the streaming deserializer. The result is the time
+	 * for one value on average.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUE_COUNT)
+	public void decodeValues(Blackhole blackhole) throws IOException {
+		for (String json : this.jsonValues) {
+			blackhole.consume(this.valueReader.readValue(json));
+		}
+	}
+
+	/**
+	 * Decodes values by reading them into a tree and converting the tree to
+	 * the value class of its type, as the deserializer did before. The result
+	 * is the time for one value on average.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(VALUE_COUNT)
+	public void decodeValuesFromTree(Blackhole blackhole) throws IOException {
+		for (String json : this.jsonValues) {
+			JsonNode root = this.mapper.readTree(json);
+			blackhole.consume(this.mapper.treeToValue(root,
+					getValueClass(root)));
+		}
+	}
+
+	/**
+	 * Serializes the given value with the "value" field before the "type"
+	 * field, which is the order used in Wikidata dumps.
+	 *
+	 * @param value
+	 *            the value to serialize
+	 * @return JSON serialization of the value
+	 * @throws IOException
+	 *             if the value could not be serialized
+	 */
+	String toDumpJson(Object value) throws IOException {
+		JsonNode node = this.mapper.valueToTree(value);
+		ObjectNode dumpNode = this.mapper.createObjectNode();
+		dumpNode.set("value", node.get("value"));
+		dumpNode.set("type", node.get("type"));
+		return this.mapper.writeValueAsString(dumpNode);
+	}
+
+	/**
+	 * Returns the class that the given JSON value is converted to, as found
+	 * by the tree-based deserializer that was used before.
+	 *
+	 * @param jsonNode
+	 *            the JSON value
+	 * @return the value class
+	 * @throws JsonMappingException
+	 *             if the type of the value is not supported
+	 */
+	static Class<? extends JacksonValue> getValueClass(JsonNode jsonNode)
+			throws JsonMappingException {
+		String jsonType = jsonNode.get("type").asText();
+		switch (jsonType) {
+		case JacksonValue.JSON_VALUE_TYPE_ENTITY_ID:
+			String entityType = jsonNode.get("value").get("entity-type")
+					.asText();
+			if (JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM.equals(entityType)) {
+				return JacksonValueItemId.class;
+			} else {
+				return JacksonValuePropertyId.class;
+			}
+		case JacksonValue.JSON_VALUE_TYPE_STRING:
+			return JacksonValueString.class;
+		case JacksonValue.JSON_VALUE_TYPE_TIME:
+			return JacksonValueTime.class;
+		case JacksonValue.JSON_VALUE_TYPE_GLOBE_COORDINATES:
+			return JacksonValueGlobeCoordinates.class;
+		case JacksonValue.JSON_VALUE_TYPE_QUANTITY:
+			return JacksonValueQuantity.class;
+		case JacksonValue.JSON_VALUE_TYPE_MONOLINGUAL_TEXT:
+			return JacksonValueMonolingualText.class;
+		default:
+			throw new JsonMappingException("Property values of type \""
+					+ jsonType + "\" are not supported.");
+		}
+	}
+
+	void decodeJsonDump(Blackhole blackhole, boolean useDocumentDecoder,
+			boolean useLazyDocuments) throws IOException {
+		JsonDumpFileProcessor processor = new JsonDumpFileProcessor(
+				new BlackholeEntityDocumentProcessor(blackhole),
+				Datamodel.SITE_WIKIDATA);
+		processor.setUseDocumentDecoder(useDocumentDecoder);
+		processor.setUseLazyDocuments(useLazyDocuments);
+		processor.processDumpFileContents(this.dumpFile.getDumpFileStream(),
+				this.dumpFile);
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JsonSerializer;
+
+/**
+ * Benchmarks for serializing documents with {@link JsonSerializer}. Output is
+ * discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	List<ItemDocument> documents;
+	List<ItemDocument> jacksonDocuments;
+
+	@Setup
+	public void setUp() {
+		this.documents = BenchmarkDocuments.getItemDocuments();
+		DatamodelConverter converter = new DatamodelConverter(
+				new JacksonObjectFactory());
+		this.jacksonDocuments = new ArrayList<>();
+		for (ItemDocument document : this.documents) {
+			this.jacksonDocuments.add(converter.copy(document));
+		}
+	}
+
+	/**
+	 * Serializes documents that first need to be converted into their Jackson
+	 * implementation, as is the case for most documents that are not read
+	 * from JSON.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public long serialize() {
+		return serialize(this.documents);
+	}
+
+	/**
+	 * Serializes documents that already are Jackson objects.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public long serializeJacksonDocuments() {
+		return serialize(this.jacksonDocuments);
+	}
+
+	long serialize(List<ItemDocument> documents) {
+		NullOutputStream out = new NullOutputStream();
+		JsonSerializer serializer = new JsonSerializer(out);
+		serializer.open();
+		for (ItemDocument document : documents) {
+			serializer.processItemDocument(document);
+		}
+		serializer.close();
+		return out.byteCount;
+	}
+
+}
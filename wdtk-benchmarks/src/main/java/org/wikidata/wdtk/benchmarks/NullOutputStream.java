@@ -0,0 +1,43 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.OutputStream;
+
+/**
+ * Output stream that discards all data, used for measuring serialization
+ * without the cost of storing the output.
+ */
+class NullOutputStream extends OutputStream {
+
+	long byteCount = 0;
+
+	@Override
+	public void write(int b) {
+		this.byteCount++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		this.byteCount += len;
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+import org.wikidata.wdtk.rdf.RdfConverter;
+import org.wikidata.wdtk.rdf.RdfWriter;
+import org.wikidata.wdtk.rdf.Vocabulary;
+
+/**
+ * Benchmarks for converting documents to RDF with {@link RdfConverter}, and
+ * for computing the hash-based URIs of {@link Vocabulary}. The RDF is
+ * written as N-Triples and discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RdfConversionBenchmark {
+
+	List<ItemDocument> documents;
+	SitesImpl sites;
+
+	List<Statement> statements;
+	List<Reference> references;
+	List<TimeValue> timeValues;
+
+	@Setup
+	public void setUp() {
+		this.documents = BenchmarkDocuments.getItemDocuments();
+
+		this.sites = new SitesImpl();
+		for (String language : SyntheticEntities.LANGUAGES) {
+			this.sites.setSiteInformation(language + "wiki", "wikipedia",
+					language, "mediawiki", "http://" + language
+							+ ".wikipedia.org/w/$1", "http://" + language
+							+ ".wikipedia.org/wiki/$1");
+		}
+
+		this.statements = new ArrayList<>();
+		this.references = new ArrayList<>();
+		this.timeValues = new ArrayList<>();
+		for (ItemDocument document : this.documents) {
+			for (StatementGroup statementGroup : document.getStatementGroups()) {
+				for (Statement statement : statementGroup.getStatements()) {
+					this.statements.add(statement);
+					this.references.addAll(statement.getReferences());
+					if (statement.getClaim().getMainSnak() instanceof ValueSnak) {
+						Value value = ((ValueSnak) statement.getClaim()
+								.getMainSnak()).getValue();
+						if (value instanceof TimeValue) {
+							this.timeValues.add((TimeValue) value);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public long writeItemDocuments() throws RDFHandlerException {
+		RdfWriter rdfWriter = new RdfWriter(RDFFormat.NTRIPLES,
+				new NullOutputStream());
+		RdfConverter rdfConverter = new RdfConverter(rdfWriter, this.sites);
+		rdfWriter.start();
+		for (ItemDocument document : this.documents) {
+			rdfConverter.writeItemDocument(document);
+		}
+		rdfWriter.finish();
+		return rdfWriter.getTripleCount();
+	}
+
+	/**
+	 * Computes the URIs of all statements, references and time values. The
+	 * result is the time for the URIs of one document on average.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void computeVocabularyUris(Blackhole blackhole) {
+		for (Statement statement : this.statements) {
+			blackhole.consume(Vocabulary.getStatementUri(statement));
+		}
+		for (Reference reference : this.references) {
+			blackhole.consume(Vocabulary.getReferenceUri(reference));
+		}
+		for (TimeValue timeValue : this.timeValues) {
+			blackhole.consume(Vocabulary.getTimeValueUri(timeValue));
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.benchmarks.BenchmarkDocuments.BlackholeEntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.dumpfiles.DumpContentType;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+import org.wikidata.wdtk.dumpfiles.MwRevision;
+import org.wikidata.wdtk.dumpfiles.MwRevisionDumpFileProcessor;
+import org.wikidata.wdtk.dumpfiles.MwRevisionProcessor;
+import org.wikidata.wdtk.dumpfiles.WikibaseRevisionProcessor;
+
+/**
+ * Benchmarks for parsing MediaWiki XML dumps with
+ * {@link MwRevisionDumpFileProcessor}. Each page of the dump has
+ * {@link #REVISIONS_PER_PAGE} revisions; results are reported per page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevisionParsingBenchmark {
+
+	static final int REVISIONS_PER_PAGE = 3;
+
+	MwDumpFile dumpFile;
+
+	@Setup
+	public void setUp() {
+		this.dumpFile = new InMemoryDumpFile(SyntheticEntities.toXmlDump(
+				BenchmarkDocuments.getItemDocuments(), REVISIONS_PER_PAGE),
+				DumpContentType.FULL);
+	}
+
+	/**
+	 * Parses the XML of all revisions without looking at their contents.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void parseRevisions(final Blackhole blackhole) throws IOException {
+		parseDumpFile(new MwRevisionProcessor() {
+			@Override
+			public void startRevisionProcessing(String siteName,
+					String baseUrl, Map<Integer, String> namespaces) {
+			}
+
+			@Override
+			public void processRevision(MwRevision mwRevision) {
+				blackhole.consume(mwRevision.getText());
+			}
+
+			@Override
+			public void finishRevisionProcessing() {
+			}
+		});
+	}
+
+	/**
+	 * Parses the XML of all revisions and decodes the entity documents they
+	 * contain.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkDocuments.DOCUMENT_COUNT)
+	public void parseEntityRevisions(Blackhole blackhole) throws IOException {
+		parseDumpFile(new WikibaseRevisionProcessor(
+				new BlackholeEntityDocumentProcessor(blackhole),
+				Datamodel.SITE_WIKIDATA));
+	}
+
+	void parseDumpFile(MwRevisionProcessor mwRevisionProcessor)
+			throws IOException {
+		new MwRevisionDumpFileProcessor(mwRevisionProcessor)
+				.processDumpFileContents(this.dumpFile.getDumpFileStream(),
+						this.dumpFile);
+	}
+
+}
@@ -0,0 +1,414 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.interfaces.GlobeCoordinatesValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JsonSerializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Generates item documents that resemble the items of Wikidata in their
+ * shape: most items have few labels, statements and site links, while some
+ * have many. The documents only use properties whose datatype is known to
+ * {@link org.wikidata.wdtk.rdf.WikidataPropertyTypes}, so that converting
+ * them to RDF does not require any Web requests. The generation is seeded,
+ * so that the same parameters always lead to the same documents.
+ */
+public class SyntheticEntities {
+
+	static final String[] LANGUAGES = { "en", "de", "fr", "es", "it", "nl",
+			"ru", "pl", "sv", "ja", "zh", "pt", "uk", "ca", "fi", "cs", "hu",
+			"ar", "he", "ko" };
+
+	static final String[] ITEM_PROPERTIES = { "P31", "P17", "P131", "P21",
+			"P27", "P106", "P19", "P735", "P279" };
+	static final String[] STRING_PROPERTIES = { "P214", "P227", "P646",
+			"P373" };
+	static final String[] TIME_PROPERTIES = { "P569", "P570", "P577" };
+	static final String[] QUANTITY_PROPERTIES = { "P1082", "P1120" };
+	static final String PROPERTY_COORDINATES = "P625";
+	static final String PROPERTY_URL = "P856";
+	static final String PROPERTY_MEDIA = "P18";
+
+	static final String PROPERTY_START_TIME = "P580";
+	static final String PROPERTY_POINT_IN_TIME = "P585";
+	static final String PROPERTY_STATED_IN = "P248";
+	static final String PROPERTY_IMPORTED_FROM = "P143";
+	static final String PROPERTY_RETRIEVED = "P813";
+	static final String PROPERTY_REFERENCE_URL = "P854";
+
+	final Random random;
+
+	/**
+	 * Creates a generator with the given seed.
+	 *
+	 * @param seed
+	 *            the seed of the random numbers used for generating entities
+	 */
+	public SyntheticEntities(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Creates a list of item documents with consecutive ids, starting at Q1.
+	 *
+	 * @param count
+	 *            the number of item documents
+	 * @return list of item documents
+	 */
+	public List<ItemDocument> makeItemDocuments(int count) {
+		List<ItemDocument> result = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			result.add(makeItemDocument(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates an item document with the given numeric id.
+	 *
+	 * @param numericId
+	 *            the number of the item id
+	 * @return item document
+	 */
+	public ItemDocument makeItemDocument(int numericId) {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue("Q" + numericId);
+
+		List<MonolingualTextValue> labels = new ArrayList<>();
+		for (String language : pickLanguages(3.0)) {
+			labels.add(Datamodel.makeMonolingualTextValue(makeText(1, 3),
+					language));
+		}
+		List<MonolingualTextValue> descriptions = new ArrayList<>();
+		for (String language : pickLanguages(2.0)) {
+			descriptions.add(Datamodel.makeMonolingualTextValue(
+					makeText(2, 6), language));
+		}
+		List<MonolingualTextValue> aliases = new ArrayList<>();
+		int aliasCount = pickCount(1.0, 10);
+		for (int i = 0; i < aliasCount; i++) {
+			aliases.add(Datamodel.makeMonolingualTextValue(makeText(1, 3),
+					LANGUAGES[pickCount(1.0, 4)]));
+		}
+
+		Map<String, List<Statement>> statements = new LinkedHashMap<>();
+		int statementCount = pickCount(6.0, 200);
+		for (int i = 0; i < statementCount; i++) {
+			Statement statement = makeStatement(itemId, i);
+			String propertyId = statement.getClaim().getMainSnak()
+					.getPropertyId().getId();
+			if (!statements.containsKey(propertyId)) {
+				statements.put(propertyId, new ArrayList<Statement>());
+			}
+			statements.get(propertyId).add(statement);
+		}
+		List<StatementGroup> statementGroups = new ArrayList<>();
+		for (List<Statement> group : statements.values()) {
+			statementGroups.add(Datamodel.makeStatementGroup(group));
+		}
+
+		Map<String, SiteLink> siteLinks = new HashMap<>();
+		for (String language : pickLanguages(2.0)) {
+			String siteKey = language + "wiki";
+			siteLinks.put(siteKey, Datamodel.makeSiteLink(makeText(1, 3),
+					siteKey, Collections.<String> emptyList()));
+		}
+
+		return Datamodel.makeItemDocument(itemId, labels, descriptions,
+				aliases, statementGroups, siteLinks);
+	}
+
+	/**
+	 * Serializes the given documents as a JSON dump, i.e., as a JSON array of
+	 * entities.
+	 *
+	 * @param documents
+	 *            the documents to serialize
+	 * @return UTF-8 encoded JSON
+	 */
+	public static byte[] toJsonDump(List<ItemDocument> documents) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonSerializer serializer = new JsonSerializer(out);
+		serializer.open();
+		for (ItemDocument document : documents) {
+			serializer.processItemDocument(document);
+		}
+		serializer.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Serializes the given documents as a MediaWiki XML dump with one page
+	 * per document. Each page has the given number of revisions, all of which
+	 * contain the JSON of the document.
+	 *
+	 * @param documents
+	 *            the documents to serialize
+	 * @param revisionsPerPage
+	 *            the number of revisions of each page
+	 * @return UTF-8 encoded XML
+	 */
+	public static byte[] toXmlDump(List<ItemDocument> documents,
+			int revisionsPerPage) {
+		DatamodelConverter converter = new DatamodelConverter(
+				new JacksonObjectFactory());
+		ObjectMapper mapper = new ObjectMapper();
+		StringBuilder xml = new StringBuilder();
+		xml.append("<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.8/\" version=\"0.8\" xml:lang=\"en\">\n")
+				.append("  <siteinfo>\n")
+				.append("    <sitename>Wikidata</sitename>\n")
+				.append("    <base>http://www.wikidata.org/wiki/Main_Page</base>\n")
+				.append("    <namespaces>\n")
+				.append("      <namespace key=\"0\" case=\"first-letter\" />\n")
+				.append("      <namespace key=\"120\" case=\"first-letter\">Property</namespace>\n")
+				.append("    </namespaces>\n").append("  </siteinfo>\n");
+		int revisionId = 0;
+		for (ItemDocument document : documents) {
+			String json;
+			try {
+				json = mapper.writeValueAsString(converter.copy(document));
+			} catch (IOException e) {
+				throw new RuntimeException(e.toString(), e);
+			}
+			String text = json.replace("&", "&amp;").replace("<", "&lt;")
+					.replace(">", "&gt;").replace("\"", "&quot;");
+			String title = document.getItemId().getId();
+			xml.append("  <page>\n").append("    <title>").append(title)
+					.append("</title>\n").append("    <ns>0</ns>\n")
+					.append("    <id>").append(title.substring(1))
+					.append("</id>\n");
+			for (int i = 0; i < revisionsPerPage; i++) {
+				revisionId++;
+				xml.append("    <revision>\n").append("      <id>")
+						.append(revisionId).append("</id>\n")
+						.append("      <timestamp>2015-01-01T00:00:00Z</timestamp>\n")
+						.append("      <contributor>\n")
+						.append("        <username>Bot</username>\n")
+						.append("        <id>1</id>\n")
+						.append("      </contributor>\n")
+						.append("      <comment>Edit ").append(i)
+						.append("</comment>\n")
+						.append("      <text xml:space=\"preserve\">")
+						.append(text).append("</text>\n")
+						.append("      <model>wikibase-item</model>\n")
+						.append("      <format>application/json</format>\n")
+						.append("    </revision>\n");
+			}
+			xml.append("  </page>\n");
+		}
+		xml.append("</mediawiki>\n");
+		return xml.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	Statement makeStatement(ItemIdValue subject, int index) {
+		Snak mainSnak = makeMainSnak();
+
+		List<SnakGroup> qualifiers = Collections.<SnakGroup> emptyList();
+		if (this.random.nextInt(4) == 0) {
+			qualifiers = Collections.singletonList(makeSnakGroup(
+					this.random.nextBoolean() ? PROPERTY_START_TIME
+							: PROPERTY_POINT_IN_TIME, makeTimeValue()));
+		}
+
+		List<Reference> references = new ArrayList<>();
+		int referenceCount = pickCount(0.7, 5);
+		for (int i = 0; i < referenceCount; i++) {
+			List<SnakGroup> snakGroups = new ArrayList<>();
+			if (this.random.nextBoolean()) {
+				snakGroups.add(makeSnakGroup(PROPERTY_IMPORTED_FROM,
+						makeItemIdValue()));
+			} else {
+				snakGroups.add(makeSnakGroup(PROPERTY_STATED_IN,
+						makeItemIdValue()));
+				snakGroups.add(makeSnakGroup(PROPERTY_REFERENCE_URL,
+						Datamodel.makeStringValue("http://example.org/source/"
+								+ this.random.nextInt(100000))));
+			}
+			snakGroups.add(makeSnakGroup(PROPERTY_RETRIEVED, makeTimeValue()));
+			references.add(Datamodel.makeReference(snakGroups));
+		}
+
+		StatementRank rank = StatementRank.NORMAL;
+		if (this.random.nextInt(20) == 0) {
+			rank = this.random.nextBoolean() ? StatementRank.PREFERRED
+					: StatementRank.DEPRECATED;
+		}
+		String statementId = subject.getId() + "$"
+				+ new UUID(this.random.nextLong(), this.random.nextLong());
+
+		return Datamodel.makeStatement(
+				Datamodel.makeClaim(subject, mainSnak, qualifiers),
+				references, rank, statementId);
+	}
+
+	Snak makeMainSnak() {
+		int kind = this.random.nextInt(100);
+		PropertyIdValue propertyId;
+		Value value;
+		if (kind < 50) {
+			propertyId = makePropertyIdValue(pick(ITEM_PROPERTIES));
+			value = makeItemIdValue();
+		} else if (kind < 70) {
+			propertyId = makePropertyIdValue(pick(STRING_PROPERTIES));
+			value = Datamodel.makeStringValue(Integer.toString(this.random
+					.nextInt(100000000)));
+		} else if (kind < 80) {
+			propertyId = makePropertyIdValue(pick(TIME_PROPERTIES));
+			value = makeTimeValue();
+		} else if (kind < 86) {
+			propertyId = makePropertyIdValue(pick(QUANTITY_PROPERTIES));
+			long amount = this.random.nextInt(10000000);
+			value = Datamodel.makeQuantityValue(new BigDecimal(amount),
+					new BigDecimal(amount - 1), new BigDecimal(amount + 1));
+		} else if (kind < 92) {
+			propertyId = makePropertyIdValue(PROPERTY_COORDINATES);
+			value = Datamodel.makeGlobeCoordinatesValue(
+					this.random.nextInt(180000000) / 1000000.0 - 90,
+					this.random.nextInt(360000000) / 1000000.0 - 180,
+					GlobeCoordinatesValue.PREC_MILLI_ARCSECOND,
+					GlobeCoordinatesValue.GLOBE_EARTH);
+		} else if (kind < 95) {
+			propertyId = makePropertyIdValue(PROPERTY_URL);
+			value = Datamodel.makeStringValue("http://www.example.org/"
+					+ makeText(1, 2).replace(' ', '_'));
+		} else if (kind < 98) {
+			propertyId = makePropertyIdValue(PROPERTY_MEDIA);
+			value = Datamodel.makeStringValue(makeText(1, 4) + ".jpg");
+		} else if (kind < 99) {
+			return Datamodel
+					.makeSomeValueSnak(makePropertyIdValue(pick(ITEM_PROPERTIES)));
+		} else {
+			return Datamodel
+					.makeNoValueSnak(makePropertyIdValue(pick(ITEM_PROPERTIES)));
+		}
+		return Datamodel.makeValueSnak(propertyId, value);
+	}
+
+	SnakGroup makeSnakGroup(String propertyId, Value value) {
+		return Datamodel.makeSnakGroup(Collections.singletonList(Datamodel
+				.makeValueSnak(makePropertyIdValue(propertyId), value)));
+	}
+
+	PropertyIdValue makePropertyIdValue(String propertyId) {
+		return Datamodel.makeWikidataPropertyIdValue(propertyId);
+	}
+
+	ItemIdValue makeItemIdValue() {
+		// Small ids are used much more often than large ones
+		int numericId = 1 + (int) Math.min(Integer.MAX_VALUE - 1,
+				Math.exp(this.random.nextDouble() * 17));
+		return Datamodel.makeWikidataItemIdValue("Q" + numericId);
+	}
+
+	TimeValue makeTimeValue() {
+		return Datamodel.makeTimeValue(1000 + this.random.nextInt(1015),
+				(byte) (1 + this.random.nextInt(12)),
+				(byte) (1 + this.random.nextInt(28)), (byte) 0, (byte) 0,
+				(byte) 0, TimeValue.PREC_DAY, 0, 0, 0,
+				TimeValue.CM_GREGORIAN_PRO);
+	}
+
+	/**
+	 * Picks a number of languages. English is picked most often, followed by
+	 * German and so on.
+	 */
+	List<String> pickLanguages(double mean) {
+		List<String> result = new ArrayList<>();
+		int count = pickCount(mean, LANGUAGES.length);
+		for (int i = 0; i < count; i++) {
+			String language = LANGUAGES[pickCount(4.0, LANGUAGES.length - 1)];
+			if (!result.contains(language)) {
+				result.add(language);
+			}
+		}
+		if (result.isEmpty()) {
+			result.add(LANGUAGES[0]);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an exponentially distributed number with the given mean that is
+	 * not larger than the given maximum.
+	 */
+	int pickCount(double mean, int max) {
+		return (int) Math.min(max,
+				-Math.log(1 - this.random.nextDouble()) * mean);
+	}
+
+	String pick(String[] values) {
+		return values[this.random.nextInt(values.length)];
+	}
+
+	String makeText(int minWords, int maxWords) {
+		StringBuilder text = new StringBuilder();
+		int words = minWords + this.random.nextInt(maxWords - minWords + 1);
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			int length = 2 + this.random.nextInt(9);
+			for (int j = 0; j < length; j++) {
+				char c = (char) ('a' + this.random.nextInt(26));
+				if (j == 0 && i == 0) {
+					c = Character.toUpperCase(c);
+				}
+				text.append(c);
+			}
+			if (this.random.nextInt(20) == 0) {
+				// Some non-ASCII characters, as found in many labels
+				text.append('é');
+			}
+		}
+		return text.toString();
+	}
+
+}
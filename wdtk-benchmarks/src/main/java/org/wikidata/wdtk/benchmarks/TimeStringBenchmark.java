@@ -0,0 +1,134 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerTime;
+
+/**
+ * Benchmarks for parsing and formatting the time strings of
+ * {@link JacksonInnerTime}. The hand-written code of the class is compared
+ * to the regular expression and format string that it used before. Results
+ * are reported per time string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeStringBenchmark {
+
+	static final int SIZE = 1000;
+
+	static final String FORMAT = "%+012d-%02d-%02dT%02d:%02d:%02dZ";
+
+	String[] timeStrings;
+	long[] years;
+	byte[] months;
+	byte[] days;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(BenchmarkDocuments.SEED);
+		this.timeStrings = new String[SIZE];
+		this.years = new long[SIZE];
+		this.months = new byte[SIZE];
+		this.days = new byte[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			// mostly dates of the last centuries, as in Wikidata
+			this.years[i] = (i % 10 == 0) ? -random.nextInt(100000)
+					: 1500 + random.nextInt(520);
+			this.months[i] = (byte) (1 + random.nextInt(12));
+			this.days[i] = (byte) (1 + random.nextInt(28));
+			this.timeStrings[i] = String.format(FORMAT, this.years[i],
+					this.months[i], this.days[i], 0, 0, 0);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void parse(Blackhole blackhole) {
+		for (String timeString : this.timeStrings) {
+			JacksonInnerTime innerTime = new JacksonInnerTime();
+			innerTime.setTime(timeString);
+			blackhole.consume(innerTime.getYear());
+			blackhole.consume(innerTime.getDay());
+		}
+	}
+
+	/**
+	 * Parses the time strings as {@link JacksonInnerTime} did before.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void parseWithRegex(Blackhole blackhole) {
+		for (String timeString : this.timeStrings) {
+			String[] substrings = timeString.split("(?<!\\A)[\\-\\:TZ]");
+			blackhole.consume(Long.parseLong(substrings[0]));
+			blackhole.consume(Byte.parseByte(substrings[1]));
+			blackhole.consume(Byte.parseByte(substrings[2]));
+			blackhole.consume(Byte.parseByte(substrings[3]));
+			blackhole.consume(Byte.parseByte(substrings[4]));
+			blackhole.consume(Byte.parseByte(substrings[5]));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void format(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(new JacksonInnerTime(this.years[i],
+					this.months[i], this.days[i], (byte) 0, (byte) 0,
+					(byte) 0, 0, 0, 0, TimeValue.PREC_DAY,
+					TimeValue.CM_GREGORIAN_PRO).getTime());
+		}
+	}
+
+	/**
+	 * Formats the time strings as {@link JacksonInnerTime} did before.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(SIZE)
+	public void formatWithStringFormat(Blackhole blackhole) {
+		for (int i = 0; i < SIZE; i++) {
+			blackhole.consume(String.format(FORMAT, this.years[i],
+					this.months[i], this.days[i], (byte) 0, (byte) 0,
+					(byte) 0));
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+package org.wikidata.wdtk.benchmarks;
+
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+import org.wikidata.wdtk.util.WebResourceFetcher;
+import org.wikidata.wdtk.wikibaseapi.WikibaseDataFetcher;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmarks for reading results of the wbgetentities action of the Wikibase
+ * API. The streaming parser of {@link WikibaseDataFetcher}, with Jackson data
+ * binding and with the hand-written document decoder, is compared to reading
+ * the whole result into a JSON tree first, as the fetcher did before. The
+ * API result is served from memory, so no network access is needed. Results
+ * are reported per entity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WbGetEntitiesBenchmark {
+
+	/**
+	 * Number of entities in one API result; this is the maximum that the API
+	 * allows for normal users.
+	 */
+	static final int ENTITY_COUNT = 50;
+
+	byte[] apiResult;
+	List<String> entityIds;
+	ObjectMapper mapper;
+	WikibaseDataFetcher streamingFetcher;
+	WikibaseDataFetcher decoderFetcher;
+
+	@Setup
+	public void setUp() throws IOException {
+		DatamodelConverter converter = new DatamodelConverter(
+				new JacksonObjectFactory());
+		this.mapper = new ObjectMapper();
+		this.entityIds = new ArrayList<>(ENTITY_COUNT);
+
+		StringBuilder json = new StringBuilder("{\"entities\":{");
+		List<ItemDocument> documents = BenchmarkDocuments.getItemDocuments();
+		for (int i = 0; i < ENTITY_COUNT; i++) {
+			ItemDocument document = documents.get(i);
+			String id = document.getItemId().getId();
+			this.entityIds.add(id);
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append('"').append(id).append("\":")
+					.append(this.mapper.writeValueAsString(converter
+							.copy(document)));
+		}
+		json.append("},\"success\":1}");
+		this.apiResult = json.toString().getBytes(StandardCharsets.UTF_8);
+
+		this.streamingFetcher = makeFetcher(false);
+		this.decoderFetcher = makeFetcher(true);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTITY_COUNT)
+	public Map<String, EntityDocument> readStreaming() {
+		return this.streamingFetcher.getEntityDocuments(this.entityIds);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTITY_COUNT)
+	public Map<String, EntityDocument> readStreamingWithDocumentDecoder() {
+		return this.decoderFetcher.getEntityDocuments(this.entityIds);
+	}
+
+	/**
+	 * Reads the API result by building a JSON tree and converting the tree of
+	 * each entity, as done by {@link WikibaseDataFetcher} before it parsed
+	 * results in a streaming fashion.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(ENTITY_COUNT)
+	public Map<String, EntityDocument> readTree() throws IOException {
+		Map<String, EntityDocument> result = new HashMap<>(ENTITY_COUNT);
+		try (InputStream inStream = new ByteArrayInputStream(this.apiResult)) {
+			JsonNode entities = this.mapper.readTree(inStream).path(
+					"entities");
+			for (JsonNode entityNode : entities) {
+				if (!entityNode.has("missing")) {
+					JacksonTermedStatementDocument ed = this.mapper
+							.treeToValue(entityNode,
+									JacksonTermedStatementDocument.class);
+					ed.setSiteIri(Datamodel.SITE_WIKIDATA);
+					result.put(ed.getEntityId().getId(), ed);
+				}
+			}
+		}
+		return result;
+	}
+
+	WikibaseDataFetcher makeFetcher(boolean useDocumentDecoder) {
+		WikibaseDataFetcher fetcher = new WikibaseDataFetcher();
+		fetcher.setMaxEntitiesPerRequest(ENTITY_COUNT);
+		fetcher.setUseDocumentDecoder(useDocumentDecoder);
+		fetcher.setWebResourceFetcher(new WebResourceFetcher() {
+			@Override
+			public InputStream getInputStreamForUrl(String urlString) {
+				return new ByteArrayInputStream(
+						WbGetEntitiesBenchmark.this.apiResult);
+			}
+		});
+		return fetcher;
+	}
+
+}
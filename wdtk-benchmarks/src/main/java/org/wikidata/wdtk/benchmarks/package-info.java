@@ -0,0 +1,31 @@
+/**
+ * JMH benchmarks for the performance-critical code paths of the Wikidata
+ * Toolkit: decoding JSON and XML dumps, copying, filtering and serializing
+ * documents, reading results of the Wikibase API, converting them to RDF,
+ * handing output over to writer threads, and the bit vectors of
+ * wdtk-storage.
+ * The benchmarks use synthetic documents, so that no dump files are needed.
+ * Build the module with "mvn package" and run
+ * "java -jar target/wdtk-benchmarks.jar"; see {@link BenchmarkRunner} for
+ * the options.
+ */
+package org.wikidata.wdtk.benchmarks;
+/*
+ * #%L
+ * Wikidata Toolkit Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
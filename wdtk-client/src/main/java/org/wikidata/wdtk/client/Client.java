@@ -2,6 +2,8 @@ package org.wikidata.wdtk.client;
 
 import java.io.IOException;
 
+import javax.management.JMException;
+
 import org.apache.commons.cli.ParseException;
 import org.apache.log4j.ConsoleAppender;
 import org.apache.log4j.Level;
@@ -14,6 +16,8 @@ import org.wikidata.wdtk.dumpfiles.DumpContentType;
 import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
 import org.wikidata.wdtk.dumpfiles.EntityTimerProcessor;
 import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+import org.wikidata.wdtk.util.metrics.LoggingMetricsReporter;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
 
 /*
  * #%L
@@ -151,6 +155,10 @@ public class Client {
 		openActions();
 		this.dumpProcessingController.processDump(dumpFile);
 		closeActions();
+
+		if (!this.clientConfiguration.isQuiet()) {
+			new LoggingMetricsReporter().report(MetricsRegistry.getDefault());
+		}
 	}
 
 	private void prepareSites() {
@@ -223,6 +231,13 @@ public class Client {
 	 * @throws IOException
 	 */
 	public static void main(String[] args) throws ParseException, IOException {
+		try {
+			MetricsRegistry.getDefault().registerMBean();
+		} catch (JMException e) {
+			logger.warn("Could not publish metrics through JMX: "
+					+ e.getMessage());
+		}
+
 		Client client = new Client(
 				new DumpProcessingController("wikidatawiki"), args);
 		client.performActions();
@@ -157,6 +157,16 @@ public class ClientConfiguration {
 	 * directing output to stdout.
 	 */
 	public static final String OPTION_OUTPUT_STDOUT = DumpProcessingOutputAction.OPTION_USE_STDOUT;
+	/**
+	 * Name of the long command line option and configuration file field for
+	 * specifying the compression level to use for the output.
+	 */
+	public static final String OPTION_OUTPUT_COMPRESSION_LEVEL = DumpProcessingOutputAction.OPTION_COMPRESSION_LEVEL;
+	/**
+	 * Name of the long command line option and configuration file field for
+	 * specifying the number of threads to use for compressing the output.
+	 */
+	public static final String OPTION_OUTPUT_COMPRESSION_THREADS = DumpProcessingOutputAction.OPTION_COMPRESSION_THREADS;
 	/**
 	 * Name of the long command line option and configuration file field for
 	 * specifying the tasks for RDF serialization.
@@ -681,10 +691,28 @@ public class ClientConfiguration {
 						"define a compression format to be used for the output; possible values: "
 								+ DumpProcessingOutputAction.COMPRESS_GZIP
 								+ ", "
-								+ DumpProcessingOutputAction.COMPRESS_BZ2)
+								+ DumpProcessingOutputAction.COMPRESS_BZ2
+								+ ", "
+								+ DumpProcessingOutputAction.COMPRESS_ZSTD
+								+ ", "
+								+ DumpProcessingOutputAction.COMPRESS_LZ4)
 				.withLongOpt(OPTION_OUTPUT_COMPRESSION)
 				.create(CMD_OPTION_OUTPUT_COMPRESSION);
 
+		Option compressionLevel = OptionBuilder
+				.hasArg()
+				.withArgName("level")
+				.withDescription(
+						"define the compression level to be used for the output; 0-9 for gz, 1-9 for bz2, 1-22 for zst")
+				.withLongOpt(OPTION_OUTPUT_COMPRESSION_LEVEL).create();
+
+		Option compressionThreads = OptionBuilder
+				.hasArg()
+				.withArgName("number")
+				.withDescription(
+						"define the number of threads to be used for compressing the output; if larger than 1, the output is written as multi-member gz, multi-stream bz2, or multi-frame zst or lz4 file")
+				.withLongOpt(OPTION_OUTPUT_COMPRESSION_THREADS).create();
+
 		options.addOption(config);
 		options.addOption(action);
 		options.addOption(
@@ -698,6 +726,8 @@ public class ClientConfiguration {
 		options.addOption(filterSites);
 		options.addOption(filterProperties);
 		options.addOption(compressionExtention);
+		options.addOption(compressionLevel);
+		options.addOption(compressionThreads);
 		options.addOption(rdfdump);
 		options.addOption(
 				CMD_OPTION_OFFLINE_MODE,
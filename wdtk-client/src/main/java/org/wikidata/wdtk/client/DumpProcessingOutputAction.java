@@ -4,22 +4,28 @@ import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Set;
 
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.util.CompressionType;
 import org.wikidata.wdtk.util.DirectoryManager;
 import org.wikidata.wdtk.util.DirectoryManagerImpl;
+import org.wikidata.wdtk.util.ParallelCompressorOutputStream;
+import org.wikidata.wdtk.util.RingBufferOutputStream;
+import org.wikidata.wdtk.util.metrics.CountingOutputStream;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
 
 /*
  * #%L
@@ -44,7 +50,8 @@ import org.wikidata.wdtk.util.DirectoryManagerImpl;
 /**
  * Abstract implementation of {@link DumpProcessingAction} that represents
  * actions which generate outputs (in the form of files). It supports options
- * {@link #OPTION_DESTINATION}, {@link #OPTION_COMPRESSION}, and
+ * {@link #OPTION_DESTINATION}, {@link #OPTION_COMPRESSION},
+ * {@link #OPTION_COMPRESSION_LEVEL}, {@link #OPTION_COMPRESSION_THREADS}, and
  * {@link #OPTION_USE_STDOUT}. Moreover, it provides some static helper
  * functions for opening files for writing.
  *
@@ -75,9 +82,26 @@ public abstract class DumpProcessingOutputAction implements
 	 * setting the value to the string "true". Other values are ignored.
 	 */
 	public static final String OPTION_USE_STDOUT = "stdout";
+	/**
+	 * Name of the option to set the compression level for compressed output.
+	 * For gzip, the level is a number between 0 and 9; for bz2, it is the
+	 * block size between 1 and 9; for zst, it is a number between 1 and 22.
+	 * The level is ignored for lz4. If not given, a default level is used.
+	 */
+	public static final String OPTION_COMPRESSION_LEVEL = "compressionlevel";
+	/**
+	 * Name of the option to set the number of threads that are used for
+	 * compressing output. If more than one thread is used, the output is
+	 * compressed in independent blocks that are concatenated (multi-member
+	 * gzip, multi-stream bz2, or multi-frame zst and lz4 files). The default
+	 * is one thread.
+	 */
+	public static final String OPTION_COMPRESSION_THREADS = "compressionthreads";
 
 	public static final String COMPRESS_BZ2 = "bz2";
 	public static final String COMPRESS_GZIP = "gz";
+	public static final String COMPRESS_ZSTD = "zst";
+	public static final String COMPRESS_LZ4 = "lz4";
 	public static final String COMPRESS_NONE = "";
 
 	/**
@@ -117,6 +141,18 @@ public abstract class DumpProcessingOutputAction implements
 	 */
 	protected String compressionType = COMPRESS_NONE;
 
+	/**
+	 * Compression level to be used, or
+	 * {@link ParallelCompressorOutputStream#DEFAULT_COMPRESSION_LEVEL} to use
+	 * the default level of the chosen compression.
+	 */
+	protected int compressionLevel = ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL;
+
+	/**
+	 * Number of threads to be used for compressing output.
+	 */
+	protected int compressionThreads = 1;
+
 	/**
 	 * Date stamp of the dump to be processed.
 	 */
@@ -139,15 +175,81 @@ public abstract class DumpProcessingOutputAction implements
 			return true;
 		case OPTION_COMPRESSION:
 			this.compressionType = value.toLowerCase();
+			checkCompressionLevel();
 			return true;
 		case OPTION_USE_STDOUT:
 			this.useStdOut = (value == null) || "true".equals(value);
 			return true;
+		case OPTION_COMPRESSION_LEVEL:
+			try {
+				this.compressionLevel = Integer.parseInt(value);
+				checkCompressionLevel();
+			} catch (NumberFormatException e) {
+				logger.error("Compression level must be a number, but was \""
+						+ value + "\".");
+			}
+			return true;
+		case OPTION_COMPRESSION_THREADS:
+			try {
+				int threads = Integer.parseInt(value);
+				if (threads > 0) {
+					this.compressionThreads = threads;
+				} else {
+					logger.error("Number of compression threads must be positive, but was "
+							+ threads + ".");
+				}
+			} catch (NumberFormatException e) {
+				logger.error("Number of compression threads must be a number, but was \""
+						+ value + "\".");
+			}
+			return true;
 		default:
 			return false;
 		}
 	}
 
+	/**
+	 * Checks if the current compression level is supported by the current
+	 * compression type. If not, an error is logged and the default level is
+	 * used instead. Both options are checked whenever one of them is set, so
+	 * that errors are reported early and independently of the order of
+	 * options.
+	 */
+	void checkCompressionLevel() {
+		if (this.compressionLevel == ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL) {
+			return;
+		}
+
+		int minLevel;
+		int maxLevel;
+		switch (this.compressionType) {
+		case COMPRESS_BZ2:
+			minLevel = BZip2CompressorOutputStream.MIN_BLOCKSIZE;
+			maxLevel = BZip2CompressorOutputStream.MAX_BLOCKSIZE;
+			break;
+		case COMPRESS_GZIP:
+			minLevel = 0;
+			maxLevel = 9;
+			break;
+		case COMPRESS_ZSTD:
+			minLevel = 1;
+			maxLevel = 22;
+			break;
+		default:
+			// no compression levels for other types
+			return;
+		}
+
+		if (this.compressionLevel < minLevel
+				|| this.compressionLevel > maxLevel) {
+			logger.error("Compression level for " + this.compressionType
+					+ " must be between " + minLevel + " and " + maxLevel
+					+ ", but was " + this.compressionLevel
+					+ ". Using the default level.");
+			this.compressionLevel = ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL;
+		}
+	}
+
 	@Override
 	public boolean useStdOut() {
 		return this.useStdOut;
@@ -219,18 +321,59 @@ public abstract class DumpProcessingOutputAction implements
 			throw new RuntimeException(e.toString(), e);
 		}
 
+		out = new CountingOutputStream(out, MetricsRegistry.getDefault()
+				.getCounter("output.bytes"));
 		OutputStream bufferedFileOutputStream = new BufferedOutputStream(out,
 				1024 * 1024 * 5);
 
 		switch (compressionType) {
 		case COMPRESS_BZ2:
+			if (this.compressionThreads > 1) {
+				return new ParallelCompressorOutputStream(
+						bufferedFileOutputStream, CompressionType.BZ2,
+						this.compressionLevel, this.compressionThreads);
+			}
+			if (this.compressionLevel == ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL) {
+				return getAsynchronousOutputStream(new BZip2CompressorOutputStream(
+						bufferedFileOutputStream));
+			}
 			return getAsynchronousOutputStream(new BZip2CompressorOutputStream(
-					bufferedFileOutputStream));
+					bufferedFileOutputStream, this.compressionLevel));
 		case COMPRESS_GZIP:
+			if (this.compressionThreads > 1) {
+				return new ParallelCompressorOutputStream(
+						bufferedFileOutputStream, CompressionType.GZIP,
+						this.compressionLevel, this.compressionThreads);
+			}
 			GzipParameters gzipParameters = new GzipParameters();
-			gzipParameters.setCompressionLevel(7);
+			if (this.compressionLevel == ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL) {
+				gzipParameters.setCompressionLevel(7);
+			} else {
+				gzipParameters.setCompressionLevel(this.compressionLevel);
+			}
 			return getAsynchronousOutputStream(new GzipCompressorOutputStream(
 					bufferedFileOutputStream, gzipParameters));
+		case COMPRESS_ZSTD:
+			if (this.compressionThreads > 1) {
+				return new ParallelCompressorOutputStream(
+						bufferedFileOutputStream, CompressionType.ZSTD,
+						this.compressionLevel, this.compressionThreads);
+			}
+			if (this.compressionLevel == ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL) {
+				return getAsynchronousOutputStream(new ZstdCompressorOutputStream(
+						bufferedFileOutputStream));
+			}
+			return getAsynchronousOutputStream(new ZstdCompressorOutputStream(
+					bufferedFileOutputStream, this.compressionLevel));
+		case COMPRESS_LZ4:
+			if (this.compressionThreads > 1) {
+				return new ParallelCompressorOutputStream(
+						bufferedFileOutputStream, CompressionType.LZ4,
+						this.compressionLevel, this.compressionThreads);
+			}
+			return getAsynchronousOutputStream(new LZ4FrameOutputStream(
+					bufferedFileOutputStream,
+					LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB));
 		case COMPRESS_NONE:
 			return bufferedFileOutputStream;
 		default:
@@ -240,89 +383,35 @@ public abstract class DumpProcessingOutputAction implements
 		}
 	}
 
-	/**
-	 * Simple interface for a Runnable that can be stopped gracefully by calling
-	 * a method {@link FinishableRunnable#finish()}.
-	 *
-	 * @author Markus Kroetzsch
-	 *
-	 */
-	protected interface FinishableRunnable extends Runnable {
-
-		/**
-		 * Finishes the current operation gracefully. The method will wait until
-		 * the thread has really finished.
-		 */
-		void finish();
-	};
-
 	/**
 	 * Creates a separate thread for writing into the given output stream and
-	 * returns a pipe output stream that can be used to pass data to this
-	 * thread.
-	 * <p>
-	 * This code is inspired by
-	 * http://stackoverflow.com/questions/12532073/gzipoutputstream
-	 * -that-does-its-compression-in-a-separate-thread
+	 * returns an output stream that can be used to pass data to this thread.
+	 * The data is handed over through a {@link RingBufferOutputStream}. The
+	 * time that the producer had to wait for the writer thread is logged when
+	 * the stream is closed.
 	 *
 	 * @param outputStream
 	 *            the stream to write to in the thread
 	 * @return a new stream that data should be written to
 	 * @throws IOException
-	 *             if the pipes could not be created for some reason
+	 *             if the stream could not be created for some reason
 	 */
 	protected OutputStream getAsynchronousOutputStream(
 			final OutputStream outputStream) throws IOException {
-		final int SIZE = 1024 * 1024 * 10;
-		final PipedOutputStream pos = new PipedOutputStream();
-		final PipedInputStream pis = new PipedInputStream(pos, SIZE);
-
-		final FinishableRunnable run = new FinishableRunnable() {
-
-			volatile boolean finish = false;
-			volatile boolean hasFinished = false;
-
-			@Override
-			public void finish() {
-				this.finish = true;
-				while (!this.hasFinished) {
-					// loop until thread is really finished
-				}
-			}
-
-			@Override
-			public void run() {
-				try {
-					byte[] bytes = new byte[SIZE];
-					// Note that we finish really gently here, writing all data
-					// that is still in the input first (in theory, new data
-					// could arrive asynchronously, so that the thread never
-					// finishes, but this is not the intended mode of
-					// operation).
-					for (int len; (!this.finish || pis.available() > 0)
-							&& (len = pis.read(bytes)) > 0;) {
-						outputStream.write(bytes, 0, len);
-					}
-				} catch (IOException e) {
-					e.printStackTrace();
-				} finally {
-					close(pis);
-					close(outputStream);
-					this.hasFinished = true;
-				}
-			}
-		};
-
-		new Thread(run, "async-output-stream").start();
+		final RingBufferOutputStream ringBufferOutputStream = new RingBufferOutputStream(
+				outputStream);
 
 		this.outputStreams.add(new Closeable() {
 			@Override
 			public void close() throws IOException {
-				run.finish();
+				ringBufferOutputStream.close();
+				logger.info("Output stream producer waited "
+						+ (ringBufferOutputStream.getProducerStallTime() / 1000000)
+						+ "ms for the output writer thread.");
 			}
 		});
 
-		return pos;
+		return ringBufferOutputStream;
 	}
 
 	/**
@@ -25,6 +25,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
+import org.wikidata.wdtk.util.ParallelCompressorOutputStream;
 
 /**
  * Test for general functionality of the abstract class
@@ -69,6 +70,59 @@ public class DumpProcessingOutputActionTest {
 				DumpProcessingOutputAction.COMPRESS_GZIP);
 	}
 
+	@Test
+	public void testZstdCompressionOutputArguments() {
+		String[] args = new String[] { "-a", "json", "-z", "zst" };
+		DumpProcessingOutputAction action = getActionFromArgs(args);
+
+		assertEquals(action.compressionType,
+				DumpProcessingOutputAction.COMPRESS_ZSTD);
+	}
+
+	@Test
+	public void testCompressionLevelAndThreadsArguments() {
+		String[] args = new String[] { "-a", "json", "-z", "gz",
+				"--compressionlevel", "3", "--compressionthreads", "4" };
+		DumpProcessingOutputAction action = getActionFromArgs(args);
+
+		assertEquals(action.compressionLevel, 3);
+		assertEquals(action.compressionThreads, 4);
+	}
+
+	@Test
+	public void testCompressionLevelOutOfRange() {
+		String[] args = new String[] { "-a", "json", "-z", "gz",
+				"--compressionlevel", "12" };
+		DumpProcessingOutputAction action = getActionFromArgs(args);
+
+		assertEquals(action.compressionLevel,
+				ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL);
+	}
+
+	@Test
+	public void testCompressionLevelCheckedForLaterType() {
+		DumpProcessingOutputAction action = new JsonSerializationAction();
+		action.setOption(DumpProcessingOutputAction.OPTION_COMPRESSION_LEVEL,
+				"15");
+		assertEquals(action.compressionLevel, 15);
+
+		action.setOption(DumpProcessingOutputAction.OPTION_COMPRESSION, "zst");
+		assertEquals(action.compressionLevel, 15);
+
+		action.setOption(DumpProcessingOutputAction.OPTION_COMPRESSION, "bz2");
+		assertEquals(action.compressionLevel,
+				ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL);
+	}
+
+	@Test
+	public void testCompressionThreadsInvalidArguments() {
+		String[] args = new String[] { "-a", "json", "--compressionthreads",
+				"many" };
+		DumpProcessingOutputAction action = getActionFromArgs(args);
+
+		assertEquals(action.compressionThreads, 1);
+	}
+
 	@Test
 	public void testStdOutOutputArgumentsShort() {
 		String[] args = new String[] { "-a", "json", "-s" };
@@ -233,4 +233,154 @@ public class JsonSerializationActionTest {
 		assertEquals(1, results.size());
 		assertEquals(id1, results.get(0));
 	}
+
+	@Test
+	public void testJsonZstdOutput() throws IOException {
+		String[] args = new String[] { "-a", "json", "-o", "output.json", "-z",
+				"zst" };
+
+		DumpProcessingOutputAction.dmClass = MockDirectoryManager.class;
+
+		ClientConfiguration config = new ClientConfiguration(args);
+		JsonSerializationAction jsa = (JsonSerializationAction) config
+				.getActions().get(0);
+
+		ItemIdValue subject1 = Datamodel.makeWikidataItemIdValue("Q42");
+		MonolingualTextValue mtv1 = Datamodel.makeMonolingualTextValue("Test1",
+				"en");
+		MonolingualTextValue mtv2 = Datamodel.makeMonolingualTextValue("Test2",
+				"fr");
+
+		ItemDocument id1 = Datamodel.makeItemDocument(subject1,
+				Arrays.asList(mtv1, mtv2), Arrays.asList(mtv1),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+
+		jsa.open();
+		jsa.processItemDocument(id1);
+		jsa.close();
+
+		MockDirectoryManager mdm = new MockDirectoryManager(Paths.get("."),
+				false);
+
+		ObjectMapper mapper = new ObjectMapper();
+		ObjectReader documentReader = mapper
+				.reader(JacksonTermedStatementDocument.class);
+		MappingIterator<JacksonTermedStatementDocument> documentIterator = documentReader
+				.readValues(mdm.getInputStreamForFile("output.json.zst",
+						CompressionType.ZSTD));
+
+		List<EntityDocument> results = new ArrayList<>();
+		while (documentIterator.hasNextValue()) {
+			JacksonTermedStatementDocument document = documentIterator
+					.nextValue();
+			document.setSiteIri(Datamodel.SITE_WIKIDATA);
+			results.add(document);
+		}
+		documentIterator.close();
+
+		assertEquals(1, results.size());
+		assertEquals(id1, results.get(0));
+	}
+
+	@Test
+	public void testJsonLz4Output() throws IOException {
+		String[] args = new String[] { "-a", "json", "-o", "output.json", "-z",
+				"lz4" };
+
+		DumpProcessingOutputAction.dmClass = MockDirectoryManager.class;
+
+		ClientConfiguration config = new ClientConfiguration(args);
+		JsonSerializationAction jsa = (JsonSerializationAction) config
+				.getActions().get(0);
+
+		ItemIdValue subject1 = Datamodel.makeWikidataItemIdValue("Q42");
+		MonolingualTextValue mtv1 = Datamodel.makeMonolingualTextValue("Test1",
+				"en");
+		MonolingualTextValue mtv2 = Datamodel.makeMonolingualTextValue("Test2",
+				"fr");
+
+		ItemDocument id1 = Datamodel.makeItemDocument(subject1,
+				Arrays.asList(mtv1, mtv2), Arrays.asList(mtv1),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+
+		jsa.open();
+		jsa.processItemDocument(id1);
+		jsa.close();
+
+		MockDirectoryManager mdm = new MockDirectoryManager(Paths.get("."),
+				false);
+
+		ObjectMapper mapper = new ObjectMapper();
+		ObjectReader documentReader = mapper
+				.reader(JacksonTermedStatementDocument.class);
+		MappingIterator<JacksonTermedStatementDocument> documentIterator = documentReader
+				.readValues(mdm.getInputStreamForFile("output.json.lz4",
+						CompressionType.LZ4));
+
+		List<EntityDocument> results = new ArrayList<>();
+		while (documentIterator.hasNextValue()) {
+			JacksonTermedStatementDocument document = documentIterator
+					.nextValue();
+			document.setSiteIri(Datamodel.SITE_WIKIDATA);
+			results.add(document);
+		}
+		documentIterator.close();
+
+		assertEquals(1, results.size());
+		assertEquals(id1, results.get(0));
+	}
+
+	@Test
+	public void testJsonParallelBz2Output() throws IOException {
+		String[] args = new String[] { "-a", "json", "-o", "output.json", "-z",
+				"bz2", "--compressionthreads", "2" };
+
+		DumpProcessingOutputAction.dmClass = MockDirectoryManager.class;
+
+		ClientConfiguration config = new ClientConfiguration(args);
+		JsonSerializationAction jsa = (JsonSerializationAction) config
+				.getActions().get(0);
+
+		ItemIdValue subject1 = Datamodel.makeWikidataItemIdValue("Q42");
+		MonolingualTextValue mtv1 = Datamodel.makeMonolingualTextValue("Test1",
+				"en");
+		MonolingualTextValue mtv2 = Datamodel.makeMonolingualTextValue("Test2",
+				"fr");
+
+		ItemDocument id1 = Datamodel.makeItemDocument(subject1,
+				Arrays.asList(mtv1, mtv2), Arrays.asList(mtv1),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+
+		jsa.open();
+		jsa.processItemDocument(id1);
+		jsa.close();
+
+		MockDirectoryManager mdm = new MockDirectoryManager(Paths.get("."),
+				false);
+
+		ObjectMapper mapper = new ObjectMapper();
+		ObjectReader documentReader = mapper
+				.reader(JacksonTermedStatementDocument.class);
+		MappingIterator<JacksonTermedStatementDocument> documentIterator = documentReader
+				.readValues(mdm.getInputStreamForFile("output.json.bz2",
+						CompressionType.BZ2));
+
+		List<EntityDocument> results = new ArrayList<>();
+		while (documentIterator.hasNextValue()) {
+			JacksonTermedStatementDocument document = documentIterator
+					.nextValue();
+			document.setSiteIri(Datamodel.SITE_WIKIDATA);
+			results.add(document);
+		}
+		documentIterator.close();
+
+		assertEquals(1, results.size());
+		assertEquals(id1, results.get(0));
+	}
 }
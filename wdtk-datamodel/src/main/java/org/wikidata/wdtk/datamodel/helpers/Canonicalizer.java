@@ -0,0 +1,268 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+
+/**
+ * Cache that returns canonical instances of frequently repeated data objects,
+ * such as entity ids, language codes, and site keys. Using a canonicalizer
+ * when creating or deserializing data objects avoids keeping millions of
+ * equal copies of the same few objects in memory, and makes equality checks
+ * between them cheaper, since identical objects are recognized immediately.
+ * <p>
+ * The cache is bounded: each kind of object is stored in a table of fixed
+ * size, and an object that maps to an occupied slot simply replaces the
+ * previous entry. Hence, canonical instances are not guaranteed to be unique;
+ * it is only very likely that frequent objects are shared. Entity ids are
+ * looked up by their numeric id before any object is created, so that no
+ * allocation is needed if the id is found.
+ * <p>
+ * Objects of this class are thread-safe and do not use locks. They can be
+ * shared by all factories and deserializers of an application. All objects
+ * that are stored must be immutable.
+ */
+public class Canonicalizer {
+
+	/**
+	 * Default number of slots of each table.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * Entry of an entity id table. The numeric id and site IRI are stored
+	 * explicitly so that they can be compared without creating objects.
+	 */
+	static final class EntityIdEntry {
+		final int numericId;
+		final String siteIri;
+		final EntityIdValue value;
+
+		EntityIdEntry(int numericId, String siteIri, EntityIdValue value) {
+			this.numericId = numericId;
+			this.siteIri = siteIri;
+			this.value = value;
+		}
+	}
+
+	final AtomicReferenceArray<EntityIdEntry> itemIds;
+	final AtomicReferenceArray<EntityIdEntry> propertyIds;
+	final AtomicReferenceArray<String> strings;
+	final AtomicReferenceArray<Object> objects;
+	final int mask;
+
+	/**
+	 * Constructor. Creates a canonicalizer with tables of
+	 * {@link #DEFAULT_CAPACITY} slots.
+	 */
+	public Canonicalizer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            minimal number of slots of each table; will be rounded up to
+	 *            the next power of two
+	 */
+	public Canonicalizer(int capacity) {
+		if (capacity < 1 || capacity > (1 << 30)) {
+			throw new IllegalArgumentException("Illegal capacity: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.itemIds = new AtomicReferenceArray<>(size);
+		this.propertyIds = new AtomicReferenceArray<>(size);
+		this.strings = new AtomicReferenceArray<>(size);
+		this.objects = new AtomicReferenceArray<>(size);
+	}
+
+	/**
+	 * Returns a canonical instance of the given string. This is meant for
+	 * short strings that occur very often, such as language codes, site keys,
+	 * or site IRIs.
+	 *
+	 * @param string
+	 *            the string to canonicalize; may be null
+	 * @return a string that is equal to the given one
+	 */
+	public String getString(String string) {
+		if (string == null) {
+			return null;
+		}
+		int index = spread(string.hashCode()) & this.mask;
+		String entry = this.strings.get(index);
+		if (string.equals(entry)) {
+			return entry;
+		}
+		this.strings.set(index, string);
+		return string;
+	}
+
+	/**
+	 * Returns a canonical instance of the given object. The object must be
+	 * immutable and must implement {@link Object#equals(Object)} and
+	 * {@link Object#hashCode()} in a compatible way.
+	 *
+	 * @param object
+	 *            the object to canonicalize; may be null
+	 * @return an object that is equal to the given one
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getObject(T object) {
+		if (object == null) {
+			return null;
+		}
+		int index = spread(object.hashCode()) & this.mask;
+		Object entry = this.objects.get(index);
+		if (entry != null && entry.getClass() == object.getClass()
+				&& object.equals(entry)) {
+			return (T) entry;
+		}
+		this.objects.set(index, object);
+		return object;
+	}
+
+	/**
+	 * Returns a canonical {@link ItemIdValue} for the given id.
+	 *
+	 * @param id
+	 *            a string of the form Qn... where n... is the string
+	 *            representation of a positive integer number
+	 * @param siteIri
+	 *            IRI to identify the site, usually the first part of the
+	 *            entity IRI of the site this belongs to, e.g.,
+	 *            "http://www.wikidata.org/entity/"
+	 * @return an {@link ItemIdValue} corresponding to the input
+	 * @throws IllegalArgumentException
+	 *             if the id is not a valid item id
+	 */
+	public ItemIdValue getItemIdValue(String id, String siteIri) {
+		int numericId = EntityIds.parseNumericId(id, 'Q');
+		if (numericId < 0) {
+			// Let the standard implementation report the error
+			return Datamodel.makeItemIdValue(id, siteIri);
+		}
+		return getItemIdValue(numericId, siteIri);
+	}
+
+	/**
+	 * Returns a canonical {@link ItemIdValue} for the given numeric id.
+	 *
+	 * @param numericId
+	 *            the number after "Q"
+	 * @param siteIri
+	 *            IRI to identify the site
+	 * @return an {@link ItemIdValue} corresponding to the input
+	 */
+	public ItemIdValue getItemIdValue(int numericId, String siteIri) {
+		EntityIdValue result = getEntityIdValue(this.itemIds, numericId,
+				siteIri);
+		if (result == null) {
+			siteIri = getString(siteIri);
+			result = Datamodel.makeItemIdValue("Q" + numericId, siteIri);
+			putEntityIdValue(this.itemIds, numericId, siteIri, result);
+		}
+		return (ItemIdValue) result;
+	}
+
+	/**
+	 * Returns a canonical {@link PropertyIdValue} for the given id.
+	 *
+	 * @param id
+	 *            a string of the form Pn... where n... is the string
+	 *            representation of a positive integer number
+	 * @param siteIri
+	 *            IRI to identify the site, usually the first part of the
+	 *            entity IRI of the site this belongs to, e.g.,
+	 *            "http://www.wikidata.org/entity/"
+	 * @return a {@link PropertyIdValue} corresponding to the input
+	 * @throws IllegalArgumentException
+	 *             if the id is not a valid property id
+	 */
+	public PropertyIdValue getPropertyIdValue(String id, String siteIri) {
+		int numericId = EntityIds.parseNumericId(id, 'P');
+		if (numericId < 0) {
+			// Let the standard implementation report the error
+			return Datamodel.makePropertyIdValue(id, siteIri);
+		}
+		return getPropertyIdValue(numericId, siteIri);
+	}
+
+	/**
+	 * Returns a canonical {@link PropertyIdValue} for the given numeric id.
+	 *
+	 * @param numericId
+	 *            the number after "P"
+	 * @param siteIri
+	 *            IRI to identify the site
+	 * @return a {@link PropertyIdValue} corresponding to the input
+	 */
+	public PropertyIdValue getPropertyIdValue(int numericId, String siteIri) {
+		EntityIdValue result = getEntityIdValue(this.propertyIds, numericId,
+				siteIri);
+		if (result == null) {
+			siteIri = getString(siteIri);
+			result = Datamodel.makePropertyIdValue("P" + numericId, siteIri);
+			putEntityIdValue(this.propertyIds, numericId, siteIri, result);
+		}
+		return (PropertyIdValue) result;
+	}
+
+	/**
+	 * Looks up an entity id in the given table.
+	 *
+	 * @return the stored entity id, or null if it is not in the table
+	 */
+	EntityIdValue getEntityIdValue(AtomicReferenceArray<EntityIdEntry> table,
+			int numericId, String siteIri) {
+		EntityIdEntry entry = table.get(spread(numericId) & this.mask);
+		if (entry != null && entry.numericId == numericId
+				&& entry.siteIri.equals(siteIri)) {
+			return entry.value;
+		}
+		return null;
+	}
+
+	void putEntityIdValue(AtomicReferenceArray<EntityIdEntry> table,
+			int numericId, String siteIri, EntityIdValue value) {
+		table.set(spread(numericId) & this.mask, new EntityIdEntry(numericId,
+				siteIri, value));
+	}
+
+	/**
+	 * Mixes the bits of a hash code, so that values that differ only in their
+	 * upper bits are spread over the table, too. Consecutive numbers still
+	 * map to consecutive slots.
+	 */
+	static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+}
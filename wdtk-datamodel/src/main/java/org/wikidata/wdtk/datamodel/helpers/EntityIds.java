@@ -0,0 +1,81 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Static class for parsing the string ids of items and properties, such as
+ * "Q42" or "P31". The methods work on the characters of the string directly
+ * and do not create any objects, so that they can be used in the inner loops
+ * of dump processing.
+ */
+public class EntityIds {
+
+	/**
+	 * Returns the numeric part of the given item or property id, e.g., 42 for
+	 * "Q42" or 31 for "P31".
+	 *
+	 * @param id
+	 *            the id string
+	 * @return the numeric id
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid item or property id
+	 */
+	public static int getNumericId(String id) {
+		int result = -1;
+		if (id != null && id.length() > 0) {
+			char prefix = id.charAt(0);
+			if (prefix == 'Q' || prefix == 'P') {
+				result = parseNumericId(id, prefix);
+			}
+		}
+		if (result < 0) {
+			throw new IllegalArgumentException("Not a valid entity id: " + id);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the numeric part of an entity id string with the given prefix.
+	 *
+	 * @param id
+	 *            the id string
+	 * @param prefix
+	 *            the expected first letter of the id
+	 * @return the numeric id, or -1 if the string is not a valid id with the
+	 *         given prefix
+	 */
+	public static int parseNumericId(String id, char prefix) {
+		if (id == null || id.length() < 2 || id.length() > 11
+				|| id.charAt(0) != prefix) {
+			return -1;
+		}
+		long result = 0;
+		for (int i = 1; i < id.length(); i++) {
+			int digit = id.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return (result > Integer.MAX_VALUE) ? -1 : (int) result;
+	}
+
+}
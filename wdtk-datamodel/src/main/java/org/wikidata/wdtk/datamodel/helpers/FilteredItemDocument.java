@@ -0,0 +1,78 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+
+/**
+ * Read-only view of an {@link ItemDocument} that only shows the data that is
+ * included by a {@link DocumentDataFilter}. No data is copied; see
+ * {@link FilteredTermedStatementDocument} for details.
+ */
+public class FilteredItemDocument extends
+		FilteredTermedStatementDocument<ItemDocument> implements ItemDocument {
+
+	/**
+	 * Constructor.
+	 *
+	 * @param itemDocument
+	 *            the document to filter
+	 * @param filter
+	 *            the filter to apply
+	 */
+	public FilteredItemDocument(ItemDocument itemDocument,
+			DocumentDataFilter filter) {
+		super(itemDocument, filter);
+	}
+
+	@Override
+	public ItemIdValue getItemId() {
+		return this.document.getItemId();
+	}
+
+	@Override
+	public Map<String, SiteLink> getSiteLinks() {
+		return filterByKey(this.document.getSiteLinks(),
+				this.filter.getSiteLinkFilter());
+	}
+
+	@Override
+	public int hashCode() {
+		return Hash.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return Equality.equalsItemDocument(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return ToString.toString(this);
+	}
+
+}
@@ -0,0 +1,188 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only view of a map with string keys that only contains the entries
+ * whose keys are in a given set. No data is copied: lookups check the key
+ * set first, and iteration skips excluded entries. If the key set is smaller
+ * than the map, iteration looks up the keys of the set instead of walking
+ * through the whole map, so that filtering for a few languages is cheap even
+ * on documents with hundreds of labels.
+ *
+ * @param <V>
+ *            the type of the values of the map
+ */
+class FilteredMap<V> extends AbstractMap<String, V> {
+
+	final Map<String, V> map;
+	final Set<String> keys;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param map
+	 *            the map to filter
+	 * @param keys
+	 *            the keys of the entries to include
+	 */
+	FilteredMap(Map<String, V> map, Set<String> keys) {
+		this.map = map;
+		this.keys = keys;
+	}
+
+	@Override
+	public V get(Object key) {
+		return this.keys.contains(key) ? this.map.get(key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.keys.contains(key) && this.map.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		if (this.keys.size() < this.map.size()) {
+			for (String key : this.keys) {
+				if (this.map.containsKey(key)) {
+					size++;
+				}
+			}
+		} else {
+			for (String key : this.map.keySet()) {
+				if (this.keys.contains(key)) {
+					size++;
+				}
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public Set<Entry<String, V>> entrySet() {
+		return new AbstractSet<Entry<String, V>>() {
+
+			@Override
+			public Iterator<Entry<String, V>> iterator() {
+				if (FilteredMap.this.keys.size() < FilteredMap.this.map.size()) {
+					return new KeyLookupIterator();
+				} else {
+					return new EntryFilterIterator();
+				}
+			}
+
+			@Override
+			public int size() {
+				return FilteredMap.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Base class of the iterators over the included entries, which finds the
+	 * next entry ahead of time.
+	 */
+	abstract class FilterIterator implements Iterator<Entry<String, V>> {
+
+		Entry<String, V> next;
+
+		/**
+		 * Finds the next included entry.
+		 *
+		 * @return the entry, or null if there are no more entries
+		 */
+		abstract Entry<String, V> findNext();
+
+		@Override
+		public boolean hasNext() {
+			if (this.next == null) {
+				this.next = findNext();
+			}
+			return this.next != null;
+		}
+
+		@Override
+		public Entry<String, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Entry<String, V> result = this.next;
+			this.next = null;
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Iterator that looks up the keys of the key set in the map.
+	 */
+	class KeyLookupIterator extends FilterIterator {
+
+		final Iterator<String> keyIterator = FilteredMap.this.keys.iterator();
+
+		@Override
+		Entry<String, V> findNext() {
+			while (this.keyIterator.hasNext()) {
+				String key = this.keyIterator.next();
+				V value = FilteredMap.this.map.get(key);
+				if (value != null) {
+					return new SimpleImmutableEntry<>(key, value);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Iterator that walks through the entries of the map.
+	 */
+	class EntryFilterIterator extends FilterIterator {
+
+		final Iterator<Entry<String, V>> entryIterator = FilteredMap.this.map
+				.entrySet().iterator();
+
+		@Override
+		Entry<String, V> findNext() {
+			while (this.entryIterator.hasNext()) {
+				Entry<String, V> entry = this.entryIterator.next();
+				if (FilteredMap.this.keys.contains(entry.getKey())) {
+					return entry;
+				}
+			}
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.TermedDocument;
+import org.wikidata.wdtk.util.NestedIterator;
+
+/**
+ * Base class for read-only views of documents that apply a
+ * {@link DocumentDataFilter} when the data is accessed. In contrast to
+ * {@link DatamodelConverter#copy(org.wikidata.wdtk.datamodel.interfaces.ItemDocument)},
+ * no data objects are copied: the views return the maps and statement groups
+ * of the original document if no filter applies to them, and filtered views
+ * of these maps and lists otherwise. This makes filtering almost free when
+ * only few parts of a document are filtered or used.
+ * <p>
+ * The filter is consulted whenever data is accessed, so changes to the
+ * filter affect existing views. Applications that need documents that are
+ * independent of the original document and the filter should use
+ * {@link DatamodelConverter} instead.
+ *
+ * @param <T>
+ *            the type of the filtered document
+ */
+abstract class FilteredTermedStatementDocument<T extends TermedDocument & StatementDocument>
+		implements TermedDocument, StatementDocument {
+
+	final T document;
+	final DocumentDataFilter filter;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document
+	 *            the document to filter
+	 * @param filter
+	 *            the filter to apply
+	 */
+	FilteredTermedStatementDocument(T document, DocumentDataFilter filter) {
+		this.document = document;
+		this.filter = filter;
+	}
+
+	/**
+	 * Returns the document that this view filters.
+	 *
+	 * @return the original document
+	 */
+	public T getFilteredDocument() {
+		return this.document;
+	}
+
+	@Override
+	public EntityIdValue getEntityId() {
+		return this.document.getEntityId();
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getLabels() {
+		return filterByKey(this.document.getLabels(),
+				this.filter.getLanguageFilter());
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getDescriptions() {
+		return filterByKey(this.document.getDescriptions(),
+				this.filter.getLanguageFilter());
+	}
+
+	@Override
+	public Map<String, List<MonolingualTextValue>> getAliases() {
+		return filterByKey(this.document.getAliases(),
+				this.filter.getLanguageFilter());
+	}
+
+	@Override
+	public List<StatementGroup> getStatementGroups() {
+		List<StatementGroup> statementGroups = this.document
+				.getStatementGroups();
+		Set<PropertyIdValue> propertyFilter = this.filter.getPropertyFilter();
+		if (propertyFilter == null) {
+			return statementGroups;
+		} else if (propertyFilter.isEmpty()) {
+			return Collections.<StatementGroup> emptyList();
+		}
+
+		List<StatementGroup> result = new ArrayList<>(Math.min(
+				statementGroups.size(), propertyFilter.size()));
+		for (StatementGroup statementGroup : statementGroups) {
+			if (propertyFilter.contains(statementGroup.getProperty())) {
+				result.add(statementGroup);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	@Override
+	public Iterator<Statement> getAllStatements() {
+		return new NestedIterator<>(getStatementGroups());
+	}
+
+	/**
+	 * Returns a view of the given map that only contains the given keys.
+	 *
+	 * @param map
+	 *            the map to filter
+	 * @param keys
+	 *            the keys to include, or null if all keys should be included
+	 * @return the filtered map
+	 */
+	static <V> Map<String, V> filterByKey(Map<String, V> map, Set<String> keys) {
+		if (keys == null) {
+			return map;
+		} else if (keys.isEmpty() || map.isEmpty()) {
+			return Collections.<String, V> emptyMap();
+		} else {
+			return new FilteredMap<>(map, keys);
+		}
+	}
+
+}
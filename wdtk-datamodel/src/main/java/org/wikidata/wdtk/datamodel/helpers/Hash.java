@@ -73,6 +73,44 @@ public class Hash {
 		return result;
 	}
 
+	/**
+	 * Returns a hash code for an entity id whose string id consists of a
+	 * one-letter prefix and a number, such as "Q42". The result is the same as
+	 * that of {@link #hashCode(EntityIdValue)}, but the string id is not
+	 * built.
+	 *
+	 * @param prefix
+	 *            the first letter of the string id
+	 * @param numericId
+	 *            the number in the string id
+	 * @param siteIri
+	 *            the site IRI of the entity id
+	 * @param entityType
+	 *            the entity type of the entity id
+	 * @return the hash code of the entity id
+	 */
+	public static int hashCodeNumericEntityId(char prefix, int numericId,
+			String siteIri, String entityType) {
+		// Compute the string hash of the id as specified by String.hashCode()
+		int result = prefix;
+		long remaining = numericId;
+		if (remaining < 0) {
+			result = prime * result + '-';
+			remaining = -remaining;
+		}
+		long divisor = 1;
+		while (divisor * 10 <= remaining) {
+			divisor *= 10;
+		}
+		while (divisor > 0) {
+			result = prime * result + (char) ('0' + (remaining / divisor) % 10);
+			divisor /= 10;
+		}
+		result = prime * result + siteIri.hashCode();
+		result = prime * result + entityType.hashCode();
+		return result;
+	}
+
 	/**
 	 * Returns a hash code for the given object.
 	 *
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.Claim;
 import org.wikidata.wdtk.datamodel.interfaces.DataObjectFactory;
@@ -63,13 +64,45 @@ import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
  */
 public class DataObjectFactoryImpl implements DataObjectFactory {
 
+	/**
+	 * Canonicalizer used to share frequent objects, or null if objects are
+	 * not shared.
+	 */
+	final Canonicalizer canonicalizer;
+
+	/**
+	 * Constructor. Creates a factory that makes new objects for every call.
+	 */
+	public DataObjectFactoryImpl() {
+		this(null);
+	}
+
+	/**
+	 * Constructor. Creates a factory that returns canonical instances of
+	 * entity ids, and uses canonical instances of language codes and site
+	 * keys.
+	 *
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null if objects should not be
+	 *            shared
+	 */
+	public DataObjectFactoryImpl(Canonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+	}
+
 	@Override
 	public ItemIdValue getItemIdValue(String id, String siteIri) {
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getItemIdValue(id, siteIri);
+		}
 		return ItemIdValueImpl.create(id, siteIri);
 	}
 
 	@Override
 	public PropertyIdValue getPropertyIdValue(String id, String siteIri) {
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getPropertyIdValue(id, siteIri);
+		}
 		return PropertyIdValueImpl.create(id, siteIri);
 	}
 
@@ -102,6 +135,9 @@ public class DataObjectFactoryImpl implements DataObjectFactory {
 	@Override
 	public MonolingualTextValue getMonolingualTextValue(String text,
 			String languageCode) {
+		if (this.canonicalizer != null) {
+			languageCode = this.canonicalizer.getString(languageCode);
+		}
 		return new MonolingualTextValueImpl(text, languageCode);
 	}
 
@@ -157,6 +193,9 @@ public class DataObjectFactoryImpl implements DataObjectFactory {
 	@Override
 	public SiteLink getSiteLink(String title, String siteKey,
 			List<String> badges) {
+		if (this.canonicalizer != null) {
+			siteKey = this.canonicalizer.getString(siteKey);
+		}
 		return new SiteLinkImpl(title, siteKey, badges);
 	}
 
@@ -83,6 +83,11 @@ public class ItemIdValueImpl extends NumericEntityIdValueImpl implements
 		return EntityIdValue.ET_ITEM;
 	}
 
+	@Override
+	char getIdPrefix() {
+		return 'Q';
+	}
+
 	@Override
 	public String toString() {
 		return ToString.toString(this);
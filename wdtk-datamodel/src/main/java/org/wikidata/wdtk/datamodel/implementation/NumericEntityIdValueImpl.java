@@ -83,13 +83,25 @@ public abstract class NumericEntityIdValueImpl implements EntityIdValue,
 		return valueVisitor.visit(this);
 	}
 
+	/**
+	 * Returns the letter that precedes the numeric id in the string id.
+	 *
+	 * @return the prefix of the string id
+	 */
+	abstract char getIdPrefix();
+
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		return Hash.hashCodeNumericEntityId(getIdPrefix(), this.id,
+				this.siteIri, getEntityType());
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj != null && obj.getClass() == this.getClass()) {
+			NumericEntityIdValueImpl other = (NumericEntityIdValueImpl) obj;
+			return this.id == other.id && this.siteIri.equals(other.siteIri);
+		}
 		return Equality.equalsEntityIdValue(this, obj);
 	}
 
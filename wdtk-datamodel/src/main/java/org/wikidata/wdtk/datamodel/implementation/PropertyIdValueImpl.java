@@ -84,6 +84,11 @@ public class PropertyIdValueImpl extends NumericEntityIdValueImpl implements
 		return EntityIdValue.ET_PROPERTY;
 	}
 
+	@Override
+	char getIdPrefix() {
+		return 'P';
+	}
+
 	@Override
 	public String toString() {
 		return ToString.toString(this);
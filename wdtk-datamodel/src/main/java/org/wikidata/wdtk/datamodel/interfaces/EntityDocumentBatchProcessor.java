@@ -0,0 +1,51 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.List;
+
+/**
+ * Interface for classes that process {@link EntityDocument} objects in
+ * batches rather than one by one. This is useful for processors that write to
+ * databases, indexes, or other sinks that work best with bulk operations.
+ * <p>
+ * Batch processors can receive documents from any source of single documents
+ * by wrapping them into an {@link EntityDocumentBatcher}. Conversely, an
+ * {@link EntityDocumentBatchSplitter} delivers batches to an ordinary
+ * {@link EntityDocumentProcessor}, and the
+ * {@link EntityDocumentProcessorBroker} accepts batches and processors of
+ * both kinds.
+ */
+public interface EntityDocumentBatchProcessor {
+
+	/**
+	 * Processes the given batch of documents. The list contains
+	 * {@link ItemDocument} and {@link PropertyDocument} objects in the order in
+	 * which they were found. It is owned by the processor after the call, so
+	 * it can be stored or modified.
+	 *
+	 * @param entityDocuments
+	 *            the documents of the batch; never empty
+	 */
+	void processEntityDocuments(List<EntityDocument> entityDocuments);
+
+}
@@ -0,0 +1,74 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.List;
+
+/**
+ * Implementation of {@link EntityDocumentBatchProcessor} that passes the
+ * documents of each batch on to an {@link EntityDocumentProcessor} one by
+ * one. This allows existing processors to be used where batches are
+ * delivered.
+ */
+public class EntityDocumentBatchSplitter implements
+		EntityDocumentBatchProcessor {
+
+	final EntityDocumentProcessor entityDocumentProcessor;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param entityDocumentProcessor
+	 *            the processor to pass the documents to
+	 */
+	public EntityDocumentBatchSplitter(
+			EntityDocumentProcessor entityDocumentProcessor) {
+		this.entityDocumentProcessor = entityDocumentProcessor;
+	}
+
+	@Override
+	public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+		processEntityDocuments(entityDocuments, this.entityDocumentProcessor);
+	}
+
+	/**
+	 * Passes the given documents to the given processor one by one.
+	 *
+	 * @param entityDocuments
+	 *            the documents to process
+	 * @param entityDocumentProcessor
+	 *            the processor to use
+	 */
+	static void processEntityDocuments(List<EntityDocument> entityDocuments,
+			EntityDocumentProcessor entityDocumentProcessor) {
+		for (EntityDocument entityDocument : entityDocuments) {
+			if (entityDocument instanceof ItemDocument) {
+				entityDocumentProcessor
+						.processItemDocument((ItemDocument) entityDocument);
+			} else if (entityDocument instanceof PropertyDocument) {
+				entityDocumentProcessor
+						.processPropertyDocument((PropertyDocument) entityDocument);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of {@link EntityDocumentDumpProcessor} that collects the
+ * documents it receives into batches and passes them on to an
+ * {@link EntityDocumentBatchProcessor}. A batch is delivered when it has
+ * reached the configured size, when its first document has waited for the
+ * configured maximal latency, when {@link #flush()} is called, or when
+ * processing ends with {@link #close()}.
+ * <p>
+ * The latency limit is enforced by a background thread, which is only
+ * started if a limit is set. Batches are then sometimes delivered from this
+ * thread, but never concurrently with other batches. Without a latency limit,
+ * all batches are delivered from the thread that processes the documents.
+ * <p>
+ * The batcher also accepts batches itself. Their documents are added to the
+ * current batch one by one, so that all delivered batches respect the
+ * configured size.
+ */
+public class EntityDocumentBatcher implements EntityDocumentDumpProcessor,
+		EntityDocumentBatchProcessor {
+
+	static final AtomicInteger threadCounter = new AtomicInteger();
+
+	final EntityDocumentBatchProcessor entityDocumentBatchProcessor;
+	final int batchSize;
+	final long maxLatency;
+
+	List<EntityDocument> batch;
+
+	/**
+	 * Number of batches that have been started so far. Used to recognize if
+	 * a scheduled latency check is still about the current batch.
+	 */
+	long batchCount = 0;
+
+	ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Constructor. Batches will be delivered when they are full, or when
+	 * {@link #flush()} or {@link #close()} is called.
+	 *
+	 * @param entityDocumentBatchProcessor
+	 *            the processor to pass the batches to
+	 * @param batchSize
+	 *            the number of documents in each batch
+	 */
+	public EntityDocumentBatcher(
+			EntityDocumentBatchProcessor entityDocumentBatchProcessor,
+			int batchSize) {
+		this(entityDocumentBatchProcessor, batchSize, 0);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param entityDocumentBatchProcessor
+	 *            the processor to pass the batches to
+	 * @param batchSize
+	 *            the maximal number of documents in each batch
+	 * @param maxLatency
+	 *            the maximal time in milliseconds that a document is held
+	 *            back before its batch is delivered, or 0 if batches should
+	 *            only be delivered when they are full
+	 */
+	public EntityDocumentBatcher(
+			EntityDocumentBatchProcessor entityDocumentBatchProcessor,
+			int batchSize, long maxLatency) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Illegal batch size: "
+					+ batchSize);
+		}
+		if (maxLatency < 0) {
+			throw new IllegalArgumentException("Illegal maximal latency: "
+					+ maxLatency);
+		}
+		this.entityDocumentBatchProcessor = entityDocumentBatchProcessor;
+		this.batchSize = batchSize;
+		this.maxLatency = maxLatency;
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	@Override
+	public void open() {
+		// nothing to do; the latency thread is started when needed
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		add(itemDocument);
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		add(propertyDocument);
+	}
+
+	@Override
+	public synchronized void processEntityDocuments(
+			List<EntityDocument> entityDocuments) {
+		for (EntityDocument entityDocument : entityDocuments) {
+			add(entityDocument);
+		}
+	}
+
+	/**
+	 * Delivers the current batch, if it is not empty.
+	 */
+	public synchronized void flush() {
+		if (this.batch.isEmpty()) {
+			return;
+		}
+		List<EntityDocument> fullBatch = this.batch;
+		this.batch = new ArrayList<>(this.batchSize);
+		this.entityDocumentBatchProcessor.processEntityDocuments(fullBatch);
+	}
+
+	/**
+	 * Delivers the remaining documents and stops the latency thread, if any.
+	 * The batcher can still be used afterwards; the latency thread is then
+	 * started again when needed.
+	 */
+	@Override
+	public synchronized void close() {
+		flush();
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+	}
+
+	/**
+	 * Adds a document to the current batch, and delivers the batch if it is
+	 * full.
+	 *
+	 * @param entityDocument
+	 *            the document to add
+	 */
+	synchronized void add(EntityDocument entityDocument) {
+		if (this.batch.isEmpty()) {
+			this.batchCount++;
+			if (this.maxLatency > 0) {
+				scheduleLatencyCheck(this.batchCount);
+			}
+		}
+		this.batch.add(entityDocument);
+		if (this.batch.size() >= this.batchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * Schedules the delivery of the given batch when it has reached the
+	 * maximal latency.
+	 *
+	 * @param batchNumber
+	 *            the number of the batch, as given by {@link #batchCount}
+	 */
+	void scheduleLatencyCheck(final long batchNumber) {
+		if (this.scheduler == null) {
+			this.scheduler = Executors
+					.newSingleThreadScheduledExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"entity-document-batcher-"
+											+ threadCounter.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		this.scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (EntityDocumentBatcher.this) {
+					if (EntityDocumentBatcher.this.batchCount == batchNumber) {
+						flush();
+					}
+				}
+			}
+		}, this.maxLatency, TimeUnit.MILLISECONDS);
+	}
+
+}
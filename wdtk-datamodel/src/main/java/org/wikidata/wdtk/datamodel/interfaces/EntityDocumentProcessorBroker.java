@@ -24,17 +24,31 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 
+import org.wikidata.wdtk.util.metrics.Histogram;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
+
 /**
  * Simple broker implementation of {@link EntityDocumentProcessor} which
  * distributes entity documents to multiple registered listeners.
+ * <p>
+ * The broker also accepts batches of documents. Each batch is passed on as a
+ * whole to registered listeners that implement
+ * {@link EntityDocumentBatchProcessor}, and one document at a time to all
+ * other listeners.
+ * <p>
+ * The time that each listener needs for each document or batch is recorded
+ * in the histogram "processor.&lt;class name&gt;.time" of the default
+ * {@link MetricsRegistry}.
  *
  * @author Markus Kroetzsch
  *
  */
-public class EntityDocumentProcessorBroker implements EntityDocumentProcessor {
+public class EntityDocumentProcessorBroker implements EntityDocumentProcessor,
+		EntityDocumentBatchProcessor {
 
 	final List<EntityDocumentProcessor> entityDocumentProcessors = new ArrayList<EntityDocumentProcessor>();
 	final HashSet<EntityDocumentProcessor> entityDocumentProcessorRegistry = new HashSet<>();
+	final List<Histogram> processingTimeHistograms = new ArrayList<>();
 
 	/**
 	 * Registers a listener which will be called for all entity documents that
@@ -50,20 +64,52 @@ public class EntityDocumentProcessorBroker implements EntityDocumentProcessor {
 				.contains(entityDocumentProcessor)) {
 			this.entityDocumentProcessors.add(entityDocumentProcessor);
 			this.entityDocumentProcessorRegistry.add(entityDocumentProcessor);
+			String histogramName = "processor."
+					+ entityDocumentProcessor.getClass().getName() + ".time";
+			this.processingTimeHistograms.add(MetricsRegistry.getDefault()
+					.getHistogram(histogramName));
 		}
 	}
 
 	@Override
 	public void processItemDocument(ItemDocument itemDocument) {
-		for (EntityDocumentProcessor entityDocumentProcessor : this.entityDocumentProcessors) {
-			entityDocumentProcessor.processItemDocument(itemDocument);
+		for (int i = 0; i < this.entityDocumentProcessors.size(); i++) {
+			long startTime = System.nanoTime();
+			this.entityDocumentProcessors.get(i).processItemDocument(
+					itemDocument);
+			this.processingTimeHistograms.get(i).recordElapsedTime(startTime);
 		}
 	}
 
 	@Override
 	public void processPropertyDocument(PropertyDocument propertyDocument) {
-		for (EntityDocumentProcessor entityDocumentProcessor : this.entityDocumentProcessors) {
-			entityDocumentProcessor.processPropertyDocument(propertyDocument);
+		for (int i = 0; i < this.entityDocumentProcessors.size(); i++) {
+			long startTime = System.nanoTime();
+			this.entityDocumentProcessors.get(i).processPropertyDocument(
+					propertyDocument);
+			this.processingTimeHistograms.get(i).recordElapsedTime(startTime);
+		}
+	}
+
+	@Override
+	public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+		for (int i = 0; i < this.entityDocumentProcessors.size(); i++) {
+			EntityDocumentProcessor entityDocumentProcessor = this.entityDocumentProcessors
+					.get(i);
+			long startTime = System.nanoTime();
+			if (entityDocumentProcessor instanceof EntityDocumentBatchProcessor) {
+				// Batch processors own their list, so each needs a copy
+				List<EntityDocument> batch = entityDocuments;
+				if (this.entityDocumentProcessors.size() > 1) {
+					batch = new ArrayList<>(entityDocuments);
+				}
+				((EntityDocumentBatchProcessor) entityDocumentProcessor)
+						.processEntityDocuments(batch);
+			} else {
+				EntityDocumentBatchSplitter.processEntityDocuments(
+						entityDocuments, entityDocumentProcessor);
+			}
+			this.processingTimeHistograms.get(i).recordElapsedTime(startTime);
 		}
 	}
 
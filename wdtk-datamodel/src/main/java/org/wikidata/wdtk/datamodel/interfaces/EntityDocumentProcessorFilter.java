@@ -21,26 +21,36 @@ package org.wikidata.wdtk.datamodel.interfaces;
  */
 
 import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.helpers.FilteredItemDocument;
+import org.wikidata.wdtk.datamodel.helpers.FilteredPropertyDocument;
 import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
 
 /**
  * Implementation of {@link EntityDocumentProcessor} that acts as a filter,
  * removing some of the data from {@link EntityDocument} objects before passing
- * them on to another processor. There is an overhead involved in using this,
- * even if no filters are set, since a deep copy of the data is created to
- * filter it.
- *
+ * them on to another processor. By default, a deep copy of the filtered data
+ * is created, which yields documents that do not depend on the original ones.
+ * <p>
+ * Optionally, the documents can be wrapped into {@link FilteredItemDocument}
+ * and {@link FilteredPropertyDocument} views instead, which filter the data
+ * when it is accessed without copying it. This is much faster, but the views
+ * keep a reference to the complete original documents. Processors that store
+ * the documents they receive will therefore keep all of the original data in
+ * memory, not just the filtered data, so views should only be used if this is
+ * not the case.
  *
  * @author Markus Kroetzsch
  *
  */
 public class EntityDocumentProcessorFilter implements EntityDocumentProcessor {
 
+	final DocumentDataFilter filter;
 	final DatamodelConverter converter;
 	final EntityDocumentProcessor entityDocumentProcessor;
 
 	/**
-	 * Constructor.
+	 * Constructor. The filtered data of each document will be copied with a
+	 * {@link DatamodelConverter}.
 	 *
 	 * @param entityDocumentProcessor
 	 *            the processor to use on the filtered data
@@ -50,20 +60,53 @@ public class EntityDocumentProcessorFilter implements EntityDocumentProcessor {
 	public EntityDocumentProcessorFilter(
 			EntityDocumentProcessor entityDocumentProcessor,
 			DocumentDataFilter filter) {
-		this.converter = new DatamodelConverter(new DataObjectFactoryImpl());
-		this.converter.setOptionFilter(filter);
+		this(entityDocumentProcessor, filter, true);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param entityDocumentProcessor
+	 *            the processor to use on the filtered data
+	 * @param filter
+	 *            the filter settings to be used
+	 * @param copyDocuments
+	 *            if true, the filtered data will be copied with a
+	 *            {@link DatamodelConverter}; otherwise, documents are only
+	 *            wrapped into filtered views, which keep the original
+	 *            documents in memory for as long as the views are used
+	 */
+	public EntityDocumentProcessorFilter(
+			EntityDocumentProcessor entityDocumentProcessor,
+			DocumentDataFilter filter, boolean copyDocuments) {
+		this.filter = filter;
+		if (copyDocuments) {
+			this.converter = new DatamodelConverter(new DataObjectFactoryImpl());
+			this.converter.setOptionFilter(filter);
+		} else {
+			this.converter = null;
+		}
 		this.entityDocumentProcessor = entityDocumentProcessor;
 	}
 
 	@Override
 	public void processItemDocument(ItemDocument itemDocument) {
-		itemDocument = this.converter.copy(itemDocument);
+		if (this.converter != null) {
+			itemDocument = this.converter.copy(itemDocument);
+		} else {
+			itemDocument = new FilteredItemDocument(itemDocument, this.filter);
+		}
 		this.entityDocumentProcessor.processItemDocument(itemDocument);
 	}
 
 	@Override
 	public void processPropertyDocument(PropertyDocument propertyDocument) {
-		propertyDocument = this.converter.copy(propertyDocument);
+		if (this.converter != null) {
+			propertyDocument = this.converter.copy(propertyDocument);
+		} else {
+			propertyDocument = new FilteredPropertyDocument(propertyDocument,
+					this.filter);
+		}
 		this.entityDocumentProcessor.processPropertyDocument(propertyDocument);
 	}
 
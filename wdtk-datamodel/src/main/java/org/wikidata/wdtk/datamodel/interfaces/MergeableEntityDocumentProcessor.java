@@ -0,0 +1,60 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Interface for {@link EntityDocumentProcessor} objects that compute results
+ * which can be split into independent partial results and merged later on,
+ * such as counters and other aggregates. Such processors can be run on
+ * several threads by {@link ParallelEntityDocumentProcessor}, which creates
+ * one partial processor for each thread, passes a part of the documents to
+ * each of them, and finally merges their results into the original
+ * processor.
+ * <p>
+ * Partial processors are only used from a single thread, so implementations
+ * do not need to be thread-safe.
+ *
+ * @param <T>
+ *            the implementing class, so that partial processors can be
+ *            merged without casts
+ */
+public interface MergeableEntityDocumentProcessor<T extends MergeableEntityDocumentProcessor<T>>
+		extends EntityDocumentProcessor {
+
+	/**
+	 * Creates a new processor with the same configuration as this one, but
+	 * without any results. The new processor will receive some of the
+	 * documents and will later be merged into this processor.
+	 *
+	 * @return new partial processor
+	 */
+	T createPartialProcessor();
+
+	/**
+	 * Adds the results of the given partial processor to the results of this
+	 * processor. The partial processor is not used any more afterwards.
+	 *
+	 * @param partialProcessor
+	 *            a processor created by {@link #createPartialProcessor()}
+	 */
+	void merge(T partialProcessor);
+
+}
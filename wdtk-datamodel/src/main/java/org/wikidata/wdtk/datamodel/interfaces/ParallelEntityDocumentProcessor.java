@@ -0,0 +1,410 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of {@link EntityDocumentDumpProcessor} that processes
+ * documents on several threads using a
+ * {@link MergeableEntityDocumentProcessor}. When opened, it creates one
+ * partial processor for each thread. Documents are collected into chunks,
+ * which are put into a bounded queue that all threads take their work from.
+ * When closed, it waits until all documents have been processed, and merges
+ * the results of all partial processors into the original processor, in the
+ * order in which the partial processors were created.
+ * <p>
+ * Documents are processed in no particular order, and each document is
+ * processed by exactly one partial processor. Processors must therefore not
+ * depend on the order of documents or on seeing related documents together.
+ * If a partial processor throws an exception, the other threads stop
+ * processing documents as well, no results are merged, and the exception is
+ * thrown to the thread that delivers the next documents or closes this
+ * object.
+ *
+ * @param <T>
+ *            the type of the processor
+ */
+public class ParallelEntityDocumentProcessor<T extends MergeableEntityDocumentProcessor<T>>
+		implements EntityDocumentDumpProcessor, EntityDocumentBatchProcessor {
+
+	/**
+	 * Number of documents that are passed to a thread at once.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 256;
+
+	/**
+	 * Marker that tells worker threads to stop. The list is never used for
+	 * documents, so it can be recognized by its identity.
+	 */
+	static final List<EntityDocument> END_OF_DOCUMENTS = new ArrayList<>(0);
+
+	/**
+	 * Milliseconds that the delivering thread waits for space in a full queue
+	 * before it checks again whether any worker thread is still running.
+	 */
+	static final long LIVENESS_CHECK_INTERVAL = 100;
+
+	static final AtomicInteger threadCounter = new AtomicInteger();
+
+	/**
+	 * Thread that processes chunks of documents with one partial processor.
+	 */
+	class Worker extends Thread {
+
+		final T partialProcessor;
+
+		Worker(T partialProcessor) {
+			super("parallel-entity-document-processor-"
+					+ threadCounter.incrementAndGet());
+			this.partialProcessor = partialProcessor;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				processQueue();
+			} finally {
+				ParallelEntityDocumentProcessor.this.runningWorkerCount
+						.decrementAndGet();
+			}
+		}
+
+		void processQueue() {
+			BlockingQueue<List<EntityDocument>> queue = ParallelEntityDocumentProcessor.this.queue;
+			while (true) {
+				List<EntityDocument> chunk;
+				try {
+					chunk = queue.take();
+				} catch (InterruptedException e) {
+					setFailure(e);
+					return;
+				}
+				if (chunk == END_OF_DOCUMENTS) {
+					return;
+				}
+				if (ParallelEntityDocumentProcessor.this.failure == null) {
+					try {
+						process(chunk);
+					} catch (Throwable t) {
+						setFailure(t);
+					}
+				}
+			}
+		}
+
+		void process(List<EntityDocument> chunk) {
+			if (this.partialProcessor instanceof EntityDocumentBatchProcessor) {
+				((EntityDocumentBatchProcessor) this.partialProcessor)
+						.processEntityDocuments(chunk);
+			} else {
+				EntityDocumentBatchSplitter.processEntityDocuments(chunk,
+						this.partialProcessor);
+			}
+		}
+	}
+
+	final T processor;
+	final int threadCount;
+	final int chunkSize;
+
+	final BlockingQueue<List<EntityDocument>> queue;
+	final List<Worker> workers = new ArrayList<>();
+
+	/**
+	 * Number of worker threads that still take documents from the queue.
+	 */
+	final AtomicInteger runningWorkerCount = new AtomicInteger();
+
+	/**
+	 * Documents that have been delivered individually but not yet passed on
+	 * to the worker threads.
+	 */
+	List<EntityDocument> chunk;
+
+	volatile Throwable failure = null;
+	boolean failureReported = false;
+
+	boolean isOpen = false;
+
+	/**
+	 * Constructor. Uses one thread less than there are processors available
+	 * to the Java virtual machine, leaving one processor for the thread that
+	 * reads the documents, but at least one thread.
+	 *
+	 * @param processor
+	 *            the processor that the results are merged into
+	 */
+	public ParallelEntityDocumentProcessor(T processor) {
+		this(processor, Math.max(1,
+				Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param processor
+	 *            the processor that the results are merged into
+	 * @param threadCount
+	 *            the number of threads to use
+	 */
+	public ParallelEntityDocumentProcessor(T processor, int threadCount) {
+		this(processor, threadCount, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param processor
+	 *            the processor that the results are merged into
+	 * @param threadCount
+	 *            the number of threads to use
+	 * @param chunkSize
+	 *            the number of documents that are passed to a thread at once
+	 */
+	public ParallelEntityDocumentProcessor(T processor, int threadCount,
+			int chunkSize) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException("Illegal thread count: "
+					+ threadCount);
+		}
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Illegal chunk size: "
+					+ chunkSize);
+		}
+		this.processor = processor;
+		this.threadCount = threadCount;
+		this.chunkSize = chunkSize;
+		this.queue = new ArrayBlockingQueue<>(2 * threadCount);
+		this.chunk = new ArrayList<>(chunkSize);
+	}
+
+	/**
+	 * Returns the processor that the results are merged into.
+	 *
+	 * @return the processor
+	 */
+	public T getProcessor() {
+		return this.processor;
+	}
+
+	/**
+	 * Creates the partial processors and starts the worker threads.
+	 */
+	@Override
+	public void open() {
+		if (this.isOpen) {
+			throw new IllegalStateException("Processor is already open");
+		}
+		this.queue.clear();
+		this.failure = null;
+		this.failureReported = false;
+		for (int i = 0; i < this.threadCount; i++) {
+			this.workers.add(new Worker(this.processor.createPartialProcessor()));
+		}
+		this.runningWorkerCount.set(this.workers.size());
+		for (Worker worker : this.workers) {
+			worker.start();
+		}
+		this.isOpen = true;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		add(itemDocument);
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		add(propertyDocument);
+	}
+
+	@Override
+	public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+		if (entityDocuments.isEmpty()) {
+			return;
+		}
+		submitChunk();
+		submit(entityDocuments);
+	}
+
+	/**
+	 * Waits until all documents have been processed, stops the worker
+	 * threads, and merges the results of the partial processors into the
+	 * original processor.
+	 *
+	 * @throws RuntimeException
+	 *             if a partial processor has thrown an exception
+	 */
+	@Override
+	public void close() {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Processor is not open");
+		}
+		this.isOpen = false;
+		// Nothing is added once all worker threads have stopped
+		List<EntityDocument> lastChunk = this.chunk;
+		this.chunk = new ArrayList<>(this.chunkSize);
+		if (lastChunk.isEmpty() || enqueue(lastChunk)) {
+			for (int i = 0; i < this.workers.size(); i++) {
+				if (!enqueue(END_OF_DOCUMENTS)) {
+					break;
+				}
+			}
+		}
+		try {
+			for (Worker worker : this.workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(
+					"Interrupted while waiting for worker threads", e);
+		}
+
+		List<Worker> finishedWorkers = new ArrayList<>(this.workers);
+		this.workers.clear();
+		if (this.failure != null) {
+			checkFailure();
+			return;
+		}
+		for (Worker worker : finishedWorkers) {
+			this.processor.merge(worker.partialProcessor);
+		}
+	}
+
+	/**
+	 * Adds a single document to the current chunk, and passes the chunk on to
+	 * the worker threads if it is full.
+	 *
+	 * @param entityDocument
+	 *            the document to add
+	 */
+	void add(EntityDocument entityDocument) {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Processor is not open");
+		}
+		this.chunk.add(entityDocument);
+		if (this.chunk.size() >= this.chunkSize) {
+			submitChunk();
+		}
+	}
+
+	/**
+	 * Passes the current chunk on to the worker threads, if it is not empty.
+	 */
+	void submitChunk() {
+		if (this.chunk.isEmpty()) {
+			return;
+		}
+		List<EntityDocument> fullChunk = this.chunk;
+		this.chunk = new ArrayList<>(this.chunkSize);
+		submit(fullChunk);
+	}
+
+	/**
+	 * Passes the given documents on to the worker threads, waiting until
+	 * there is space in the queue if necessary.
+	 *
+	 * @param entityDocuments
+	 *            the documents, which must not be modified afterwards
+	 * @throws RuntimeException
+	 *             if a partial processor has thrown an exception, or if all
+	 *             worker threads have stopped
+	 */
+	void submit(List<EntityDocument> entityDocuments) {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Processor is not open");
+		}
+		checkFailure();
+		if (!enqueue(entityDocuments)) {
+			this.failureReported = true;
+			throw new RuntimeException("Worker threads have stopped",
+					this.failure);
+		}
+	}
+
+	/**
+	 * Adds a chunk of documents to the queue, waiting for space as long as
+	 * some worker thread is running.
+	 *
+	 * @param entityDocuments
+	 *            the documents
+	 * @return false if the chunk was not added since all worker threads have
+	 *         stopped
+	 */
+	boolean enqueue(List<EntityDocument> entityDocuments) {
+		if (this.runningWorkerCount.get() == 0) {
+			return false;
+		}
+		try {
+			while (!this.queue.offer(entityDocuments, LIVENESS_CHECK_INTERVAL,
+					TimeUnit.MILLISECONDS)) {
+				if (this.runningWorkerCount.get() == 0) {
+					return false;
+				}
+			}
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(
+					"Interrupted while waiting for worker threads", e);
+		}
+	}
+
+	/**
+	 * Records the first exception that was thrown by a partial processor.
+	 * Once a failure is recorded, the worker threads only empty the queue,
+	 * so that the thread that delivers documents is not blocked.
+	 */
+	synchronized void setFailure(Throwable failure) {
+		if (this.failure == null) {
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Throws the exception that was thrown by a partial processor, if any.
+	 * The exception is thrown only once.
+	 */
+	void checkFailure() {
+		Throwable failure = this.failure;
+		if (failure == null || this.failureReported) {
+			return;
+		}
+		this.failureReported = true;
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else {
+			throw new RuntimeException("Entity document processor failed: "
+					+ failure.toString(), failure);
+		}
+	}
+
+}
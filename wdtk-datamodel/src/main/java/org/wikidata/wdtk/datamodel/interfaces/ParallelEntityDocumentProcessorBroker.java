@@ -0,0 +1,514 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Broker implementation of {@link EntityDocumentDumpProcessor} that
+ * distributes entity documents to multiple registered listeners, each of
+ * which runs on its own thread. This way, the time needed for processing a
+ * dump is determined by the slowest listener rather than by the sum of all
+ * listeners. The listeners must not depend on each other, and they must not
+ * modify the documents.
+ * <p>
+ * Each listener has a bounded queue of documents that are waiting to be
+ * processed. Documents are added to the queues in chunks to reduce
+ * synchronization overhead. If the queue of some listener is full, the
+ * thread that delivers documents to the broker waits until there is space
+ * again, so that memory usage stays bounded if listeners are slower than the
+ * parser. The number of documents that each listener lags behind, and the
+ * time that the delivering thread has been blocked by it, can be queried to
+ * find the listeners that slow down processing.
+ * <p>
+ * The listener threads are started by {@link #open()}, and all documents are
+ * processed when {@link #close()} returns. Listeners that are
+ * {@link EntityDocumentDumpProcessor} objects are opened and closed on the
+ * thread that opens and closes the broker, before the first and after the
+ * last of their documents, respectively. If a listener throws an exception,
+ * it does not receive any further documents, and the exception is thrown to
+ * the thread that delivers the next documents or closes the broker.
+ * <p>
+ * Like {@link EntityDocumentProcessorBroker}, this class accepts batches of
+ * documents and passes them on as a whole to listeners that implement
+ * {@link EntityDocumentBatchProcessor}.
+ */
+public class ParallelEntityDocumentProcessorBroker implements
+		EntityDocumentDumpProcessor, EntityDocumentBatchProcessor {
+
+	/**
+	 * Default maximal number of documents in the queue of each listener.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+	/**
+	 * Maximal number of individually delivered documents that are added to
+	 * the queues at once.
+	 */
+	static final int MAX_CHUNK_SIZE = 64;
+
+	/**
+	 * Marker that tells listener threads to stop. The list is never used for
+	 * documents, so it can be recognized by its identity.
+	 */
+	static final List<EntityDocument> END_OF_DOCUMENTS = new ArrayList<>(0);
+
+	/**
+	 * Milliseconds that the delivering thread waits for space in a full queue
+	 * before it checks again whether the listener thread is still running.
+	 */
+	static final long LIVENESS_CHECK_INTERVAL = 100;
+
+	static final AtomicInteger threadCounter = new AtomicInteger();
+
+	/**
+	 * Listener that is registered with the broker, together with its queue
+	 * and statistics.
+	 */
+	static class Subscription implements Runnable {
+
+		final EntityDocumentProcessor entityDocumentProcessor;
+		final BlockingQueue<List<EntityDocument>> queue;
+
+		/**
+		 * True if the documents of each chunk must be copied before they are
+		 * passed on, since other listeners read the same chunk.
+		 */
+		boolean copyBatches = false;
+
+		final AtomicLong submittedCount = new AtomicLong();
+		final AtomicLong processedCount = new AtomicLong();
+		final AtomicLong blockedTime = new AtomicLong();
+		volatile long maxLag = 0;
+		volatile Throwable failure = null;
+		boolean failureReported = false;
+		/**
+		 * True if the listener thread has stopped taking documents from the
+		 * queue, either after the end of the documents or since it was
+		 * interrupted.
+		 */
+		volatile boolean stopped = false;
+
+		Thread thread = null;
+
+		Subscription(EntityDocumentProcessor entityDocumentProcessor,
+				int queueSize) {
+			this.entityDocumentProcessor = entityDocumentProcessor;
+			this.queue = new ArrayBlockingQueue<>(queueSize);
+		}
+
+		/**
+		 * Adds a chunk of documents to the queue, waiting for space if
+		 * necessary.
+		 *
+		 * @throws RuntimeException
+		 *             if the listener thread has stopped, so that the chunk
+		 *             would never be taken from the queue
+		 */
+		void submit(List<EntityDocument> chunk) {
+			if (!enqueue(chunk)) {
+				this.failureReported = true;
+				throw new RuntimeException(
+						"Entity document processor thread has stopped",
+						this.failure);
+			}
+		}
+
+		/**
+		 * Adds a chunk of documents to the queue, waiting for space as long as
+		 * the listener thread is running.
+		 *
+		 * @return false if the chunk was not added since the listener thread
+		 *         has stopped
+		 */
+		boolean enqueue(List<EntityDocument> chunk) {
+			if (this.stopped) {
+				return false;
+			}
+			long lag = this.submittedCount.addAndGet(chunk.size())
+					- this.processedCount.get();
+			if (lag > this.maxLag) {
+				this.maxLag = lag;
+			}
+			if (this.queue.offer(chunk)) {
+				return true;
+			}
+			long start = System.nanoTime();
+			try {
+				while (!this.queue.offer(chunk, LIVENESS_CHECK_INTERVAL,
+						TimeUnit.MILLISECONDS)) {
+					if (this.stopped) {
+						return false;
+					}
+				}
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(
+						"Interrupted while waiting for entity document processor",
+						e);
+			} finally {
+				this.blockedTime.addAndGet(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				processQueue();
+			} finally {
+				this.stopped = true;
+			}
+		}
+
+		void processQueue() {
+			while (true) {
+				List<EntityDocument> chunk;
+				try {
+					chunk = this.queue.take();
+				} catch (InterruptedException e) {
+					this.failure = e;
+					return;
+				}
+				if (chunk == END_OF_DOCUMENTS) {
+					return;
+				}
+				if (this.failure == null) {
+					try {
+						process(chunk);
+					} catch (Throwable t) {
+						this.failure = t;
+					}
+				}
+				this.processedCount.addAndGet(chunk.size());
+			}
+		}
+
+		void process(List<EntityDocument> chunk) {
+			if (this.entityDocumentProcessor instanceof EntityDocumentBatchProcessor) {
+				if (this.copyBatches) {
+					chunk = new ArrayList<>(chunk);
+				}
+				((EntityDocumentBatchProcessor) this.entityDocumentProcessor)
+						.processEntityDocuments(chunk);
+			} else {
+				EntityDocumentBatchSplitter.processEntityDocuments(chunk,
+						this.entityDocumentProcessor);
+			}
+		}
+	}
+
+	final Map<EntityDocumentProcessor, Subscription> subscriptions = new LinkedHashMap<>();
+	final int chunkSize;
+	final int queueSize;
+
+	/**
+	 * Documents that have been delivered individually but not yet passed on
+	 * to the listeners.
+	 */
+	List<EntityDocument> chunk;
+
+	boolean isOpen = false;
+
+	/**
+	 * Constructor. Creates a broker with queues of
+	 * {@link #DEFAULT_QUEUE_CAPACITY} documents.
+	 */
+	public ParallelEntityDocumentProcessorBroker() {
+		this(DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param queueCapacity
+	 *            the approximate number of documents that can wait for each
+	 *            listener before the delivering thread is blocked; batches
+	 *            that are delivered to the broker as a whole take the space
+	 *            of one chunk of up to {@value #MAX_CHUNK_SIZE} documents,
+	 *            whatever their size
+	 */
+	public ParallelEntityDocumentProcessorBroker(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Illegal queue capacity: "
+					+ queueCapacity);
+		}
+		this.chunkSize = Math.max(1,
+				Math.min(MAX_CHUNK_SIZE, queueCapacity / 4));
+		this.queueSize = Math.max(1, queueCapacity / this.chunkSize);
+		this.chunk = new ArrayList<>(this.chunkSize);
+	}
+
+	/**
+	 * Registers a listener which will henceforth be notified of all entity
+	 * documents that are processed by the broker. Listeners can only be
+	 * registered while the broker is not open. Listeners that have been
+	 * registered before are ignored.
+	 *
+	 * @param entityDocumentProcessor
+	 *            the listener to register
+	 */
+	public void registerEntityDocumentProcessor(
+			EntityDocumentProcessor entityDocumentProcessor) {
+		if (this.isOpen) {
+			throw new IllegalStateException(
+					"Cannot register listeners while the broker is open");
+		}
+		if (!this.subscriptions.containsKey(entityDocumentProcessor)) {
+			this.subscriptions.put(entityDocumentProcessor, new Subscription(
+					entityDocumentProcessor, this.queueSize));
+		}
+	}
+
+	/**
+	 * Opens all listeners that are {@link EntityDocumentDumpProcessor}
+	 * objects, and starts one thread for each listener.
+	 */
+	@Override
+	public void open() {
+		if (this.isOpen) {
+			throw new IllegalStateException("Broker is already open");
+		}
+		for (Subscription subscription : this.subscriptions.values()) {
+			if (subscription.entityDocumentProcessor instanceof EntityDocumentDumpProcessor) {
+				((EntityDocumentDumpProcessor) subscription.entityDocumentProcessor)
+						.open();
+			}
+		}
+		for (Subscription subscription : this.subscriptions.values()) {
+			subscription.queue.clear();
+			subscription.copyBatches = this.subscriptions.size() > 1;
+			subscription.failure = null;
+			subscription.failureReported = false;
+			subscription.stopped = false;
+			subscription.thread = new Thread(subscription,
+					"entity-document-processor-"
+							+ threadCounter.incrementAndGet());
+			subscription.thread.setDaemon(true);
+			subscription.thread.start();
+		}
+		this.isOpen = true;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		add(itemDocument);
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		add(propertyDocument);
+	}
+
+	@Override
+	public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+		if (entityDocuments.isEmpty()) {
+			return;
+		}
+		submitChunk();
+		submit(entityDocuments);
+	}
+
+	/**
+	 * Waits until all listeners have processed all documents, stops the
+	 * listener threads, and closes all listeners that are
+	 * {@link EntityDocumentDumpProcessor} objects.
+	 *
+	 * @throws RuntimeException
+	 *             if a listener has thrown an exception
+	 */
+	@Override
+	public void close() {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Broker is not open");
+		}
+		this.isOpen = false;
+		// Failures are only reported after all threads have stopped
+		List<EntityDocument> lastChunk = this.chunk;
+		this.chunk = new ArrayList<>(this.chunkSize);
+		// Listener threads that have stopped early are only joined
+		for (Subscription subscription : this.subscriptions.values()) {
+			if (lastChunk.isEmpty() || subscription.enqueue(lastChunk)) {
+				subscription.enqueue(END_OF_DOCUMENTS);
+			}
+		}
+		for (Subscription subscription : this.subscriptions.values()) {
+			try {
+				subscription.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(
+						"Interrupted while waiting for entity document processor",
+						e);
+			}
+			subscription.thread = null;
+		}
+
+		for (Subscription subscription : this.subscriptions.values()) {
+			if (subscription.entityDocumentProcessor instanceof EntityDocumentDumpProcessor) {
+				((EntityDocumentDumpProcessor) subscription.entityDocumentProcessor)
+						.close();
+			}
+		}
+		checkFailures();
+	}
+
+	/**
+	 * Returns the number of documents that the given listener has processed
+	 * since it was registered.
+	 *
+	 * @param entityDocumentProcessor
+	 *            a registered listener
+	 * @return number of processed documents
+	 */
+	public long getProcessedDocumentCount(
+			EntityDocumentProcessor entityDocumentProcessor) {
+		return getSubscription(entityDocumentProcessor).processedCount.get();
+	}
+
+	/**
+	 * Returns the number of documents that have been passed on to the given
+	 * listener but have not been processed yet. Documents that are still
+	 * collected into a chunk by the broker are not counted.
+	 *
+	 * @param entityDocumentProcessor
+	 *            a registered listener
+	 * @return number of waiting documents
+	 */
+	public long getLag(EntityDocumentProcessor entityDocumentProcessor) {
+		Subscription subscription = getSubscription(entityDocumentProcessor);
+		return subscription.submittedCount.get()
+				- subscription.processedCount.get();
+	}
+
+	/**
+	 * Returns the largest number of documents that have been waiting for the
+	 * given listener at any time since it was registered.
+	 *
+	 * @param entityDocumentProcessor
+	 *            a registered listener
+	 * @return maximal number of waiting documents
+	 */
+	public long getMaxLag(EntityDocumentProcessor entityDocumentProcessor) {
+		return getSubscription(entityDocumentProcessor).maxLag;
+	}
+
+	/**
+	 * Returns the total time that the thread delivering documents to the
+	 * broker has waited because the queue of the given listener was full.
+	 *
+	 * @param entityDocumentProcessor
+	 *            a registered listener
+	 * @return waiting time in milliseconds
+	 */
+	public long getBlockedTime(EntityDocumentProcessor entityDocumentProcessor) {
+		return TimeUnit.NANOSECONDS.toMillis(getSubscription(
+				entityDocumentProcessor).blockedTime.get());
+	}
+
+	Subscription getSubscription(EntityDocumentProcessor entityDocumentProcessor) {
+		Subscription subscription = this.subscriptions
+				.get(entityDocumentProcessor);
+		if (subscription == null) {
+			throw new IllegalArgumentException(
+					"Entity document processor is not registered: "
+							+ entityDocumentProcessor);
+		}
+		return subscription;
+	}
+
+	/**
+	 * Adds a single document to the current chunk, and passes the chunk on to
+	 * the listeners if it is full.
+	 *
+	 * @param entityDocument
+	 *            the document to add
+	 */
+	void add(EntityDocument entityDocument) {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Broker is not open");
+		}
+		this.chunk.add(entityDocument);
+		if (this.chunk.size() >= this.chunkSize) {
+			submitChunk();
+		}
+	}
+
+	/**
+	 * Passes the current chunk on to the listeners, if it is not empty.
+	 */
+	void submitChunk() {
+		if (this.chunk.isEmpty()) {
+			return;
+		}
+		List<EntityDocument> fullChunk = this.chunk;
+		this.chunk = new ArrayList<>(this.chunkSize);
+		submit(fullChunk);
+	}
+
+	/**
+	 * Passes the given documents on to all listeners.
+	 *
+	 * @param entityDocuments
+	 *            the documents, which must not be modified afterwards
+	 */
+	void submit(List<EntityDocument> entityDocuments) {
+		if (!this.isOpen) {
+			throw new IllegalStateException("Broker is not open");
+		}
+		checkFailures();
+		for (Subscription subscription : this.subscriptions.values()) {
+			subscription.submit(entityDocuments);
+		}
+	}
+
+	/**
+	 * Throws the first exception that was thrown by a listener and that has
+	 * not been thrown before, if any.
+	 */
+	void checkFailures() {
+		for (Subscription subscription : this.subscriptions.values()) {
+			Throwable failure = subscription.failure;
+			if (failure == null || subscription.failureReported) {
+				continue;
+			}
+			subscription.failureReported = true;
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			} else if (failure instanceof Error) {
+				throw (Error) failure;
+			} else {
+				throw new RuntimeException(
+						"Entity document processor failed: "
+								+ failure.toString(), failure);
+			}
+		}
+	}
+
+}
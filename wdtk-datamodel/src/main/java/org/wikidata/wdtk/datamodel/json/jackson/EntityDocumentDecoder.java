@@ -0,0 +1,1274 @@
+package org.wikidata.wdtk.datamodel.json.jackson;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerEntityId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerGlobeCoordinates;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerMonolingualText;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerQuantity;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerTime;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueEntityId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueGlobeCoordinates;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueItemId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueMonolingualText;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValuePropertyId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueQuantity;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueString;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueTime;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+/**
+ * Hand-written decoder for the JSON serialization of Wikibase entity
+ * documents. It creates the same {@link JacksonItemDocument} and
+ * {@link JacksonPropertyDocument} objects as Jackson's data binding, but reads
+ * them directly from a {@link JsonParser}, without reflection, intermediate
+ * trees or maps, and without buffering tokens to find the type of documents,
+ * snaks, or values. This makes it considerably faster when processing large
+ * amounts of data.
+ * <p>
+ * The decoder accepts the JSON that data binding accepts. Unknown fields are
+ * ignored everywhere, and fields with value null are mostly treated like
+ * missing fields. Problems with the structure of the JSON are reported as
+ * {@link JsonMappingException}.
+ * <p>
+ * If a {@link Canonicalizer} is given, language codes, site keys and
+ * property ids are replaced by canonical instances. Entity id values and
+ * their inner objects are not shared, since Jackson objects can be modified;
+ * their entity types always use the constants of
+ * {@link JacksonInnerEntityId}.
+ * <p>
+ * Objects of this class do not have any state of their own and can be used by
+ * several threads at once.
+ */
+public class EntityDocumentDecoder {
+
+	final JsonFactory jsonFactory;
+	final Canonicalizer canonicalizer;
+
+	/**
+	 * Constructor.
+	 */
+	public EntityDocumentDecoder() {
+		this(new JsonFactory());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param jsonFactory
+	 *            the factory used to create parsers when decoding strings
+	 */
+	public EntityDocumentDecoder(JsonFactory jsonFactory) {
+		this(jsonFactory, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param jsonFactory
+	 *            the factory used to create parsers when decoding strings
+	 * @param canonicalizer
+	 *            the canonicalizer used to share frequent objects, or null
+	 *            if objects should not be shared
+	 */
+	public EntityDocumentDecoder(JsonFactory jsonFactory,
+			Canonicalizer canonicalizer) {
+		this.jsonFactory = jsonFactory;
+		this.canonicalizer = canonicalizer;
+	}
+
+	/**
+	 * Decodes the entity document that is serialized in the given string.
+	 *
+	 * @param json
+	 *            the JSON serialization of the document
+	 * @return the document
+	 * @throws IOException
+	 *             if the string could not be parsed or is not a valid
+	 *             document
+	 */
+	public JacksonTermedStatementDocument readDocument(String json)
+			throws IOException {
+		try (JsonParser parser = this.jsonFactory.createParser(json)) {
+			return readDocument(parser);
+		}
+	}
+
+	/**
+	 * Decodes an entity document from the given parser. The parser must be
+	 * positioned on the start of the JSON object of the document. If the
+	 * parser has no current token, the next token is read first. After the
+	 * method returns, the parser is positioned on the end of the object.
+	 *
+	 * @param parser
+	 *            the parser to read from
+	 * @return the document
+	 * @throws IOException
+	 *             if the JSON could not be parsed or is not a valid document
+	 */
+	public JacksonTermedStatementDocument readDocument(JsonParser parser)
+			throws IOException {
+		if (!parser.hasCurrentToken()) {
+			parser.nextToken();
+		}
+		expectStartObject(parser, "entity document");
+
+		String type = null;
+		String id = null;
+		String datatype = null;
+		Map<String, JacksonMonolingualTextValue> labels = null;
+		Map<String, JacksonMonolingualTextValue> descriptions = null;
+		Map<String, List<JacksonMonolingualTextValue>> aliases = null;
+		Map<String, List<JacksonStatement>> claims = null;
+		Map<String, JacksonSiteLink> siteLinks = null;
+		long revisionId = 0;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			switch (fieldName) {
+			case "type":
+				type = readString(parser);
+				break;
+			case "id":
+				id = readString(parser);
+				break;
+			case "datatype":
+				datatype = readString(parser);
+				break;
+			case "labels":
+				labels = readTermMap(parser, fieldName);
+				break;
+			case "descriptions":
+				descriptions = readTermMap(parser, fieldName);
+				break;
+			case "aliases":
+				aliases = readAliases(parser);
+				break;
+			case "claims":
+				claims = readClaims(parser);
+				break;
+			case "sitelinks":
+				siteLinks = readSiteLinks(parser);
+				break;
+			case "lastrevid":
+				revisionId = readLong(parser);
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+
+		JacksonTermedStatementDocument document = createDocument(type, id,
+				datatype, parser.getCurrentLocation());
+		if (siteLinks != null && document instanceof JacksonItemDocument) {
+			((JacksonItemDocument) document).setSiteLinks(siteLinks);
+		}
+		if (labels != null) {
+			document.setLabels(labels);
+		}
+		if (descriptions != null) {
+			document.setDescriptions(descriptions);
+		}
+		if (aliases != null) {
+			document.setAliases(aliases);
+		}
+		if (claims != null) {
+			document.setJsonClaims(claims);
+		}
+		document.setRevisionId(revisionId);
+		return document;
+	}
+
+	/**
+	 * Decodes the entity document that is serialized in the given string,
+	 * without decoding its terms, site links, and statements yet.
+	 *
+	 * @see #readLazyDocument(byte[], int, int)
+	 * @param json
+	 *            the JSON serialization of the document
+	 * @return the document
+	 * @throws IOException
+	 *             if the string could not be parsed or is not a valid
+	 *             document
+	 */
+	public JacksonTermedStatementDocument readLazyDocument(String json)
+			throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		return readLazyDocument(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Decodes the entity document that is serialized in the given part of a
+	 * byte array, without decoding its labels, descriptions, aliases, site
+	 * links, and statements yet. Instead, the document remembers where these
+	 * sections are found in the array, and each section is decoded when it is
+	 * accessed for the first time. The result is the same document that
+	 * {@link #readDocument(JsonParser)} returns, but documents of which only
+	 * some parts are used can be read much faster.
+	 * <p>
+	 * The document keeps a reference to the array until all sections have
+	 * been decoded, so the array must not be modified afterwards.
+	 * <p>
+	 * Only the top level of the document is parsed here. The sections are
+	 * skipped by matching their brackets with a {@link JsonObjectScanner},
+	 * which is much faster than tokenizing them. Syntax errors on the top
+	 * level and sections that have the wrong kind of JSON value are reported
+	 * here. All other problems in a section are logged as errors when the
+	 * section is accessed, and the section is then treated as empty.
+	 *
+	 * @param json
+	 *            the array that contains the UTF-8 encoded JSON serialization
+	 *            of the document
+	 * @param offset
+	 *            the start of the document in the array
+	 * @param length
+	 *            the length of the document in bytes
+	 * @return the document
+	 * @throws IOException
+	 *             if the JSON could not be parsed or is not a valid document
+	 */
+	public JacksonTermedStatementDocument readLazyDocument(byte[] json,
+			int offset, int length) throws IOException {
+		String type = null;
+		String id = null;
+		String datatype = null;
+		long revisionId = 0;
+		LazyDocumentSections sections = new LazyDocumentSections(this, json);
+
+		JsonObjectScanner scanner = new JsonObjectScanner(
+				this.jsonFactory, json, offset, length);
+		if (!scanner.startObject()) {
+			readScannedValue(scanner, -1);
+		}
+		while (scanner.nextField()) {
+			if (scanner.isFieldName("type")) {
+				type = readScannedString(scanner);
+			} else if (scanner.isFieldName("id")) {
+				id = readScannedString(scanner);
+			} else if (scanner.isFieldName("datatype")) {
+				datatype = readScannedString(scanner);
+			} else if (scanner.isFieldName("lastrevid")) {
+				revisionId = readScannedLong(scanner);
+			} else {
+				for (int i = 0; i < LazyDocumentSections.SECTION_COUNT; i++) {
+					if (scanner.isFieldName(LazyDocumentSections.SECTION_NAMES[i])) {
+						if (scanner.getValueStartByte() == '{') {
+							sections.setSection(i, scanner.valueStart,
+									scanner.valueEnd);
+						} else {
+							readScannedValue(scanner, i);
+							sections.removeSection(i);
+						}
+						break;
+					}
+				}
+			}
+		}
+		scanner.expectEnd();
+
+		JacksonTermedStatementDocument document = createDocument(type, id,
+				datatype, scanner.getLocation());
+		if (!(document instanceof JacksonItemDocument)) {
+			sections.removeSection(LazyDocumentSections.SITE_LINKS);
+		}
+		document.setRevisionId(revisionId);
+		if (sections.pendingSections > 0) {
+			document.setLazySections(sections);
+		}
+		return document;
+	}
+
+	/**
+	 * Reads the string value of the current field of a
+	 * {@link JsonObjectScanner}. Strings without escape sequences are taken
+	 * from the input directly, and all other values are parsed like in
+	 * {@link #readString(JsonParser)}.
+	 *
+	 * @param scanner
+	 *            the scanner
+	 * @return the string
+	 * @throws IOException
+	 *             if the value is not a string
+	 */
+	String readScannedString(JsonObjectScanner scanner) throws IOException {
+		String result = scanner.getSimpleStringValue();
+		if (result != null) {
+			return result;
+		}
+		try (JsonParser parser = this.jsonFactory.createParser(scanner.json,
+				scanner.valueStart, scanner.valueEnd - scanner.valueStart)) {
+			parser.nextToken();
+			return readString(parser);
+		}
+	}
+
+	/**
+	 * Reads the integer value of the current field of a
+	 * {@link JsonObjectScanner}, as in {@link #readLong(JsonParser)}.
+	 *
+	 * @param scanner
+	 *            the scanner
+	 * @return the number
+	 * @throws IOException
+	 *             if the value is not a number
+	 */
+	long readScannedLong(JsonObjectScanner scanner) throws IOException {
+		try (JsonParser parser = this.jsonFactory.createParser(scanner.json,
+				scanner.valueStart, scanner.valueEnd - scanner.valueStart)) {
+			parser.nextToken();
+			return readLong(parser);
+		}
+	}
+
+	/**
+	 * Parses the current value of a {@link JsonObjectScanner} that is
+	 * expected to be a section of a lazy document, but is no JSON object.
+	 * This is only accepted for null, and for aliases given as a JSON array,
+	 * which is how empty aliases are serialized.
+	 *
+	 * @param scanner
+	 *            the scanner
+	 * @param section
+	 *            the section, or -1 if the value is the document itself
+	 * @throws IOException
+	 *             if the value is not accepted
+	 */
+	void readScannedValue(JsonObjectScanner scanner, int section)
+			throws IOException {
+		int start = (section == -1) ? scanner.position : scanner.valueStart;
+		int end = (section == -1) ? scanner.end : scanner.valueEnd;
+		try (JsonParser parser = this.jsonFactory.createParser(scanner.json,
+				start, end - start)) {
+			JsonToken token = parser.nextToken();
+			if (section == -1) {
+				expectStartObject(parser, "entity document");
+			} else if (token == JsonToken.START_ARRAY
+					&& section == LazyDocumentSections.ALIASES) {
+				readAliases(parser);
+			} else if (token != JsonToken.VALUE_NULL) {
+				expectStartObject(parser,
+						LazyDocumentSections.SECTION_NAMES[section]);
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty document of the given type.
+	 *
+	 * @param type
+	 *            the JSON type of the document
+	 * @param id
+	 *            the id of the document, or null if not given
+	 * @param datatype
+	 *            the datatype of a property document
+	 * @param location
+	 *            the location of the document, used for error messages
+	 * @return the document
+	 * @throws JsonMappingException
+	 *             if the type is missing or unknown
+	 */
+	JacksonTermedStatementDocument createDocument(String type, String id,
+			String datatype, JsonLocation location)
+			throws JsonMappingException {
+		JacksonTermedStatementDocument document;
+		if (JacksonTermedStatementDocument.JSON_TYPE_ITEM.equals(type)) {
+			document = new JacksonItemDocument();
+		} else if (JacksonTermedStatementDocument.JSON_TYPE_PROPERTY
+				.equals(type)) {
+			JacksonPropertyDocument propertyDocument = new JacksonPropertyDocument();
+			propertyDocument.setJsonDatatype(datatype);
+			document = propertyDocument;
+		} else if (type == null) {
+			throw new JsonMappingException(
+					"Missing type of entity document", location);
+		} else {
+			throw new JsonMappingException("Unknown type of entity document: "
+					+ type, location);
+		}
+
+		if (id != null) {
+			document.setJsonId(id);
+		}
+		return document;
+	}
+
+	/**
+	 * Reads a map of labels or descriptions.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the map
+	 * @param fieldName
+	 *            the name of the field, used in error messages
+	 * @return the map, or null if the JSON is null
+	 * @throws IOException
+	 */
+	Map<String, JacksonMonolingualTextValue> readTermMap(JsonParser parser,
+			String fieldName) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, fieldName);
+		Map<String, JacksonMonolingualTextValue> result = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			parser.nextToken();
+			result.put(key, readTerm(parser));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the map of aliases. As in {@link AliasesDeserializer}, a JSON
+	 * array is accepted as an empty map, since this is how PHP serializes
+	 * empty maps.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the map
+	 * @return the map, or null if the JSON is null
+	 * @throws IOException
+	 */
+	Map<String, List<JacksonMonolingualTextValue>> readAliases(
+			JsonParser parser) throws IOException {
+		Map<String, List<JacksonMonolingualTextValue>> result = new LinkedHashMap<>();
+		switch (parser.getCurrentToken()) {
+		case VALUE_NULL:
+			return null;
+		case START_ARRAY:
+			parser.skipChildren();
+			return result;
+		default:
+			expectStartObject(parser, "aliases");
+		}
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			parser.nextToken();
+			expectStartArray(parser, "aliases");
+			List<JacksonMonolingualTextValue> terms = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				terms.add(readTerm(parser));
+			}
+			result.put(key, terms);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a single label, description or alias.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the term
+	 * @return the term, or null if the JSON is null
+	 * @throws IOException
+	 */
+	JacksonMonolingualTextValue readTerm(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "term");
+		JacksonMonolingualTextValue result = new JacksonMonolingualTextValue();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			switch (fieldName) {
+			case "language":
+				result.setLanguageCode(readCanonicalString(parser));
+				break;
+			case "value":
+				result.setText(readString(parser));
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the map of site links of an item.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the map
+	 * @return the map, or null if the JSON is null
+	 * @throws IOException
+	 */
+	Map<String, JacksonSiteLink> readSiteLinks(JsonParser parser)
+			throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "sitelinks");
+		Map<String, JacksonSiteLink> result = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.VALUE_NULL) {
+				result.put(key, null);
+				continue;
+			}
+			expectStartObject(parser, "site link");
+			JacksonSiteLink siteLink = new JacksonSiteLink();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				switch (fieldName) {
+				case "site":
+					siteLink.setSiteKey(readCanonicalString(parser));
+					break;
+				case "title":
+					siteLink.setPageTitle(readString(parser));
+					break;
+				case "badges":
+					siteLink.setBadges(readStringList(parser, fieldName));
+					break;
+				default:
+					parser.skipChildren();
+				}
+			}
+			result.put(key, siteLink);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the map of statements of a document.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the map
+	 * @return the map, or null if the JSON is null
+	 * @throws IOException
+	 */
+	Map<String, List<JacksonStatement>> readClaims(JsonParser parser)
+			throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "claims");
+		Map<String, List<JacksonStatement>> result = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.VALUE_NULL) {
+				result.put(key, null);
+				continue;
+			}
+			expectStartArray(parser, "claims");
+			List<JacksonStatement> statements = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				statements.add(readStatement(parser));
+			}
+			result.put(key, statements);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a single statement.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the statement
+	 * @return the statement, or null if the JSON is null
+	 * @throws IOException
+	 */
+	JacksonStatement readStatement(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "statement");
+		JacksonStatement statement = new JacksonStatement();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			switch (fieldName) {
+			case "id":
+				statement.setStatementId(readString(parser));
+				break;
+			case "rank":
+				statement.setRank(readRank(parser));
+				break;
+			case "mainsnak":
+				statement.setMainsnak(readSnak(parser));
+				break;
+			case "qualifiers":
+				Map<String, List<JacksonSnak>> qualifiers = readSnakMap(parser,
+						fieldName);
+				if (qualifiers != null) {
+					statement.setQualifiers(qualifiers);
+				}
+				break;
+			case "qualifiers-order":
+				statement.setPropertyOrder(readStringList(parser, fieldName));
+				break;
+			case "references":
+				if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
+					statement.setReferences(readReferences(parser));
+				}
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return statement;
+	}
+
+	/**
+	 * Reads the rank of a statement.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the rank
+	 * @return the rank, or null if the JSON is null
+	 * @throws IOException
+	 */
+	StatementRank readRank(JsonParser parser) throws IOException {
+		String rank = readString(parser);
+		if (rank == null) {
+			return null;
+		}
+		switch (rank) {
+		case "normal":
+			return StatementRank.NORMAL;
+		case "preferred":
+			return StatementRank.PREFERRED;
+		case "deprecated":
+			return StatementRank.DEPRECATED;
+		default:
+			try {
+				return StatementRank.valueOf(rank.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new JsonMappingException("Unknown statement rank: "
+						+ rank, parser.getCurrentLocation(), e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the list of references of a statement.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the list
+	 * @return the list of references
+	 * @throws IOException
+	 */
+	List<JacksonReference> readReferences(JsonParser parser)
+			throws IOException {
+		expectStartArray(parser, "references");
+		List<JacksonReference> result = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+				result.add(null);
+				continue;
+			}
+			expectStartObject(parser, "reference");
+			JacksonReference reference = new JacksonReference();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				switch (fieldName) {
+				case "snaks":
+					reference.setSnaks(readSnakMap(parser, fieldName));
+					break;
+				case "snaks-order":
+					reference.setPropertyOrder(readStringList(parser,
+							fieldName));
+					break;
+				default:
+					parser.skipChildren();
+				}
+			}
+			result.add(reference);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a map from property ids to lists of snaks, as used for qualifiers
+	 * and references.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the map
+	 * @param fieldName
+	 *            the name of the field, used in error messages
+	 * @return the map, or null if the JSON is null
+	 * @throws IOException
+	 */
+	Map<String, List<JacksonSnak>> readSnakMap(JsonParser parser,
+			String fieldName) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, fieldName);
+		Map<String, List<JacksonSnak>> result = new LinkedHashMap<>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.VALUE_NULL) {
+				result.put(key, null);
+				continue;
+			}
+			expectStartArray(parser, fieldName);
+			List<JacksonSnak> snaks = new ArrayList<>();
+			while (parser.nextToken() != JsonToken.END_ARRAY) {
+				snaks.add(readSnak(parser));
+			}
+			result.put(key, snaks);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a single snak.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the snak
+	 * @return the snak, or null if the JSON is null
+	 * @throws IOException
+	 */
+	JacksonSnak readSnak(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "snak");
+
+		String snakType = null;
+		String property = null;
+		String datatype = null;
+		JacksonValue datavalue = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			parser.nextToken();
+			switch (fieldName) {
+			case "snaktype":
+				snakType = readString(parser);
+				break;
+			case "property":
+				property = readCanonicalString(parser);
+				break;
+			case "datatype":
+				datatype = readString(parser);
+				break;
+			case "datavalue":
+				datavalue = readValue(parser);
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+
+		JacksonSnak snak;
+		if (JacksonSnak.JSON_SNAK_TYPE_VALUE.equals(snakType)) {
+			JacksonValueSnak valueSnak = new JacksonValueSnak();
+			valueSnak.setDatavalue(datavalue);
+			valueSnak.setDatatype(datatype);
+			snak = valueSnak;
+		} else if (JacksonSnak.JSON_SNAK_TYPE_SOMEVALUE.equals(snakType)) {
+			snak = new JacksonSomeValueSnak();
+		} else if (JacksonSnak.JSON_SNAK_TYPE_NOVALUE.equals(snakType)) {
+			snak = new JacksonNoValueSnak();
+		} else if (snakType == null) {
+			throw new JsonMappingException("Missing type of snak",
+					parser.getCurrentLocation());
+		} else {
+			throw new JsonMappingException("Unknown type of snak: "
+					+ snakType, parser.getCurrentLocation());
+		}
+		snak.setProperty(property);
+		return snak;
+	}
+
+	/**
+	 * Reads a data value. The fields of the inner value are read before the
+	 * type of the value is known (in dumps, the type comes last), so all
+	 * fields that occur in any kind of value are collected in local variables
+	 * first. This avoids buffering the JSON.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the value
+	 * @return the value, or null if the JSON is null
+	 * @throws IOException
+	 */
+	JacksonValue readValue(JsonParser parser) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartObject(parser, "value");
+
+		String type = null;
+		boolean hasInnerValue = false;
+		boolean hasInnerObject = false;
+		String stringValue = null;
+		// fields of entity ids:
+		String entityType = null;
+		int numericId = 0;
+		// fields of time values:
+		String time = null;
+		int timezone = 0;
+		int before = 0;
+		int after = 0;
+		String calendarModel = null;
+		// fields of globe coordinates:
+		double latitude = 0;
+		double longitude = 0;
+		String globe = null;
+		// precision is used by globe coordinates and time values:
+		double precision = 0;
+		boolean hasPrecision = false;
+		// fields of quantities:
+		BigDecimal amount = null;
+		BigDecimal upperBound = null;
+		BigDecimal lowerBound = null;
+		// fields of monolingual text values:
+		String language = null;
+		String text = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("type".equals(fieldName)) {
+				type = readString(parser);
+				continue;
+			} else if (!"value".equals(fieldName)) {
+				parser.skipChildren();
+				continue;
+			}
+
+			hasInnerValue = token != JsonToken.VALUE_NULL;
+			if (token != JsonToken.START_OBJECT) {
+				stringValue = readString(parser);
+				continue;
+			}
+
+			hasInnerObject = true;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String innerFieldName = parser.getCurrentName();
+				parser.nextToken();
+				switch (innerFieldName) {
+				case "entity-type":
+					entityType = readString(parser);
+					break;
+				case "numeric-id":
+					numericId = readInt(parser);
+					break;
+				case "time":
+					time = readString(parser);
+					break;
+				case "timezone":
+					timezone = readInt(parser);
+					break;
+				case "before":
+					before = readInt(parser);
+					break;
+				case "after":
+					after = readInt(parser);
+					break;
+				case "calendarmodel":
+					calendarModel = readString(parser);
+					break;
+				case "precision":
+					precision = readDouble(parser);
+					hasPrecision = true;
+					break;
+				case "latitude":
+					latitude = readDouble(parser);
+					break;
+				case "longitude":
+					longitude = readDouble(parser);
+					break;
+				case "globe":
+					globe = readString(parser);
+					break;
+				case "amount":
+					amount = readDecimal(parser);
+					break;
+				case "upperBound":
+					upperBound = readDecimal(parser);
+					break;
+				case "lowerBound":
+					lowerBound = readDecimal(parser);
+					break;
+				case "language":
+					language = readCanonicalString(parser);
+					break;
+				case "text":
+					text = readString(parser);
+					break;
+				default:
+					parser.skipChildren();
+				}
+			}
+		}
+
+		if (type == null) {
+			throw new JsonMappingException("Property value without type",
+					parser.getCurrentLocation());
+		}
+		if (hasInnerValue && !hasInnerObject
+				&& !JacksonValue.JSON_VALUE_TYPE_STRING.equals(type)) {
+			throw new JsonMappingException("Unexpected inner value for type "
+					+ type, parser.getCurrentLocation());
+		}
+
+		switch (type) {
+		case JacksonValue.JSON_VALUE_TYPE_STRING:
+			if (hasInnerObject) {
+				throw new JsonMappingException(
+						"Unexpected JSON object for string value",
+						parser.getCurrentLocation());
+			}
+			JacksonValueString valueString = new JacksonValueString();
+			valueString.setValue(stringValue);
+			return valueString;
+		case JacksonValue.JSON_VALUE_TYPE_ENTITY_ID:
+			if (!hasInnerValue) {
+				// like JacksonValueDeserializer
+				return new JacksonValueString();
+			}
+			JacksonValueEntityId valueEntityId;
+			if (JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM.equals(entityType)) {
+				valueEntityId = new JacksonValueItemId();
+				entityType = JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM;
+			} else if (JacksonInnerEntityId.JSON_ENTITY_TYPE_PROPERTY
+					.equals(entityType)) {
+				valueEntityId = new JacksonValuePropertyId();
+				entityType = JacksonInnerEntityId.JSON_ENTITY_TYPE_PROPERTY;
+			} else {
+				throw new JsonMappingException("Entities of type \""
+						+ entityType
+						+ "\" are not supported as property values yet.",
+						parser.getCurrentLocation());
+			}
+			valueEntityId.setValue(new JacksonInnerEntityId(entityType,
+					numericId));
+			return valueEntityId;
+		case JacksonValue.JSON_VALUE_TYPE_TIME:
+			JacksonValueTime valueTime = new JacksonValueTime();
+			if (hasInnerValue) {
+				JacksonInnerTime innerTime = new JacksonInnerTime();
+				if (time != null) {
+					try {
+						innerTime.setTime(time);
+					} catch (IllegalArgumentException e) {
+						throw new JsonMappingException(e.getMessage(),
+								parser.getCurrentLocation(), e);
+					}
+				}
+				innerTime.setTimezone(timezone);
+				innerTime.setBefore(before);
+				innerTime.setAfter(after);
+				innerTime.setPrecision((int) precision);
+				innerTime.setCalendarmodel(calendarModel);
+				valueTime.setValue(innerTime);
+			}
+			return valueTime;
+		case JacksonValue.JSON_VALUE_TYPE_GLOBE_COORDINATES:
+			JacksonValueGlobeCoordinates valueGlobe = new JacksonValueGlobeCoordinates();
+			if (hasInnerValue) {
+				JacksonInnerGlobeCoordinates innerGlobe = new JacksonInnerGlobeCoordinates();
+				innerGlobe.setLatitude(latitude);
+				innerGlobe.setLongitude(longitude);
+				if (hasPrecision) {
+					innerGlobe.setPrecision(precision);
+				}
+				if (globe != null) {
+					innerGlobe.setGlobe(globe);
+				}
+				valueGlobe.setValue(innerGlobe);
+			}
+			return valueGlobe;
+		case JacksonValue.JSON_VALUE_TYPE_QUANTITY:
+			JacksonValueQuantity valueQuantity = new JacksonValueQuantity();
+			if (hasInnerValue) {
+				valueQuantity.setValue(new JacksonInnerQuantity(amount,
+						upperBound, lowerBound));
+			}
+			return valueQuantity;
+		case JacksonValue.JSON_VALUE_TYPE_MONOLINGUAL_TEXT:
+			JacksonValueMonolingualText valueText = new JacksonValueMonolingualText();
+			if (hasInnerValue) {
+				JacksonInnerMonolingualText innerText = new JacksonInnerMonolingualText();
+				if (language != null) {
+					innerText.setLanguage(language);
+				}
+				if (text != null) {
+					innerText.setText(text);
+				}
+				valueText.setValue(innerText);
+			}
+			return valueText;
+		default:
+			throw new JsonMappingException("Property values of type \""
+					+ type + "\" are not supported yet.",
+					parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Reads a list of strings.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the start of the list
+	 * @param fieldName
+	 *            the name of the field, used in error messages
+	 * @return the list, or null if the JSON is null
+	 * @throws IOException
+	 */
+	List<String> readStringList(JsonParser parser, String fieldName)
+			throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		expectStartArray(parser, fieldName);
+		List<String> result = new ArrayList<>();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			result.add(readString(parser));
+		}
+		return result;
+	}
+
+	/**
+	 * Reads a string. Other scalar JSON values are converted to strings.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the value
+	 * @return the string, or null if the JSON is null
+	 * @throws IOException
+	 */
+	String readString(JsonParser parser) throws IOException {
+		JsonToken token = parser.getCurrentToken();
+		if (token == JsonToken.VALUE_STRING) {
+			return parser.getText();
+		} else if (token == JsonToken.VALUE_NULL) {
+			return null;
+		} else if (token != null && token.isScalarValue()) {
+			return parser.getText();
+		} else {
+			throw new JsonMappingException("Expected string value but found "
+					+ token, parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Reads a string that is likely to occur very often, such as a language
+	 * code, and returns its canonical instance if a canonicalizer is used.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the string
+	 * @return the string, or null if the JSON is null
+	 * @throws IOException
+	 */
+	String readCanonicalString(JsonParser parser) throws IOException {
+		String string = readString(parser);
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getString(string);
+		}
+		return string;
+	}
+
+	/**
+	 * Reads an integer number. Strings and floating point numbers are
+	 * converted as done by Jackson's data binding.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the value
+	 * @return the number, or 0 if the JSON is null
+	 * @throws IOException
+	 */
+	int readInt(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+			return parser.getIntValue();
+		case VALUE_NUMBER_FLOAT:
+			return parser.getValueAsInt();
+		case VALUE_NULL:
+			return 0;
+		case VALUE_STRING:
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return 0;
+			}
+			try {
+				return Integer.parseInt(text);
+			} catch (NumberFormatException e) {
+				throw new JsonMappingException("Not a valid integer: " + text,
+						parser.getCurrentLocation(), e);
+			}
+		default:
+			throw new JsonMappingException(
+					"Expected integer value but found "
+							+ parser.getCurrentToken(),
+					parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Reads a long integer number, converting other values as in
+	 * {@link #readInt(JsonParser)}.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the value
+	 * @return the number, or 0 if the JSON is null
+	 * @throws IOException
+	 */
+	long readLong(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+			return parser.getLongValue();
+		case VALUE_NUMBER_FLOAT:
+			return parser.getValueAsLong();
+		case VALUE_NULL:
+			return 0;
+		case VALUE_STRING:
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return 0;
+			}
+			try {
+				return Long.parseLong(text);
+			} catch (NumberFormatException e) {
+				throw new JsonMappingException("Not a valid integer: " + text,
+						parser.getCurrentLocation(), e);
+			}
+		default:
+			throw new JsonMappingException(
+					"Expected integer value but found "
+							+ parser.getCurrentToken(),
+					parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Reads a floating point number. Strings are converted as done by
+	 * Jackson's data binding.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the value
+	 * @return the number, or 0 if the JSON is null
+	 * @throws IOException
+	 */
+	double readDouble(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDoubleValue();
+		case VALUE_NULL:
+			return 0;
+		case VALUE_STRING:
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return 0;
+			}
+			try {
+				return Double.parseDouble(text);
+			} catch (NumberFormatException e) {
+				throw new JsonMappingException("Not a valid number: " + text,
+						parser.getCurrentLocation(), e);
+			}
+		default:
+			throw new JsonMappingException("Expected number but found "
+					+ parser.getCurrentToken(), parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Reads a decimal number. In Wikibase JSON, decimals are usually given as
+	 * strings with a leading sign.
+	 *
+	 * @param parser
+	 *            the parser, positioned on the value
+	 * @return the number, or null if the JSON is null
+	 * @throws IOException
+	 */
+	BigDecimal readDecimal(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case VALUE_NUMBER_INT:
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDecimalValue();
+		case VALUE_NULL:
+			return null;
+		case VALUE_STRING:
+			String text = parser.getText().trim();
+			if (text.isEmpty()) {
+				return null;
+			}
+			try {
+				return new BigDecimal(text);
+			} catch (NumberFormatException e) {
+				throw new JsonMappingException("Not a valid decimal: " + text,
+						parser.getCurrentLocation(), e);
+			}
+		default:
+			throw new JsonMappingException("Expected decimal but found "
+					+ parser.getCurrentToken(), parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Checks that the parser is positioned on the start of a JSON object.
+	 *
+	 * @param parser
+	 *            the parser
+	 * @param what
+	 *            description of the expected object, used in error messages
+	 * @throws JsonMappingException
+	 *             if the current token is not the start of an object
+	 */
+	void expectStartObject(JsonParser parser, String what)
+			throws JsonMappingException {
+		if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+			throw new JsonMappingException("Expected JSON object for " + what
+					+ " but found " + parser.getCurrentToken(),
+					parser.getCurrentLocation());
+		}
+	}
+
+	/**
+	 * Checks that the parser is positioned on the start of a JSON array.
+	 *
+	 * @param parser
+	 *            the parser
+	 * @param what
+	 *            description of the expected array, used in error messages
+	 * @throws JsonMappingException
+	 *             if the current token is not the start of an array
+	 */
+	void expectStartArray(JsonParser parser, String what)
+			throws JsonMappingException {
+		if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+			throw new JsonMappingException("Expected JSON array for " + what
+					+ " but found " + parser.getCurrentToken(),
+					parser.getCurrentLocation());
+		}
+	}
+
+}
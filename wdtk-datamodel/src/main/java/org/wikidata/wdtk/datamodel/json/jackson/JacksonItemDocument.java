@@ -93,6 +93,7 @@ public class JacksonItemDocument extends JacksonTermedStatementDocument
 	@JsonProperty("sitelinks")
 	@Override
 	public Map<String, SiteLink> getSiteLinks() {
+		decodeSection(LazyDocumentSections.SITE_LINKS);
 		return Collections.<String, SiteLink> unmodifiableMap(this.sitelinks);
 	}
 
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
 import org.wikidata.wdtk.datamodel.interfaces.Claim;
@@ -79,6 +80,32 @@ public class JacksonObjectFactory implements DataObjectFactory {
 	private final DatamodelConverter dataModelConverter = new DatamodelConverter(
 			this);
 
+	/**
+	 * Canonicalizer used to share frequent objects, or null if objects are
+	 * not shared.
+	 */
+	private final Canonicalizer canonicalizer;
+
+	/**
+	 * Constructor. Creates a factory that makes new objects for every call.
+	 */
+	public JacksonObjectFactory() {
+		this(null);
+	}
+
+	/**
+	 * Constructor. Creates a factory that uses canonical instances for site
+	 * IRIs, language codes and site keys. Entity id values and their inner
+	 * objects are not shared, since Jackson objects can be modified.
+	 *
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null if objects should not be
+	 *            shared
+	 */
+	public JacksonObjectFactory(Canonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+	}
+
 	@Override
 	public ItemIdValue getItemIdValue(String id, String siteIri) {
 		if (id.length() > 0 && id.charAt(0) == 'Q') {
@@ -89,7 +116,7 @@ public class JacksonObjectFactory implements DataObjectFactory {
 
 			JacksonValueItemId result = new JacksonValueItemId();
 			result.setValue(innerEntity);
-			result.setSiteIri(siteIri);
+			result.setSiteIri(canonicalizeString(siteIri));
 			return result;
 		} else {
 			throw new IllegalArgumentException("Illegal item id: " + id);
@@ -106,7 +133,7 @@ public class JacksonObjectFactory implements DataObjectFactory {
 
 			JacksonValuePropertyId result = new JacksonValuePropertyId();
 			result.setValue(innerEntity);
-			result.setSiteIri(siteIri);
+			result.setSiteIri(canonicalizeString(siteIri));
 			return result;
 		} else {
 			throw new IllegalArgumentException("Illegal property id: " + id);
@@ -159,7 +186,7 @@ public class JacksonObjectFactory implements DataObjectFactory {
 	public MonolingualTextValue getMonolingualTextValue(String text,
 			String languageCode) {
 		JacksonInnerMonolingualText innerMtlv = new JacksonInnerMonolingualText(
-				languageCode, text);
+				canonicalizeString(languageCode), text);
 		JacksonValueMonolingualText result = new JacksonValueMonolingualText();
 		result.setValue(innerMtlv);
 		return result;
@@ -307,7 +334,7 @@ public class JacksonObjectFactory implements DataObjectFactory {
 			List<String> badges) {
 		JacksonSiteLink result = new JacksonSiteLink();
 		result.setPageTitle(title);
-		result.setSiteKey(siteKey);
+		result.setSiteKey(canonicalizeString(siteKey));
 		result.setBadges(badges);
 		return result;
 	}
@@ -440,6 +467,21 @@ public class JacksonObjectFactory implements DataObjectFactory {
 		document.setJsonClaims(jacksonStatements);
 	}
 
+	/**
+	 * Returns the canonical instance of the given string if a canonicalizer
+	 * is used, and the string itself otherwise.
+	 *
+	 * @param string
+	 *            the string, or null
+	 * @return a string equal to the given one
+	 */
+	private String canonicalizeString(String string) {
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getString(string);
+		}
+		return string;
+	}
+
 	private Map<String, JacksonMonolingualTextValue> buildTermMapFromTermList(
 			List<MonolingualTextValue> terms) {
 		Map<String, JacksonMonolingualTextValue> result = new HashMap<>(
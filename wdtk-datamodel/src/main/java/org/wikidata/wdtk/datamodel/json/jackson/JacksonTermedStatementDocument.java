@@ -81,9 +81,10 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 
 	/**
 	 * Statement groups. This member is initialized when statements are
-	 * accessed.
+	 * accessed. It is volatile and only assigned complete lists, since
+	 * documents may be read by several threads at once.
 	 */
-	private List<StatementGroup> statementGroups = null;
+	private volatile List<StatementGroup> statementGroups = null;
 
 	/**
 	 * The id of the entity that the document refers to. This is not mapped to
@@ -106,6 +107,21 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 	@JsonIgnore
 	protected String siteIri = null;
 
+	/**
+	 * The id of the revision that the document was taken from, or 0 if it is
+	 * not known. It is read from the field "lastrevid" that is found in
+	 * results of the API, but it is not part of the serialization.
+	 */
+	protected long revisionId = 0;
+
+	/**
+	 * Sections of the JSON serialization that have not been decoded yet, or
+	 * null if all data has been decoded. Only documents that were read with
+	 * {@link EntityDocumentDecoder#readLazyDocument(String)} have such
+	 * sections.
+	 */
+	private volatile LazyDocumentSections lazySections = null;
+
 	/**
 	 * Constructor. Creates an empty object that can be populated during JSON
 	 * deserialization. Should only be used by Jackson for this very purpose.
@@ -127,6 +143,7 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 
 	@Override
 	public Map<String, List<MonolingualTextValue>> getAliases() {
+		decodeSection(LazyDocumentSections.ALIASES);
 		// because of the typing provided by the interface one has to
 		// re-create the map anew, simple casting is not possible
 		Map<String, List<MonolingualTextValue>> returnMap = new HashMap<>();
@@ -154,6 +171,7 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 
 	@Override
 	public Map<String, MonolingualTextValue> getDescriptions() {
+		decodeSection(LazyDocumentSections.DESCRIPTIONS);
 		return Collections
 				.<String, MonolingualTextValue> unmodifiableMap(this.descriptions);
 	}
@@ -171,6 +189,7 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 
 	@Override
 	public Map<String, MonolingualTextValue> getLabels() {
+		decodeSection(LazyDocumentSections.LABELS);
 		return Collections
 				.<String, MonolingualTextValue> unmodifiableMap(this.labels);
 	}
@@ -211,7 +230,14 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 	@JsonIgnore
 	public void setSiteIri(String siteIri) {
 		this.siteIri = siteIri;
+		updateStatementSubjects();
+	}
 
+	/**
+	 * Sets the subject of all statements that have been decoded to the
+	 * entity id of this document.
+	 */
+	void updateStatementSubjects() {
 		EntityIdValue subject = this.getEntityId();
 
 		for (Entry<String, List<JacksonStatement>> entry : this.claims
@@ -227,17 +253,41 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 		return this.siteIri;
 	}
 
+	/**
+	 * Sets the id of the revision that the document was taken from.
+	 *
+	 * @param revisionId
+	 *            the revision id, or 0 if it is not known
+	 */
+	@JsonProperty("lastrevid")
+	public void setRevisionId(long revisionId) {
+		this.revisionId = revisionId;
+	}
+
+	/**
+	 * Returns the id of the revision that the document was taken from, or 0
+	 * if it is not known.
+	 *
+	 * @return revision id
+	 */
+	@JsonIgnore
+	public long getRevisionId() {
+		return this.revisionId;
+	}
+
 	@JsonIgnore
 	@Override
 	public List<StatementGroup> getStatementGroups() {
-		if (this.statementGroups == null) {
-			this.statementGroups = new ArrayList<>(this.claims.size());
+		decodeSection(LazyDocumentSections.CLAIMS);
+		List<StatementGroup> result = this.statementGroups;
+		if (result == null) {
+			result = new ArrayList<>(this.claims.size());
 			for (List<JacksonStatement> statements : this.claims.values()) {
-				this.statementGroups
-						.add(new StatementGroupFromJson(statements));
+				result.add(new StatementGroupFromJson(statements));
 			}
+			this.statementGroups = result;
 		}
-		return this.statementGroups;
+		return result;
 	}
 
 	/**
@@ -267,6 +317,7 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 	 */
 	@JsonProperty("claims")
 	public Map<String, List<JacksonStatement>> getJsonClaims() {
+		decodeSection(LazyDocumentSections.CLAIMS);
 		return this.claims;
 	}
 
@@ -276,4 +327,37 @@ public abstract class JacksonTermedStatementDocument implements TermedDocument,
 		return new NestedIterator<>(this.getStatementGroups());
 	}
 
+	/**
+	 * Sets the sections of the JSON serialization that are decoded when they
+	 * are first accessed.
+	 *
+	 * @param lazySections
+	 *            the undecoded sections
+	 */
+	void setLazySections(LazyDocumentSections lazySections) {
+		this.lazySections = lazySections;
+	}
+
+	/**
+	 * Called when all lazy sections have been decoded.
+	 */
+	void releaseLazySections() {
+		this.lazySections = null;
+	}
+
+	/**
+	 * Decodes the given section of the JSON serialization if it has not been
+	 * decoded yet. Nothing happens if the document has no undecoded
+	 * sections.
+	 *
+	 * @param section
+	 *            one of the section constants of {@link LazyDocumentSections}
+	 */
+	void decodeSection(int section) {
+		LazyDocumentSections sections = this.lazySections;
+		if (sections != null) {
+			sections.decode(this, section);
+		}
+	}
+
 }
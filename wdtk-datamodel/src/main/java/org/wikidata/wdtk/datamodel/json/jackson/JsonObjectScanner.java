@@ -0,0 +1,345 @@
+package org.wikidata.wdtk.datamodel.json.jackson;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Scanner for the top-level fields of a JSON object that is serialized in a
+ * byte array. Nested objects and arrays are skipped by matching their
+ * brackets, without tokenizing their contents, which is several times faster
+ * than skipping them with a {@link JsonParser}.
+ * The scanner only checks the syntax of the top level; the contents of
+ * skipped values must be checked when they are parsed.
+ * <p>
+ * The scanner is used by
+ * {@link EntityDocumentDecoder#readLazyDocument(byte[], int, int)}.
+ */
+class JsonObjectScanner {
+
+	final JsonFactory jsonFactory;
+	final byte[] json;
+	final int offset;
+	final int end;
+
+	/**
+	 * Current position in {@link #json}.
+	 */
+	int position;
+
+	/**
+	 * True until the first field has been read.
+	 */
+	boolean first = true;
+
+	/**
+	 * Start and end of the name of the current field, without quotes.
+	 */
+	int nameStart;
+	int nameEnd;
+
+	/**
+	 * Name of the current field if it contains escape sequences, and null
+	 * otherwise.
+	 */
+	String escapedName;
+
+	/**
+	 * Start of the value of the current field.
+	 */
+	int valueStart;
+
+	/**
+	 * Position after the value of the current field.
+	 */
+	int valueEnd;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param jsonFactory
+	 *            the factory used to decode field names with escape sequences
+	 * @param json
+	 *            the array that contains the object
+	 * @param offset
+	 *            the start of the object in the array
+	 * @param length
+	 *            the length of the object in bytes
+	 */
+	JsonObjectScanner(JsonFactory jsonFactory, byte[] json, int offset,
+			int length) {
+		this.jsonFactory = jsonFactory;
+		this.json = json;
+		this.offset = offset;
+		this.end = offset + length;
+		this.position = offset;
+	}
+
+	/**
+	 * Moves to the start of the object.
+	 *
+	 * @return false if the JSON does not start with an object
+	 * @throws JsonParseException
+	 *             if the input is empty
+	 */
+	boolean startObject() throws JsonParseException {
+		skipWhitespace();
+		if (this.position == this.end) {
+			throw error("Unexpected end of input");
+		}
+		if (this.json[this.position] != '{') {
+			return false;
+		}
+		this.position++;
+		return true;
+	}
+
+	/**
+	 * Moves to the next field of the object and skips its value. The value
+	 * can then be found between {@link #valueStart} and {@link #valueEnd}.
+	 *
+	 * @return true if there was another field, and false if the end of the
+	 *         object has been reached
+	 * @throws IOException
+	 *             if the syntax of the object is not valid
+	 */
+	boolean nextField() throws IOException {
+		skipWhitespace();
+		if (this.position < this.end && this.json[this.position] == '}') {
+			this.position++;
+			return false;
+		}
+		if (this.first) {
+			this.first = false;
+		} else {
+			expect(',');
+			skipWhitespace();
+		}
+		if (this.position == this.end || this.json[this.position] != '"') {
+			throw error("Expected field name");
+		}
+		this.nameStart = this.position + 1;
+		this.position = skipString(this.position);
+		this.nameEnd = this.position - 1;
+		this.escapedName = null;
+		for (int i = this.nameStart; i < this.nameEnd; i++) {
+			if (this.json[i] == '\\') {
+				this.escapedName = decodeString(this.nameStart - 1,
+						this.position);
+				break;
+			}
+		}
+		skipWhitespace();
+		expect(':');
+		skipWhitespace();
+		this.valueStart = this.position;
+		this.valueEnd = skipValue(this.position);
+		this.position = this.valueEnd;
+		return true;
+	}
+
+	/**
+	 * Checks if the name of the current field is the given string.
+	 *
+	 * @param name
+	 *            the name to compare with; must be ASCII
+	 * @return true if the field has this name
+	 */
+	boolean isFieldName(String name) {
+		if (this.escapedName != null) {
+			return this.escapedName.equals(name);
+		}
+		if (this.nameEnd - this.nameStart != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (this.json[this.nameStart + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first byte of the current value.
+	 */
+	byte getValueStartByte() {
+		return this.json[this.valueStart];
+	}
+
+	/**
+	 * Returns the current value if it is a string without escape sequences.
+	 *
+	 * @return the string, or null if the value is something else
+	 */
+	String getSimpleStringValue() {
+		if (this.json[this.valueStart] != '"') {
+			return null;
+		}
+		for (int i = this.valueStart + 1; i < this.valueEnd - 1; i++) {
+			if (this.json[i] == '\\') {
+				return null;
+			}
+		}
+		return new String(this.json, this.valueStart + 1, this.valueEnd
+				- this.valueStart - 2, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes the JSON string between the given positions, including the
+	 * quotes.
+	 */
+	String decodeString(int start, int end) throws IOException {
+		try (JsonParser parser = this.jsonFactory.createParser(this.json,
+				start, end - start)) {
+			parser.nextToken();
+			return parser.getText();
+		}
+	}
+
+	/**
+	 * Checks that only whitespace follows the end of the object.
+	 *
+	 * @throws JsonParseException
+	 *             if there is more content
+	 */
+	void expectEnd() throws JsonParseException {
+		skipWhitespace();
+		if (this.position != this.end) {
+			throw error("Unexpected content after end of object");
+		}
+	}
+
+	/**
+	 * Returns the location of the current position, for use in error
+	 * messages.
+	 */
+	JsonLocation getLocation() {
+		return new JsonLocation(null, this.position - this.offset, -1, 1,
+				this.position - this.offset + 1);
+	}
+
+	/**
+	 * Skips the value that starts at the given position.
+	 *
+	 * @return the position after the value
+	 * @throws JsonParseException
+	 *             if the value is not complete
+	 */
+	int skipValue(int start) throws JsonParseException {
+		if (start == this.end) {
+			throw error("Unexpected end of input");
+		}
+		switch (this.json[start]) {
+		case '"':
+			return skipString(start);
+		case '{':
+		case '[':
+			int depth = 0;
+			int i = start;
+			while (i < this.end) {
+				switch (this.json[i]) {
+				case '"':
+					i = skipString(i);
+					continue;
+				case '{':
+				case '[':
+					depth++;
+					break;
+				case '}':
+				case ']':
+					depth--;
+					if (depth == 0) {
+						return i + 1;
+					}
+					break;
+				}
+				i++;
+			}
+			this.position = this.end;
+			throw error("Unexpected end of input in object or array");
+		default:
+			int j = start;
+			while (j < this.end && !isScalarEnd(this.json[j])) {
+				j++;
+			}
+			if (j == start) {
+				this.position = start;
+				throw error("Unexpected character '" + (char) this.json[start]
+						+ "'");
+			}
+			return j;
+		}
+	}
+
+	/**
+	 * Skips the string that starts at the given position.
+	 *
+	 * @return the position after the closing quote
+	 * @throws JsonParseException
+	 *             if the string is not closed
+	 */
+	int skipString(int start) throws JsonParseException {
+		for (int i = start + 1; i < this.end; i++) {
+			byte b = this.json[i];
+			if (b == '"') {
+				return i + 1;
+			} else if (b == '\\') {
+				i++;
+			}
+		}
+		this.position = this.end;
+		throw error("Unexpected end of input in string");
+	}
+
+	void skipWhitespace() {
+		while (this.position < this.end
+				&& isWhitespace(this.json[this.position])) {
+			this.position++;
+		}
+	}
+
+	void expect(char c) throws JsonParseException {
+		if (this.position == this.end || this.json[this.position] != c) {
+			throw error("Expected '" + c + "'");
+		}
+		this.position++;
+	}
+
+	JsonParseException error(String message) {
+		return new JsonParseException(message, getLocation());
+	}
+
+	static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	static boolean isScalarEnd(byte b) {
+		return b == ',' || b == '}' || b == ']' || isWhitespace(b);
+	}
+
+}
@@ -22,8 +22,8 @@ package org.wikidata.wdtk.datamodel.json.jackson;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
-import org.apache.commons.compress.utils.Charsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
@@ -59,9 +59,9 @@ public class JsonSerializer implements EntityDocumentDumpProcessor {
 
 	static final Logger logger = LoggerFactory.getLogger(JsonSerializer.class);
 
-	static final byte[] JSON_START_LIST = "[\n".getBytes(Charsets.UTF_8);
-	static final byte[] JSON_SEP = ",\n".getBytes(Charsets.UTF_8);
-	static final byte[] JSON_END_LIST = "\n]".getBytes(Charsets.UTF_8);
+	static final byte[] JSON_START_LIST = "[\n".getBytes(StandardCharsets.UTF_8);
+	static final byte[] JSON_SEP = ",\n".getBytes(StandardCharsets.UTF_8);
+	static final byte[] JSON_END_LIST = "\n]".getBytes(StandardCharsets.UTF_8);
 
 	/**
 	 * The stream that the resulting JSON is written to.
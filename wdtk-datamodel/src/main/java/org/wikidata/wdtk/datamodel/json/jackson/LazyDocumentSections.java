@@ -0,0 +1,212 @@
+package org.wikidata.wdtk.datamodel.json.jackson;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Undecoded JSON of the top-level sections of a
+ * {@link JacksonTermedStatementDocument}. The sections are kept as positions
+ * in the byte array that the document was read from, and each section is
+ * decoded with an {@link EntityDocumentDecoder} when the document accesses it
+ * for the first time. Sections that are never accessed are never decoded.
+ * <p>
+ * Objects of this class are created by
+ * {@link EntityDocumentDecoder#readLazyDocument(byte[], int, int)}. Decoding is
+ * synchronized, so lazy documents can be read by several threads.
+ * <p>
+ * A section that turns out to be invalid when it is decoded is logged as an
+ * error and replaced by an empty section, so that processing of a dump can
+ * continue.
+ */
+class LazyDocumentSections {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(LazyDocumentSections.class);
+
+	static final int LABELS = 0;
+	static final int DESCRIPTIONS = 1;
+	static final int ALIASES = 2;
+	static final int CLAIMS = 3;
+	static final int SITE_LINKS = 4;
+	static final int SECTION_COUNT = 5;
+
+	static final String[] SECTION_NAMES = { "labels", "descriptions",
+			"aliases", "claims", "sitelinks" };
+
+	final EntityDocumentDecoder decoder;
+
+	/**
+	 * Start of each section in {@link #json}, or -1 if the section is not
+	 * there or has already been decoded.
+	 */
+	final int[] starts = new int[SECTION_COUNT];
+	final int[] ends = new int[SECTION_COUNT];
+
+	byte[] json;
+
+	/**
+	 * Number of sections that still need to be decoded.
+	 */
+	int pendingSections = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param decoder
+	 *            the decoder used to decode the sections
+	 * @param json
+	 *            the array that contains the JSON of the document
+	 */
+	LazyDocumentSections(EntityDocumentDecoder decoder, byte[] json) {
+		this.decoder = decoder;
+		this.json = json;
+		for (int i = 0; i < SECTION_COUNT; i++) {
+			this.starts[i] = -1;
+		}
+	}
+
+	/**
+	 * Records the position of a section. A section that occurs twice
+	 * replaces the earlier one.
+	 *
+	 * @param section
+	 *            the section
+	 * @param start
+	 *            the position of the first byte of the section
+	 * @param end
+	 *            the position after the last byte of the section
+	 */
+	void setSection(int section, int start, int end) {
+		if (this.starts[section] == -1) {
+			this.pendingSections++;
+		}
+		this.starts[section] = start;
+		this.ends[section] = end;
+	}
+
+	/**
+	 * Removes a section that will not be decoded.
+	 *
+	 * @param section
+	 *            the section
+	 */
+	void removeSection(int section) {
+		if (this.starts[section] != -1) {
+			this.starts[section] = -1;
+			this.pendingSections--;
+		}
+	}
+
+	/**
+	 * Decodes the given section of the document, unless this has been done
+	 * already. If the section does not contain valid data, an error is logged
+	 * and the section is set to be empty. When all sections are decoded, the
+	 * document releases this object.
+	 *
+	 * @param document
+	 *            the document that the sections belong to
+	 * @param section
+	 *            the section to decode
+	 */
+	synchronized void decode(JacksonTermedStatementDocument document,
+			int section) {
+		int start = this.starts[section];
+		if (start == -1) {
+			return;
+		}
+
+		try (JsonParser parser = this.decoder.jsonFactory.createParser(
+				this.json, start, this.ends[section] - start)) {
+			parser.nextToken();
+			switch (section) {
+			case LABELS:
+				document.setLabels(this.decoder.readTermMap(parser,
+						SECTION_NAMES[section]));
+				break;
+			case DESCRIPTIONS:
+				document.setDescriptions(this.decoder.readTermMap(parser,
+						SECTION_NAMES[section]));
+				break;
+			case ALIASES:
+				document.setAliases(this.decoder.readAliases(parser));
+				break;
+			case CLAIMS:
+				document.setJsonClaims(this.decoder.readClaims(parser));
+				document.updateStatementSubjects();
+				break;
+			case SITE_LINKS:
+				((JacksonItemDocument) document).setSiteLinks(this.decoder
+						.readSiteLinks(parser));
+				break;
+			}
+		} catch (IOException e) {
+			logger.error("Could not decode " + SECTION_NAMES[section]
+					+ " of entity document " + document.getJsonId()
+					+ "; using an empty section instead: " + e.toString());
+			setEmptySection(document, section);
+		}
+
+		this.starts[section] = -1;
+		this.pendingSections--;
+		if (this.pendingSections == 0) {
+			this.json = null;
+			document.releaseLazySections();
+		}
+	}
+
+	/**
+	 * Sets the given section of the document to be empty.
+	 *
+	 * @param document
+	 *            the document that the sections belong to
+	 * @param section
+	 *            the section to set
+	 */
+	void setEmptySection(JacksonTermedStatementDocument document, int section) {
+		switch (section) {
+		case LABELS:
+			document.setLabels(new HashMap<String, JacksonMonolingualTextValue>());
+			break;
+		case DESCRIPTIONS:
+			document.setDescriptions(new HashMap<String, JacksonMonolingualTextValue>());
+			break;
+		case ALIASES:
+			document.setAliases(new HashMap<String, List<JacksonMonolingualTextValue>>());
+			break;
+		case CLAIMS:
+			document.setJsonClaims(new HashMap<String, List<JacksonStatement>>());
+			break;
+		case SITE_LINKS:
+			((JacksonItemDocument) document)
+					.setSiteLinks(new HashMap<String, JacksonSiteLink>());
+			break;
+		}
+	}
+
+}
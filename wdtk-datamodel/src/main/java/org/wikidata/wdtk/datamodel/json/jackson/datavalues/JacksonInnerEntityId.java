@@ -140,6 +140,12 @@ public class JacksonInnerEntityId {
 		}
 	}
 
+	@Override
+	public int hashCode() {
+		return 31 * this.numericId
+				+ (this.entityType == null ? 0 : this.entityType.hashCode());
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
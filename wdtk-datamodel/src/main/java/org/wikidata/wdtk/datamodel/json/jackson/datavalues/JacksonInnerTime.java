@@ -116,28 +116,226 @@ public class JacksonInnerTime {
 	}
 
 	/**
-	 * Helper method to decompose the time string into its parts.
+	 * Helper method to decompose the time string into its parts. The string
+	 * must have the form "+YYYYYYYYYYY-MM-DDThh:mm:ssZ", where the year can
+	 * have any number of digits and starts with an optional sign. The string
+	 * is parsed directly, without creating any intermediate objects, since
+	 * time values are very common in Wikidata.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the string does not have the expected form
 	 */
 	private void decomposeTimeString() {
-		// decompose the time string into its parts
-		String[] substrings = time.split("(?<!\\A)[\\-\\:TZ]");
-
-		// get the components of the date
-		this.year = Long.parseLong(substrings[0]);
-		this.month = Byte.parseByte(substrings[1]);
-		this.day = Byte.parseByte(substrings[2]);
-		this.hour = Byte.parseByte(substrings[3]);
-		this.minute = Byte.parseByte(substrings[4]);
-		this.second = Byte.parseByte(substrings[5]);
+		String time = this.time;
+		int length = time.length();
+		int position = 0;
+
+		boolean negative = false;
+		if (length > 0
+				&& (time.charAt(0) == '+' || time.charAt(0) == '-')) {
+			negative = (time.charAt(0) == '-');
+			position++;
+		}
+
+		// Accumulate the year as a negative number to cover Long.MIN_VALUE
+		long year = 0;
+		int start = position;
+		while (position < length) {
+			int digit = time.charAt(position) - '0';
+			if (digit < 0 || digit > 9) {
+				break;
+			}
+			if (year < (Long.MIN_VALUE + digit) / 10) {
+				throw invalidTimeString();
+			}
+			year = year * 10 - digit;
+			position++;
+		}
+		if (position == start) {
+			throw invalidTimeString();
+		}
+		if (!negative) {
+			if (year == Long.MIN_VALUE) {
+				throw invalidTimeString();
+			}
+			year = -year;
+		}
+
+		position = expectSeparator(position, '-');
+		int end = componentEnd(position);
+		int month = parseTimeComponent(position, end);
+		position = expectSeparator(end, '-');
+		end = componentEnd(position);
+		int day = parseTimeComponent(position, end);
+		position = expectSeparator(end, 'T');
+		end = componentEnd(position);
+		int hour = parseTimeComponent(position, end);
+		position = expectSeparator(end, ':');
+		end = componentEnd(position);
+		int minute = parseTimeComponent(position, end);
+		position = expectSeparator(end, ':');
+		end = componentEnd(position);
+		int second = parseTimeComponent(position, end);
+		if (end != length - 1 || time.charAt(end) != 'Z') {
+			throw invalidTimeString();
+		}
+
+		this.year = year;
+		this.month = (byte) month;
+		this.day = (byte) day;
+		this.hour = (byte) hour;
+		this.minute = (byte) minute;
+		this.second = (byte) second;
 	}
 
 	/**
-	 * Helper method to compose the time string from its components.
+	 * Helper method to compose the time string from its components. The
+	 * result is the same as that of
+	 * {@code String.format("%+012d-%02d-%02dT%02d:%02d:%02dZ", ...)}, but it
+	 * is built directly in a character array.
 	 */
 	private void composeTimeString() {
-		this.time = String.format("%+012d-%02d-%02dT%02d:%02d:%02dZ",
-				this.year, this.month, this.day, this.hour, this.minute,
-				this.second);
+		// sign, 19 digits, five components with up to four characters each,
+		// and six separators
+		char[] chars = new char[46];
+		int position = chars.length;
+
+		chars[--position] = 'Z';
+		position = writeTimeComponent(chars, position, this.second);
+		chars[--position] = ':';
+		position = writeTimeComponent(chars, position, this.minute);
+		chars[--position] = ':';
+		position = writeTimeComponent(chars, position, this.hour);
+		chars[--position] = 'T';
+		position = writeTimeComponent(chars, position, this.day);
+		chars[--position] = '-';
+		position = writeTimeComponent(chars, position, this.month);
+		chars[--position] = '-';
+		position = writeDigits(chars, position, this.year, 11);
+		chars[--position] = (this.year < 0) ? '-' : '+';
+
+		this.time = new String(chars, position, chars.length - position);
+	}
+
+	/**
+	 * Parses a non-negative component of the time string.
+	 *
+	 * @param start
+	 *            the position of the first digit
+	 * @param end
+	 *            the position after the last digit
+	 * @return the value of the component
+	 * @throws IllegalArgumentException
+	 *             if there are no digits or if the value does not fit into a
+	 *             byte
+	 */
+	private int parseTimeComponent(int start, int end) {
+		if (end == start) {
+			throw invalidTimeString();
+		}
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			value = value * 10 + (this.time.charAt(i) - '0');
+			if (value > Byte.MAX_VALUE) {
+				throw invalidTimeString();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Finds the end of the digits in the time string that start at the given
+	 * position.
+	 *
+	 * @param position
+	 *            the position to start at
+	 * @return the position of the first character that is not a digit
+	 */
+	private int componentEnd(int position) {
+		int length = this.time.length();
+		while (position < length && this.time.charAt(position) >= '0'
+				&& this.time.charAt(position) <= '9') {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Checks that the time string has the given separator at the given
+	 * position.
+	 *
+	 * @param position
+	 *            the position of the separator
+	 * @param separator
+	 *            the expected character
+	 * @return the position after the separator
+	 * @throws IllegalArgumentException
+	 *             if the separator was not found
+	 */
+	private int expectSeparator(int position, char separator) {
+		if (position >= this.time.length()
+				|| this.time.charAt(position) != separator) {
+			throw invalidTimeString();
+		}
+		return position + 1;
+	}
+
+	private IllegalArgumentException invalidTimeString() {
+		return new IllegalArgumentException("Invalid time string: \""
+				+ this.time + "\"");
+	}
+
+	/**
+	 * Writes a component of the time string so that it ends before the given
+	 * position. Non-negative values are padded to two digits.
+	 *
+	 * @param chars
+	 *            the array to write to
+	 * @param end
+	 *            the position after the last character to write
+	 * @param value
+	 *            the value of the component
+	 * @return the position of the first character that was written
+	 */
+	private static int writeTimeComponent(char[] chars, int end, byte value) {
+		if (value < 0) {
+			int position = writeDigits(chars, end, value, 1);
+			chars[--position] = '-';
+			return position;
+		} else {
+			return writeDigits(chars, end, value, 2);
+		}
+	}
+
+	/**
+	 * Writes the decimal digits of the absolute value of a number so that
+	 * they end before the given position, padded with zeros to the given
+	 * minimal number of digits.
+	 *
+	 * @param chars
+	 *            the array to write to
+	 * @param end
+	 *            the position after the last digit
+	 * @param value
+	 *            the number; may be negative, including
+	 *            {@link Long#MIN_VALUE}
+	 * @param minDigits
+	 *            the minimal number of digits to write
+	 * @return the position of the first digit that was written
+	 */
+	private static int writeDigits(char[] chars, int end, long value,
+			int minDigits) {
+		// Work with the negative value to cover Long.MIN_VALUE
+		long remaining = (value > 0) ? -value : value;
+		int position = end;
+		do {
+			chars[--position] = (char) ('0' - (remaining % 10));
+			remaining /= 10;
+		} while (remaining != 0);
+		while (end - position < minDigits) {
+			chars[--position] = '0';
+		}
+		return position;
 	}
 
 	/**
@@ -156,6 +354,8 @@ public class JacksonInnerTime {
 	 *
 	 * @param time
 	 *            new value
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid time string
 	 */
 	public void setTime(String time) {
 		this.time = time;
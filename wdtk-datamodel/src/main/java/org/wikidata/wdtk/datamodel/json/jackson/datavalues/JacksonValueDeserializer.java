@@ -22,13 +22,16 @@ package org.wikidata.wdtk.datamodel.json.jackson.datavalues;
 
 import java.io.IOException;
 
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * Custom Jackson deserializer that maps the JSON representation of Wikibase
@@ -36,6 +39,19 @@ import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
  * value of the "type" field, but for entities one has to look deeper into the
  * structure to get the "entity-type" field as well. This is not possible using
  * simpler mechanisms.
+ * <p>
+ * The deserializer reads the JSON in a single pass without building a tree.
+ * If the "type" field occurs before the "value" field, the inner value is
+ * deserialized directly from the parser. Otherwise, which is the usual order
+ * in Wikidata dumps, the tokens of the value are buffered until the type is
+ * known. Simple string values are read without any buffering.
+ * <p>
+ * If a {@link Canonicalizer} is set as the attribute with key
+ * {@code Canonicalizer.class} of the deserialization context (see
+ * {@link com.fasterxml.jackson.databind.ObjectReader#withAttribute(Object, Object)}
+ * ), the entity types of entity id values and the language codes of
+ * monolingual text values are replaced by canonical instances. The value
+ * objects themselves are not shared, since they can be modified.
  *
  * @author Markus Kroetzsch
  *
@@ -59,56 +75,197 @@ public class JacksonValueDeserializer extends StdDeserializer<JacksonValue> {
 			DeserializationContext ctxt) throws IOException,
 			JsonProcessingException {
 
-		ObjectMapper mapper = (ObjectMapper) jsonParser.getCodec();
-		JsonNode root = mapper.readTree(jsonParser);
-		Class<? extends JacksonValue> valueClass = getValueClass(root);
+		JsonToken token = jsonParser.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jsonParser.nextToken();
+		}
+
+		String jsonType = null;
+		JacksonValue result = null;
+		boolean hasValue = false;
+		// Value that was found before the type, if any:
+		String stringValue = null;
+		TokenBuffer valueBuffer = null;
+
+		for (; token == JsonToken.FIELD_NAME; token = jsonParser.nextToken()) {
+			String fieldName = jsonParser.getCurrentName();
+			token = jsonParser.nextToken();
+			if ("type".equals(fieldName)) {
+				jsonType = jsonParser.getText();
+			} else if ("value".equals(fieldName)) {
+				hasValue = true;
+				if (jsonType != null) {
+					result = readValue(jsonType, jsonParser, ctxt);
+				} else if (token == JsonToken.VALUE_STRING) {
+					stringValue = jsonParser.getText();
+				} else {
+					valueBuffer = new TokenBuffer(jsonParser);
+					valueBuffer.copyCurrentStructure(jsonParser);
+				}
+			} else {
+				jsonParser.skipChildren();
+			}
+		}
+
+		if (token != JsonToken.END_OBJECT) {
+			throw ctxt.wrongTokenException(jsonParser, JsonToken.END_OBJECT,
+					"Expected end of JSON object for value");
+		}
+		if (jsonType == null) {
+			throw new JsonMappingException("Property value without type",
+					jsonParser.getCurrentLocation());
+		}
+
+		if (result != null) {
+			return result;
+		} else if (!hasValue) {
+			return readValue(jsonType, null, ctxt);
+		} else if (valueBuffer == null) {
+			if (JacksonValue.JSON_VALUE_TYPE_STRING.equals(jsonType)) {
+				JacksonValueString value = new JacksonValueString();
+				value.setValue(stringValue);
+				return value;
+			}
+			valueBuffer = new TokenBuffer(jsonParser);
+			valueBuffer.writeString(stringValue);
+		}
 
-		return mapper.treeToValue(root, valueClass);
+		JsonParser bufferParser = valueBuffer.asParser(jsonParser);
+		bufferParser.nextToken();
+		return readValue(jsonType, bufferParser, ctxt);
 	}
 
 	/**
-	 * Finds the Java class to use for deserializing the JSON structure
-	 * represented by the given node.
+	 * Creates the value object for the given type, reading the inner value
+	 * from the given parser. The parser must be positioned on the first token
+	 * of the inner value, or be null if there is no inner value.
 	 *
-	 * @param jsonNode
-	 *            the JSON node that represents the value to deserialize
-	 * @return the Java class to use for deserialization
-	 * @throws JsonMappingException
-	 *             if we do not have a class for the given JSON
+	 * @param jsonType
+	 *            the JSON type of the value
+	 * @param jsonParser
+	 *            the parser to read the inner value from, or null
+	 * @param ctxt
+	 *            the context of the current deserialization
+	 * @return the value object
+	 * @throws IOException
+	 *             if the JSON could not be read or does not match the type
 	 */
-	private Class<? extends JacksonValue> getValueClass(JsonNode jsonNode)
-			throws JsonMappingException {
-		String jsonType = jsonNode.get("type").asText();
-
+	private JacksonValue readValue(String jsonType, JsonParser jsonParser,
+			DeserializationContext ctxt) throws IOException {
 		switch (jsonType) {
 		case JacksonValue.JSON_VALUE_TYPE_ENTITY_ID:
-			JsonNode valueNode = jsonNode.get("value");
-			if (valueNode != null) {
-				String entityType = valueNode.get("entity-type").asText();
-				switch (entityType) {
-				case JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM:
-					return JacksonValueItemId.class;
-				case JacksonInnerEntityId.JSON_ENTITY_TYPE_PROPERTY:
-					return JacksonValuePropertyId.class;
-				default:
-					throw new JsonMappingException("Entities of type \""
-							+ entityType
-							+ "\" are not supported as property values yet.");
+			JacksonInnerEntityId entityId = readInnerValue(
+					JacksonInnerEntityId.class, jsonParser, ctxt);
+			if (entityId != null) {
+				Canonicalizer canonicalizer = getCanonicalizer(ctxt);
+				if (canonicalizer != null) {
+					entityId.setJsonEntityType(canonicalizer.getString(entityId
+							.getJsonEntityType()));
 				}
+				return makeEntityIdValue(entityId);
 			}
+			// fall through: without inner value, read as empty string value
 		case JacksonValue.JSON_VALUE_TYPE_STRING:
-			return JacksonValueString.class;
+			JacksonValueString stringValue = new JacksonValueString();
+			if (jsonParser != null) {
+				stringValue.setValue(_parseString(jsonParser, ctxt));
+			}
+			return stringValue;
 		case JacksonValue.JSON_VALUE_TYPE_TIME:
-			return JacksonValueTime.class;
+			JacksonValueTime timeValue = new JacksonValueTime();
+			timeValue.setValue(readInnerValue(JacksonInnerTime.class,
+					jsonParser, ctxt));
+			return timeValue;
 		case JacksonValue.JSON_VALUE_TYPE_GLOBE_COORDINATES:
-			return JacksonValueGlobeCoordinates.class;
+			JacksonValueGlobeCoordinates globeValue = new JacksonValueGlobeCoordinates();
+			globeValue.setValue(readInnerValue(
+					JacksonInnerGlobeCoordinates.class, jsonParser, ctxt));
+			return globeValue;
 		case JacksonValue.JSON_VALUE_TYPE_QUANTITY:
-			return JacksonValueQuantity.class;
+			JacksonValueQuantity quantityValue = new JacksonValueQuantity();
+			quantityValue.setValue(readInnerValue(JacksonInnerQuantity.class,
+					jsonParser, ctxt));
+			return quantityValue;
 		case JacksonValue.JSON_VALUE_TYPE_MONOLINGUAL_TEXT:
-			return JacksonValueMonolingualText.class;
+			JacksonValueMonolingualText textValue = new JacksonValueMonolingualText();
+			JacksonInnerMonolingualText innerText = readInnerValue(
+					JacksonInnerMonolingualText.class, jsonParser, ctxt);
+			Canonicalizer canonicalizer = getCanonicalizer(ctxt);
+			if (innerText != null && canonicalizer != null) {
+				innerText.setLanguage(canonicalizer.getString(innerText
+						.getLanguage()));
+			}
+			textValue.setValue(innerText);
+			return textValue;
 		default:
 			throw new JsonMappingException("Property values of type \""
 					+ jsonType + "\" are not supported yet.");
 		}
 	}
+
+	/**
+	 * Reads an inner value of the given class from the parser, using the
+	 * deserializer that Jackson has cached for this class.
+	 *
+	 * @param innerClass
+	 *            the class of the inner value
+	 * @param jsonParser
+	 *            the parser, positioned on the first token of the value, or
+	 *            null if there is no value
+	 * @param ctxt
+	 *            the context of the current deserialization
+	 * @return the inner value, or null if there is no value
+	 * @throws IOException
+	 *             if the JSON could not be read
+	 */
+	private <T> T readInnerValue(Class<T> innerClass, JsonParser jsonParser,
+			DeserializationContext ctxt) throws IOException {
+		if (jsonParser == null
+				|| jsonParser.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		JsonDeserializer<T> deserializer = (JsonDeserializer<T>) ctxt
+				.findRootValueDeserializer(ctxt.constructType(innerClass));
+		return deserializer.deserialize(jsonParser, ctxt);
+	}
+
+	/**
+	 * Returns the canonicalizer that has been set for the current
+	 * deserialization, if any.
+	 *
+	 * @param ctxt
+	 *            the context of the current deserialization
+	 * @return the canonicalizer, or null if none has been set
+	 */
+	private Canonicalizer getCanonicalizer(DeserializationContext ctxt) {
+		return (Canonicalizer) ctxt.getAttribute(Canonicalizer.class);
+	}
+
+	/**
+	 * Creates the value object for the given entity id, depending on its
+	 * entity type.
+	 *
+	 * @param entityId
+	 *            the inner value of the entity id value
+	 * @return the value object
+	 * @throws JsonMappingException
+	 *             if we do not have a class for the given entity type
+	 */
+	private JacksonValueEntityId makeEntityIdValue(
+			JacksonInnerEntityId entityId) throws JsonMappingException {
+		JacksonValueEntityId value;
+		String entityType = entityId.getJsonEntityType();
+		if (JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM.equals(entityType)) {
+			value = new JacksonValueItemId();
+		} else if (JacksonInnerEntityId.JSON_ENTITY_TYPE_PROPERTY
+				.equals(entityType)) {
+			value = new JacksonValuePropertyId();
+		} else {
+			throw new JsonMappingException("Entities of type \"" + entityType
+					+ "\" are not supported as property values yet.");
+		}
+		value.setValue(entityId);
+		return value;
+	}
 }
@@ -73,11 +73,17 @@ public class JacksonValueItemId extends JacksonValueEntityId implements
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		return Hash.hashCodeNumericEntityId('Q', this.value.getNumericId(),
+				getSiteIri(), EntityIdValue.ET_ITEM);
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof JacksonValueItemId) {
+			JacksonValueItemId other = (JacksonValueItemId) obj;
+			return this.value.getNumericId() == other.value.getNumericId()
+					&& getSiteIri().equals(other.getSiteIri());
+		}
 		return Equality.equalsEntityIdValue(this, obj);
 	}
 
@@ -73,11 +73,17 @@ public class JacksonValuePropertyId extends JacksonValueEntityId implements
 
 	@Override
 	public int hashCode() {
-		return Hash.hashCode(this);
+		return Hash.hashCodeNumericEntityId('P', this.value.getNumericId(),
+				getSiteIri(), EntityIdValue.ET_PROPERTY);
 	}
 
 	@Override
 	public boolean equals(Object obj) {
+		if (obj instanceof JacksonValuePropertyId) {
+			JacksonValuePropertyId other = (JacksonValuePropertyId) obj;
+			return this.value.getNumericId() == other.value.getNumericId()
+					&& getSiteIri().equals(other.getSiteIri());
+		}
 		return Equality.equalsEntityIdValue(this, obj);
 	}
 
@@ -0,0 +1,340 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.Claim;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+/**
+ * Decodes parts of the data of a {@link PackedTermedStatementDocument} into
+ * data objects. The format is described in {@link PackedDataWriter}. Each
+ * reader keeps its own position, so that several threads can read the same
+ * document at the same time.
+ */
+class PackedDataReader {
+
+	static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	static final char[] HEX_DIGITS_UPPER_CASE = "0123456789ABCDEF"
+			.toCharArray();
+
+	static final StatementRank[] RANKS = StatementRank.values();
+
+	/**
+	 * Number of ints that follow the type of a value, indexed by the value
+	 * types of {@link PackedDataWriter}.
+	 */
+	static final int[] VALUE_SIZES = { 2, 2, 1, 2, 8, 7, 3, 1 };
+
+	final PackedTermedStatementDocument document;
+	final PackedObjectFactory factory;
+	final int[] data;
+	final byte[] text;
+
+	int position;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document
+	 *            the document to read from
+	 * @param position
+	 *            the position in the int array where reading starts
+	 */
+	PackedDataReader(PackedTermedStatementDocument document, int position) {
+		this.document = document;
+		this.factory = document.factory;
+		this.data = document.data;
+		this.text = document.text;
+		this.position = position;
+	}
+
+	Map<String, MonolingualTextValue> readTerms() {
+		int count = read();
+		Map<String, MonolingualTextValue> result = new HashMap<>(
+				count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++) {
+			MonolingualTextValue term = readTerm();
+			result.put(term.getLanguageCode(), term);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	Map<String, List<MonolingualTextValue>> readAliases() {
+		int count = read();
+		Map<String, List<MonolingualTextValue>> result = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			MonolingualTextValue alias = readTerm();
+			List<MonolingualTextValue> aliases = result.get(alias
+					.getLanguageCode());
+			if (aliases == null) {
+				aliases = new ArrayList<>();
+				result.put(alias.getLanguageCode(), aliases);
+			}
+			aliases.add(alias);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	MonolingualTextValue readTerm() {
+		String languageCode = readSymbol();
+		return this.factory.getMonolingualTextValue(readText(), languageCode);
+	}
+
+	Map<String, SiteLink> readSiteLinks() {
+		int count = read();
+		Map<String, SiteLink> result = new HashMap<>(count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++) {
+			String siteKey = readSymbol();
+			String title = readText();
+			int badgeCount = read();
+			List<String> badges;
+			if (badgeCount == 0) {
+				badges = Collections.<String> emptyList();
+			} else {
+				badges = new ArrayList<>(badgeCount);
+				for (int j = 0; j < badgeCount; j++) {
+					badges.add(readSymbol());
+				}
+			}
+			result.put(siteKey, this.factory.getSiteLink(title, siteKey, badges));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Reads the rank of a statement. The reader must be positioned after the
+	 * length of the statement.
+	 */
+	StatementRank readRank() {
+		return RANKS[read() & PackedDataWriter.RANK_MASK];
+	}
+
+	/**
+	 * Reads the id of a statement. The reader must be positioned at the rank
+	 * of the statement.
+	 */
+	String readStatementId() {
+		int flags = read();
+		if ((flags & ~PackedDataWriter.RANK_MASK) == 0) {
+			return readText();
+		}
+		char[] digits = HEX_DIGITS;
+		if ((flags & PackedDataWriter.STATEMENT_UUID_UPPER_CASE) != 0) {
+			digits = HEX_DIGITS_UPPER_CASE;
+		}
+		String prefix = this.document.getEntityId().getId();
+		char[] chars = new char[prefix.length() + 37];
+		prefix.getChars(0, prefix.length(), chars, 0);
+		int index = prefix.length();
+		chars[index++] = '$';
+		for (int i = 0; i < 4; i++) {
+			int bits = read();
+			for (int j = 28; j >= 0; j -= 4) {
+				if (index == prefix.length() + 9
+						|| index == prefix.length() + 14
+						|| index == prefix.length() + 19
+						|| index == prefix.length() + 24) {
+					chars[index++] = '-';
+				}
+				chars[index++] = digits[(bits >>> j) & 0xf];
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Reads the claim of a statement. The reader must be positioned at the
+	 * main snak.
+	 */
+	Claim readClaim() {
+		Snak mainSnak = readSnak();
+		return this.factory.getClaim(this.document.getEntityId(), mainSnak,
+				readSnakGroups());
+	}
+
+	/**
+	 * Reads the references of a statement. The reader must be positioned at
+	 * the number of references.
+	 */
+	List<Reference> readReferences() {
+		int count = read();
+		if (count == 0) {
+			return Collections.<Reference> emptyList();
+		}
+		List<Reference> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(this.factory.getReference(readSnakGroups()));
+		}
+		return result;
+	}
+
+	List<SnakGroup> readSnakGroups() {
+		int count = read();
+		if (count == 0) {
+			return Collections.<SnakGroup> emptyList();
+		}
+		List<SnakGroup> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int snakCount = read();
+			List<Snak> snaks = new ArrayList<>(snakCount);
+			for (int j = 0; j < snakCount; j++) {
+				snaks.add(readSnak());
+			}
+			result.add(this.factory.getSnakGroup(snaks));
+		}
+		return result;
+	}
+
+	Snak readSnak() {
+		int kind = read();
+		PropertyIdValue propertyId = readPropertyIdValue();
+		switch (kind) {
+		case PackedDataWriter.SNAK_VALUE:
+			return this.factory.getValueSnak(propertyId, readValue());
+		case PackedDataWriter.SNAK_SOME_VALUE:
+			return this.factory.getSomeValueSnak(propertyId);
+		case PackedDataWriter.SNAK_NO_VALUE:
+			return this.factory.getNoValueSnak(propertyId);
+		default:
+			throw new IllegalStateException("Unknown snak kind " + kind);
+		}
+	}
+
+	/**
+	 * Reads the property of a snak without decoding the rest of the snak.
+	 * The reader must be positioned at the kind of the snak.
+	 */
+	PropertyIdValue readSnakProperty() {
+		this.position++;
+		return readPropertyIdValue();
+	}
+
+	void skipSnakGroups() {
+		int count = read();
+		for (int i = 0; i < count; i++) {
+			int snakCount = read();
+			for (int j = 0; j < snakCount; j++) {
+				skipSnak();
+			}
+		}
+	}
+
+	void skipSnak() {
+		int kind = read();
+		this.position += 2;
+		if (kind == PackedDataWriter.SNAK_VALUE) {
+			int type = read();
+			this.position += VALUE_SIZES[type];
+		}
+	}
+
+	Value readValue() {
+		int type = read();
+		switch (type) {
+		case PackedDataWriter.VALUE_ITEM:
+			return readItemIdValue();
+		case PackedDataWriter.VALUE_PROPERTY:
+			return readPropertyIdValue();
+		case PackedDataWriter.VALUE_STRING:
+			return this.factory.getStringValue(readText());
+		case PackedDataWriter.VALUE_MONOLINGUAL_TEXT:
+			String string = readText();
+			return this.factory.getMonolingualTextValue(string, readSymbol());
+		case PackedDataWriter.VALUE_TIME:
+			long year = readLong();
+			int date = read();
+			int second = read();
+			return this.factory.getTimeValue(year, (byte) (date >>> 24),
+					(byte) (date >>> 16), (byte) (date >>> 8), (byte) date,
+					(byte) (second >>> 8), (byte) second, read(), read(),
+					read(), readSymbol());
+		case PackedDataWriter.VALUE_GLOBE_COORDINATES:
+			double latitude = Double.longBitsToDouble(readLong());
+			double longitude = Double.longBitsToDouble(readLong());
+			double precision = Double.longBitsToDouble(readLong());
+			return this.factory.getGlobeCoordinatesValue(latitude, longitude,
+					precision, readSymbol());
+		case PackedDataWriter.VALUE_QUANTITY:
+			BigDecimal numericValue = new BigDecimal(readText());
+			BigDecimal lowerBound = new BigDecimal(readText());
+			return this.factory.getQuantityValue(numericValue, lowerBound,
+					new BigDecimal(readText()));
+		case PackedDataWriter.VALUE_DATATYPE:
+			return this.factory.getDatatypeIdValue(readSymbol());
+		default:
+			throw new IllegalStateException("Unknown value type " + type);
+		}
+	}
+
+	ItemIdValue readItemIdValue() {
+		int numericId = read();
+		return this.factory.getItemIdValue(numericId, readSymbol());
+	}
+
+	PropertyIdValue readPropertyIdValue() {
+		int numericId = read();
+		return this.factory.getPropertyIdValue(numericId, readSymbol());
+	}
+
+	String readSymbol() {
+		return this.factory.dictionary.getString(read());
+	}
+
+	String readText() {
+		int textPosition = read();
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.text[textPosition++];
+			length |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return new String(this.text, textPosition, length,
+				StandardCharsets.UTF_8);
+	}
+
+	long readLong() {
+		long high = read();
+		return (high << 32) | (read() & 0xffffffffL);
+	}
+
+	int read() {
+		return this.data[this.position++];
+	}
+
+}
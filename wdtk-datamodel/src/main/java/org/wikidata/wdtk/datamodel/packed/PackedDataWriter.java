@@ -0,0 +1,495 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.GlobeCoordinatesValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.NoValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.SnakVisitor;
+import org.wikidata.wdtk.datamodel.interfaces.SomeValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.ValueVisitor;
+
+/**
+ * Encodes the data of one document into the arrays used by
+ * {@link PackedTermedStatementDocument}. The document is stored in an int
+ * array and a byte array. The byte array holds all texts, such as labels,
+ * string values, and page titles, in UTF-8; each text is preceded by its
+ * length and is stored only once per document. Strings that are shared by
+ * many documents, such as language codes, are stored as ids of a
+ * {@link StringDictionary}. The int array has the following layout:
+ *
+ * <pre>
+ * document:   entityId, siteIri, datatype, descriptionsStart, aliasesStart,
+ *             siteLinksStart, statementsStart, labels, descriptions, aliases,
+ *             siteLinks, statementGroupCount, statementGroup*
+ * terms:      count, (language, text)*
+ * siteLinks:  count, (siteKey, title, badgeCount, badge*)*
+ * statementGroup: length, statementCount, statement*
+ * statement:  length, rankAndFlags, statementId, snak, qualifierGroupCount,
+ *             snakGroup*, referenceCount, (snakGroupCount, snakGroup*)*
+ * snakGroup:  snakCount, snak*
+ * snak:       kind, propertyId, siteIri, value (only for value snaks)
+ * </pre>
+ *
+ * Lengths count the ints that follow, so that views can skip over statements
+ * without decoding them. Entity ids are stored by their numeric id. Statement
+ * ids that consist of the entity id and a UUID
+ * are stored as four ints; other statement ids are stored as text.
+ */
+class PackedDataWriter implements SnakVisitor<Void>, ValueVisitor<Void> {
+
+	static final int HEADER_ENTITY_ID = 0;
+	static final int HEADER_SITE_IRI = 1;
+	static final int HEADER_DATATYPE = 2;
+	static final int HEADER_DESCRIPTIONS = 3;
+	static final int HEADER_ALIASES = 4;
+	static final int HEADER_SITE_LINKS = 5;
+	static final int HEADER_STATEMENTS = 6;
+	static final int HEADER_SIZE = 7;
+
+	static final int SNAK_VALUE = 0;
+	static final int SNAK_SOME_VALUE = 1;
+	static final int SNAK_NO_VALUE = 2;
+
+	static final int VALUE_ITEM = 0;
+	static final int VALUE_PROPERTY = 1;
+	static final int VALUE_STRING = 2;
+	static final int VALUE_MONOLINGUAL_TEXT = 3;
+	static final int VALUE_TIME = 4;
+	static final int VALUE_GLOBE_COORDINATES = 5;
+	static final int VALUE_QUANTITY = 6;
+	static final int VALUE_DATATYPE = 7;
+
+	/**
+	 * Flag in the rank of a statement that marks statement ids that are
+	 * stored as UUIDs in lower case.
+	 */
+	static final int STATEMENT_UUID = 0x10;
+	/**
+	 * Flag in the rank of a statement that marks statement ids that are
+	 * stored as UUIDs in upper case.
+	 */
+	static final int STATEMENT_UUID_UPPER_CASE = 0x20;
+	static final int RANK_MASK = 0x0f;
+
+	final StringDictionary dictionary;
+	final String entityId;
+
+	int[] data = new int[64];
+	int size = 0;
+	byte[] text = new byte[256];
+	int textSize = 0;
+	final Map<String, Integer> textPositions = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dictionary
+	 *            the dictionary for shared strings
+	 * @param entityId
+	 *            the id of the document that is written; used to recognize
+	 *            statement ids that can be stored compactly
+	 */
+	PackedDataWriter(StringDictionary dictionary, EntityIdValue entityId) {
+		this.dictionary = dictionary;
+		this.entityId = entityId.getId();
+		this.size = HEADER_SIZE;
+		writeEntityId(entityId, HEADER_ENTITY_ID);
+		this.data[HEADER_SITE_IRI] = this.dictionary.getId(entityId
+				.getSiteIri());
+		this.data[HEADER_DATATYPE] = -1;
+	}
+
+	/**
+	 * Writes the terms, site links, and statements of a document.
+	 *
+	 * @param labels
+	 *            the labels, with at most one label per language
+	 * @param descriptions
+	 *            the descriptions, with at most one description per language
+	 * @param aliases
+	 *            the aliases
+	 * @param siteLinks
+	 *            the site links
+	 * @param statementGroups
+	 *            the statement groups
+	 */
+	void writeDocument(List<MonolingualTextValue> labels,
+			List<MonolingualTextValue> descriptions,
+			List<MonolingualTextValue> aliases,
+			Map<String, SiteLink> siteLinks,
+			List<StatementGroup> statementGroups) {
+		writeTerms(labels);
+		this.data[HEADER_DESCRIPTIONS] = this.size;
+		writeTerms(descriptions);
+		this.data[HEADER_ALIASES] = this.size;
+		writeTerms(aliases);
+		this.data[HEADER_SITE_LINKS] = this.size;
+		writeSiteLinks(siteLinks);
+		this.data[HEADER_STATEMENTS] = this.size;
+		writeStatementGroups(statementGroups);
+	}
+
+	void setDatatype(DatatypeIdValue datatype) {
+		this.data[HEADER_DATATYPE] = this.dictionary.getId(datatype.getIri());
+	}
+
+	/**
+	 * Returns the ints that have been written, in an array of exact size.
+	 *
+	 * @return the packed data
+	 */
+	int[] getData() {
+		return Arrays.copyOf(this.data, this.size);
+	}
+
+	/**
+	 * Returns the texts that have been written, in an array of exact size.
+	 *
+	 * @return the packed texts
+	 */
+	byte[] getText() {
+		return Arrays.copyOf(this.text, this.textSize);
+	}
+
+	void writeTerms(List<MonolingualTextValue> terms) {
+		write(terms.size());
+		for (MonolingualTextValue term : terms) {
+			write(this.dictionary.getId(term.getLanguageCode()));
+			writeText(term.getText());
+		}
+	}
+
+	void writeSiteLinks(Map<String, SiteLink> siteLinks) {
+		write(siteLinks.size());
+		for (SiteLink siteLink : siteLinks.values()) {
+			write(this.dictionary.getId(siteLink.getSiteKey()));
+			writeText(siteLink.getPageTitle());
+			List<String> badges = siteLink.getBadges();
+			write(badges.size());
+			for (String badge : badges) {
+				write(this.dictionary.getId(badge));
+			}
+		}
+	}
+
+	void writeStatementGroups(List<StatementGroup> statementGroups) {
+		write(statementGroups.size());
+		for (StatementGroup statementGroup : statementGroups) {
+			int start = reserve();
+			List<Statement> statements = statementGroup.getStatements();
+			write(statements.size());
+			for (Statement statement : statements) {
+				writeStatement(statement);
+			}
+			this.data[start] = this.size - start - 1;
+		}
+	}
+
+	void writeStatement(Statement statement) {
+		int start = reserve();
+		int rank = statement.getRank().ordinal();
+		String statementId = statement.getStatementId();
+		int uuidCase = getUuidCase(statementId);
+		if (uuidCase != 0) {
+			write(rank | uuidCase);
+			int position = this.entityId.length() + 1;
+			for (int i = 0; i < 4; i++) {
+				int bits = 0;
+				for (int j = 0; j < 8; j++) {
+					if (statementId.charAt(position) == '-') {
+						position++;
+					}
+					bits = (bits << 4)
+							| Character.digit(statementId.charAt(position++),
+									16);
+				}
+				write(bits);
+			}
+		} else {
+			write(rank);
+			writeText(statementId);
+		}
+
+		writeSnak(statement.getClaim().getMainSnak());
+		writeSnakGroups(statement.getClaim().getQualifiers());
+
+		List<? extends Reference> references = statement.getReferences();
+		write(references.size());
+		for (Reference reference : references) {
+			writeSnakGroups(reference.getSnakGroups());
+		}
+		this.data[start] = this.size - start - 1;
+	}
+
+	/**
+	 * Checks if the given statement id consists of the entity id, a dollar
+	 * sign, and a UUID in a case that can be restored.
+	 *
+	 * @param statementId
+	 *            the statement id
+	 * @return {@link #STATEMENT_UUID}, {@link #STATEMENT_UUID_UPPER_CASE}, or
+	 *         0 if the id must be stored as text
+	 */
+	int getUuidCase(String statementId) {
+		int prefixLength = this.entityId.length() + 1;
+		if (statementId.length() != prefixLength + 36
+				|| !statementId.startsWith(this.entityId)
+				|| statementId.charAt(prefixLength - 1) != '$') {
+			return 0;
+		}
+		boolean lowerCase = false;
+		boolean upperCase = false;
+		for (int i = 0; i < 36; i++) {
+			char c = statementId.charAt(prefixLength + i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return 0;
+				}
+			} else if (c >= 'a' && c <= 'f') {
+				lowerCase = true;
+			} else if (c >= 'A' && c <= 'F') {
+				upperCase = true;
+			} else if (c < '0' || c > '9') {
+				return 0;
+			}
+		}
+		if (lowerCase && upperCase) {
+			return 0;
+		}
+		return upperCase ? STATEMENT_UUID_UPPER_CASE : STATEMENT_UUID;
+	}
+
+	void writeSnakGroups(List<SnakGroup> snakGroups) {
+		write(snakGroups.size());
+		for (SnakGroup snakGroup : snakGroups) {
+			List<Snak> snaks = snakGroup.getSnaks();
+			write(snaks.size());
+			for (Snak snak : snaks) {
+				writeSnak(snak);
+			}
+		}
+	}
+
+	void writeSnak(Snak snak) {
+		snak.accept(this);
+	}
+
+	@Override
+	public Void visit(ValueSnak snak) {
+		write(SNAK_VALUE);
+		writeEntityIdAndSite(snak.getPropertyId());
+		snak.getValue().accept(this);
+		return null;
+	}
+
+	@Override
+	public Void visit(SomeValueSnak snak) {
+		write(SNAK_SOME_VALUE);
+		writeEntityIdAndSite(snak.getPropertyId());
+		return null;
+	}
+
+	@Override
+	public Void visit(NoValueSnak snak) {
+		write(SNAK_NO_VALUE);
+		writeEntityIdAndSite(snak.getPropertyId());
+		return null;
+	}
+
+	@Override
+	public Void visit(DatatypeIdValue value) {
+		write(VALUE_DATATYPE);
+		write(this.dictionary.getId(value.getIri()));
+		return null;
+	}
+
+	@Override
+	public Void visit(EntityIdValue value) {
+		switch (value.getEntityType()) {
+		case EntityIdValue.ET_ITEM:
+			write(VALUE_ITEM);
+			break;
+		case EntityIdValue.ET_PROPERTY:
+			write(VALUE_PROPERTY);
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported entity type: "
+					+ value.getEntityType());
+		}
+		writeEntityIdAndSite(value);
+		return null;
+	}
+
+	@Override
+	public Void visit(GlobeCoordinatesValue value) {
+		write(VALUE_GLOBE_COORDINATES);
+		writeLong(Double.doubleToRawLongBits(value.getLatitude()));
+		writeLong(Double.doubleToRawLongBits(value.getLongitude()));
+		writeLong(Double.doubleToRawLongBits(value.getPrecision()));
+		write(this.dictionary.getId(value.getGlobe()));
+		return null;
+	}
+
+	@Override
+	public Void visit(MonolingualTextValue value) {
+		write(VALUE_MONOLINGUAL_TEXT);
+		writeText(value.getText());
+		write(this.dictionary.getId(value.getLanguageCode()));
+		return null;
+	}
+
+	@Override
+	public Void visit(QuantityValue value) {
+		write(VALUE_QUANTITY);
+		writeText(value.getNumericValue().toString());
+		writeText(value.getLowerBound().toString());
+		writeText(value.getUpperBound().toString());
+		return null;
+	}
+
+	@Override
+	public Void visit(StringValue value) {
+		write(VALUE_STRING);
+		writeText(value.getString());
+		return null;
+	}
+
+	@Override
+	public Void visit(TimeValue value) {
+		write(VALUE_TIME);
+		writeLong(value.getYear());
+		write((value.getMonth() & 0xff) << 24 | (value.getDay() & 0xff) << 16
+				| (value.getHour() & 0xff) << 8 | (value.getMinute() & 0xff));
+		write((value.getSecond() & 0xff) << 8 | (value.getPrecision() & 0xff));
+		write(value.getBeforeTolerance());
+		write(value.getAfterTolerance());
+		write(value.getTimezoneOffset());
+		write(this.dictionary.getId(value.getPreferredCalendarModel()));
+		return null;
+	}
+
+	void writeEntityIdAndSite(EntityIdValue entityId) {
+		writeEntityId(entityId, reserve());
+		write(this.dictionary.getId(entityId.getSiteIri()));
+	}
+
+	/**
+	 * Writes the numeric part of the given entity id to the given position.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the id does not have a numeric part that fits into an
+	 *             int
+	 */
+	void writeEntityId(EntityIdValue entityId, int position) {
+		String id = entityId.getId();
+		long numericId = -1;
+		if (id.length() > 1 && id.length() < 12) {
+			numericId = 0;
+			for (int i = 1; i < id.length(); i++) {
+				int digit = id.charAt(i) - '0';
+				if (digit < 0 || digit > 9) {
+					numericId = -1;
+					break;
+				}
+				numericId = numericId * 10 + digit;
+			}
+		}
+		if (numericId < 0 || numericId > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Unsupported entity id: " + id);
+		}
+		this.data[position] = (int) numericId;
+	}
+
+	void writeText(String string) {
+		write(writeTextAt(string));
+	}
+
+	/**
+	 * Stores the given string in the text array, unless it has been stored
+	 * before.
+	 *
+	 * @return the position of the string in the text array
+	 */
+	int writeTextAt(String string) {
+		Integer position = this.textPositions.get(string);
+		if (position != null) {
+			return position;
+		}
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		if (this.textSize + bytes.length + 5 > this.text.length) {
+			this.text = Arrays.copyOf(this.text, Math.max(2 * this.text.length,
+					this.textSize + bytes.length + 5));
+		}
+		int result = this.textSize;
+		int length = bytes.length;
+		while (length > 0x7f) {
+			this.text[this.textSize++] = (byte) (length & 0x7f | 0x80);
+			length >>>= 7;
+		}
+		this.text[this.textSize++] = (byte) length;
+		System.arraycopy(bytes, 0, this.text, this.textSize, bytes.length);
+		this.textSize += bytes.length;
+		this.textPositions.put(string, result);
+		return result;
+	}
+
+	void writeLong(long value) {
+		write((int) (value >>> 32));
+		write((int) value);
+	}
+
+	/**
+	 * Reserves one int that will be written later.
+	 *
+	 * @return the position of the reserved int
+	 */
+	int reserve() {
+		write(0);
+		return this.size - 1;
+	}
+
+	void write(int value) {
+		if (this.size == this.data.length) {
+			this.data = Arrays.copyOf(this.data, 2 * this.data.length);
+		}
+		this.data[this.size++] = value;
+	}
+
+}
@@ -0,0 +1,76 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.helpers.Equality;
+import org.wikidata.wdtk.datamodel.helpers.Hash;
+import org.wikidata.wdtk.datamodel.helpers.ToString;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+
+/**
+ * Packed implementation of {@link ItemDocument}.
+ *
+ * @see PackedTermedStatementDocument
+ */
+public class PackedItemDocument extends PackedTermedStatementDocument
+		implements ItemDocument {
+
+	PackedItemDocument(PackedObjectFactory factory, int[] data, byte[] text) {
+		super(factory, data, text);
+	}
+
+	@Override
+	public EntityIdValue getEntityId() {
+		return getItemId();
+	}
+
+	@Override
+	public ItemIdValue getItemId() {
+		return new PackedDataReader(this,
+				PackedDataWriter.HEADER_ENTITY_ID).readItemIdValue();
+	}
+
+	@Override
+	public Map<String, SiteLink> getSiteLinks() {
+		return new PackedDataReader(this,
+				this.data[PackedDataWriter.HEADER_SITE_LINKS]).readSiteLinks();
+	}
+
+	@Override
+	public int hashCode() {
+		return Hash.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return Equality.equalsItemDocument(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return ToString.toString(this);
+	}
+}
@@ -0,0 +1,348 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.Validate;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
+import org.wikidata.wdtk.datamodel.interfaces.Claim;
+import org.wikidata.wdtk.datamodel.interfaces.DataObjectFactory;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.GlobeCoordinatesValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.NoValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.SomeValueSnak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
+import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+
+/**
+ * Implementation of {@link DataObjectFactory} that creates documents in a
+ * compact, packed form. Item and property documents are encoded into
+ * primitive arrays when they are created, and strings that occur in many
+ * documents are stored in a dictionary that is shared by all documents of the
+ * factory. The documents decode their data when it is accessed, as described
+ * in {@link PackedTermedStatementDocument}. This makes them much smaller than
+ * the documents of other implementations, but slower to access. They are
+ * meant for applications that keep large numbers of documents in memory.
+ * <p>
+ * All other data objects are created as in {@link DataObjectFactoryImpl}. To
+ * convert existing documents to the packed form, a {@link DatamodelConverter}
+ * can be used:
+ *
+ * <pre>
+ * DatamodelConverter converter = new DatamodelConverter(
+ * 		new PackedObjectFactory());
+ * converter.setOptionDeepCopy(false);
+ * ItemDocument packedDocument = converter.copy(itemDocument);
+ * </pre>
+ *
+ * Deep copies are not needed here, since the packed documents never refer to
+ * the objects they were created from.
+ * <p>
+ * Objects of this class are thread-safe.
+ */
+public class PackedObjectFactory implements DataObjectFactory {
+
+	final StringDictionary dictionary = new StringDictionary();
+
+	final DataObjectFactoryImpl factory;
+
+	/**
+	 * Canonicalizer used for decoded entity ids, or null if objects are not
+	 * shared.
+	 */
+	final Canonicalizer canonicalizer;
+
+	/**
+	 * Constructor.
+	 */
+	public PackedObjectFactory() {
+		this(null);
+	}
+
+	/**
+	 * Constructor. Creates a factory that returns canonical instances of
+	 * entity ids, language codes, and site keys when decoding documents.
+	 * Since decoded objects are not kept by the documents, this can save
+	 * many allocations.
+	 *
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null if objects should not be
+	 *            shared
+	 */
+	public PackedObjectFactory(Canonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+		this.factory = new DataObjectFactoryImpl(canonicalizer);
+	}
+
+	/**
+	 * Returns the number of distinct strings that are shared by the documents
+	 * of this factory. This is mainly useful for monitoring memory usage.
+	 *
+	 * @return size of the string dictionary
+	 */
+	public int getDictionarySize() {
+		return this.dictionary.size();
+	}
+
+	@Override
+	public ItemIdValue getItemIdValue(String id, String siteIri) {
+		return this.factory.getItemIdValue(id, siteIri);
+	}
+
+	@Override
+	public PropertyIdValue getPropertyIdValue(String id, String siteIri) {
+		return this.factory.getPropertyIdValue(id, siteIri);
+	}
+
+	@Override
+	public DatatypeIdValue getDatatypeIdValue(String id) {
+		return this.factory.getDatatypeIdValue(id);
+	}
+
+	@Override
+	public TimeValue getTimeValue(long year, byte month, byte day, byte hour,
+			byte minute, byte second, byte precision, int beforeTolerance,
+			int afterTolerance, int timezoneOffset, String calendarModel) {
+		return this.factory.getTimeValue(year, month, day, hour, minute,
+				second, precision, beforeTolerance, afterTolerance,
+				timezoneOffset, calendarModel);
+	}
+
+	@Override
+	public GlobeCoordinatesValue getGlobeCoordinatesValue(double latitude,
+			double longitude, double precision, String globeIri) {
+		return this.factory.getGlobeCoordinatesValue(latitude, longitude,
+				precision, globeIri);
+	}
+
+	@Override
+	public StringValue getStringValue(String string) {
+		return this.factory.getStringValue(string);
+	}
+
+	@Override
+	public MonolingualTextValue getMonolingualTextValue(String text,
+			String languageCode) {
+		return this.factory.getMonolingualTextValue(text, languageCode);
+	}
+
+	@Override
+	public QuantityValue getQuantityValue(BigDecimal numericValue,
+			BigDecimal lowerBound, BigDecimal upperBound) {
+		return this.factory.getQuantityValue(numericValue, lowerBound,
+				upperBound);
+	}
+
+	@Override
+	public ValueSnak getValueSnak(PropertyIdValue propertyId, Value value) {
+		return this.factory.getValueSnak(propertyId, value);
+	}
+
+	@Override
+	public SomeValueSnak getSomeValueSnak(PropertyIdValue propertyId) {
+		return this.factory.getSomeValueSnak(propertyId);
+	}
+
+	@Override
+	public NoValueSnak getNoValueSnak(PropertyIdValue propertyId) {
+		return this.factory.getNoValueSnak(propertyId);
+	}
+
+	@Override
+	public SnakGroup getSnakGroup(List<? extends Snak> snaks) {
+		return this.factory.getSnakGroup(snaks);
+	}
+
+	@Override
+	public Claim getClaim(EntityIdValue subject, Snak mainSnak,
+			List<SnakGroup> qualifiers) {
+		return this.factory.getClaim(subject, mainSnak, qualifiers);
+	}
+
+	@Override
+	public Reference getReference(List<SnakGroup> snakGroups) {
+		return this.factory.getReference(snakGroups);
+	}
+
+	@Override
+	public Statement getStatement(Claim claim,
+			List<? extends Reference> references, StatementRank rank,
+			String statementId) {
+		return this.factory.getStatement(claim, references, rank, statementId);
+	}
+
+	@Override
+	public StatementGroup getStatementGroup(List<Statement> statements) {
+		return this.factory.getStatementGroup(statements);
+	}
+
+	@Override
+	public SiteLink getSiteLink(String title, String siteKey,
+			List<String> badges) {
+		return this.factory.getSiteLink(title, siteKey, badges);
+	}
+
+	@Override
+	public PropertyDocument getPropertyDocument(PropertyIdValue propertyId,
+			List<MonolingualTextValue> labels,
+			List<MonolingualTextValue> descriptions,
+			List<MonolingualTextValue> aliases, DatatypeIdValue datatypeId) {
+		return getPropertyDocument(propertyId, labels, descriptions, aliases,
+				Collections.<StatementGroup> emptyList(), datatypeId);
+	}
+
+	@Override
+	public PropertyDocument getPropertyDocument(PropertyIdValue propertyId,
+			List<MonolingualTextValue> labels,
+			List<MonolingualTextValue> descriptions,
+			List<MonolingualTextValue> aliases,
+			List<StatementGroup> statementGroups, DatatypeIdValue datatypeId) {
+		Validate.notNull(propertyId, "property ID cannot be null");
+		Validate.notNull(datatypeId, "datatype ID cannot be null");
+		validateDocument(propertyId, labels, descriptions, aliases,
+				statementGroups);
+
+		PackedDataWriter writer = new PackedDataWriter(this.dictionary,
+				propertyId);
+		writer.setDatatype(datatypeId);
+		writer.writeDocument(labels, descriptions, aliases,
+				Collections.<String, SiteLink> emptyMap(), statementGroups);
+		return new PackedPropertyDocument(this, writer.getData(),
+				writer.getText());
+	}
+
+	@Override
+	public ItemDocument getItemDocument(ItemIdValue itemIdValue,
+			List<MonolingualTextValue> labels,
+			List<MonolingualTextValue> descriptions,
+			List<MonolingualTextValue> aliases,
+			List<StatementGroup> statementGroups,
+			Map<String, SiteLink> siteLinks) {
+		Validate.notNull(itemIdValue, "item ID cannot be null");
+		Validate.notNull(siteLinks, "site links cannot be null");
+		validateDocument(itemIdValue, labels, descriptions, aliases,
+				statementGroups);
+
+		PackedDataWriter writer = new PackedDataWriter(this.dictionary,
+				itemIdValue);
+		writer.writeDocument(labels, descriptions, aliases, siteLinks,
+				statementGroups);
+		return new PackedItemDocument(this, writer.getData(),
+				writer.getText());
+	}
+
+	/**
+	 * Returns an {@link ItemIdValue} for an id that has been decoded from a
+	 * packed document.
+	 *
+	 * @param numericId
+	 *            the number after "Q"
+	 * @param siteIri
+	 *            the site IRI
+	 * @return the entity id
+	 */
+	ItemIdValue getItemIdValue(int numericId, String siteIri) {
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getItemIdValue(numericId, siteIri);
+		}
+		return getItemIdValue("Q" + numericId, siteIri);
+	}
+
+	/**
+	 * Returns a {@link PropertyIdValue} for an id that has been decoded from
+	 * a packed document.
+	 *
+	 * @param numericId
+	 *            the number after "P"
+	 * @param siteIri
+	 *            the site IRI
+	 * @return the entity id
+	 */
+	PropertyIdValue getPropertyIdValue(int numericId, String siteIri) {
+		if (this.canonicalizer != null) {
+			return this.canonicalizer.getPropertyIdValue(numericId, siteIri);
+		}
+		return getPropertyIdValue("P" + numericId, siteIri);
+	}
+
+	/**
+	 * Checks the data of a document in the same way as the constructors of
+	 * the standard implementation.
+	 */
+	void validateDocument(EntityIdValue entityId,
+			List<MonolingualTextValue> labels,
+			List<MonolingualTextValue> descriptions,
+			List<MonolingualTextValue> aliases,
+			List<StatementGroup> statementGroups) {
+		Validate.notNull(labels, "list of labels cannot be null");
+		Validate.notNull(descriptions, "list of descriptions cannot be null");
+		Validate.notNull(aliases, "list of aliases cannot be null");
+		Validate.notNull(statementGroups, "statement list cannot be null");
+
+		validateLanguages(labels,
+				"At most one label allowed per language code");
+		validateLanguages(descriptions,
+				"At most one description allowed per language code");
+
+		for (StatementGroup sg : statementGroups) {
+			if (!entityId.equals(sg.getSubject())) {
+				throw new IllegalArgumentException(
+						"All statement groups in a document must have the same subject: found "
+								+ sg.getSubject() + " but expected "
+								+ entityId);
+			}
+		}
+	}
+
+	void validateLanguages(List<MonolingualTextValue> terms, String message) {
+		Set<String> languageCodes = new HashSet<>();
+		for (MonolingualTextValue term : terms) {
+			if (!languageCodes.add(term.getLanguageCode())) {
+				throw new IllegalArgumentException(message);
+			}
+		}
+	}
+
+}
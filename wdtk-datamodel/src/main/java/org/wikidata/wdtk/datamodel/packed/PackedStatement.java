@@ -0,0 +1,120 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.wikidata.wdtk.datamodel.helpers.Equality;
+import org.wikidata.wdtk.datamodel.helpers.Hash;
+import org.wikidata.wdtk.datamodel.helpers.ToString;
+import org.wikidata.wdtk.datamodel.interfaces.Claim;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+
+/**
+ * View of a {@link Statement} in a {@link PackedTermedStatementDocument}. The
+ * claim and references are decoded when they are requested.
+ */
+class PackedStatement implements Statement {
+
+	final PackedTermedStatementDocument document;
+	final int position;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document
+	 *            the document that contains the statement
+	 * @param position
+	 *            the position of the statement in the packed data
+	 */
+	PackedStatement(PackedTermedStatementDocument document, int position) {
+		this.document = document;
+		this.position = position;
+	}
+
+	@Override
+	public Claim getClaim() {
+		return new PackedDataReader(this.document, getMainSnakPosition())
+				.readClaim();
+	}
+
+	@Override
+	public StatementRank getRank() {
+		return new PackedDataReader(this.document, this.position + 1)
+				.readRank();
+	}
+
+	@Override
+	public List<? extends Reference> getReferences() {
+		PackedDataReader reader = new PackedDataReader(this.document,
+				getMainSnakPosition());
+		reader.skipSnak();
+		reader.skipSnakGroups();
+		return reader.readReferences();
+	}
+
+	@Override
+	public String getStatementId() {
+		return new PackedDataReader(this.document, this.position + 1)
+				.readStatementId();
+	}
+
+	/**
+	 * Returns the property of the main snak without decoding the claim.
+	 *
+	 * @return the main property
+	 */
+	PropertyIdValue getMainSnakProperty() {
+		return new PackedDataReader(this.document, getMainSnakPosition())
+				.readSnakProperty();
+	}
+
+	/**
+	 * Returns the position of the main snak, which follows the rank and the
+	 * statement id.
+	 */
+	int getMainSnakPosition() {
+		int flags = this.document.data[this.position + 1];
+		if ((flags & ~PackedDataWriter.RANK_MASK) == 0) {
+			return this.position + 3;
+		} else {
+			return this.position + 6;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return Hash.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return Equality.equalsStatement(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return ToString.toString(this);
+	}
+}
@@ -0,0 +1,100 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.wikidata.wdtk.datamodel.helpers.Equality;
+import org.wikidata.wdtk.datamodel.helpers.Hash;
+import org.wikidata.wdtk.datamodel.helpers.ToString;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+
+/**
+ * View of a {@link StatementGroup} in a
+ * {@link PackedTermedStatementDocument}.
+ */
+class PackedStatementGroup implements StatementGroup {
+
+	final PackedTermedStatementDocument document;
+	final int position;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document
+	 *            the document that contains the statement group
+	 * @param position
+	 *            the position of the statement group in the packed data
+	 */
+	PackedStatementGroup(PackedTermedStatementDocument document, int position) {
+		this.document = document;
+		this.position = position;
+	}
+
+	@Override
+	public List<Statement> getStatements() {
+		int[] data = this.document.data;
+		int count = data[this.position + 1];
+		int statementPosition = this.position + 2;
+		List<Statement> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(new PackedStatement(this.document, statementPosition));
+			statementPosition += data[statementPosition] + 1;
+		}
+		return result;
+	}
+
+	@Override
+	public PropertyIdValue getProperty() {
+		return new PackedStatement(this.document, this.position + 2)
+				.getMainSnakProperty();
+	}
+
+	@Override
+	public EntityIdValue getSubject() {
+		return this.document.getEntityId();
+	}
+
+	@Override
+	public Iterator<Statement> iterator() {
+		return getStatements().iterator();
+	}
+
+	@Override
+	public int hashCode() {
+		return Hash.hashCode(this);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return Equality.equalsStatementGroup(this, obj);
+	}
+
+	@Override
+	public String toString() {
+		return ToString.toString(this);
+	}
+}
@@ -0,0 +1,115 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.TermedDocument;
+import org.wikidata.wdtk.util.NestedIterator;
+
+/**
+ * Implementation of {@link TermedDocument} and {@link StatementDocument} that
+ * stores all data in two arrays, as described in {@link PackedDataWriter}.
+ * The data objects that are returned by the getters are views: they are
+ * decoded from the arrays on every call and are not kept in memory. Hence,
+ * callers that access the same data repeatedly should keep the result.
+ * <p>
+ * Documents of this kind are created by {@link PackedObjectFactory}. They are
+ * immutable.
+ */
+public abstract class PackedTermedStatementDocument implements TermedDocument,
+		StatementDocument {
+
+	final PackedObjectFactory factory;
+	final int[] data;
+	final byte[] text;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param factory
+	 *            the factory that created the document; provides the string
+	 *            dictionary and creates the decoded objects
+	 * @param data
+	 *            the packed data of the document
+	 * @param text
+	 *            the packed texts of the document
+	 */
+	PackedTermedStatementDocument(PackedObjectFactory factory, int[] data,
+			byte[] text) {
+		this.factory = factory;
+		this.data = data;
+		this.text = text;
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getLabels() {
+		return new PackedDataReader(this, PackedDataWriter.HEADER_SIZE)
+				.readTerms();
+	}
+
+	@Override
+	public Map<String, MonolingualTextValue> getDescriptions() {
+		return new PackedDataReader(this,
+				this.data[PackedDataWriter.HEADER_DESCRIPTIONS]).readTerms();
+	}
+
+	@Override
+	public Map<String, List<MonolingualTextValue>> getAliases() {
+		return new PackedDataReader(this,
+				this.data[PackedDataWriter.HEADER_ALIASES]).readAliases();
+	}
+
+	@Override
+	public List<StatementGroup> getStatementGroups() {
+		int position = this.data[PackedDataWriter.HEADER_STATEMENTS];
+		int count = this.data[position++];
+		List<StatementGroup> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(new PackedStatementGroup(this, position));
+			position += this.data[position] + 1;
+		}
+		return result;
+	}
+
+	@Override
+	public Iterator<Statement> getAllStatements() {
+		return new NestedIterator<>(getStatementGroups());
+	}
+
+	/**
+	 * Returns the approximate number of bytes that the arrays of this
+	 * document use.
+	 *
+	 * @return size of the packed data in bytes
+	 */
+	public int getPackedSize() {
+		return 4 * this.data.length + this.text.length;
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary that assigns consecutive integer ids to strings. It is used to
+ * store strings that occur in many documents, such as language codes, site
+ * keys, and IRIs, as a single int in packed documents.
+ * <p>
+ * Strings are never removed from the dictionary. Objects of this class are
+ * thread-safe; lookups of existing strings do not need locks.
+ */
+class StringDictionary {
+
+	final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * Strings by id. The array is replaced by a larger copy when it is full.
+	 * Ids are only published through {@link #ids} after the string has been
+	 * stored here.
+	 */
+	volatile String[] strings = new String[64];
+
+	int size = 0;
+
+	/**
+	 * Returns the id of the given string, adding it to the dictionary if it
+	 * is not there yet.
+	 *
+	 * @param string
+	 *            the string to look up; must not be null
+	 * @return the id of the string
+	 */
+	int getId(String string) {
+		Integer id = this.ids.get(string);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = this.ids.get(string);
+			if (id != null) {
+				return id;
+			}
+			String[] array = this.strings;
+			if (this.size == array.length) {
+				array = Arrays.copyOf(array, 2 * array.length);
+			}
+			array[this.size] = string;
+			this.strings = array;
+			this.ids.put(string, this.size);
+			return this.size++;
+		}
+	}
+
+	/**
+	 * Returns the string of the given id.
+	 *
+	 * @param id
+	 *            an id that has been returned by {@link #getId(String)}
+	 * @return the string
+	 */
+	String getString(int id) {
+		return this.strings[id];
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary.
+	 *
+	 * @return number of strings
+	 */
+	synchronized int size() {
+		return this.size;
+	}
+
+}
@@ -0,0 +1,287 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueItemId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueMonolingualText;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+public class CanonicalizerTest {
+
+	static final String OTHER_SITE = "http://www.example.org/entity/";
+
+	@Test
+	public void testItemIdsAreShared() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		ItemIdValue id1 = canonicalizer.getItemIdValue("Q42",
+				Datamodel.SITE_WIKIDATA);
+		ItemIdValue id2 = canonicalizer.getItemIdValue(42,
+				Datamodel.SITE_WIKIDATA);
+
+		assertSame(id1, id2);
+		assertEquals(Datamodel.makeWikidataItemIdValue("Q42"), id1);
+		assertEquals("Q42", id1.getId());
+	}
+
+	@Test
+	public void testPropertyIdsAreShared() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		PropertyIdValue id1 = canonicalizer.getPropertyIdValue("P31",
+				Datamodel.SITE_WIKIDATA);
+		PropertyIdValue id2 = canonicalizer.getPropertyIdValue("P31",
+				new String(Datamodel.SITE_WIKIDATA));
+
+		assertSame(id1, id2);
+		assertEquals(Datamodel.makeWikidataPropertyIdValue("P31"), id1);
+	}
+
+	@Test
+	public void testItemAndPropertyIdsAreDistinct() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		EntityIdValue item = canonicalizer.getItemIdValue(31,
+				Datamodel.SITE_WIKIDATA);
+		EntityIdValue property = canonicalizer.getPropertyIdValue(31,
+				Datamodel.SITE_WIKIDATA);
+
+		assertEquals("Q31", item.getId());
+		assertEquals("P31", property.getId());
+	}
+
+	@Test
+	public void testSiteIrisAreDistinguished() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		ItemIdValue id1 = canonicalizer.getItemIdValue(42,
+				Datamodel.SITE_WIKIDATA);
+		ItemIdValue id2 = canonicalizer.getItemIdValue(42, OTHER_SITE);
+
+		assertEquals(Datamodel.SITE_WIKIDATA, id1.getSiteIri());
+		assertEquals(OTHER_SITE, id2.getSiteIri());
+		assertFalse(id1.equals(id2));
+	}
+
+	@Test
+	public void testLeadingZeros() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		assertEquals(Datamodel.makeWikidataItemIdValue("Q007"),
+				canonicalizer.getItemIdValue("Q007", Datamodel.SITE_WIKIDATA));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidItemId() {
+		new Canonicalizer().getItemIdValue("P42", Datamodel.SITE_WIKIDATA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidPropertyId() {
+		new Canonicalizer().getPropertyIdValue("P", Datamodel.SITE_WIKIDATA);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLargeItemId() {
+		new Canonicalizer().getItemIdValue("Q12345678901",
+				Datamodel.SITE_WIKIDATA);
+	}
+
+	@Test
+	public void testStringsAreShared() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		String en1 = canonicalizer.getString(new String("en"));
+		String en2 = canonicalizer.getString(new String("en"));
+
+		assertSame(en1, en2);
+		assertEquals("en", en1);
+		assertEquals(null, canonicalizer.getString(null));
+	}
+
+	@Test
+	public void testObjectsAreShared() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		List<String> list1 = Collections.singletonList("a");
+		List<String> list2 = Collections.singletonList("a");
+
+		assertSame(list1, canonicalizer.getObject(list1));
+		assertSame(list1, canonicalizer.getObject(list2));
+	}
+
+	@Test
+	public void testSmallCapacity() {
+		// With a single slot, every new object replaces the previous one
+		Canonicalizer canonicalizer = new Canonicalizer(1);
+		ItemIdValue id1 = canonicalizer.getItemIdValue(1,
+				Datamodel.SITE_WIKIDATA);
+		ItemIdValue id2 = canonicalizer.getItemIdValue(2,
+				Datamodel.SITE_WIKIDATA);
+		ItemIdValue id3 = canonicalizer.getItemIdValue(1,
+				Datamodel.SITE_WIKIDATA);
+
+		assertEquals("Q2", id2.getId());
+		assertEquals(id1, id3);
+		assertNotSame(id1, id3);
+		assertSame(id3,
+				canonicalizer.getItemIdValue(1, Datamodel.SITE_WIKIDATA));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalCapacity() {
+		new Canonicalizer(0);
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final Canonicalizer canonicalizer = new Canonicalizer(64);
+		final AtomicInteger errors = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						int numericId = i % 500;
+						ItemIdValue id = canonicalizer.getItemIdValue(
+								numericId, Datamodel.SITE_WIKIDATA);
+						String languageCode = canonicalizer.getString("l"
+								+ numericId);
+						if (!id.getId().equals("Q" + numericId)
+								|| !languageCode.equals("l" + numericId)) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, errors.get());
+	}
+
+	@Test
+	public void testDataObjectFactory() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		DataObjectFactoryImpl factory = new DataObjectFactoryImpl(
+				canonicalizer);
+
+		assertSame(factory.getItemIdValue("Q5", Datamodel.SITE_WIKIDATA),
+				factory.getItemIdValue("Q5", Datamodel.SITE_WIKIDATA));
+		assertSame(factory.getPropertyIdValue("P21", Datamodel.SITE_WIKIDATA),
+				factory.getPropertyIdValue("P21", Datamodel.SITE_WIKIDATA));
+
+		MonolingualTextValue text1 = factory.getMonolingualTextValue("a",
+				new String("en"));
+		MonolingualTextValue text2 = factory.getMonolingualTextValue("b",
+				new String("en"));
+		assertSame(text1.getLanguageCode(), text2.getLanguageCode());
+
+		assertSame(
+				factory.getSiteLink("A", new String("enwiki"),
+						Collections.<String> emptyList()).getSiteKey(),
+				factory.getSiteLink("B", new String("enwiki"),
+						Collections.<String> emptyList()).getSiteKey());
+	}
+
+	@Test
+	public void testJacksonObjectFactory() {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		JacksonObjectFactory factory = new JacksonObjectFactory(canonicalizer);
+
+		JacksonValueItemId id1 = (JacksonValueItemId) factory.getItemIdValue(
+				"Q5", Datamodel.SITE_WIKIDATA);
+		JacksonValueItemId id2 = (JacksonValueItemId) factory.getItemIdValue(
+				"Q5", new String(Datamodel.SITE_WIKIDATA));
+		assertNotSame(id1.getValue(), id2.getValue());
+		assertSame(id1.getSiteIri(), id2.getSiteIri());
+		assertEquals(Datamodel.makeWikidataItemIdValue("Q5"), id1);
+	}
+
+	@Test
+	public void testJacksonDeserialization() throws IOException {
+		Canonicalizer canonicalizer = new Canonicalizer();
+		ObjectReader reader = new ObjectMapper().reader(JacksonValue.class)
+				.withAttribute(Canonicalizer.class, canonicalizer);
+
+		String itemJson = "{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5},\"type\":\"wikibase-entityid\"}";
+		JacksonValueItemId id1 = reader.readValue(itemJson);
+		JacksonValueItemId id2 = reader.readValue(itemJson);
+		assertNotSame(id1.getValue(), id2.getValue());
+		assertSame(id1.getValue().getJsonEntityType(), id2.getValue()
+				.getJsonEntityType());
+
+		String textJson = "{\"value\":{\"language\":\"en\",\"text\":\"foo\"},\"type\":\"monolingualtext\"}";
+		JacksonValueMonolingualText text1 = reader.readValue(textJson);
+		JacksonValueMonolingualText text2 = reader.readValue(textJson);
+		assertSame(text1.getLanguageCode(), text2.getLanguageCode());
+	}
+
+	@Test
+	public void testHashCodeMatchesInterfaceHash() {
+		String[] ids = { "Q1", "Q5", "Q42", "Q6581097", "Q2147483647",
+				"Q-5", "P31", "P1", "P1000" };
+		for (String id : ids) {
+			EntityIdValue value;
+			if (id.charAt(0) == 'Q') {
+				value = Datamodel.makeWikidataItemIdValue(id);
+			} else {
+				value = Datamodel.makeWikidataPropertyIdValue(id);
+			}
+			assertEquals(id, Hash.hashCode(value), value.hashCode());
+		}
+	}
+
+	@Test
+	public void testEqualityAcrossImplementations() {
+		JacksonObjectFactory jacksonFactory = new JacksonObjectFactory();
+		ItemIdValue jacksonId = jacksonFactory.getItemIdValue("Q42",
+				Datamodel.SITE_WIKIDATA);
+		ItemIdValue id = Datamodel.makeWikidataItemIdValue("Q42");
+
+		assertTrue(id.equals(jacksonId));
+		assertTrue(jacksonId.equals(id));
+		assertEquals(id.hashCode(), jacksonId.hashCode());
+		assertFalse(id.equals(Datamodel.makeWikidataItemIdValue("Q43")));
+		assertFalse(jacksonId.equals(jacksonFactory.getItemIdValue("Q42",
+				OTHER_SITE)));
+	}
+
+}
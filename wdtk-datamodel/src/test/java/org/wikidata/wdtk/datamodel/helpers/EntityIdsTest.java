@@ -0,0 +1,58 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class EntityIdsTest {
+
+	@Test
+	public void testGetNumericId() {
+		assertEquals(42, EntityIds.getNumericId("Q42"));
+		assertEquals(31, EntityIds.getNumericId("P31"));
+		assertEquals(Integer.MAX_VALUE, EntityIds.getNumericId("Q2147483647"));
+	}
+
+	@Test
+	public void testParseNumericId() {
+		assertEquals(42, EntityIds.parseNumericId("Q42", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("P42", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("Q", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("Q4a", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("Q-1", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("Q2147483648", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId("Q100000000000", 'Q'));
+		assertEquals(-1, EntityIds.parseNumericId(null, 'Q'));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNumericIdOfOtherEntity() {
+		EntityIds.getNumericId("L42");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNumericIdOfEmptyString() {
+		EntityIds.getNumericId("");
+	}
+
+}
@@ -0,0 +1,271 @@
+package org.wikidata.wdtk.datamodel.helpers;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessorFilter;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+
+public class FilteredDocumentTest {
+
+	final FilterCopyTest filterCopyTest = new FilterCopyTest();
+
+	ItemDocument itemDocument;
+	PropertyDocument propertyDocument;
+
+	@Before
+	public void setUp() {
+		List<MonolingualTextValue> labels = new ArrayList<>();
+		labels.add(Datamodel.makeMonolingualTextValue("Label de", "de"));
+		labels.add(Datamodel.makeMonolingualTextValue("Label en", "en"));
+		labels.add(Datamodel.makeMonolingualTextValue("Label he", "he"));
+		List<MonolingualTextValue> descriptions = new ArrayList<>();
+		descriptions.add(Datamodel.makeMonolingualTextValue("Desc en", "en"));
+		descriptions.add(Datamodel.makeMonolingualTextValue("Desc he", "he"));
+		List<MonolingualTextValue> aliases = new ArrayList<>();
+		aliases.add(Datamodel.makeMonolingualTextValue("Alias en", "en"));
+		aliases.add(Datamodel.makeMonolingualTextValue("Alias de1", "de"));
+		aliases.add(Datamodel.makeMonolingualTextValue("Alias de2", "de"));
+
+		List<StatementGroup> statementGroups = new ArrayList<>();
+		for (String id : Arrays.asList("P1", "P2", "P3")) {
+			statementGroups.add(this.filterCopyTest
+					.makeTestStatementGroup(Datamodel
+							.makeWikidataPropertyIdValue(id)));
+		}
+
+		Map<String, SiteLink> siteLinks = new HashMap<>();
+		for (String siteKey : Arrays.asList("site1", "site2", "site3")) {
+			siteLinks.put(siteKey, Datamodel.makeSiteLink("Title", siteKey,
+					Collections.<String> emptyList()));
+		}
+
+		this.itemDocument = Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"), labels,
+				descriptions, aliases, statementGroups, siteLinks);
+		this.propertyDocument = Datamodel.makePropertyDocument(
+				Datamodel.makeWikidataPropertyIdValue("P42"), labels,
+				descriptions, aliases,
+				Collections.<StatementGroup> emptyList(),
+				Datamodel.makeDatatypeIdValue(DatatypeIdValue.DT_ITEM));
+	}
+
+	/**
+	 * Returns a list of filters that covers all cases of filtering.
+	 *
+	 * @return list of filters
+	 */
+	List<DocumentDataFilter> getTestFilters() {
+		List<DocumentDataFilter> filters = new ArrayList<>();
+		filters.add(new DocumentDataFilter());
+
+		DocumentDataFilter filter = new DocumentDataFilter();
+		filter.setLanguageFilter(new HashSet<>(Arrays.asList("de", "fr")));
+		filter.setPropertyFilter(new HashSet<>(Arrays.asList(
+				Datamodel.makeWikidataPropertyIdValue("P2"),
+				Datamodel.makeWikidataPropertyIdValue("P4"))));
+		filter.setSiteLinkFilter(Collections.singleton("site3"));
+		filters.add(filter);
+
+		filter = new DocumentDataFilter();
+		filter.setLanguageFilter(new HashSet<>(Arrays.asList("de", "en",
+				"fr", "he", "it")));
+		filter.setSiteLinkFilter(new HashSet<>(Arrays.asList("site1",
+				"site2", "site4", "site5")));
+		filters.add(filter);
+
+		filter = new DocumentDataFilter();
+		filter.setLanguageFilter(Collections.<String> emptySet());
+		filter.setPropertyFilter(Collections.<PropertyIdValue> emptySet());
+		filter.setSiteLinkFilter(Collections.<String> emptySet());
+		filters.add(filter);
+
+		return filters;
+	}
+
+	@Test
+	public void testViewsEqualCopies() {
+		DatamodelConverter converter = new DatamodelConverter(
+				new DataObjectFactoryImpl());
+		for (DocumentDataFilter filter : getTestFilters()) {
+			converter.setOptionFilter(filter);
+
+			ItemDocument itemCopy = converter.copy(this.itemDocument);
+			ItemDocument itemView = new FilteredItemDocument(
+					this.itemDocument, filter);
+			assertEquals(itemCopy, itemView);
+			assertEquals(itemView, itemCopy);
+			assertEquals(itemCopy.hashCode(), itemView.hashCode());
+			assertEquals(itemCopy.toString(), itemView.toString());
+
+			PropertyDocument propertyCopy = converter
+					.copy(this.propertyDocument);
+			PropertyDocument propertyView = new FilteredPropertyDocument(
+					this.propertyDocument, filter);
+			assertEquals(propertyCopy, propertyView);
+			assertEquals(propertyView, propertyCopy);
+			assertEquals(propertyCopy.hashCode(), propertyView.hashCode());
+		}
+	}
+
+	@Test
+	public void testNoCopiesWithoutFilter() {
+		FilteredItemDocument view = new FilteredItemDocument(
+				this.itemDocument, new DocumentDataFilter());
+
+		assertSame(this.itemDocument, view.getFilteredDocument());
+		assertSame(this.itemDocument.getItemId(), view.getItemId());
+		assertEquals(this.itemDocument.getStatementGroups(),
+				view.getStatementGroups());
+		assertEquals(this.itemDocument.getLabels(), view.getLabels());
+		assertEquals(this.itemDocument, view);
+	}
+
+	@Test
+	public void testFilteredValuesAreShared() {
+		DocumentDataFilter filter = new DocumentDataFilter();
+		filter.setLanguageFilter(Collections.singleton("en"));
+		filter.setPropertyFilter(Collections.singleton(Datamodel
+				.makeWikidataPropertyIdValue("P2")));
+		FilteredItemDocument view = new FilteredItemDocument(
+				this.itemDocument, filter);
+
+		assertSame(this.itemDocument.getLabels().get("en"), view.getLabels()
+				.get("en"));
+		assertSame(this.itemDocument.getStatementGroups().get(1), view
+				.getStatementGroups().get(0));
+
+		Iterator<Statement> statements = view.getAllStatements();
+		assertSame(this.itemDocument.getStatementGroups().get(1)
+				.getStatements().get(0), statements.next());
+		assertFalse(statements.hasNext());
+	}
+
+	@Test
+	public void testFilterChangesAffectViews() {
+		DocumentDataFilter filter = new DocumentDataFilter();
+		FilteredItemDocument view = new FilteredItemDocument(
+				this.itemDocument, filter);
+		assertEquals(3, view.getSiteLinks().size());
+
+		filter.setSiteLinkFilter(Collections.singleton("site2"));
+		assertEquals(Collections.singleton("site2"), view.getSiteLinks()
+				.keySet());
+	}
+
+	@Test
+	public void testFilteredMap() {
+		Map<String, String> map = new HashMap<>();
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put("c", "3");
+
+		// fewer keys than entries, and more keys than entries
+		FilteredMap<String> small = new FilteredMap<>(map,
+				new HashSet<>(Arrays.asList("a", "x")));
+		FilteredMap<String> large = new FilteredMap<>(map, new HashSet<>(
+				Arrays.asList("a", "b", "x", "y")));
+
+		assertEquals(Collections.singletonMap("a", "1"), small);
+		assertEquals(1, small.size());
+		assertEquals("1", small.get("a"));
+		assertNull(small.get("b"));
+		assertNull(small.get("x"));
+		assertTrue(small.containsKey("a"));
+		assertFalse(small.containsKey("b"));
+		assertFalse(small.containsKey("x"));
+
+		Map<String, String> expected = new HashMap<>(map);
+		expected.remove("c");
+		assertEquals(expected, large);
+		assertEquals(expected.hashCode(), large.hashCode());
+		assertEquals(2, large.size());
+		assertEquals(2, large.entrySet().size());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testFilteredMapIsReadOnly() {
+		Map<String, String> map = new HashMap<>();
+		map.put("a", "1");
+		new FilteredMap<>(map, Collections.singleton("a")).put("b", "2");
+	}
+
+	@Test
+	public void testEntityDocumentProcessorFilter() {
+		final List<Object> documents = new ArrayList<>();
+		EntityDocumentProcessor processor = new EntityDocumentProcessor() {
+			@Override
+			public void processItemDocument(ItemDocument itemDocument) {
+				documents.add(itemDocument);
+			}
+
+			@Override
+			public void processPropertyDocument(
+					PropertyDocument propertyDocument) {
+				documents.add(propertyDocument);
+			}
+		};
+
+		DocumentDataFilter filter = getTestFilters().get(1);
+		EntityDocumentProcessorFilter viewFilter = new EntityDocumentProcessorFilter(
+				processor, filter, false);
+		EntityDocumentProcessorFilter copyFilter = new EntityDocumentProcessorFilter(
+				processor, filter);
+		viewFilter.processItemDocument(this.itemDocument);
+		copyFilter.processItemDocument(this.itemDocument);
+		viewFilter.processPropertyDocument(this.propertyDocument);
+		copyFilter.processPropertyDocument(this.propertyDocument);
+
+		assertTrue(documents.get(0) instanceof FilteredItemDocument);
+		assertFalse(documents.get(1) instanceof FilteredItemDocument);
+		assertEquals(documents.get(0), documents.get(1));
+		assertTrue(documents.get(2) instanceof FilteredPropertyDocument);
+		assertEquals(documents.get(2), documents.get(3));
+	}
+
+}
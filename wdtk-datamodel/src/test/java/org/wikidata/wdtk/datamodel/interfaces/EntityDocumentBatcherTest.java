@@ -0,0 +1,252 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+
+public class EntityDocumentBatcherTest {
+
+	/**
+	 * Batch processor that records all batches it receives.
+	 */
+	static class BatchRecorder implements EntityDocumentBatchProcessor {
+
+		final List<List<EntityDocument>> batches = new ArrayList<>();
+
+		@Override
+		public synchronized void processEntityDocuments(
+				List<EntityDocument> entityDocuments) {
+			this.batches.add(entityDocuments);
+		}
+
+		synchronized int getBatchCount() {
+			return this.batches.size();
+		}
+	}
+
+	/**
+	 * Document processor that records all documents it receives.
+	 */
+	static class DocumentRecorder implements EntityDocumentProcessor {
+
+		final List<EntityDocument> documents = new ArrayList<>();
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			this.documents.add(itemDocument);
+		}
+
+		@Override
+		public void processPropertyDocument(PropertyDocument propertyDocument) {
+			this.documents.add(propertyDocument);
+		}
+	}
+
+	/**
+	 * Document processor that also records batches.
+	 */
+	static class BatchDocumentRecorder extends DocumentRecorder implements
+			EntityDocumentBatchProcessor {
+
+		final List<List<EntityDocument>> batches = new ArrayList<>();
+
+		@Override
+		public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+			this.batches.add(entityDocuments);
+		}
+	}
+
+	static ItemDocument makeItemDocument(int number) {
+		return Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q" + number),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+	}
+
+	static PropertyDocument makePropertyDocument(int number) {
+		return Datamodel.makePropertyDocument(
+				Datamodel.makeWikidataPropertyIdValue("P" + number),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Datamodel.makeDatatypeIdValue(DatatypeIdValue.DT_ITEM));
+	}
+
+	static List<EntityDocument> makeDocuments(int count) {
+		List<EntityDocument> result = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			if (i % 3 == 0) {
+				result.add(makePropertyDocument(i));
+			} else {
+				result.add(makeItemDocument(i));
+			}
+		}
+		return result;
+	}
+
+	static void processDocuments(List<EntityDocument> documents,
+			EntityDocumentProcessor processor) {
+		new EntityDocumentBatchSplitter(processor)
+				.processEntityDocuments(documents);
+	}
+
+	@Test
+	public void testBatchSize() {
+		BatchRecorder recorder = new BatchRecorder();
+		EntityDocumentBatcher batcher = new EntityDocumentBatcher(recorder, 4);
+		List<EntityDocument> documents = makeDocuments(10);
+
+		processDocuments(documents, batcher);
+		assertEquals(2, recorder.batches.size());
+		assertEquals(documents.subList(0, 4), recorder.batches.get(0));
+		assertEquals(documents.subList(4, 8), recorder.batches.get(1));
+
+		batcher.close();
+		assertEquals(3, recorder.batches.size());
+		assertEquals(documents.subList(8, 10), recorder.batches.get(2));
+	}
+
+	@Test
+	public void testFlush() {
+		BatchRecorder recorder = new BatchRecorder();
+		EntityDocumentBatcher batcher = new EntityDocumentBatcher(recorder, 4);
+
+		batcher.flush();
+		assertEquals(0, recorder.batches.size());
+
+		processDocuments(makeDocuments(1), batcher);
+		batcher.flush();
+		batcher.flush();
+		batcher.close();
+		assertEquals(1, recorder.batches.size());
+		assertEquals(1, recorder.batches.get(0).size());
+	}
+
+	@Test
+	public void testBatchesAreRebatched() {
+		BatchRecorder recorder = new BatchRecorder();
+		EntityDocumentBatcher batcher = new EntityDocumentBatcher(recorder, 3);
+		List<EntityDocument> documents = makeDocuments(8);
+
+		batcher.processEntityDocuments(new ArrayList<>(documents.subList(0, 2)));
+		batcher.processEntityDocuments(new ArrayList<>(documents.subList(2, 8)));
+		batcher.close();
+
+		assertEquals(3, recorder.batches.size());
+		assertEquals(documents.subList(0, 3), recorder.batches.get(0));
+		assertEquals(documents.subList(3, 6), recorder.batches.get(1));
+		assertEquals(documents.subList(6, 8), recorder.batches.get(2));
+	}
+
+	@Test
+	public void testMaxLatency() throws InterruptedException {
+		BatchRecorder recorder = new BatchRecorder();
+		EntityDocumentBatcher batcher = new EntityDocumentBatcher(recorder,
+				100, 10);
+
+		processDocuments(makeDocuments(2), batcher);
+		long start = System.currentTimeMillis();
+		while (recorder.getBatchCount() == 0
+				&& System.currentTimeMillis() - start < 10000) {
+			Thread.sleep(5);
+		}
+		assertEquals(1, recorder.getBatchCount());
+		assertEquals(2, recorder.batches.get(0).size());
+
+		// The batcher can be used again after closing
+		batcher.close();
+		processDocuments(makeDocuments(1), batcher);
+		batcher.close();
+		assertEquals(2, recorder.getBatchCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalBatchSize() {
+		new EntityDocumentBatcher(new BatchRecorder(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxLatency() {
+		new EntityDocumentBatcher(new BatchRecorder(), 10, -1);
+	}
+
+	@Test
+	public void testBatchSplitter() {
+		DocumentRecorder recorder = new DocumentRecorder();
+		List<EntityDocument> documents = makeDocuments(5);
+
+		new EntityDocumentBatchSplitter(recorder)
+				.processEntityDocuments(documents);
+		assertEquals(documents, recorder.documents);
+	}
+
+	@Test
+	public void testBrokerDeliversBatches() {
+		BatchRecorder batchRecorder = new BatchRecorder();
+		DocumentRecorder documentRecorder = new DocumentRecorder();
+		EntityDocumentProcessorBroker broker = new EntityDocumentProcessorBroker();
+		broker.registerEntityDocumentProcessor(documentRecorder);
+		broker.registerEntityDocumentProcessor(new EntityDocumentBatcher(
+				batchRecorder, 2));
+		List<EntityDocument> documents = makeDocuments(4);
+
+		broker.processEntityDocuments(documents);
+
+		assertEquals(documents, documentRecorder.documents);
+		assertEquals(2, batchRecorder.batches.size());
+		assertEquals(documents.subList(0, 2), batchRecorder.batches.get(0));
+		assertEquals(documents.subList(2, 4), batchRecorder.batches.get(1));
+	}
+
+	@Test
+	public void testBrokerCopiesBatchesOnlyIfNeeded() {
+		BatchDocumentRecorder recorder1 = new BatchDocumentRecorder();
+		BatchDocumentRecorder recorder2 = new BatchDocumentRecorder();
+		EntityDocumentProcessorBroker broker = new EntityDocumentProcessorBroker();
+		broker.registerEntityDocumentProcessor(recorder1);
+		List<EntityDocument> documents = makeDocuments(3);
+
+		broker.processEntityDocuments(documents);
+		assertSame(documents, recorder1.batches.get(0));
+
+		broker.registerEntityDocumentProcessor(recorder2);
+		broker.processEntityDocuments(documents);
+		assertNotSame(documents, recorder1.batches.get(1));
+		assertNotSame(recorder1.batches.get(1), recorder2.batches.get(0));
+		assertEquals(documents, recorder1.batches.get(1));
+		assertEquals(documents, recorder2.batches.get(0));
+		assertTrue(recorder1.documents.isEmpty());
+	}
+
+}
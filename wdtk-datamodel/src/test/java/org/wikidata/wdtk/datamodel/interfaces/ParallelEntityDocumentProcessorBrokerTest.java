@@ -0,0 +1,300 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentBatcherTest.BatchDocumentRecorder;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentBatcherTest.DocumentRecorder;
+
+public class ParallelEntityDocumentProcessorBrokerTest {
+
+	/**
+	 * Dump processor that records the threads on which it is used.
+	 */
+	static class ThreadRecorder extends DocumentRecorder implements
+			EntityDocumentDumpProcessor {
+
+		final List<Thread> documentThreads = Collections
+				.synchronizedList(new ArrayList<Thread>());
+		Thread openThread = null;
+		Thread closeThread = null;
+		int documentCountAtClose = -1;
+
+		@Override
+		public void open() {
+			assertTrue(this.documents.isEmpty());
+			this.openThread = Thread.currentThread();
+		}
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			this.documentThreads.add(Thread.currentThread());
+			super.processItemDocument(itemDocument);
+		}
+
+		@Override
+		public void processPropertyDocument(PropertyDocument propertyDocument) {
+			this.documentThreads.add(Thread.currentThread());
+			super.processPropertyDocument(propertyDocument);
+		}
+
+		@Override
+		public void close() {
+			this.closeThread = Thread.currentThread();
+			this.documentCountAtClose = this.documents.size();
+		}
+	}
+
+	/**
+	 * Processor that waits for a latch before processing its first document.
+	 */
+	static class BlockedRecorder extends DocumentRecorder {
+
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			try {
+				this.latch.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			super.processItemDocument(itemDocument);
+		}
+	}
+
+	/**
+	 * Processor that fails on its second document.
+	 */
+	static class FailingProcessor extends DocumentRecorder {
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			if (this.documents.size() == 1) {
+				throw new IllegalStateException("Test failure");
+			}
+			super.processItemDocument(itemDocument);
+		}
+	}
+
+	@Test
+	public void testDocumentsAndOrder() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker(
+				16);
+		ThreadRecorder recorder1 = new ThreadRecorder();
+		ThreadRecorder recorder2 = new ThreadRecorder();
+		broker.registerEntityDocumentProcessor(recorder1);
+		broker.registerEntityDocumentProcessor(recorder2);
+		broker.registerEntityDocumentProcessor(recorder1);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(100);
+
+		broker.open();
+		EntityDocumentBatcherTest.processDocuments(documents, broker);
+		broker.close();
+
+		for (ThreadRecorder recorder : Arrays.asList(recorder1, recorder2)) {
+			assertEquals(documents, recorder.documents);
+			assertSame(Thread.currentThread(), recorder.openThread);
+			assertSame(Thread.currentThread(), recorder.closeThread);
+			assertEquals(100, recorder.documentCountAtClose);
+			assertFalse(recorder.documentThreads.contains(Thread
+					.currentThread()));
+			assertEquals(100, broker.getProcessedDocumentCount(recorder));
+			assertEquals(0, broker.getLag(recorder));
+		}
+		assertNotSame(recorder1.documentThreads.get(0),
+				recorder2.documentThreads.get(0));
+	}
+
+	@Test
+	public void testBackPressure() throws InterruptedException {
+		final ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker(
+				8);
+		BlockedRecorder blocked = new BlockedRecorder();
+		DocumentRecorder recorder = new DocumentRecorder();
+		broker.registerEntityDocumentProcessor(blocked);
+		broker.registerEntityDocumentProcessor(recorder);
+		final List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(100);
+
+		broker.open();
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				EntityDocumentBatcherTest.processDocuments(documents, broker);
+			}
+		};
+		producer.start();
+		producer.join(200);
+		assertTrue(producer.isAlive());
+		// Lag includes the chunk that is being processed and the chunk that
+		// the producer is waiting to add to the full queue
+		assertTrue(broker.getLag(blocked) <= 8 + 4);
+		assertTrue(recorder.documents.size() < 100);
+
+		blocked.latch.countDown();
+		producer.join();
+		broker.close();
+
+		assertEquals(documents, blocked.documents);
+		assertEquals(documents, recorder.documents);
+		assertTrue(broker.getMaxLag(blocked) <= 8 + 4);
+		assertTrue(broker.getBlockedTime(blocked) >= 100);
+	}
+
+	@Test
+	public void testFailure() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker(
+				4);
+		FailingProcessor failing = new FailingProcessor();
+		DocumentRecorder recorder = new DocumentRecorder();
+		broker.registerEntityDocumentProcessor(failing);
+		broker.registerEntityDocumentProcessor(recorder);
+		List<EntityDocument> documents = new ArrayList<>();
+		for (int i = 1; i <= 100; i++) {
+			documents.add(EntityDocumentBatcherTest.makeItemDocument(i));
+		}
+
+		broker.open();
+		IllegalStateException failure = null;
+		try {
+			EntityDocumentBatcherTest.processDocuments(documents, broker);
+			broker.close();
+		} catch (IllegalStateException e) {
+			failure = e;
+			broker.close();
+		}
+		assertTrue(failure != null);
+		assertEquals("Test failure", failure.getMessage());
+		assertEquals(1, failing.documents.size());
+	}
+
+	@Test(timeout = 10000)
+	public void testInterruptedListenerThread() throws InterruptedException {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker(
+				4);
+		DocumentRecorder recorder = new DocumentRecorder();
+		broker.registerEntityDocumentProcessor(recorder);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(100);
+
+		broker.open();
+		Thread thread = broker.getSubscription(recorder).thread;
+		thread.interrupt();
+		thread.join();
+		try {
+			EntityDocumentBatcherTest.processDocuments(documents, broker);
+			fail("Expected exception");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		broker.close();
+
+		assertTrue(recorder.documents.isEmpty());
+	}
+
+	@Test
+	public void testBatches() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker();
+		BatchDocumentRecorder batchRecorder = new BatchDocumentRecorder();
+		DocumentRecorder recorder = new DocumentRecorder();
+		broker.registerEntityDocumentProcessor(batchRecorder);
+		broker.registerEntityDocumentProcessor(recorder);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(10);
+
+		broker.open();
+		broker.processEntityDocuments(documents.subList(0, 7));
+		broker.processEntityDocuments(Collections.<EntityDocument> emptyList());
+		EntityDocumentBatcherTest.processDocuments(documents.subList(7, 10),
+				broker);
+		broker.close();
+
+		assertEquals(2, batchRecorder.batches.size());
+		assertEquals(documents.subList(0, 7), batchRecorder.batches.get(0));
+		assertEquals(documents.subList(7, 10), batchRecorder.batches.get(1));
+		assertTrue(batchRecorder.documents.isEmpty());
+		assertEquals(documents, recorder.documents);
+	}
+
+	@Test
+	public void testReopen() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker();
+		DocumentRecorder recorder = new DocumentRecorder();
+		broker.registerEntityDocumentProcessor(recorder);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(3);
+
+		broker.open();
+		EntityDocumentBatcherTest.processDocuments(documents, broker);
+		broker.close();
+		broker.open();
+		EntityDocumentBatcherTest.processDocuments(documents, broker);
+		broker.close();
+
+		assertEquals(6, recorder.documents.size());
+		assertEquals(6, broker.getProcessedDocumentCount(recorder));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRegisterWhileOpen() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker();
+		broker.open();
+		try {
+			broker.registerEntityDocumentProcessor(new DocumentRecorder());
+		} finally {
+			broker.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testProcessBeforeOpen() {
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker();
+		broker.processItemDocument(EntityDocumentBatcherTest
+				.makeItemDocument(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnregisteredProcessor() {
+		new ParallelEntityDocumentProcessorBroker()
+				.getLag(new DocumentRecorder());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalQueueCapacity() {
+		new ParallelEntityDocumentProcessorBroker(0);
+	}
+
+}
@@ -0,0 +1,249 @@
+package org.wikidata.wdtk.datamodel.interfaces;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ParallelEntityDocumentProcessorTest {
+
+	/**
+	 * Mergeable processor that counts documents and records the ids it has
+	 * seen.
+	 */
+	static class CountingProcessor implements
+			MergeableEntityDocumentProcessor<CountingProcessor> {
+
+		final List<CountingProcessor> partialProcessors = new ArrayList<>();
+		final Set<String> ids = new HashSet<>();
+		final Set<Thread> threads = new HashSet<>();
+		int itemCount = 0;
+		int propertyCount = 0;
+		int mergeCount = 0;
+		int failAfter = -1;
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			process(itemDocument);
+			this.itemCount++;
+		}
+
+		@Override
+		public void processPropertyDocument(PropertyDocument propertyDocument) {
+			process(propertyDocument);
+			this.propertyCount++;
+		}
+
+		void process(EntityDocument entityDocument) {
+			if (this.ids.size() == this.failAfter) {
+				throw new IllegalStateException("Test failure");
+			}
+			this.ids.add(entityDocument.getEntityId().getId());
+			this.threads.add(Thread.currentThread());
+		}
+
+		@Override
+		public CountingProcessor createPartialProcessor() {
+			CountingProcessor partialProcessor = new CountingProcessor();
+			partialProcessor.failAfter = this.failAfter;
+			this.partialProcessors.add(partialProcessor);
+			return partialProcessor;
+		}
+
+		@Override
+		public void merge(CountingProcessor partialProcessor) {
+			assertTrue(this.partialProcessors.contains(partialProcessor));
+			this.ids.addAll(partialProcessor.ids);
+			this.threads.addAll(partialProcessor.threads);
+			this.itemCount += partialProcessor.itemCount;
+			this.propertyCount += partialProcessor.propertyCount;
+			this.mergeCount++;
+		}
+	}
+
+	/**
+	 * Mergeable processor that also accepts batches.
+	 */
+	static class CountingBatchProcessor extends CountingProcessor implements
+			EntityDocumentBatchProcessor {
+
+		int batchCount = 0;
+
+		@Override
+		public void processEntityDocuments(List<EntityDocument> entityDocuments) {
+			this.batchCount++;
+			EntityDocumentBatchSplitter.processEntityDocuments(entityDocuments,
+					this);
+		}
+
+		@Override
+		public CountingProcessor createPartialProcessor() {
+			CountingBatchProcessor partialProcessor = new CountingBatchProcessor();
+			this.partialProcessors.add(partialProcessor);
+			return partialProcessor;
+		}
+	}
+
+	@Test
+	public void testResultsAreMerged() {
+		CountingProcessor processor = new CountingProcessor();
+		ParallelEntityDocumentProcessor<CountingProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				processor, 3, 7);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(300);
+
+		parallelProcessor.open();
+		EntityDocumentBatcherTest.processDocuments(documents,
+				parallelProcessor);
+		parallelProcessor.close();
+
+		assertEquals(3, processor.partialProcessors.size());
+		assertEquals(3, processor.mergeCount);
+		assertEquals(300, processor.ids.size());
+		assertEquals(200, processor.itemCount);
+		assertEquals(100, processor.propertyCount);
+		assertTrue(processor.threads.size() <= 3);
+		assertTrue(!processor.threads.contains(Thread.currentThread()));
+		assertEquals(processor, parallelProcessor.getProcessor());
+	}
+
+	@Test
+	public void testReopen() {
+		CountingProcessor processor = new CountingProcessor();
+		ParallelEntityDocumentProcessor<CountingProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				processor, 2);
+
+		parallelProcessor.open();
+		EntityDocumentBatcherTest.processDocuments(
+				EntityDocumentBatcherTest.makeDocuments(10), parallelProcessor);
+		parallelProcessor.close();
+		parallelProcessor.open();
+		parallelProcessor.close();
+
+		assertEquals(4, processor.partialProcessors.size());
+		assertEquals(4, processor.mergeCount);
+		assertEquals(10, processor.ids.size());
+	}
+
+	@Test
+	public void testBatches() {
+		CountingBatchProcessor processor = new CountingBatchProcessor();
+		ParallelEntityDocumentProcessor<CountingProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<CountingProcessor>(
+				processor, 2, 4);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(10);
+
+		parallelProcessor.open();
+		parallelProcessor.processEntityDocuments(documents.subList(0, 6));
+		EntityDocumentBatcherTest.processDocuments(documents.subList(6, 10),
+				parallelProcessor);
+		parallelProcessor.close();
+
+		int batchCount = 0;
+		for (CountingProcessor partialProcessor : processor.partialProcessors) {
+			batchCount += ((CountingBatchProcessor) partialProcessor).batchCount;
+		}
+		assertEquals(2, batchCount);
+		assertEquals(10, processor.ids.size());
+	}
+
+	@Test
+	public void testFailure() {
+		CountingProcessor processor = new CountingProcessor();
+		processor.failAfter = 5;
+		ParallelEntityDocumentProcessor<CountingProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				processor, 2, 1);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(1000);
+
+		parallelProcessor.open();
+		IllegalStateException failure = null;
+		try {
+			EntityDocumentBatcherTest.processDocuments(documents,
+					parallelProcessor);
+			parallelProcessor.close();
+		} catch (IllegalStateException e) {
+			failure = e;
+			parallelProcessor.close();
+		}
+		assertEquals("Test failure", failure.getMessage());
+		assertEquals(0, processor.mergeCount);
+	}
+
+	@Test(timeout = 10000)
+	public void testInterruptedWorkerThreads() throws InterruptedException {
+		CountingProcessor processor = new CountingProcessor();
+		ParallelEntityDocumentProcessor<CountingProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				processor, 2, 1);
+		List<EntityDocument> documents = EntityDocumentBatcherTest
+				.makeDocuments(1000);
+
+		parallelProcessor.open();
+		for (Thread worker : parallelProcessor.workers) {
+			worker.interrupt();
+			worker.join();
+		}
+		try {
+			EntityDocumentBatcherTest.processDocuments(documents,
+					parallelProcessor);
+			fail("Expected exception");
+		} catch (RuntimeException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+		}
+		// the failure has been reported, but the queue must not fill up
+		try {
+			EntityDocumentBatcherTest.processDocuments(documents,
+					parallelProcessor);
+			fail("Expected exception");
+		} catch (RuntimeException e) {
+			assertEquals("Worker threads have stopped", e.getMessage());
+		}
+		parallelProcessor.close();
+
+		assertEquals(0, processor.mergeCount);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testProcessBeforeOpen() {
+		new ParallelEntityDocumentProcessor<>(new CountingProcessor())
+				.processItemDocument(EntityDocumentBatcherTest
+						.makeItemDocument(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalThreadCount() {
+		new ParallelEntityDocumentProcessor<>(new CountingProcessor(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalChunkSize() {
+		new ParallelEntityDocumentProcessor<>(new CountingProcessor(), 1, 0);
+	}
+
+}
@@ -0,0 +1,324 @@
+package org.wikidata.wdtk.datamodel.json.jackson;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerEntityId;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueItemId;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TestEntityDocumentDecoder {
+
+	static final String JSON_FULL_ITEM = "{\"id\":\"Q10\","
+			+ "\"labels\":{\"en\":" + JsonTestData.JSON_TERM_MLTV + "},"
+			+ "\"descriptions\":{\"en\":" + JsonTestData.JSON_TERM_MLTV + "},"
+			+ "\"aliases\":{\"en\":[" + JsonTestData.JSON_TERM_MLTV + "]},"
+			+ "\"sitelinks\":{\"enwiki\":" + JsonTestData.JSON_SITE_LINK + "},"
+			+ "\"claims\":{\"P1\":[{\"type\":\"statement\",\"id\":\"Q10$1\","
+			+ "\"rank\":\"preferred\",\"mainsnak\":"
+			+ JsonTestData.JSON_VALUE_SNAK_STRING
+			+ ",\"qualifiers\":{\"P2\":["
+			+ valueSnak("P2", JsonTestData.JSON_TIME_VALUE)
+			+ ","
+			+ valueSnak("P2", JsonTestData.JSON_GLOBE_COORDINATES_VALUE)
+			+ "],\"P3\":["
+			+ valueSnak("P3", JsonTestData.JSON_QUANTITY_VALUE)
+			+ ","
+			+ JsonTestData.JSON_SOMEVALUE_SNAK
+			+ "]},\"qualifiers-order\":[\"P2\",\"P3\"],"
+			+ "\"references\":[{\"hash\":\"abc\",\"snaks\":{\"P4\":["
+			+ valueSnak("P4", JsonTestData.JSON_MONOLINGUAL_TEXT_VALUE)
+			+ ","
+			+ valueSnak("P4", JsonTestData.JSON_ITEM_ID_VALUE)
+			+ "]},\"snaks-order\":[\"P4\"]}]},"
+			+ "{\"type\":\"statement\",\"id\":\"Q10$2\",\"rank\":\"deprecated\","
+			+ "\"mainsnak\":" + JsonTestData.JSON_NOVALUE_SNAK + "}]},"
+			+ "\"unknown\":{\"a\":[1,2]}," + JsonTestData.JSON_ITEM_TYPE
+			+ "}";
+
+	static final String JSON_PROPERTY = "{\"type\":\"property\","
+			+ "\"datatype\":\"wikibase-item\",\"id\":\"P10\","
+			+ "\"labels\":{\"en\":" + JsonTestData.JSON_TERM_MLTV + "},"
+			+ "\"aliases\":[],\"descriptions\":{},\"claims\":{\"P5\":[{"
+			+ "\"mainsnak\":"
+			+ valueSnak("P5", JsonTestData.JSON_PROPERTY_ID_VALUE)
+			+ ",\"type\":\"statement\",\"id\":\"P10$1\",\"rank\":\"normal\"}]}}";
+
+	final ObjectMapper mapper = new ObjectMapper();
+	final EntityDocumentDecoder decoder = new EntityDocumentDecoder();
+
+	static String valueSnak(String propertyId, String value) {
+		return "{\"snaktype\":\"value\",\"property\":\"" + propertyId
+				+ "\",\"datavalue\":" + value + "}";
+	}
+
+	void assertDecodedLikeMapper(String json) throws IOException {
+		JacksonTermedStatementDocument expected = mapper.readValue(json,
+				JacksonTermedStatementDocument.class);
+		JacksonTermedStatementDocument result = decoder.readDocument(json);
+		expected.setSiteIri(Datamodel.SITE_WIKIDATA);
+		result.setSiteIri(Datamodel.SITE_WIKIDATA);
+		assertEquals(expected.getClass(), result.getClass());
+		assertEquals(expected, result);
+	}
+
+	@Test
+	public void testFullItem() throws IOException {
+		assertDecodedLikeMapper(JSON_FULL_ITEM);
+	}
+
+	@Test
+	public void testProperty() throws IOException {
+		assertDecodedLikeMapper(JSON_PROPERTY);
+	}
+
+	@Test
+	public void testWrappedTestData() throws IOException {
+		assertDecodedLikeMapper(JsonTestData.JSON_WRAPPED_LABEL);
+		assertDecodedLikeMapper(JsonTestData.JSON_WRAPPED_DESCRIPTIONS);
+		assertDecodedLikeMapper(JsonTestData.JSON_WRAPPED_ALIASES);
+		assertDecodedLikeMapper(JsonTestData.JSON_WRAPPED_ITEMID);
+		assertDecodedLikeMapper(JsonTestData.JSON_WRAPPED_SITE_LINK);
+	}
+
+	@Test
+	public void testItemDocumentFromTestData() throws IOException {
+		JacksonItemDocument document = JsonTestData.getTestItemDocument();
+		String json = mapper.writeValueAsString(document);
+		assertDecodedLikeMapper(json);
+	}
+
+	@Test
+	public void testStringValueFirstInSnak() throws IOException {
+		String json = "{\"type\":\"item\",\"id\":\"Q1\",\"claims\":{\"P1\":[{"
+				+ "\"mainsnak\":{\"datavalue\":{\"value\":\"foo\",\"type\":\"string\"},"
+				+ "\"property\":\"P1\",\"snaktype\":\"value\"},"
+				+ "\"id\":\"Q1$1\",\"rank\":\"normal\",\"type\":\"statement\"}]}}";
+		assertDecodedLikeMapper(json);
+	}
+
+	@Test
+	public void testTypeAfterContent() throws IOException {
+		JacksonTermedStatementDocument result = decoder
+				.readDocument(JSON_FULL_ITEM);
+		assertTrue(result instanceof JacksonItemDocument);
+		assertEquals("Q10", result.getEntityId().getId());
+	}
+
+	@Test
+	public void testCanonicalizer() throws IOException {
+		EntityDocumentDecoder canonicalizingDecoder = new EntityDocumentDecoder(
+				mapper.getFactory(), new Canonicalizer());
+		JacksonItemDocument document1 = (JacksonItemDocument) canonicalizingDecoder
+				.readDocument(JSON_FULL_ITEM);
+		JacksonItemDocument document2 = (JacksonItemDocument) canonicalizingDecoder
+				.readDocument(JSON_FULL_ITEM);
+
+		JacksonTermedStatementDocument expected = decoder
+				.readDocument(JSON_FULL_ITEM);
+		expected.setSiteIri(Datamodel.SITE_WIKIDATA);
+		document1.setSiteIri(Datamodel.SITE_WIKIDATA);
+		assertEquals(expected, document1);
+		assertSame(document1.getLabels().get("en").getLanguageCode(),
+				document2.getLabels().get("en").getLanguageCode());
+		assertSame(document1.getSiteLinks().get("enwiki").getSiteKey(),
+				document2.getSiteLinks().get("enwiki").getSiteKey());
+		JacksonValueItemId value1 = (JacksonValueItemId) getReferenceValue(document1);
+		JacksonValueItemId value2 = (JacksonValueItemId) getReferenceValue(document2);
+		assertNotSame(value1.getValue(), value2.getValue());
+		assertSame(JacksonInnerEntityId.JSON_ENTITY_TYPE_ITEM, value1
+				.getValue().getJsonEntityType());
+	}
+
+	JacksonValue getReferenceValue(JacksonItemDocument document) {
+		JacksonReference reference = (JacksonReference) document
+				.getJsonClaims().get("P1").get(0).getReferences().get(0);
+		return ((JacksonValueSnak) reference.getSnaks().get("P4").get(1))
+				.getDatavalue();
+	}
+
+	@Test
+	public void testRevisionId() throws IOException {
+		String json = "{\"type\":\"item\",\"id\":\"Q1\",\"lastrevid\":196015688,"
+				+ "\"labels\":{}}";
+		assertEquals(196015688, mapper.readValue(json,
+				JacksonTermedStatementDocument.class).getRevisionId());
+		assertEquals(196015688, decoder.readDocument(json).getRevisionId());
+		assertEquals(196015688, decoder.readLazyDocument(json).getRevisionId());
+		assertEquals(0, decoder.readDocument(JSON_FULL_ITEM).getRevisionId());
+		// The revision id is not serialized
+		assertFalse(mapper.writeValueAsString(decoder.readDocument(json))
+				.contains("lastrevid"));
+	}
+
+	@Test
+	public void testLazyDocuments() throws IOException {
+		String[] jsonStrings = { JSON_FULL_ITEM, JSON_PROPERTY,
+				JsonTestData.JSON_WRAPPED_ALIASES,
+				JsonTestData.JSON_WRAPPED_SITE_LINK,
+				mapper.writeValueAsString(JsonTestData.getTestItemDocument()) };
+		for (String json : jsonStrings) {
+			JacksonTermedStatementDocument expected = decoder
+					.readDocument(json);
+			JacksonTermedStatementDocument result = decoder
+					.readLazyDocument(json);
+			expected.setSiteIri(Datamodel.SITE_WIKIDATA);
+			result.setSiteIri(Datamodel.SITE_WIKIDATA);
+			assertEquals(expected.getClass(), result.getClass());
+			assertEquals(expected, result);
+			assertEquals(mapper.writeValueAsString(expected),
+					mapper.writeValueAsString(result));
+		}
+	}
+
+	@Test
+	public void testLazySectionsAreIndependent() throws IOException {
+		String json = "{\"type\":\"item\",\"id\":\"Q1\","
+				+ "\"labels\":{\"en\":" + JsonTestData.JSON_TERM_MLTV + "},"
+				+ "\"claims\":{\"P1\":[{\"rank\":\"unknown\"}]}}";
+		JacksonItemDocument document = (JacksonItemDocument) decoder
+				.readLazyDocument(json);
+		document.setSiteIri(Datamodel.SITE_WIKIDATA);
+
+		assertEquals(1, document.getLabels().size());
+		assertTrue(document.getSiteLinks().isEmpty());
+		assertTrue(document.getStatementGroups().isEmpty());
+	}
+
+	@Test
+	public void testLazyCorruptSections() throws IOException {
+		String json = "{\"type\":\"item\",\"id\":\"Q1\","
+				+ "\"labels\":{\"en\":{\"language\":[1,2]}},"
+				+ "\"descriptions\":{\"en\":" + JsonTestData.JSON_TERM_MLTV
+				+ "},\"aliases\":{\"en\":[{\"value\":{}}]},"
+				+ "\"sitelinks\":{\"enwiki\":{\"badges\":\"x\"}},"
+				+ "\"claims\":{\"P1\":[{\"mainsnak\":{\"snaktype\":1}}]}}";
+		JacksonItemDocument document = (JacksonItemDocument) decoder
+				.readLazyDocument(json);
+		document.setSiteIri(Datamodel.SITE_WIKIDATA);
+
+		assertTrue(document.getLabels().isEmpty());
+		assertEquals(1, document.getDescriptions().size());
+		assertTrue(document.getAliases().isEmpty());
+		assertTrue(document.getSiteLinks().isEmpty());
+		assertTrue(document.getStatementGroups().isEmpty());
+		assertEquals("Q1", document.getEntityId().getId());
+	}
+
+	@Test
+	public void testLazyStatementSubjects() throws IOException {
+		JacksonTermedStatementDocument document = decoder
+				.readLazyDocument(JSON_FULL_ITEM);
+		document.setSiteIri("http://example.org/entity/");
+		assertEquals(document.getEntityId(), document.getStatementGroups()
+				.get(0).getSubject());
+	}
+
+	@Test
+	public void testLazyWhitespaceAndEscapes() throws IOException {
+		String json = " {\n\"type\" : \"item\" ,\t\"i\\u0064\":\"Q\\u00310\",\n"
+				+ "\"labels\" : {\"en\":{\"language\":\"en\",\"value\":\"a}\\\"]\"}},"
+				+ "\"aliases\":[],\"descriptions\":null,\"extra\":[{\"x\":\"{\"},-1.5e3,true]"
+				+ "} ";
+		JacksonTermedStatementDocument expected = decoder.readDocument(json);
+		JacksonTermedStatementDocument result = decoder.readLazyDocument(json);
+		expected.setSiteIri(Datamodel.SITE_WIKIDATA);
+		result.setSiteIri(Datamodel.SITE_WIKIDATA);
+		assertEquals("Q10", result.getEntityId().getId());
+		assertEquals("a}\"]", result.getLabels().get("en").getText());
+		assertEquals(expected, result);
+	}
+
+	@Test
+	public void testLazyDocumentInArray() throws IOException {
+		String json = "[" + JSON_PROPERTY + "," + JSON_FULL_ITEM + "]";
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		int start = JSON_PROPERTY.length() + 2;
+		JacksonTermedStatementDocument expected = decoder
+				.readDocument(JSON_FULL_ITEM);
+		JacksonTermedStatementDocument result = decoder.readLazyDocument(
+				bytes, start, JSON_FULL_ITEM.length());
+		expected.setSiteIri(Datamodel.SITE_WIKIDATA);
+		result.setSiteIri(Datamodel.SITE_WIKIDATA);
+		assertEquals(expected, result);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testLazyTruncatedDocument() throws IOException {
+		decoder.readLazyDocument(JSON_FULL_ITEM.substring(0, 100));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testLazyMissingComma() throws IOException {
+		decoder.readLazyDocument("{\"id\":\"Q1\" \"type\":\"item\"}");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testLazyNoObject() throws IOException {
+		decoder.readLazyDocument("[\"Q1\"]");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testLazyBadLabels() throws IOException {
+		decoder.readLazyDocument("{\"id\":\"Q1\",\"type\":\"item\",\"labels\":\"en\"}");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testLazyMissingType() throws IOException {
+		decoder.readLazyDocument("{\"id\":\"Q1\",\"labels\":{}}");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testMissingType() throws IOException {
+		decoder.readDocument("{\"id\":\"Q1\",\"labels\":{}}");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testUnknownType() throws IOException {
+		decoder.readDocument("{\"id\":\"Q1\",\"type\":\"lexeme\"}");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testNoObject() throws IOException {
+		decoder.readDocument("[\"Q1\"]");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testBadLabels() throws IOException {
+		decoder.readDocument("{\"id\":\"Q1\",\"type\":\"item\",\"labels\":\"en\"}");
+	}
+
+}
@@ -0,0 +1,221 @@
+package org.wikidata.wdtk.datamodel.json.jackson;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerTime;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueTime;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Tests the parsing and formatting of time strings in
+ * {@link JacksonInnerTime}. The results are compared to the regular
+ * expression and format string that were used for this before.
+ */
+public class TestInnerTime {
+
+	static final String CALENDAR = "http://www.wikidata.org/entity/Q1985727";
+
+	/**
+	 * Number of random cases in the round-trip tests. The seed is fixed so
+	 * that failures can be reproduced.
+	 */
+	static final int RANDOM_CASES = 20000;
+
+	ObjectMapper mapper = new ObjectMapper();
+
+	static long[] referenceParse(String time) {
+		String[] substrings = time.split("(?<!\\A)[\\-\\:TZ]");
+		return new long[] { Long.parseLong(substrings[0]),
+				Byte.parseByte(substrings[1]), Byte.parseByte(substrings[2]),
+				Byte.parseByte(substrings[3]), Byte.parseByte(substrings[4]),
+				Byte.parseByte(substrings[5]) };
+	}
+
+	static String referenceFormat(long year, byte month, byte day, byte hour,
+			byte minute, byte second) {
+		return String.format("%+012d-%02d-%02dT%02d:%02d:%02dZ", year, month,
+				day, hour, minute, second);
+	}
+
+	static JacksonInnerTime makeTime(long year, byte month, byte day,
+			byte hour, byte minute, byte second) {
+		return new JacksonInnerTime(year, month, day, hour, minute, second, 0,
+				0, 0, 11, CALENDAR);
+	}
+
+	static JacksonInnerTime parseTime(String time) {
+		return new JacksonInnerTime(time, 0, 0, 0, 11, CALENDAR);
+	}
+
+	static void assertComponents(long[] expected, JacksonInnerTime time) {
+		assertEquals(expected[0], time.getYear());
+		assertEquals(expected[1], time.getMonth());
+		assertEquals(expected[2], time.getDay());
+		assertEquals(expected[3], time.getHour());
+		assertEquals(expected[4], time.getMinute());
+		assertEquals(expected[5], time.getSecond());
+	}
+
+	static long randomYear(Random random) {
+		switch (random.nextInt(4)) {
+		case 0: // common years
+			return random.nextInt(4000) - 1000;
+		case 1: // geological and astronomical years
+			return (random.nextLong() % 100000000000L);
+		case 2: // years with more than 11 digits
+			return random.nextLong();
+		default: // small numbers around zero
+			return random.nextInt(21) - 10;
+		}
+	}
+
+	@Test
+	public void testCommonTimeString() {
+		JacksonInnerTime time = parseTime("+00000002013-10-28T00:00:00Z");
+		assertComponents(new long[] { 2013, 10, 28, 0, 0, 0 }, time);
+		assertEquals("+00000002013-10-28T00:00:00Z", time.getTime());
+	}
+
+	@Test
+	public void testNegativeYear() {
+		JacksonInnerTime time = parseTime("-00000000044-03-15T12:30:59Z");
+		assertComponents(new long[] { -44, 3, 15, 12, 30, 59 }, time);
+		assertEquals("-00000000044-03-15T12:30:59Z",
+				makeTime(-44, (byte) 3, (byte) 15, (byte) 12, (byte) 30,
+						(byte) 59).getTime());
+	}
+
+	@Test
+	public void testExtremeYears() {
+		long[] years = { 0, Long.MAX_VALUE, Long.MIN_VALUE,
+				-13798000000L, 99999999999L, 100000000000L };
+		for (long year : years) {
+			String expected = referenceFormat(year, (byte) 1, (byte) 1,
+					(byte) 0, (byte) 0, (byte) 0);
+			JacksonInnerTime time = makeTime(year, (byte) 1, (byte) 1,
+					(byte) 0, (byte) 0, (byte) 0);
+			assertEquals(expected, time.getTime());
+			assertEquals(year, parseTime(expected).getYear());
+		}
+	}
+
+	@Test
+	public void testYearWidth() {
+		assertEquals(2013, parseTime("2013-10-28T00:00:00Z").getYear());
+		assertEquals(2013, parseTime("+2013-10-28T00:00:00Z").getYear());
+		assertEquals(-2013, parseTime("-2013-10-28T00:00:00Z").getYear());
+		assertEquals(5, parseTime("+5-1-2T3:4:5Z").getYear());
+	}
+
+	@Test
+	public void testFormatMatchesReference() {
+		Random random = new Random(42);
+		for (int i = 0; i < RANDOM_CASES; i++) {
+			long year = randomYear(random);
+			byte[] components = new byte[5];
+			random.nextBytes(components);
+			String expected = referenceFormat(year, components[0],
+					components[1], components[2], components[3],
+					components[4]);
+			assertEquals(expected, makeTime(year, components[0],
+					components[1], components[2], components[3],
+					components[4]).getTime());
+		}
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(1234);
+		for (int i = 0; i < RANDOM_CASES; i++) {
+			long year = randomYear(random);
+			byte month = (byte) random.nextInt(13);
+			byte day = (byte) random.nextInt(32);
+			byte hour = (byte) random.nextInt(24);
+			byte minute = (byte) random.nextInt(60);
+			byte second = (byte) random.nextInt(61);
+
+			String timeString = makeTime(year, month, day, hour, minute,
+					second).getTime();
+			JacksonInnerTime parsed = parseTime(timeString);
+			assertComponents(new long[] { year, month, day, hour, minute,
+					second }, parsed);
+			assertComponents(referenceParse(timeString), parsed);
+			assertEquals(timeString, parsed.getTime());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingComponent() {
+		parseTime("+00000002013-10-28T00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongSeparator() {
+		parseTime("+00000002013-10-28 00:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingZ() {
+		parseTime("+00000002013-10-28T00:00:00");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTrailingCharacters() {
+		parseTime("+00000002013-10-28T00:00:00Zx");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoYear() {
+		parseTime("+-10-28T00:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testYearOverflow() {
+		parseTime("+9223372036854775808-10-28T00:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testComponentOverflow() {
+		parseTime("+00000002013-128-28T00:00:00Z");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyString() {
+		parseTime("");
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testInvalidTimeStringToJava() throws IOException {
+		mapper.readValue(
+				"{\"type\":\"time\",\"value\":{\"time\":\"2013/10/28\",\"timezone\":0,"
+						+ "\"before\":0,\"after\":0,\"precision\":11,\"calendarmodel\":\""
+						+ CALENDAR + "\"}}", JacksonValueTime.class);
+	}
+
+}
@@ -29,6 +29,7 @@ import java.io.IOException;
 import org.junit.Test;
 import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonInnerTime;
 import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValue;
+import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueEntityId;
 import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueGlobeCoordinates;
 import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueItemId;
 import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueMonolingualText;
@@ -40,6 +41,7 @@ import org.wikidata.wdtk.datamodel.json.jackson.datavalues.JacksonValueTime;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class TestValue {
@@ -226,4 +228,66 @@ public class TestValue {
 		assertEquals((result), JsonTestData.TEST_MONOLINGUAL_TEXT_VALUE);
 	}
 
+	@Test
+	public void testValueFirstToJava() throws IOException {
+		// Dumps use the order "value", "type"; this must give the same results
+		String[] jsonValues = { JsonTestData.JSON_STRING_VALUE,
+				JsonTestData.JSON_ITEM_ID_VALUE,
+				JsonTestData.JSON_PROPERTY_ID_VALUE,
+				JsonTestData.JSON_TIME_VALUE,
+				JsonTestData.JSON_GLOBE_COORDINATES_VALUE,
+				JsonTestData.JSON_QUANTITY_VALUE,
+				JsonTestData.JSON_MONOLINGUAL_TEXT_VALUE };
+		for (String json : jsonValues) {
+			JacksonValue expected = mapper.readValue(json, JacksonValue.class);
+			JsonNode node = mapper.readTree(json);
+			String reordered = "{\"extra\":[1,{\"a\":null}],\"value\":"
+					+ mapper.writeValueAsString(node.get("value"))
+					+ ",\"type\":\"" + node.get("type").asText() + "\"}";
+
+			JacksonValue result = mapper.readValue(reordered,
+					JacksonValue.class);
+
+			assertEquals(expected.getClass(), result.getClass());
+			assertEquals(expected.getType(), result.getType());
+			if (expected instanceof JacksonValueEntityId) {
+				assertEquals(((JacksonValueEntityId) expected).getValue(),
+						((JacksonValueEntityId) result).getValue());
+			} else {
+				assertEquals(expected, result);
+			}
+		}
+	}
+
+	@Test
+	public void testValuesInSnakToJava() throws IOException {
+		JacksonValueSnak snak = mapper.readValue(
+				"{\"snaktype\":\"value\",\"property\":\"P1\",\"datavalue\":"
+						+ "{\"value\":{\"entity-type\":\"item\",\"numeric-id\":1},"
+						+ "\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"}",
+				JacksonValueSnak.class);
+
+		assertEquals(JsonTestData.TEST_ITEM_ID_VALUE.getValue(),
+				((JacksonValueItemId) snak.getDatavalue()).getValue());
+		assertEquals("wikibase-item", snak.getDatatype());
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testUnknownValueTypeToJava() throws IOException {
+		mapper.readValue("{\"value\":{\"a\":1},\"type\":\"unknown\"}",
+				JacksonValue.class);
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testUnknownEntityTypeToJava() throws IOException {
+		mapper.readValue(
+				"{\"type\":\"wikibase-entityid\",\"value\":{\"entity-type\":\"lexeme\",\"numeric-id\":1}}",
+				JacksonValue.class);
+	}
+
+	@Test(expected = JsonMappingException.class)
+	public void testMissingValueTypeToJava() throws IOException {
+		mapper.readValue("{\"value\":\"foobar\"}", JacksonValue.class);
+	}
+
 }
@@ -0,0 +1,231 @@
+package org.wikidata.wdtk.datamodel.packed;
+
+/*
+ * #%L
+ * Wikidata Toolkit Data Model
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImplTest;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonItemDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JsonTestData;
+
+public class PackedObjectFactoryTest extends DataObjectFactoryImplTest {
+
+	public PackedObjectFactoryTest() {
+		factory = new PackedObjectFactory();
+		converter = new DatamodelConverter(factory);
+	}
+
+	static Statement makeStatement(ItemIdValue subject, String statementId) {
+		return Datamodel.makeStatement(Datamodel.makeClaim(subject, Datamodel
+				.makeValueSnak(Datamodel.makeWikidataPropertyIdValue("P31"),
+						Datamodel.makeWikidataItemIdValue("Q5")), Collections
+				.<SnakGroup> emptyList()), Collections.<Reference> emptyList(),
+				StatementRank.PREFERRED, statementId);
+	}
+
+	static ItemDocument makeItemDocument(ItemIdValue itemId,
+			List<Statement> statements, List<MonolingualTextValue> labels) {
+		List<StatementGroup> statementGroups = new ArrayList<>();
+		if (!statements.isEmpty()) {
+			statementGroups.add(Datamodel.makeStatementGroup(statements));
+		}
+		return Datamodel.makeItemDocument(itemId, labels,
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				statementGroups, Collections.<String, SiteLink> emptyMap());
+	}
+
+	@Test
+	public void testPackedDocumentType() {
+		ItemDocument document = makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.<Statement> emptyList(),
+				Collections.<MonolingualTextValue> emptyList());
+		assertTrue(converter.copy(document) instanceof PackedItemDocument);
+	}
+
+	@Test
+	public void testStatementIds() {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue("Q42");
+		List<Statement> statements = new ArrayList<>();
+		statements.add(makeStatement(itemId,
+				"Q42$f2b1e2a0-0f72-4b2c-9b0a-12ab34cd56ef"));
+		statements.add(makeStatement(itemId,
+				"Q42$F2B1E2A0-0F72-4B2C-9B0A-12AB34CD56EF"));
+		statements.add(makeStatement(itemId,
+				"Q42$F2b1e2a0-0f72-4b2c-9b0a-12ab34cd56ef"));
+		statements.add(makeStatement(itemId,
+				"Q42$00000000-0000-0000-0000-000000000000"));
+		statements.add(makeStatement(itemId,
+				"q42$f2b1e2a0-0f72-4b2c-9b0a-12ab34cd56ef"));
+		statements.add(makeStatement(itemId,
+				"Q42$f2b1e2a0x0f72-4b2c-9b0a-12ab34cd56ef"));
+		statements.add(makeStatement(itemId, "Q42$1"));
+		statements.add(makeStatement(itemId, ""));
+		ItemDocument document = makeItemDocument(itemId, statements,
+				Collections.<MonolingualTextValue> emptyList());
+
+		ItemDocument packed = converter.copy(document);
+		Iterator<Statement> iterator = packed.getAllStatements();
+		for (Statement statement : statements) {
+			Statement packedStatement = iterator.next();
+			assertEquals(statement.getStatementId(),
+					packedStatement.getStatementId());
+			assertEquals(StatementRank.PREFERRED, packedStatement.getRank());
+			assertEquals(statement, packedStatement);
+		}
+		assertFalse(iterator.hasNext());
+		assertEquals(document, packed);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedEntityId() {
+		ItemIdValue itemId = new JacksonObjectFactory().getItemIdValue(
+				"Q12345678901", Datamodel.SITE_WIKIDATA);
+		factory.getItemDocument(itemId,
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+	}
+
+	@Test
+	public void testTexts() {
+		List<MonolingualTextValue> labels = new ArrayList<>();
+		labels.add(Datamodel.makeMonolingualTextValue("Douglas Adams", "en"));
+		labels.add(Datamodel.makeMonolingualTextValue("Douglas Adams", "de"));
+		labels.add(Datamodel.makeMonolingualTextValue("Дуглас Адамс", "ru"));
+		labels.add(Datamodel.makeMonolingualTextValue("", "xx"));
+		StringBuilder longText = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			longText.append("ä😀");
+		}
+		labels.add(Datamodel.makeMonolingualTextValue(longText.toString(),
+				"yy"));
+		ItemDocument document = makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q42"),
+				Collections.<Statement> emptyList(), labels);
+
+		PackedItemDocument packed = (PackedItemDocument) converter
+				.copy(document);
+		assertEquals(document.getLabels(), packed.getLabels());
+		assertTrue(packed.getPackedSize() < 2 * longText.length() + 200);
+	}
+
+	@Test
+	public void testJsonTestData() throws IOException {
+		JacksonItemDocument document = JsonTestData.getTestItemDocument();
+		document.setSiteIri(Datamodel.SITE_WIKIDATA);
+		ItemDocument packed = converter.copy(document);
+
+		assertEquals(document, packed);
+		assertEquals(packed, document);
+		assertEquals(document.hashCode(), packed.hashCode());
+	}
+
+	@Test
+	public void testSharedDictionary() {
+		PackedObjectFactory packedFactory = (PackedObjectFactory) factory;
+		ItemDocument document = converter.copy(makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q1"),
+				Collections.<Statement> emptyList(),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue(
+						"Universe", "en"))));
+		int dictionarySize = packedFactory.getDictionarySize();
+		converter.copy(makeItemDocument(Datamodel
+				.makeWikidataItemIdValue("Q2"), Collections
+				.<Statement> emptyList(), Collections.singletonList(Datamodel
+				.makeMonolingualTextValue("Earth", "en"))));
+
+		assertEquals(dictionarySize, packedFactory.getDictionarySize());
+		assertEquals("Universe", document.getLabels().get("en").getText());
+	}
+
+	@Test
+	public void testCanonicalizer() {
+		PackedObjectFactory packedFactory = new PackedObjectFactory(
+				new Canonicalizer());
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue("Q42");
+		ItemDocument packed = new DatamodelConverter(packedFactory)
+				.copy(makeItemDocument(itemId, Collections
+						.singletonList(makeStatement(itemId, "Q42$1")),
+						Collections.<MonolingualTextValue> emptyList()));
+
+		assertSame(packed.getItemId(), packed.getItemId());
+		StatementGroup statementGroup = packed.getStatementGroups().get(0);
+		PropertyIdValue property = statementGroup.getProperty();
+		assertSame(property, statementGroup.getStatements().get(0).getClaim()
+				.getMainSnak().getPropertyId());
+		assertEquals(Datamodel.makeWikidataPropertyIdValue("P31"), property);
+		assertSame(packed.getItemId(), statementGroup.getSubject());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateLabels() {
+		List<MonolingualTextValue> labels = new ArrayList<>();
+		labels.add(Datamodel.makeMonolingualTextValue("a", "en"));
+		labels.add(Datamodel.makeMonolingualTextValue("b", "en"));
+		factory.getItemDocument(Datamodel.makeWikidataItemIdValue("Q1"),
+				labels, Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongSubject() {
+		ItemIdValue itemId = Datamodel.makeWikidataItemIdValue("Q1");
+		factory.getItemDocument(Datamodel.makeWikidataItemIdValue("Q2"),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.singletonList(Datamodel
+						.makeStatementGroup(Collections
+								.singletonList(makeStatement(itemId, "")))),
+				Collections.<String, SiteLink> emptyMap());
+	}
+
+}
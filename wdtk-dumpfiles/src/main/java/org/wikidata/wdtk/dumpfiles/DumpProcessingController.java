@@ -20,6 +20,8 @@ package org.wikidata.wdtk.dumpfiles;
  * #L%
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.FileAlreadyExistsException;
@@ -32,15 +34,20 @@ import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
 import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentBatchProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentBatcher;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessorBroker;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessorFilter;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.datamodel.json.jackson.EntityDocumentDecoder;
 import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFileManager;
+import org.wikidata.wdtk.util.CompressionType;
 import org.wikidata.wdtk.util.DirectoryManager;
 import org.wikidata.wdtk.util.DirectoryManagerImpl;
 import org.wikidata.wdtk.util.WebResourceFetcher;
@@ -148,6 +155,14 @@ public class DumpProcessingController {
 	 */
 	final HashMap<ListenerRegistration, List<EntityDocumentProcessor>> entityDocumentProcessors;
 
+	/**
+	 * List of the {@link EntityDocumentBatcher} objects that have been
+	 * created for registered {@link EntityDocumentBatchProcessor} objects.
+	 * They are closed after each dump file to deliver the remaining
+	 * documents.
+	 */
+	final List<EntityDocumentBatcher> entityDocumentBatchers = new ArrayList<>();
+
 	/**
 	 * Map of all {@link MwRevisionProcessor} object registered so far, based on
 	 * the model and revision (current or not) they are registered for.
@@ -183,6 +198,29 @@ public class DumpProcessingController {
 
 	DocumentDataFilter filter = new DocumentDataFilter();
 
+	/**
+	 * True if entity documents should be read with the hand-written
+	 * {@link EntityDocumentDecoder} rather than with Jackson data binding.
+	 */
+	boolean useDocumentDecoder = false;
+
+	/**
+	 * True if entity documents from JSON dumps should be decoded lazily.
+	 */
+	boolean useLazyDocuments = false;
+
+	/**
+	 * True if global filters should be applied with read-only views rather
+	 * than by copying the documents.
+	 */
+	boolean useFilteredViews = false;
+
+	/**
+	 * Canonicalizer used to share frequent objects among entity documents, or
+	 * null if objects are not shared.
+	 */
+	Canonicalizer canonicalizer = null;
+
 	/**
 	 * Creates a new DumpFileProcessingController for the project of the given
 	 * name. By default, the dump file directory will be assumed to be in the
@@ -275,6 +313,64 @@ public class DumpProcessingController {
 		this.filter.setLanguageFilter(languageFilter);
 	}
 
+	/**
+	 * Sets whether the global filters should be applied by wrapping each
+	 * document into a read-only view instead of copying the filtered data.
+	 * Views are much faster, but they keep the complete original document in
+	 * memory for as long as they are used, so they should not be used if
+	 * processors store the documents. Documents are copied by default.
+	 *
+	 * @see EntityDocumentProcessorFilter
+	 * @param useFilteredViews
+	 *            true if views should be used for filtering
+	 */
+	public void setUseFilteredViews(boolean useFilteredViews) {
+		this.useFilteredViews = useFilteredViews;
+	}
+
+	/**
+	 * Sets whether entity documents should be read with the hand-written
+	 * {@link EntityDocumentDecoder} instead of Jackson data binding. This
+	 * applies to JSON dumps and to dumps with revisions. Both methods create
+	 * the same objects, but the decoder is faster. Data binding is used by
+	 * default.
+	 *
+	 * @param useDocumentDecoder
+	 *            true if the decoder should be used
+	 */
+	public void setUseDocumentDecoder(boolean useDocumentDecoder) {
+		this.useDocumentDecoder = useDocumentDecoder;
+	}
+
+	/**
+	 * Sets whether entity documents from JSON dumps should decode their
+	 * labels, descriptions, aliases, site links, and statements only when
+	 * they are accessed for the first time. This makes processing much faster
+	 * if processors only use some parts of each document. It does not apply
+	 * to dumps with revisions. By default, documents are decoded completely.
+	 *
+	 * @see JsonDumpFileProcessor#setUseLazyDocuments(boolean)
+	 * @param useLazyDocuments
+	 *            true if documents should be decoded lazily
+	 */
+	public void setUseLazyDocuments(boolean useLazyDocuments) {
+		this.useLazyDocuments = useLazyDocuments;
+	}
+
+	/**
+	 * Sets the canonicalizer that is used to share frequent strings, such as
+	 * language codes and site keys, among the entity documents that are read.
+	 * This reduces the memory needed by processors that keep such objects. By
+	 * default, nothing is shared.
+	 *
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null if objects should not be
+	 *            shared
+	 */
+	public void setCanonicalizer(Canonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+	}
+
 	/**
 	 * Registers an MwRevisionProcessor, which will henceforth be notified of
 	 * all revisions that are encountered in the dump.
@@ -334,9 +430,44 @@ public class DumpProcessingController {
 				this.entityDocumentProcessors);
 	}
 
+	/**
+	 * Registers an EntityDocumentBatchProcessor, which will henceforth be
+	 * notified of all entity documents that are encountered in the dump, in
+	 * batches of the given size. The last batch of each dump file is
+	 * delivered when the file has been processed, even if it is not full.
+	 * Otherwise, this works like
+	 * {@link #registerEntityDocumentProcessor(EntityDocumentProcessor, String, boolean)}.
+	 *
+	 * @see EntityDocumentBatcher
+	 * @param entityDocumentBatchProcessor
+	 *            the entity document batch processor to register
+	 * @param model
+	 *            the content model that the processor is registered for, or
+	 *            null to process all revisions whatever their model
+	 * @param onlyCurrentRevisions
+	 *            if true, then the subscriber is only notified of the most
+	 *            current revisions
+	 * @param batchSize
+	 *            the maximal number of documents in each batch
+	 * @param maxLatency
+	 *            the maximal time in milliseconds that a document is held
+	 *            back before its batch is delivered, or 0 if batches should
+	 *            only be delivered when they are full
+	 */
+	public void registerEntityDocumentBatchProcessor(
+			EntityDocumentBatchProcessor entityDocumentBatchProcessor,
+			String model, boolean onlyCurrentRevisions, int batchSize,
+			long maxLatency) {
+		EntityDocumentBatcher batcher = new EntityDocumentBatcher(
+				entityDocumentBatchProcessor, batchSize, maxLatency);
+		this.entityDocumentBatchers.add(batcher);
+		registerEntityDocumentProcessor(batcher, model, onlyCurrentRevisions);
+	}
+
 	/**
 	 * Processes the most recent dump of the sites table to extract information
-	 * about registered sites.
+	 * about registered sites. The result is cached in the download directory,
+	 * so that later calls for the same dump do not need to process it again.
 	 *
 	 * @return a Sites objects that contains the extracted information, or null
 	 *         if no sites dump was available (typically in offline mode without
@@ -351,10 +482,43 @@ public class DumpProcessingController {
 			return null;
 		}
 
+		DirectoryManager cacheDirectoryManager = this.downloadDirectoryManager
+				.getSubdirectoryManager(
+						WmfDumpFileManager.DOWNLOAD_DIRECTORY_NAME)
+				.getSubdirectoryManager(this.projectName);
+		String cacheFileName = MwSitesDumpFileProcessor
+				.getCacheFileName(sitesTableDump);
+
+		if (cacheDirectoryManager.hasFile(cacheFileName)) {
+			MwSitesDumpFileProcessor cachedSitesProcessor = new MwSitesDumpFileProcessor();
+			try (InputStream inputStream = cacheDirectoryManager
+					.getInputStreamForFile(cacheFileName, CompressionType.NONE)) {
+				cachedSitesProcessor.readSitesCache(inputStream);
+				return cachedSitesProcessor.getSites();
+			} catch (IOException e) {
+				logger.warn("Could not read cached sites information, processing dump instead: "
+						+ e.toString());
+			}
+		}
+
 		// Create a suitable processor for such dumps and process the file:
 		MwSitesDumpFileProcessor sitesDumpFileProcessor = new MwSitesDumpFileProcessor();
-		sitesDumpFileProcessor.processDumpFileContents(
-				sitesTableDump.getDumpFileStream(), sitesTableDump);
+		try (InputStream inputStream = sitesTableDump.getDumpFileStream()) {
+			sitesDumpFileProcessor.processDumpFileContents(inputStream,
+					sitesTableDump);
+		}
+
+		if (sitesDumpFileProcessor.isComplete()) {
+			ByteArrayOutputStream cacheBytes = new ByteArrayOutputStream();
+			sitesDumpFileProcessor.writeSitesCache(cacheBytes);
+			try {
+				cacheDirectoryManager.createFileAtomic(cacheFileName,
+						new ByteArrayInputStream(cacheBytes.toByteArray()));
+			} catch (IOException e) {
+				logger.warn("Could not cache sites information: "
+						+ e.toString());
+			}
+		}
 
 		return sitesDumpFileProcessor.getSites();
 	}
@@ -553,6 +717,10 @@ public class DumpProcessingController {
 		} catch (IOException e) {
 			logger.error("Dump file " + dumpFile.toString()
 					+ " could not be processed: " + e.toString());
+		} finally {
+			for (EntityDocumentBatcher batcher : this.entityDocumentBatchers) {
+				batcher.close();
+			}
 		}
 	}
 
@@ -596,8 +764,12 @@ public class DumpProcessingController {
 	 * @return the main MwDumpFileProcessor for JSON
 	 */
 	MwDumpFileProcessor getJsonDumpFileProcessor() {
-		return new JsonDumpFileProcessor(getMasterEntityDocumentProcessor(),
-				Datamodel.SITE_WIKIDATA);
+		JsonDumpFileProcessor result = new JsonDumpFileProcessor(
+				getMasterEntityDocumentProcessor(), Datamodel.SITE_WIKIDATA);
+		result.setUseDocumentDecoder(this.useDocumentDecoder);
+		result.setUseLazyDocuments(this.useLazyDocuments);
+		result.setCanonicalizer(this.canonicalizer);
+		return result;
 	}
 
 	/**
@@ -678,7 +850,7 @@ public class DumpProcessingController {
 			return processor;
 		} else {
 			EntityDocumentProcessorFilter filter = new EntityDocumentProcessorFilter(
-					processor, this.filter);
+					processor, this.filter, !this.useFilteredViews);
 			return filter;
 		}
 	}
@@ -713,10 +885,15 @@ public class DumpProcessingController {
 				resultEdp = edpb;
 			}
 
-			result.registerMwRevisionProcessor(new WikibaseRevisionProcessor(
+			WikibaseRevisionProcessor wikibaseRevisionProcessor = new WikibaseRevisionProcessor(
 					filterEntityDocumentProcessor(resultEdp),
-					Datamodel.SITE_WIKIDATA), edpEntry.getKey().model, edpEntry
-					.getKey().onlyCurrentRevisions);
+					Datamodel.SITE_WIKIDATA);
+			wikibaseRevisionProcessor
+					.setUseDocumentDecoder(this.useDocumentDecoder);
+			wikibaseRevisionProcessor.setCanonicalizer(this.canonicalizer);
+			result.registerMwRevisionProcessor(wikibaseRevisionProcessor,
+					edpEntry.getKey().model,
+					edpEntry.getKey().onlyCurrentRevisions);
 		}
 
 		return result;
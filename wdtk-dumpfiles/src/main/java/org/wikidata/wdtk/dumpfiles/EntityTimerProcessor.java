@@ -26,7 +26,6 @@ import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
-import org.wikidata.wdtk.util.Timer;
 
 /**
  * Simple {@link EntityDocumentProcessor} for basic counting and time keeping.
@@ -45,11 +44,16 @@ public class EntityTimerProcessor implements EntityDocumentDumpProcessor {
 	static final Logger logger = LoggerFactory
 			.getLogger(EntityTimerProcessor.class);
 
-	final Timer timer = Timer.getNamedTimer("EntityTimerProcessor");
 	final int timeout;
 	int entityCount = 0;
 	int lastSeconds = 0;
 
+	/**
+	 * Wall clock time in nanoseconds when the first entity was processed, or
+	 * -1 if no entity was processed yet.
+	 */
+	long startTime = -1;
+
 	/**
 	 * Number of seconds after which a progress report is printed. If a timeout
 	 * is configured, it will only be checked at a report.
@@ -108,8 +112,7 @@ public class EntityTimerProcessor implements EntityDocumentDumpProcessor {
 	@Override
 	public void close() {
 		logger.info("Finished processing.");
-		this.timer.stop();
-		this.lastSeconds = (int) (timer.getTotalWallTime() / 1000000000);
+		this.lastSeconds = getElapsedSeconds();
 		printStatus();
 	}
 
@@ -118,14 +121,13 @@ public class EntityTimerProcessor implements EntityDocumentDumpProcessor {
 	 * as to print an intermediate report roughly every ten seconds.
 	 */
 	private void countEntity() {
-		if (!this.timer.isRunning()) {
+		if (this.startTime == -1) {
 			startTimer();
 		}
 
 		this.entityCount++;
 		if (this.entityCount % 100 == 0) {
-			timer.stop();
-			int seconds = (int) (timer.getTotalWallTime() / 1000000000);
+			int seconds = getElapsedSeconds();
 			if (seconds >= this.lastSeconds + this.reportInterval) {
 				this.lastSeconds = seconds;
 				printStatus();
@@ -134,10 +136,20 @@ public class EntityTimerProcessor implements EntityDocumentDumpProcessor {
 					throw new TimeoutException();
 				}
 			}
-			timer.start();
 		}
 	}
 
+	/**
+	 * Returns the number of full seconds since the first entity was
+	 * processed, or 0 if no entity was processed yet.
+	 */
+	private int getElapsedSeconds() {
+		if (this.startTime == -1) {
+			return 0;
+		}
+		return (int) ((System.nanoTime() - this.startTime) / 1000000000);
+	}
+
 	/**
 	 * Prints the current status, time and entity count.
 	 */
@@ -154,7 +166,7 @@ public class EntityTimerProcessor implements EntityDocumentDumpProcessor {
 
 	private void startTimer() {
 		logger.info("Starting processing.");
-		this.timer.start();
+		this.startTime = System.nanoTime();
 	}
 
 	public class TimeoutException extends RuntimeException {
@@ -24,16 +24,24 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.json.jackson.EntityDocumentDecoder;
 import org.wikidata.wdtk.datamodel.json.jackson.JacksonItemDocument;
 import org.wikidata.wdtk.datamodel.json.jackson.JacksonPropertyDocument;
 import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+import org.wikidata.wdtk.util.metrics.Histogram;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonParser.Feature;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
@@ -50,18 +58,94 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 			.getLogger(JsonDumpFileProcessor.class);
 
 	private final ObjectMapper mapper = new ObjectMapper();
-	private final ObjectReader documentReader = this.mapper
+	private ObjectReader documentReader = this.mapper
 			.reader(JacksonTermedStatementDocument.class);
+	private EntityDocumentDecoder documentDecoder = new EntityDocumentDecoder(
+			this.mapper.getFactory());
+
+	/**
+	 * True if documents are read with {@link #documentDecoder} rather than
+	 * with Jackson data binding.
+	 */
+	private boolean useDocumentDecoder = false;
+
+	/**
+	 * True if documents are read with {@link #documentDecoder} and decode
+	 * their terms, site links, and statements only when they are accessed.
+	 */
+	private boolean useLazyDocuments = false;
 
 	private final EntityDocumentProcessor entityDocumentProcessor;
 	private final String siteIri;
 
+	/**
+	 * Histogram of the time between two documents that is not spent in the
+	 * processor, i.e., the time for reading and parsing each document.
+	 */
+	private final Histogram parseTimeHistogram = MetricsRegistry.getDefault()
+			.getHistogram("json.parse.time");
+	private long parseStartTime;
+
 	public JsonDumpFileProcessor(
 			EntityDocumentProcessor entityDocumentProcessor, String siteIri) {
 		this.entityDocumentProcessor = entityDocumentProcessor;
 		this.siteIri = siteIri;
 	}
 
+	/**
+	 * Sets whether entity documents should be read with the hand-written
+	 * {@link EntityDocumentDecoder} instead of Jackson data binding. Both
+	 * create the same objects, but the decoder is faster. Data binding is used
+	 * by default.
+	 *
+	 * @param useDocumentDecoder
+	 *            true if the decoder should be used
+	 */
+	public void setUseDocumentDecoder(boolean useDocumentDecoder) {
+		this.useDocumentDecoder = useDocumentDecoder;
+	}
+
+	/**
+	 * Sets whether entity documents should decode their labels, descriptions,
+	 * aliases, site links, and statements only when they are accessed for the
+	 * first time. The documents that are passed to the processor are the same
+	 * as otherwise, but processors that only use some parts of each document
+	 * will run much faster. This implies the use of the
+	 * {@link EntityDocumentDecoder}. By default, documents are decoded
+	 * completely.
+	 * <p>
+	 * Lazy documents are read line by line, so this requires that each
+	 * entity is serialized in one line, as in the JSON dumps of Wikimedia.
+	 * Each document keeps the bytes of its line until all of its parts have
+	 * been decoded.
+	 *
+	 * @see EntityDocumentDecoder#readLazyDocument(byte[], int, int)
+	 * @param useLazyDocuments
+	 *            true if documents should be decoded lazily
+	 */
+	public void setUseLazyDocuments(boolean useLazyDocuments) {
+		this.useLazyDocuments = useLazyDocuments;
+	}
+
+	/**
+	 * Sets the canonicalizer that is used to share frequent strings among the
+	 * documents that are read. With data binding, this only applies to the
+	 * strings in property values; the {@link EntityDocumentDecoder} also
+	 * shares language codes, site keys and property ids. By default, nothing
+	 * is shared.
+	 *
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null if objects should not be
+	 *            shared
+	 */
+	public void setCanonicalizer(Canonicalizer canonicalizer) {
+		this.documentReader = this.mapper.reader(
+				JacksonTermedStatementDocument.class).withAttribute(
+				Canonicalizer.class, canonicalizer);
+		this.documentDecoder = new EntityDocumentDecoder(
+				this.mapper.getFactory(), canonicalizer);
+	}
+
 	/**
 	 * Process dump file data from the given input stream. This method uses the
 	 * efficient Jackson {@link MappingIterator}. However, this class cannot
@@ -76,9 +160,18 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 			MwDumpFile dumpFile) {
 
 		logger.info("Processing JSON dump file " + dumpFile.toString());
+		this.parseStartTime = System.nanoTime();
 
 		try {
 			try {
+				if (this.useLazyDocuments) {
+					processDumpFileContentsLazily(inputStream);
+					return;
+				} else if (this.useDocumentDecoder) {
+					processDumpFileContentsWithDecoder(inputStream);
+					return;
+				}
+
 				MappingIterator<JacksonTermedStatementDocument> documentIterator = documentReader
 						.readValues(inputStream);
 				documentIterator.getParser().disable(Feature.AUTO_CLOSE_SOURCE);
@@ -100,6 +193,147 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 
 	}
 
+	/**
+	 * Process dump file data from the given input stream using the
+	 * {@link EntityDocumentDecoder}. Like the {@link MappingIterator}, this
+	 * accepts a JSON array of entities as well as a sequence of entities at
+	 * the top level.
+	 *
+	 * @param inputStream
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if there is a problem reading the stream; problems with the
+	 *             JSON are reported as {@link JsonProcessingException}
+	 */
+	private void processDumpFileContentsWithDecoder(InputStream inputStream)
+			throws IOException {
+		JsonParser parser = this.mapper.getFactory().createParser(inputStream);
+		parser.disable(Feature.AUTO_CLOSE_SOURCE);
+
+		JsonToken token = parser.nextToken();
+		if (token == JsonToken.START_ARRAY) {
+			token = parser.nextToken();
+		}
+		while (token == JsonToken.START_OBJECT) {
+			handleDocument(this.documentDecoder.readDocument(parser));
+			token = parser.nextToken();
+		}
+		parser.close();
+	}
+
+	/**
+	 * Process dump file data from the given input stream using lazy
+	 * documents. The stream is assumed to contain one entity per line, as in
+	 * {@link #processDumpFileContentsRecovery(InputStream)}. The bytes of each
+	 * line are copied into an array of their own, which the document keeps
+	 * for decoding its parts later on. Errors in one line are reported, and
+	 * processing continues with the next line.
+	 *
+	 * @param inputStream
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if there is a problem reading the stream
+	 */
+	private void processDumpFileContentsLazily(InputStream inputStream)
+			throws IOException {
+		byte[] buffer = new byte[1 << 16];
+		byte[] line = new byte[1 << 16];
+		int lineLength = 0;
+		int count;
+		while ((count = inputStream.read(buffer)) != -1) {
+			int lineStart = 0;
+			for (int i = 0; i < count; i++) {
+				if (buffer[i] == '\n') {
+					line = append(line, lineLength, buffer, lineStart, i
+							- lineStart);
+					handleLine(line, lineLength + i - lineStart);
+					lineLength = 0;
+					lineStart = i + 1;
+				}
+			}
+			line = append(line, lineLength, buffer, lineStart, count
+					- lineStart);
+			lineLength += count - lineStart;
+		}
+		handleLine(line, lineLength);
+	}
+
+	/**
+	 * Appends bytes to a line, growing the array of the line if needed.
+	 *
+	 * @return the array of the line, which is a new array if the line had to
+	 *         grow
+	 */
+	private byte[] append(byte[] line, int lineLength, byte[] bytes,
+			int offset, int length) {
+		if (lineLength + length > line.length) {
+			line = Arrays.copyOf(line,
+					Math.max(lineLength + length, 2 * line.length));
+		}
+		System.arraycopy(bytes, offset, line, lineLength, length);
+		return line;
+	}
+
+	/**
+	 * Reads and processes the lazy document in one line of a dump file. The
+	 * bytes of the document are copied, so the given array can be reused.
+	 *
+	 * @param line
+	 *            the array that contains the line
+	 * @param length
+	 *            the length of the line, without the line break
+	 */
+	private void handleLine(byte[] line, int length) {
+		while (length > 0 && isLineEnd(line[length - 1])) {
+			length--;
+		}
+		if (length < 2) { // skip "[", "]", and empty lines
+			return;
+		}
+		byte[] json = Arrays.copyOf(line, length);
+		try {
+			handleDocument(this.documentDecoder.readLazyDocument(json, 0,
+					length));
+		} catch (JsonProcessingException e) {
+			logJsonProcessingException(e);
+			JsonDumpFileProcessor.logger.error("Problematic line was: "
+					+ new String(json, 0, Math.min(50, length),
+							StandardCharsets.UTF_8) + "...");
+		} catch (IOException e) {
+			// Cannot happen when reading from an array
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Checks if the given byte can be dropped at the end of a line of the
+	 * dump, i.e., if it is a carriage return or the comma that separates
+	 * entities.
+	 */
+	private boolean isLineEnd(byte b) {
+		return b == '\r' || b == ',' || b == ' ';
+	}
+
+	/**
+	 * Reads a single entity document from a string.
+	 *
+	 * @param json
+	 *            the JSON serialization of the document
+	 * @return the document
+	 * @throws IOException
+	 *             if the document could not be read
+	 */
+	private JacksonTermedStatementDocument readDocument(String json)
+			throws IOException {
+		if (this.useLazyDocuments) {
+			return this.documentDecoder.readLazyDocument(json);
+		} else if (this.useDocumentDecoder) {
+			return this.documentDecoder.readDocument(json);
+		} else {
+			return this.documentReader.readValue(json);
+		}
+	}
+
 	/**
 	 * Reports the error of a JSON processing exception that was caught when
 	 * trying to read an entity.
@@ -122,6 +356,7 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 	 *            the document to process
 	 */
 	private void handleDocument(JacksonTermedStatementDocument document) {
+		this.parseTimeHistogram.recordElapsedTime(this.parseStartTime);
 		document.setSiteIri(siteIri);
 		if (document != null) {
 			if (document instanceof JacksonItemDocument) {
@@ -132,6 +367,7 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 						.processPropertyDocument((JacksonPropertyDocument) document);
 			}
 		}
+		this.parseStartTime = System.nanoTime();
 	}
 
 	/**
@@ -171,10 +407,10 @@ public class JsonDumpFileProcessor implements MwDumpFileProcessor {
 			try {
 				JacksonTermedStatementDocument document;
 				if (line.charAt(line.length() - 1) == ',') {
-					document = documentReader.readValue(line.substring(0,
+					document = readDocument(line.substring(0,
 							line.length() - 1));
 				} else {
-					document = documentReader.readValue(line);
+					document = readDocument(line);
 				}
 				handleDocument(document);
 			} catch (JsonProcessingException e) {
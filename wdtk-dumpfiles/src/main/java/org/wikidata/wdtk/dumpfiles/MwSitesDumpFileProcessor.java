@@ -21,11 +21,16 @@ package org.wikidata.wdtk.dumpfiles;
  */
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,10 +40,17 @@ import org.wikidata.wdtk.datamodel.interfaces.Sites;
 /**
  * This class processes dump files that contain the SQL dump of the MediaWiki <a
  * href="https://www.mediawiki.org/wiki/Manual:Sites_table">sites table</a>.
+ * The dump is read in a streaming fashion with a {@link SqlTupleReader}, and
+ * the PHP-serialized site data is decoded with a
+ * {@link PhpSerializedDataParser}.
  * <p>
  * The class expects all URLs in the dump to be protocol-relative (i.e.,
  * starting with "//" rather than with "http://" or "https://") and it will
  * prepend "http:".
+ * <p>
+ * The extracted information can be written to a compact binary cache (see
+ * {@link #writeSitesCache(OutputStream)}), from which it can be loaded much
+ * faster than from the dump (see {@link #readSitesCache(InputStream)}).
  *
  * @author Markus Kroetzsch
  *
@@ -48,8 +60,26 @@ public class MwSitesDumpFileProcessor implements MwDumpFileProcessor {
 	static final Logger logger = LoggerFactory
 			.getLogger(MwSitesDumpFileProcessor.class);
 
+	/**
+	 * Number at the start of sites cache files, used to recognize the format
+	 * and its version.
+	 */
+	static final int CACHE_FORMAT_ID = 0x57534901;
+
 	final SitesImpl sites = new SitesImpl();
 
+	/**
+	 * The information about each site, in the order of the parameters of
+	 * {@link SitesImpl#setSiteInformation(String, String, String, String, String, String)}
+	 * ; used to write the cache.
+	 */
+	final List<String[]> siteRecords = new ArrayList<>();
+
+	/**
+	 * True if all dump files have been processed without errors.
+	 */
+	boolean complete = true;
+
 	/**
 	 * Returns the information about sites that has been extracted from the dump
 	 * file(s) processed earlier.
@@ -60,28 +90,35 @@ public class MwSitesDumpFileProcessor implements MwDumpFileProcessor {
 		return this.sites;
 	}
 
+	/**
+	 * Returns the name of the file in which the sites information of the
+	 * given dump is cached.
+	 *
+	 * @param dumpFile
+	 *            the dump of the sites table
+	 * @return file name
+	 */
+	public static String getCacheFileName(MwDumpFile dumpFile) {
+		return "cached-sites-" + dumpFile.getDateStamp() + ".bin";
+	}
+
 	@Override
 	public void processDumpFileContents(InputStream inputStream,
 			MwDumpFile dumpFile) {
 
 		logger.info("Processing sites dump file " + dumpFile.toString());
 
-		BufferedReader bufferedReader = new BufferedReader(
-				new InputStreamReader(inputStream));
+		SqlTupleReader tupleReader = new SqlTupleReader(new BufferedReader(
+				new InputStreamReader(inputStream, StandardCharsets.UTF_8)),
+				"sites");
 
 		try {
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				if (line.startsWith("INSERT INTO `sites` VALUES")) {
-					Matcher matcher = Pattern.compile("[(][^)]*[)]").matcher(
-							line.substring(27, line.length() - 1));
-					while (matcher.find()) {
-						processSiteRow(matcher.group());
-					}
-					break; // stop after finding rows
-				}
+			List<String> row;
+			while ((row = tupleReader.readTuple()) != null) {
+				processSiteRow(row);
 			}
 		} catch (IOException e) {
+			this.complete = false;
 			MwSitesDumpFileProcessor.logger
 					.error("IO Error when processing dump of sites table: "
 							+ e.toString());
@@ -90,102 +127,120 @@ public class MwSitesDumpFileProcessor implements MwDumpFileProcessor {
 
 	/**
 	 * Processes a row of the sites table and stores the site information found
-	 * therein.
+	 * therein. The entries are encoded by position, with the following
+	 * meaning: 0: site_id, 1: site_global_key, 2: site_type, 3: site_group, 4:
+	 * site_source 5: site_language, 6: site_protocol, 7: site_domain, 8:
+	 * site_data, 9: site_forward, 10: site_config. The method assumes that
+	 * this is the layout of the table, which is the case in MediaWiki 1.21 and
+	 * above. Rows where the key, type, group, or language of the site is NULL
+	 * are ignored.
 	 *
-	 * @param siteRow
-	 *            string serialisation of a sites table row as found in the SQL
-	 *            dump
+	 * @param row
+	 *            the fields of a sites table row as found in the SQL dump
 	 */
-	void processSiteRow(String siteRow) {
-		String[] row = getSiteRowFields(siteRow);
+	void processSiteRow(List<String> row) {
+		if (row.size() < 9) {
+			this.complete = false;
+			logger.error("Ignoring row of sites table with only " + row.size()
+					+ " fields.");
+			return;
+		}
+		if (row.get(1) == null || row.get(2) == null || row.get(3) == null
+				|| row.get(5) == null) {
+			// Sites need all of these fields, also in the cache
+			logger.warn("Ignoring row of sites table with NULL values: "
+					+ row.toString());
+			return;
+		}
 
 		String filePath = "";
 		String pagePath = "";
-
-		String dataArray = row[8].substring(row[8].indexOf('{'),
-				row[8].length() - 2);
-
-		// Explanation for the regular expression below:
-		// "'{' or ';'" followed by either
-		// "NOT: ';', '{', or  '}'" repeated one or more times; or
-		// "a single '}'"
-		// The first case matches ";s:5:\"paths\""
-		// but also ";a:2:" in "{s:5:\"paths\";a:2:{s:9:\ ...".
-		// The second case matches ";}" which terminates (sub)arrays.
-		Matcher matcher = Pattern.compile("[{;](([^;}{][^;}{]*)|[}])").matcher(
-				dataArray);
-		String prevString = "";
-		String curString = "";
-		String path = "";
-		boolean valuePosition = false;
-
-		while (matcher.find()) {
-			String match = matcher.group().substring(1);
-			if (match.length() == 0) {
-				valuePosition = false;
-				continue;
-			}
-			if (match.charAt(0) == 's') {
-				valuePosition = !valuePosition && !"".equals(prevString);
-				curString = match.substring(match.indexOf('"') + 1,
-						match.length() - 2);
-			} else if (match.charAt(0) == 'a') {
-				valuePosition = false;
-				path = path + "/" + prevString;
-			} else if ("}".equals(match)) {
-				valuePosition = false;
-				path = path.substring(0, path.lastIndexOf('/'));
-			}
-
-			if (valuePosition && "file_path".equals(prevString)
-					&& "/paths".equals(path)) {
-				filePath = curString;
-			} else if (valuePosition && "page_path".equals(prevString)
-					&& "/paths".equals(path)) {
-				pagePath = curString;
+		try {
+			Object data = PhpSerializedDataParser.parse(row.get(8));
+			Object paths = (data instanceof Map) ? ((Map<?, ?>) data)
+					.get("paths") : null;
+			if (paths instanceof Map) {
+				filePath = getString((Map<?, ?>) paths, "file_path");
+				pagePath = getString((Map<?, ?>) paths, "page_path");
 			}
-
-			prevString = curString;
-			curString = "";
+		} catch (IllegalArgumentException e) {
+			logger.warn("Could not read site data of \"" + row.get(1) + "\": "
+					+ e.getMessage());
 		}
 
-		MwSitesDumpFileProcessor.logger.debug("Found site data \"" + row[1]
-				+ "\" (group \"" + row[3] + "\", language \"" + row[5]
-				+ "\", type \"" + row[2] + "\")");
-		this.sites.setSiteInformation(row[1], row[3], row[5], row[2], "http:"
-				+ filePath, "http:" + pagePath);
+		MwSitesDumpFileProcessor.logger.debug("Found site data \""
+				+ row.get(1) + "\" (group \"" + row.get(3) + "\", language \""
+				+ row.get(5) + "\", type \"" + row.get(2) + "\")");
+		setSiteInformation(row.get(1), row.get(3), row.get(5), row.get(2),
+				"http:" + filePath, "http:" + pagePath);
 	}
 
 	/**
-	 * Extract the individual fields for one row in the sites table. The entries
-	 * are encoded by position, with the following meaning: 0: site_id, 1:
-	 * site_global_key, 2: site_type, 3: site_group, 4: site_source 5:
-	 * site_language, 6: site_protocol, 7: site_domain, 8: site_data, 9:
-	 * site_forward, 10: site_config. The method assumes that this is the layout
-	 * of the table, which is the case in MediaWiki 1.21 and above.
+	 * Writes the information about all sites that have been processed so far
+	 * to the given stream, in a format that can be read with
+	 * {@link #readSitesCache(InputStream)}.
 	 *
-	 * @param siteRow
-	 *            the string representation of a row in the sites table, with
-	 *            the surrounding parentheses
-	 * @return an array with the individual entries
+	 * @param outputStream
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if there was a problem writing the data
 	 */
-	String[] getSiteRowFields(String siteRow) {
-		String[] siteRowFields = new String[11];
-
-		Matcher matcher = Pattern.compile("[(,](['][^']*[']|[^'][^),]*)")
-				.matcher(siteRow);
-		int columnIndex = 0;
-		while (matcher.find()) {
-			String field = matcher.group().substring(1);
-			if (field.charAt(0) == '\'') {
-				field = field.substring(1, field.length() - 1);
+	public void writeSitesCache(OutputStream outputStream) throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(CACHE_FORMAT_ID);
+		out.writeInt(this.siteRecords.size());
+		for (String[] record : this.siteRecords) {
+			for (String field : record) {
+				out.writeUTF(field);
 			}
+		}
+		out.flush();
+	}
 
-			siteRowFields[columnIndex] = field;
-			// ... will throw an exception if there are more fields than
-			// expected; this is fine.
-			columnIndex++;
+	/**
+	 * Reads information about sites from the given stream, as written by
+	 * {@link #writeSitesCache(OutputStream)}, and adds it to the sites of
+	 * this object.
+	 *
+	 * @param inputStream
+	 *            the stream to read from
+	 * @throws IOException
+	 *             if there was a problem reading the data, or if it was not
+	 *             written by {@link #writeSitesCache(OutputStream)}
+	 */
+	public void readSitesCache(InputStream inputStream) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != CACHE_FORMAT_ID) {
+			throw new IOException("Unknown format of sites cache.");
+		}
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			setSiteInformation(in.readUTF(), in.readUTF(), in.readUTF(),
+					in.readUTF(), in.readUTF(), in.readUTF());
 		}
-		return siteRowFields;
+	}
+
+	/**
+	 * Returns true if all dump files have been processed without errors, so
+	 * that the extracted information can be cached.
+	 *
+	 * @return true if the information is complete
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	void setSiteInformation(String siteKey, String group,
+			String languageCode, String siteType, String filePath,
+			String pagePath) {
+		this.sites.setSiteInformation(siteKey, group, languageCode, siteType,
+				filePath, pagePath);
+		this.siteRecords.add(new String[] { siteKey, group, languageCode,
+				siteType, filePath, pagePath });
+	}
+
+	static String getString(Map<?, ?> map, String key) {
+		Object value = map.get(key);
+		return (value instanceof String) ? (String) value : "";
 	}
 }
@@ -0,0 +1,143 @@
+package org.wikidata.wdtk.dumpfiles;
+
+/*
+ * #%L
+ * Wikidata Toolkit Dump File Handling
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parser for data that was serialized with PHP's serialize() function, as
+ * used for the site_data field of the MediaWiki sites table. The input is
+ * read character by character. Arrays are returned as maps from string keys
+ * to values, strings as strings, integers as longs, floats as doubles, and
+ * booleans as booleans. Objects are not supported.
+ */
+class PhpSerializedDataParser {
+
+	final String input;
+	int position = 0;
+
+	/**
+	 * Parses the given serialization.
+	 *
+	 * @param input
+	 *            the serialized data
+	 * @return the data
+	 * @throws IllegalArgumentException
+	 *             if the input is not a valid serialization
+	 */
+	static Object parse(String input) {
+		return new PhpSerializedDataParser(input).readValue();
+	}
+
+	PhpSerializedDataParser(String input) {
+		this.input = input;
+	}
+
+	Object readValue() {
+		char type = next();
+		if (type == 'N') {
+			expect(';');
+			return null;
+		}
+		expect(':');
+		switch (type) {
+		case 's':
+			return readString();
+		case 'i':
+			return Long.valueOf(readUntil(';'));
+		case 'd':
+			return Double.valueOf(readUntil(';'));
+		case 'b':
+			return "1".equals(readUntil(';'));
+		case 'a':
+			return readArray();
+		default:
+			throw new IllegalArgumentException("Unsupported type '" + type
+					+ "' at position " + (this.position - 1) + ".");
+		}
+	}
+
+	/**
+	 * Reads a string. The length of PHP strings is given in bytes of their
+	 * UTF-8 encoding, so the characters are counted accordingly.
+	 */
+	String readString() {
+		int length = Integer.parseInt(readUntil(':'));
+		expect('"');
+		int start = this.position;
+		int bytes = 0;
+		while (bytes < length) {
+			char c = next();
+			if (c < 0x80) {
+				bytes += 1;
+			} else if (c < 0x800) {
+				bytes += 2;
+			} else if (Character.isSurrogate(c)) {
+				bytes += 2; // four bytes for each pair
+			} else {
+				bytes += 3;
+			}
+		}
+		String result = this.input.substring(start, this.position);
+		expect('"');
+		expect(';');
+		return result;
+	}
+
+	Map<String, Object> readArray() {
+		int count = Integer.parseInt(readUntil(':'));
+		expect('{');
+		Map<String, Object> result = new HashMap<>(count * 4 / 3 + 1);
+		for (int i = 0; i < count; i++) {
+			Object key = readValue();
+			result.put(String.valueOf(key), readValue());
+		}
+		expect('}');
+		return result;
+	}
+
+	String readUntil(char end) {
+		int start = this.position;
+		while (next() != end) {
+			// keep reading
+		}
+		return this.input.substring(start, this.position - 1);
+	}
+
+	void expect(char expected) {
+		char c = next();
+		if (c != expected) {
+			throw new IllegalArgumentException("Expected '" + expected
+					+ "' but found '" + c + "' at position "
+					+ (this.position - 1) + ".");
+		}
+	}
+
+	char next() {
+		if (this.position >= this.input.length()) {
+			throw new IllegalArgumentException(
+					"Unexpected end of serialized data.");
+		}
+		return this.input.charAt(this.position++);
+	}
+
+}
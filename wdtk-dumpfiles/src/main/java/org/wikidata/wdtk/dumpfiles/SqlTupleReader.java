@@ -0,0 +1,254 @@
+package org.wikidata.wdtk.dumpfiles;
+
+/*
+ * #%L
+ * Wikidata Toolkit Dump File Handling
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for the rows of a table in a MySQL dump. The rows are read
+ * from the INSERT statements for the table character by character, so that
+ * the (possibly very long) lines of the statements are never kept in memory
+ * as a whole. All other lines of the dump are skipped.
+ * <p>
+ * Quoted values are unescaped as done by MySQL; unquoted values (numbers) are
+ * returned as they are, and NULL values are returned as null.
+ */
+class SqlTupleReader {
+
+	final Reader reader;
+
+	/**
+	 * The beginning of the lines with INSERT statements for the table.
+	 */
+	final String statementPrefix;
+
+	/**
+	 * Character that has been read but not consumed yet, or -2 if there is
+	 * no such character.
+	 */
+	int nextChar = -2;
+
+	/**
+	 * True if the reader is within an INSERT statement.
+	 */
+	boolean inStatement = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param reader
+	 *            the reader to read the dump from; should be buffered
+	 * @param tableName
+	 *            the name of the table whose rows should be read
+	 */
+	SqlTupleReader(Reader reader, String tableName) {
+		this.reader = reader;
+		this.statementPrefix = "INSERT INTO `" + tableName + "` VALUES ";
+	}
+
+	/**
+	 * Returns the fields of the next row of the table, or null if there are
+	 * no more rows.
+	 *
+	 * @return list of field values, or null
+	 * @throws IOException
+	 *             if there was a problem reading the dump, or if the dump is
+	 *             not well-formed
+	 */
+	List<String> readTuple() throws IOException {
+		while (true) {
+			if (!this.inStatement && !findStatement()) {
+				return null;
+			}
+
+			int c = readNonWhitespace();
+			switch (c) {
+			case '(':
+				return readTupleFields();
+			case ',':
+				break;
+			case ';':
+				this.inStatement = false;
+				break;
+			case -1:
+				return null;
+			default:
+				throw new IOException("Unexpected character '" + (char) c
+						+ "' in INSERT statement.");
+			}
+		}
+	}
+
+	/**
+	 * Skips lines until the beginning of the next INSERT statement for the
+	 * table has been read.
+	 *
+	 * @return true if a statement was found, false if the end of the dump
+	 *         was reached
+	 * @throws IOException
+	 *             if there was a problem reading the dump
+	 */
+	boolean findStatement() throws IOException {
+		while (true) {
+			int i = 0;
+			int c = read();
+			while (i < this.statementPrefix.length()
+					&& c == this.statementPrefix.charAt(i)) {
+				i++;
+				if (i < this.statementPrefix.length()) {
+					c = read();
+				}
+			}
+			if (i == this.statementPrefix.length()) {
+				this.inStatement = true;
+				return true;
+			}
+			while (c != '\n' && c != -1) {
+				c = read();
+			}
+			if (c == -1) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Reads the fields of a row. The opening parenthesis must have been read
+	 * already.
+	 *
+	 * @return list of field values
+	 * @throws IOException
+	 *             if there was a problem reading the dump, or if the dump is
+	 *             not well-formed
+	 */
+	List<String> readTupleFields() throws IOException {
+		List<String> fields = new ArrayList<>();
+		StringBuilder builder = new StringBuilder();
+		while (true) {
+			int c = readNonWhitespace();
+			if (c == '\'') {
+				readQuotedValue(builder);
+				fields.add(builder.toString());
+				c = readNonWhitespace();
+			} else {
+				while (c != ',' && c != ')' && c != -1) {
+					builder.append((char) c);
+					c = read();
+				}
+				String value = builder.toString().trim();
+				fields.add("NULL".equals(value) ? null : value);
+			}
+			builder.setLength(0);
+
+			if (c == ')') {
+				return fields;
+			} else if (c != ',') {
+				throw new IOException("Unexpected end of row in INSERT statement.");
+			}
+		}
+	}
+
+	/**
+	 * Reads a quoted value and appends its unescaped characters to the given
+	 * builder. The opening quote must have been read already.
+	 *
+	 * @param builder
+	 *            the builder to append the value to
+	 * @throws IOException
+	 *             if there was a problem reading the dump, or if the value
+	 *             is not terminated
+	 */
+	void readQuotedValue(StringBuilder builder) throws IOException {
+		while (true) {
+			int c = read();
+			switch (c) {
+			case -1:
+				throw new IOException("Unterminated string in INSERT statement.");
+			case '\\':
+				builder.append(unescape(read()));
+				break;
+			case '\'':
+				c = read();
+				if (c == '\'') { // quote escaped by doubling it
+					builder.append('\'');
+				} else {
+					this.nextChar = c;
+					return;
+				}
+				break;
+			default:
+				builder.append((char) c);
+			}
+		}
+	}
+
+	/**
+	 * Returns the character that is represented by the given character after
+	 * a backslash in MySQL strings.
+	 *
+	 * @param c
+	 *            the escaped character
+	 * @return the unescaped character
+	 * @throws IOException
+	 *             if the end of the dump was reached
+	 */
+	static char unescape(int c) throws IOException {
+		switch (c) {
+		case -1:
+			throw new IOException("Unterminated string in INSERT statement.");
+		case '0':
+			return '\0';
+		case 'b':
+			return '\b';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'Z':
+			return '\u001a';
+		default:
+			return (char) c;
+		}
+	}
+
+	int readNonWhitespace() throws IOException {
+		int c = read();
+		while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+			c = read();
+		}
+		return c;
+	}
+
+	int read() throws IOException {
+		if (this.nextChar != -2) {
+			int c = this.nextChar;
+			this.nextChar = -2;
+			return c;
+		}
+		return this.reader.read();
+	}
+
+}
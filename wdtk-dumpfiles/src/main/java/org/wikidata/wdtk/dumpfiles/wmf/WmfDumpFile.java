@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.wikidata.wdtk.dumpfiles.DumpContentType;
@@ -88,6 +89,19 @@ public abstract class WmfDumpFile implements MwDumpFile {
 				CompressionType.GZIP);
 	}
 
+	/**
+	 * Hash map defining the file name extension of each type of compressed
+	 * file that is recognized. Local dump files may use any of these
+	 * compressions, e.g., if they have been recompressed to be read faster.
+	 */
+	static final Map<String, CompressionType> COMPRESSION_EXTENSIONS = new LinkedHashMap<String, CompressionType>();
+	static {
+		WmfDumpFile.COMPRESSION_EXTENSIONS.put(".gz", CompressionType.GZIP);
+		WmfDumpFile.COMPRESSION_EXTENSIONS.put(".bz2", CompressionType.BZ2);
+		WmfDumpFile.COMPRESSION_EXTENSIONS.put(".zst", CompressionType.ZSTD);
+		WmfDumpFile.COMPRESSION_EXTENSIONS.put(".lz4", CompressionType.LZ4);
+	}
+
 	/**
 	 * Hash map defining whether a certain type of dump is a dump of page
 	 * revisions or not. Dumps with page revisions have a maximal revision id,
@@ -225,6 +239,43 @@ public abstract class WmfDumpFile implements MwDumpFile {
 		}
 	}
 
+	/**
+	 * Returns the compression type of a file, as indicated by the extension of
+	 * the given file name. Files without a known extension for compressed
+	 * files are considered to be uncompressed.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @return compression type
+	 */
+	public static CompressionType getCompressionTypeForFileName(String fileName) {
+		for (Map.Entry<String, CompressionType> entry : WmfDumpFile.COMPRESSION_EXTENSIONS
+				.entrySet()) {
+			if (fileName.endsWith(entry.getKey())) {
+				return entry.getValue();
+			}
+		}
+		return CompressionType.NONE;
+	}
+
+	/**
+	 * Returns the given file name without the extension that indicates its
+	 * compression, if any.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @return file name without compression extension
+	 */
+	public static String getUncompressedFileName(String fileName) {
+		for (String extension : WmfDumpFile.COMPRESSION_EXTENSIONS.keySet()) {
+			if (fileName.endsWith(extension)) {
+				return fileName.substring(0,
+						fileName.length() - extension.length());
+			}
+		}
+		return fileName;
+	}
+
 	/**
 	 * Returns the name of the directory where the dumpfile of the given type
 	 * and date should be stored.
@@ -95,12 +95,41 @@ public class WmfLocalDumpFile extends WmfDumpFile {
 
 	@Override
 	public InputStream getDumpFileStream() throws IOException {
-		String dumpFileName = WmfDumpFile.getDumpFileName(this.dumpContentType,
-				this.projectName, this.dateStamp);
+		String dumpFileName = getLocalDumpFileName();
 
 		return this.localDumpfileDirectoryManager.getInputStreamForFile(
 				dumpFileName,
-				WmfDumpFile.getDumpFileCompressionType(this.dumpContentType));
+				WmfDumpFile.getCompressionTypeForFileName(dumpFileName));
+	}
+
+	/**
+	 * Returns the name of the local file that contains the dump. This is
+	 * usually the name used by the Wikimedia Foundation. If no such file
+	 * exists, then files that have the same name but use another compression
+	 * (or no compression) are used instead. The compression of the file is
+	 * then determined by its file extension.
+	 *
+	 * @return the local file name
+	 */
+	String getLocalDumpFileName() {
+		String dumpFileName = WmfDumpFile.getDumpFileName(this.dumpContentType,
+				this.projectName, this.dateStamp);
+		if (this.localDumpfileDirectoryManager.hasFile(dumpFileName)) {
+			return dumpFileName;
+		}
+
+		String baseFileName = WmfDumpFile.getUncompressedFileName(dumpFileName);
+		for (String extension : WmfDumpFile.COMPRESSION_EXTENSIONS.keySet()) {
+			if (this.localDumpfileDirectoryManager.hasFile(baseFileName
+					+ extension)) {
+				return baseFileName + extension;
+			}
+		}
+		if (this.localDumpfileDirectoryManager.hasFile(baseFileName)) {
+			return baseFileName;
+		}
+
+		return dumpFileName;
 	}
 
 	@Override
@@ -110,9 +139,8 @@ public class WmfLocalDumpFile extends WmfDumpFile {
 
 	@Override
 	protected boolean fetchIsDone() {
-		return this.localDumpfileDirectoryManager.hasFile(WmfDumpFile
-				.getDumpFileName(this.dumpContentType, this.projectName,
-						this.dateStamp));
+		return this.localDumpfileDirectoryManager
+				.hasFile(getLocalDumpFileName());
 	}
 
 }
@@ -27,14 +27,26 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Canonicalizer;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentBatchProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ParallelEntityDocumentProcessorBroker;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.EntityDocumentDecoder;
 import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFile;
 import org.wikidata.wdtk.testing.MockDirectoryManager;
 import org.wikidata.wdtk.testing.MockStringContentFactory;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
 import org.wikidata.wdtk.util.Timer;
 
 public class JsonDumpFileProcessingTest {
@@ -160,6 +172,280 @@ public class JsonDumpFileProcessingTest {
 		assertEquals(101, timer.entityCount);
 	}
 
+	@Test
+	public void testDocumentDecoderEquivalence() throws IOException {
+		String[] fileNames = { "mock-dump-for-testing.json",
+				"mock-dump-for-long-testing.json", "mock-dump-with-bugs.json" };
+		for (String fileName : fileNames) {
+			List<EntityDocument> boundDocuments = processJsonDump(fileName,
+					false, null);
+			List<EntityDocument> decodedDocuments = processJsonDump(fileName,
+					true, null);
+
+			assertTrue(boundDocuments.size() > 0);
+			assertEquals(fileName, boundDocuments, decodedDocuments);
+		}
+	}
+
+	@Test
+	public void testCanonicalizerEquivalence() throws IOException {
+		String fileName = "mock-dump-for-long-testing.json";
+		List<EntityDocument> documents = processJsonDump(fileName, false,
+				null);
+		assertEquals(documents,
+				processJsonDump(fileName, false, new Canonicalizer()));
+		assertEquals(documents,
+				processJsonDump(fileName, true, new Canonicalizer()));
+	}
+
+	@Test
+	public void testLazyDocumentEquivalence() throws IOException {
+		String[] fileNames = { "mock-dump-for-testing.json",
+				"mock-dump-for-long-testing.json" };
+		for (String fileName : fileNames) {
+			List<EntityDocument> boundDocuments = processJsonDump(fileName,
+					false, null);
+			List<EntityDocument> lazyDocuments = processJsonDump(fileName,
+					false, true, null);
+
+			assertEquals(fileName, boundDocuments, lazyDocuments);
+		}
+	}
+
+	@Test
+	public void testBuggyLazyDocumentProcessing() throws IOException {
+		String fileName = "mock-dump-with-bugs.json";
+		List<EntityDocument> boundDocuments = processJsonDump(fileName, false,
+				null);
+		List<EntityDocument> lazyDocuments = processJsonDump(fileName, false,
+				true, null);
+
+		// Lazy documents are read line by line, so that only the lines with
+		// errors are lost; data binding loses some more entities when it
+		// switches to recovery mode. Entity ids are compared since recovery
+		// mode does not decode non-ASCII text correctly on all platforms.
+		Set<EntityIdValue> lazyIds = new HashSet<>();
+		for (EntityDocument document : lazyDocuments) {
+			lazyIds.add(document.getEntityId());
+		}
+		assertTrue(lazyDocuments.size() > boundDocuments.size());
+		for (EntityDocument document : boundDocuments) {
+			assertTrue(lazyIds.contains(document.getEntityId()));
+		}
+	}
+
+	@Test
+	public void testParallelProcessing() throws IOException {
+		String fileName = "mock-dump-for-long-testing.json";
+		Path dmPath = Paths.get(System.getProperty("user.dir"));
+		MockDirectoryManager dm = new MockDirectoryManager(dmPath);
+		setLocalJsonDumpFile(fileName, "20150223", dm);
+
+		DumpProcessingController dpc = new DumpProcessingController(
+				"wikidatawiki");
+		dpc.downloadDirectoryManager = dm;
+		dpc.setOfflineMode(true);
+
+		final List<EntityDocument> documents = new ArrayList<>();
+		EntityTimerProcessor timer = new EntityTimerProcessor(0);
+		ParallelEntityDocumentProcessorBroker broker = new ParallelEntityDocumentProcessorBroker(
+				16);
+		broker.registerEntityDocumentProcessor(timer);
+		broker.registerEntityDocumentProcessor(new SlowDocumentProcessor());
+		broker.registerEntityDocumentProcessor(new EntityDocumentProcessor() {
+			@Override
+			public void processItemDocument(ItemDocument itemDocument) {
+				documents.add(itemDocument);
+			}
+
+			@Override
+			public void processPropertyDocument(
+					PropertyDocument propertyDocument) {
+				documents.add(propertyDocument);
+			}
+		});
+		dpc.registerEntityDocumentProcessor(broker, null, true);
+
+		broker.open();
+		dpc.processMostRecentJsonDump();
+		broker.close();
+
+		assertEquals(101, timer.entityCount);
+		assertEquals(processJsonDump(fileName, false, null), documents);
+	}
+
+	@Test
+	public void testBatchProcessing() throws IOException {
+		String fileName = "mock-dump-for-long-testing.json";
+		Path dmPath = Paths.get(System.getProperty("user.dir"));
+		MockDirectoryManager dm = new MockDirectoryManager(dmPath);
+		setLocalJsonDumpFile(fileName, "20150223", dm);
+
+		DumpProcessingController dpc = new DumpProcessingController(
+				"wikidatawiki");
+		dpc.downloadDirectoryManager = dm;
+		dpc.setOfflineMode(true);
+
+		final List<List<EntityDocument>> batches = new ArrayList<>();
+		dpc.registerEntityDocumentBatchProcessor(
+				new EntityDocumentBatchProcessor() {
+					@Override
+					public void processEntityDocuments(
+							List<EntityDocument> entityDocuments) {
+						batches.add(entityDocuments);
+					}
+				}, null, true, 30, 0);
+
+		dpc.processMostRecentJsonDump();
+
+		List<EntityDocument> documents = new ArrayList<>();
+		for (List<EntityDocument> batch : batches) {
+			assertTrue(batch.size() <= 30);
+			documents.addAll(batch);
+		}
+		assertEquals(4, batches.size());
+		assertEquals(processJsonDump(fileName, false, null), documents);
+	}
+
+	@Test
+	public void testSyntheticJsonProcessing() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(42,
+				2000);
+		generator.setQualifiersPerStatement(1.0);
+
+		List<EntityDocument> boundDocuments = processSyntheticJsonDump(
+				generator, false);
+		List<EntityDocument> decodedDocuments = processSyntheticJsonDump(
+				generator, true);
+
+		int propertyCount = 0;
+		for (EntityDocument document : boundDocuments) {
+			if (document instanceof PropertyDocument) {
+				propertyCount++;
+			}
+		}
+		assertEquals(2000, boundDocuments.size());
+		assertEquals(100, propertyCount);
+		assertEquals(boundDocuments, decodedDocuments);
+	}
+
+	/**
+	 * Processes a JSON dump of the given generator and returns all documents
+	 * that were found in it.
+	 *
+	 * @param generator
+	 *            the generator of the dump
+	 * @param useDocumentDecoder
+	 *            true if the {@link EntityDocumentDecoder} should be used
+	 * @return list of documents
+	 * @throws IOException
+	 */
+	private List<EntityDocument> processSyntheticJsonDump(
+			SyntheticDumpGenerator generator, boolean useDocumentDecoder)
+			throws IOException {
+		Path dmPath = Paths.get(System.getProperty("user.dir"));
+		MockDirectoryManager dm = new MockDirectoryManager(dmPath);
+		DumpContentType dumpContentType = DumpContentType.JSON;
+		dm.setFileContents(
+				dmPath.resolve("dumpfiles").resolve("wikidatawiki")
+						.resolve("json-20150223")
+						.resolve("20150223"
+								+ WmfDumpFile.getDumpFilePostfix(dumpContentType)),
+				generator, DumpFormat.JSON,
+				WmfDumpFile.getDumpFileCompressionType(dumpContentType));
+
+		DumpProcessingController dpc = new DumpProcessingController(
+				"wikidatawiki");
+		dpc.downloadDirectoryManager = dm;
+		dpc.setOfflineMode(true);
+		dpc.setUseDocumentDecoder(useDocumentDecoder);
+
+		final List<EntityDocument> documents = new ArrayList<>();
+		dpc.registerEntityDocumentProcessor(new EntityDocumentProcessor() {
+			@Override
+			public void processItemDocument(ItemDocument itemDocument) {
+				documents.add(itemDocument);
+			}
+
+			@Override
+			public void processPropertyDocument(
+					PropertyDocument propertyDocument) {
+				documents.add(propertyDocument);
+			}
+		}, null, true);
+
+		dpc.processMostRecentJsonDump();
+		return documents;
+	}
+
+	/**
+	 * Processes the given JSON dump file and returns all documents that were
+	 * found in it.
+	 *
+	 * @param fileName
+	 *            the name of the dump file resource
+	 * @param useDocumentDecoder
+	 *            true if the {@link EntityDocumentDecoder} should be used
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null
+	 * @return list of documents
+	 * @throws IOException
+	 */
+	private List<EntityDocument> processJsonDump(String fileName,
+			boolean useDocumentDecoder, Canonicalizer canonicalizer)
+			throws IOException {
+		return processJsonDump(fileName, useDocumentDecoder, false,
+				canonicalizer);
+	}
+
+	/**
+	 * Processes the given JSON dump file and returns all documents that were
+	 * found in it.
+	 *
+	 * @param fileName
+	 *            the name of the dump file resource
+	 * @param useDocumentDecoder
+	 *            true if the {@link EntityDocumentDecoder} should be used
+	 * @param useLazyDocuments
+	 *            true if documents should be decoded lazily
+	 * @param canonicalizer
+	 *            the canonicalizer to use, or null
+	 * @return list of documents
+	 * @throws IOException
+	 */
+	private List<EntityDocument> processJsonDump(String fileName,
+			boolean useDocumentDecoder, boolean useLazyDocuments,
+			Canonicalizer canonicalizer) throws IOException {
+		Path dmPath = Paths.get(System.getProperty("user.dir"));
+		MockDirectoryManager dm = new MockDirectoryManager(dmPath);
+		setLocalJsonDumpFile(fileName, "20150223", dm);
+
+		DumpProcessingController dpc = new DumpProcessingController(
+				"wikidatawiki");
+		dpc.downloadDirectoryManager = dm;
+		dpc.setOfflineMode(true);
+		dpc.setUseDocumentDecoder(useDocumentDecoder);
+		dpc.setUseLazyDocuments(useLazyDocuments);
+		dpc.setCanonicalizer(canonicalizer);
+
+		final List<EntityDocument> documents = new ArrayList<>();
+		dpc.registerEntityDocumentProcessor(new EntityDocumentProcessor() {
+			@Override
+			public void processItemDocument(ItemDocument itemDocument) {
+				documents.add(itemDocument);
+			}
+
+			@Override
+			public void processPropertyDocument(
+					PropertyDocument propertyDocument) {
+				documents.add(propertyDocument);
+			}
+		}, null, true);
+
+		dpc.processMostRecentJsonDump();
+		return documents;
+	}
+
 	private void setLocalJsonDumpFile(String fileName, String dateStamp,
 			MockDirectoryManager dm) throws IOException {
 
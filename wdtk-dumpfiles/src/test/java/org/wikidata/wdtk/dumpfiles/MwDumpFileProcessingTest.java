@@ -21,6 +21,7 @@ package org.wikidata.wdtk.dumpfiles;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.net.URL;
@@ -39,6 +40,8 @@ import org.wikidata.wdtk.dumpfiles.wmf.WmfDumpFile;
 import org.wikidata.wdtk.dumpfiles.wmf.WmfLocalDumpFile;
 import org.wikidata.wdtk.testing.MockDirectoryManager;
 import org.wikidata.wdtk.testing.MockStringContentFactory;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
 
 public class MwDumpFileProcessingTest {
 
@@ -481,4 +484,37 @@ public class MwDumpFileProcessingTest {
 		assertEquals(9, mwrpStats.getCurrentRevisionCount());
 	}
 
+	@Test
+	public void testSyntheticFullDumpProcessing() throws IOException {
+		Path dmPath = Paths.get(System.getProperty("user.dir"));
+		MockDirectoryManager dm = new MockDirectoryManager(dmPath);
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(42, 500);
+		generator.setPropertyCount(40);
+		generator.setRevisionsPerPage(2.5);
+		dm.setFileContents(
+				dmPath.resolve("dumpfiles").resolve("wikidatawiki")
+						.resolve("full-20140418")
+						.resolve("wikidatawiki-20140418"
+								+ WmfDumpFile.getDumpFilePostfix(DumpContentType.FULL)),
+				generator, DumpFormat.XML, WmfDumpFile
+						.getDumpFileCompressionType(DumpContentType.FULL));
+
+		DumpProcessingController dpc = new DumpProcessingController(
+				"wikidatawiki");
+		dpc.downloadDirectoryManager = dm;
+		dpc.setOfflineMode(true);
+
+		StatisticsMwRevisionProcessor mwrpStats = new StatisticsMwRevisionProcessor(
+				"stats", 2);
+		dpc.registerMwRevisionProcessor(mwrpStats, null, false);
+		TestEntityDocumentProcessor edpCounter = new TestEntityDocumentProcessor();
+		dpc.registerEntityDocumentProcessor(edpCounter, null, true);
+
+		dpc.processMostRecentMainDump();
+
+		assertEquals(40, edpCounter.propCount);
+		assertEquals(460, edpCounter.itemCount);
+		assertTrue(mwrpStats.getTotalRevisionCount() > 500);
+	}
+
 }
@@ -0,0 +1,51 @@
+package org.wikidata.wdtk.dumpfiles;
+
+/*
+ * #%L
+ * Wikidata Toolkit Dump File Handling
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PhpSerializedDataParserTest {
+
+	@Test
+	public void parseData() {
+		Map<?, ?> data = (Map<?, ?>) PhpSerializedDataParser
+				.parse("a:4:{s:5:\"paths\";a:1:{s:9:\"page_path\";s:7:\"//ä/$1\";}"
+						+ "i:0;i:42;s:1:\"b\";b:1;s:3:\"a;}\";N;}");
+
+		assertEquals("//ä/$1", ((Map<?, ?>) data.get("paths")).get("page_path"));
+		assertEquals(42L, data.get("0"));
+		assertEquals(true, data.get("b"));
+		assertTrue(data.containsKey("a;}"));
+		assertNull(data.get("a;}"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void parseInvalidData() {
+		PhpSerializedDataParser.parse("a:1:{s:5:\"paths\";");
+	}
+
+}
@@ -21,11 +21,16 @@ package org.wikidata.wdtk.dumpfiles;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.junit.Before;
@@ -86,4 +91,59 @@ public class SitesTest {
 
 	}
 
+	@Test
+	public void getCachedSiteInformation() throws IOException {
+		Path dumpFilePath = this.dmPath.resolve("dumpfiles").resolve(
+				"wikidatawiki");
+		Path dumpFile = dumpFilePath.resolve(
+				DumpContentType.SITES.toString().toLowerCase() + "-"
+						+ "20140420").resolve(
+				"wikidatawiki-" + "20140420"
+						+ WmfDumpFile.getDumpFilePostfix(DumpContentType.SITES));
+
+		URL resourceUrl = this.getClass().getResource(
+				"/wikidatawiki-20140420-sites.sql");
+		dm.setFileContents(dumpFile,
+				MockStringContentFactory.getStringFromUrl(resourceUrl),
+				WmfDumpFile.getDumpFileCompressionType(DumpContentType.SITES));
+
+		this.dpc.setOfflineMode(true);
+		this.dpc.getSitesInformation();
+		assertTrue(this.dm.getSubdirectoryManager("dumpfiles")
+				.getSubdirectoryManager("wikidatawiki")
+				.hasFile("cached-sites-20140420.bin"));
+
+		// The dump is no longer needed when the cache is there:
+		dm.setFileContents(dumpFile, "",
+				WmfDumpFile.getDumpFileCompressionType(DumpContentType.SITES));
+		Sites sites = this.dpc.getSitesInformation();
+
+		assertEquals(sites.getLanguageCode("enwikivoyage"), "en");
+		assertEquals(sites.getFileUrl("enwiki", "api.php"),
+				"http://en.wikipedia.org/w/api.php");
+	}
+
+	@Test
+	public void ignoreRowsWithNullValues() throws IOException {
+		MwSitesDumpFileProcessor processor = new MwSitesDumpFileProcessor();
+		processor.processSiteRow(Arrays.asList("1", "enwiki", "mediawiki",
+				"wikipedia", "local", null, "", "", "N;"));
+		processor.processSiteRow(Arrays.asList("2", "dewiki", "mediawiki",
+				"wikipedia", "local", "de", null, null,
+				"a:1:{s:5:\"paths\";a:2:{s:9:\"file_path\";s:6:\"//x/$1\";"
+						+ "s:9:\"page_path\";s:6:\"//y/$1\";}}"));
+
+		// Writing the cache used to fail for NULL values
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		processor.writeSitesCache(out);
+		MwSitesDumpFileProcessor cachedProcessor = new MwSitesDumpFileProcessor();
+		cachedProcessor.readSitesCache(new ByteArrayInputStream(out
+				.toByteArray()));
+
+		assertNull(cachedProcessor.getSites().getGroup("enwiki"));
+		assertEquals("de", cachedProcessor.getSites().getLanguageCode("dewiki"));
+		assertEquals("http://y/Main", cachedProcessor.getSites().getPageUrl(
+				"dewiki", "Main"));
+	}
+
 }
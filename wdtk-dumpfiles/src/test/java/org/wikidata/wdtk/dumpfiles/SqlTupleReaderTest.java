@@ -0,0 +1,59 @@
+package org.wikidata.wdtk.dumpfiles;
+
+/*
+ * #%L
+ * Wikidata Toolkit Dump File Handling
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SqlTupleReaderTest {
+
+	@Test
+	public void readTuples() throws IOException {
+		String dump = "-- comment\n"
+				+ "INSERT INTO `other` VALUES (1,'x');\n"
+				+ "INSERT INTO `sites` VALUES (1,'a\\'b','c\\\\d',NULL),"
+				+ "(2,'it''s','(,)',-1.5);\n"
+				+ "INSERT INTO `sites` VALUES (3,'line\\nbreak','',0);\n";
+		SqlTupleReader reader = new SqlTupleReader(new StringReader(dump),
+				"sites");
+
+		assertEquals(Arrays.asList("1", "a'b", "c\\d", null),
+				reader.readTuple());
+		assertEquals(Arrays.asList("2", "it's", "(,)", "-1.5"),
+				reader.readTuple());
+		assertEquals(Arrays.asList("3", "line\nbreak", "", "0"),
+				reader.readTuple());
+		assertNull(reader.readTuple());
+	}
+
+	@Test(expected = IOException.class)
+	public void readUnterminatedTuple() throws IOException {
+		new SqlTupleReader(new StringReader(
+				"INSERT INTO `sites` VALUES (1,'abc"), "sites").readTuple();
+	}
+
+}
@@ -0,0 +1,131 @@
+package org.wikidata.wdtk.dumpfiles;
+
+/*
+ * #%L
+ * Wikidata Toolkit Dump File Handling
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+
+public class WikibaseRevisionProcessorTest {
+
+	/**
+	 * Helper class that stores all documents passed to it.
+	 */
+	static class DocumentCollector implements EntityDocumentProcessor {
+
+		final List<EntityDocument> documents = new ArrayList<>();
+
+		@Override
+		public void processItemDocument(ItemDocument itemDocument) {
+			this.documents.add(itemDocument);
+		}
+
+		@Override
+		public void processPropertyDocument(PropertyDocument propertyDocument) {
+			this.documents.add(propertyDocument);
+		}
+
+	}
+
+	/**
+	 * Returns item and property revisions for all entities in the JSON test
+	 * dump. The JSON dump has one entity per line.
+	 *
+	 * @return list of revisions
+	 * @throws IOException
+	 */
+	List<MwRevision> getRevisions() throws IOException {
+		List<MwRevision> revisions = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				WikibaseRevisionProcessorTest.class
+						.getResourceAsStream("/mock-dump-for-long-testing.json"),
+				StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.startsWith("{")) {
+					continue;
+				}
+				if (line.endsWith(",")) {
+					line = line.substring(0, line.length() - 1);
+				}
+				MwRevisionImpl revision = new MwRevisionImpl();
+				revision.text = line;
+				if (line.contains("\"type\":\"property\"")) {
+					revision.model = MwRevision.MODEL_WIKIBASE_PROPERTY;
+				} else {
+					revision.model = MwRevision.MODEL_WIKIBASE_ITEM;
+				}
+				revisions.add(revision);
+			}
+		}
+		return revisions;
+	}
+
+	List<EntityDocument> processRevisions(List<MwRevision> revisions,
+			boolean useDocumentDecoder) {
+		DocumentCollector collector = new DocumentCollector();
+		WikibaseRevisionProcessor processor = new WikibaseRevisionProcessor(
+				collector, Datamodel.SITE_WIKIDATA);
+		processor.setUseDocumentDecoder(useDocumentDecoder);
+		for (MwRevision revision : revisions) {
+			processor.processRevision(revision);
+		}
+		return collector.documents;
+	}
+
+	@Test
+	public void testDocumentDecoderEquivalence() throws IOException {
+		List<MwRevision> revisions = getRevisions();
+
+		List<EntityDocument> boundDocuments = processRevisions(revisions,
+				false);
+		List<EntityDocument> decodedDocuments = processRevisions(revisions,
+				true);
+
+		assertEquals(revisions.size(), boundDocuments.size());
+		assertEquals(boundDocuments, decodedDocuments);
+	}
+
+	@Test
+	public void testDocumentDecoderWrongType() {
+		MwRevisionImpl revision = new MwRevisionImpl();
+		revision.text = "{\"id\":\"P1\",\"type\":\"property\",\"datatype\":\"string\"}";
+		revision.model = MwRevision.MODEL_WIKIBASE_ITEM;
+		List<MwRevision> revisions = new ArrayList<>();
+		revisions.add(revision);
+
+		assertTrue(processRevisions(revisions, true).isEmpty());
+	}
+
+}
@@ -21,7 +21,9 @@ package org.wikidata.wdtk.dumpfiles.wmf;
  */
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -31,6 +33,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 import org.wikidata.wdtk.dumpfiles.DumpContentType;
 import org.wikidata.wdtk.testing.MockDirectoryManager;
+import org.wikidata.wdtk.util.CompressionType;
 
 public class WmfLocalDumpFileTest {
 
@@ -70,4 +73,35 @@ public class WmfLocalDumpFileTest {
 		assertEquals(dumpFile.isAvailable(), false);
 	}
 
+	@Test
+	public void recompressedDumpFile() throws IOException {
+		Path thisDumpPath = this.dmPath.resolve("json-20141110");
+		dm.setFileContents(thisDumpPath.resolve("20141110.json.zst"),
+				"Recompressed contents", CompressionType.ZSTD);
+		WmfLocalDumpFile dumpFile = new WmfLocalDumpFile("20141110",
+				"wikidatawiki", dm, DumpContentType.JSON);
+		assertEquals(dumpFile.isAvailable(), true);
+		assertEquals("20141110.json.zst", dumpFile.getLocalDumpFileName());
+
+		BufferedReader br = dumpFile.getDumpFileReader();
+		assertEquals(br.readLine(), "Recompressed contents");
+		assertNull(br.readLine());
+	}
+
+	@Test
+	public void compressionTypeForFileName() {
+		assertEquals(CompressionType.GZIP,
+				WmfDumpFile.getCompressionTypeForFileName("dump.json.gz"));
+		assertEquals(CompressionType.BZ2,
+				WmfDumpFile.getCompressionTypeForFileName("dump.xml.bz2"));
+		assertEquals(CompressionType.ZSTD,
+				WmfDumpFile.getCompressionTypeForFileName("dump.json.zst"));
+		assertEquals(CompressionType.LZ4,
+				WmfDumpFile.getCompressionTypeForFileName("dump.json.lz4"));
+		assertEquals(CompressionType.NONE,
+				WmfDumpFile.getCompressionTypeForFileName("dump.json"));
+		assertEquals("dump.json",
+				WmfDumpFile.getUncompressedFileName("dump.json.lz4"));
+	}
+
 }
@@ -30,16 +30,17 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.helpers.EntityIds;
 import org.wikidata.wdtk.datamodel.implementation.DataObjectFactoryImpl;
 import org.wikidata.wdtk.datamodel.interfaces.DataObjectFactory;
 import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
@@ -51,6 +52,9 @@ import org.wikidata.wdtk.datamodel.interfaces.StringValue;
 import org.wikidata.wdtk.datamodel.interfaces.TermedDocument;
 import org.wikidata.wdtk.datamodel.interfaces.Value;
 import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+import org.wikidata.wdtk.storage.datastructures.IntCountMatrix;
+import org.wikidata.wdtk.storage.datastructures.IntIntHashMap;
+import org.wikidata.wdtk.storage.datastructures.IntObjectHashMap;
 
 /**
  * This advanced example analyses the use of properties and classes in a dump
@@ -132,9 +136,10 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 		/**
 		 * Map that records how many times certain properties are used on items
 		 * that use this entity (where "use" has the meaning explained for
-		 * {@link UsageRecord#itemCount}).
+		 * {@link UsageRecord#itemCount}). Properties are given by their numeric
+		 * id. This is a row of one of the co-occurrence matrices of the analyzer.
 		 */
-		public HashMap<PropertyIdValue, Integer> propertyCoCounts = new HashMap<PropertyIdValue, Integer>();
+		public IntIntHashMap propertyCoCounts;
 	}
 
 	/**
@@ -144,6 +149,10 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 *
 	 */
 	private class PropertyRecord extends UsageRecord {
+		/**
+		 * The property that this record belongs to.
+		 */
+		public PropertyIdValue propertyIdValue;
 		/**
 		 * Number of statements with this property.
 		 */
@@ -174,6 +183,10 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 *
 	 */
 	private class ClassRecord extends UsageRecord {
+		/**
+		 * The class item that this record belongs to.
+		 */
+		public EntityIdValue entityIdValue;
 		/**
 		 * Number of subclasses of this class item.
 		 */
@@ -196,13 +209,11 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 *
 	 */
 	private class ClassUsageRecordComparator implements
-			Comparator<Entry<? extends EntityIdValue, ? extends ClassRecord>> {
+			Comparator<ClassRecord> {
 		@Override
-		public int compare(
-				Entry<? extends EntityIdValue, ? extends ClassRecord> o1,
-				Entry<? extends EntityIdValue, ? extends ClassRecord> o2) {
-			return o2.getValue().subclassCount + o2.getValue().itemCount
-					- (o1.getValue().subclassCount + o1.getValue().itemCount);
+		public int compare(ClassRecord o1, ClassRecord o2) {
+			return o2.subclassCount + o2.itemCount
+					- (o1.subclassCount + o1.itemCount);
 		}
 	};
 
@@ -213,17 +224,11 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 * @author Markus Kroetzsch
 	 *
 	 */
-	private class UsageRecordComparator
-			implements
-			Comparator<Entry<? extends EntityIdValue, ? extends PropertyRecord>> {
+	private class UsageRecordComparator implements Comparator<PropertyRecord> {
 		@Override
-		public int compare(
-				Entry<? extends EntityIdValue, ? extends PropertyRecord> o1,
-				Entry<? extends EntityIdValue, ? extends PropertyRecord> o2) {
-			return (o2.getValue().itemCount + o2.getValue().qualifierCount + o2
-					.getValue().referenceCount)
-					- (o1.getValue().itemCount + o1.getValue().qualifierCount + o1
-							.getValue().referenceCount);
+		public int compare(PropertyRecord o1, PropertyRecord o2) {
+			return (o2.itemCount + o2.qualifierCount + o2.referenceCount)
+					- (o1.itemCount + o1.qualifierCount + o1.referenceCount);
 		}
 	};
 
@@ -245,13 +250,25 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	long countClasses = 0;
 
 	/**
-	 * Collection of all property records.
+	 * Collection of all property records, indexed by the numeric id of the
+	 * property.
+	 */
+	final IntObjectHashMap<PropertyRecord> propertyRecords = new IntObjectHashMap<>();
+	/**
+	 * Collection of all item records of items used as classes, indexed by the
+	 * key returned by {@link #getClassKey(EntityIdValue)}.
 	 */
-	final HashMap<PropertyIdValue, PropertyRecord> propertyRecords = new HashMap<PropertyIdValue, PropertyRecord>();
+	final IntObjectHashMap<ClassRecord> classRecords = new IntObjectHashMap<>();
 	/**
-	 * Collection of all item records of items used as classes.
+	 * Counts of properties used together with other properties. Rows and
+	 * columns are numeric property ids.
 	 */
-	final HashMap<EntityIdValue, ClassRecord> classRecords = new HashMap<>();
+	final IntCountMatrix propertyCoCounts = new IntCountMatrix();
+	/**
+	 * Counts of properties used on instances of classes. Rows are class keys,
+	 * columns are numeric property ids.
+	 */
+	final IntCountMatrix classCoCounts = new IntCountMatrix();
 
 	/**
 	 * Map used during serialization to ensure that every label is used only
@@ -287,18 +304,29 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 
 		ClassRecord classRecord = null;
 		if (TOP_LEVEL_CLASSES.contains(itemDocument.getItemId().getId())
-				|| this.classRecords.containsKey(itemDocument.getItemId())) {
+				|| this.classRecords.containsKey(getClassKey(itemDocument
+						.getItemId()))) {
 			classRecord = getClassRecord(itemDocument.getItemId());
 		}
 
-		for (StatementGroup sg : itemDocument.getStatementGroups()) {
-			PropertyRecord propertyRecord = getPropertyRecord(sg.getProperty());
+		// The numeric property ids are only computed once per document:
+		List<StatementGroup> statementGroups = itemDocument
+				.getStatementGroups();
+		int[] propertyIds = new int[statementGroups.size()];
+		for (int i = 0; i < propertyIds.length; i++) {
+			propertyIds[i] = getNumericId(statementGroups.get(i).getProperty());
+		}
+
+		for (int i = 0; i < propertyIds.length; i++) {
+			StatementGroup sg = statementGroups.get(i);
+			PropertyRecord propertyRecord = getPropertyRecord(propertyIds[i],
+					sg.getProperty());
 			propertyRecord.itemCount++;
 			propertyRecord.statementCount = propertyRecord.statementCount
 					+ sg.getStatements().size();
 
-			boolean isInstanceOf = "P31".equals(sg.getProperty().getId());
-			boolean isSubclassOf = "P279".equals(sg.getProperty().getId());
+			boolean isInstanceOf = propertyIds[i] == 31;
+			boolean isSubclassOf = propertyIds[i] == 279;
 			if (isSubclassOf && classRecord == null) {
 				classRecord = getClassRecord(itemDocument.getItemId());
 			}
@@ -325,12 +353,13 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 						&& s.getClaim().getMainSnak() instanceof ValueSnak) {
 					Value value = ((ValueSnak) s.getClaim().getMainSnak())
 							.getValue();
-					if (value instanceof EntityIdValue) {
+					if (value instanceof ItemIdValue
+							|| value instanceof PropertyIdValue) {
 						ClassRecord otherClassRecord = getClassRecord((EntityIdValue) value);
 						if (isInstanceOf) {
 							otherClassRecord.itemCount++;
-							countCooccurringProperties(itemDocument,
-									otherClassRecord, null);
+							countCooccurringProperties(propertyIds,
+									otherClassRecord, -1);
 						} else {
 							otherClassRecord.subclassCount++;
 							classRecord.superClasses.add((EntityIdValue) value);
@@ -339,8 +368,8 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 				}
 			}
 
-			countCooccurringProperties(itemDocument, propertyRecord,
-					sg.getProperty());
+			countCooccurringProperties(propertyIds, propertyRecord,
+					propertyIds[i]);
 		}
 
 		if (classRecord != null) {
@@ -405,13 +434,16 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 * @return the class record
 	 */
 	private ClassRecord getClassRecord(EntityIdValue entityIdValue) {
-		if (!this.classRecords.containsKey(entityIdValue)) {
-			ClassRecord classRecord = new ClassRecord();
-			this.classRecords.put(entityIdValue, classRecord);
-			return classRecord;
-		} else {
-			return this.classRecords.get(entityIdValue);
+		int key = getClassKey(entityIdValue);
+		ClassRecord classRecord = this.classRecords.get(key);
+		if (classRecord == null) {
+			classRecord = new ClassRecord();
+			classRecord.entityIdValue = entityIdValue;
+			classRecord.propertyCoCounts = this.classCoCounts
+					.getOrCreateRow(key);
+			this.classRecords.put(key, classRecord);
 		}
+		return classRecord;
 	}
 
 	/**
@@ -422,26 +454,76 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 * @return the property record
 	 */
 	private PropertyRecord getPropertyRecord(PropertyIdValue property) {
-		if (!this.propertyRecords.containsKey(property)) {
-			PropertyRecord propertyRecord = new PropertyRecord();
-			this.propertyRecords.put(property, propertyRecord);
-			return propertyRecord;
+		return getPropertyRecord(getNumericId(property), property);
+	}
+
+	/**
+	 * Returns record where statistics about a property should be stored.
+	 *
+	 * @param key
+	 *            the numeric id of the property
+	 * @param property
+	 *            the property to initialize
+	 * @return the property record
+	 */
+	private PropertyRecord getPropertyRecord(int key, PropertyIdValue property) {
+		PropertyRecord propertyRecord = this.propertyRecords.get(key);
+		if (propertyRecord == null) {
+			propertyRecord = new PropertyRecord();
+			propertyRecord.propertyIdValue = property;
+			propertyRecord.propertyCoCounts = this.propertyCoCounts
+					.getOrCreateRow(key);
+			this.propertyRecords.put(key, propertyRecord);
+		}
+		return propertyRecord;
+	}
+
+	/**
+	 * Returns the key under which the record of the given class is stored.
+	 * Items use their numeric id, while properties that are used as classes
+	 * use their negated numeric id.
+	 *
+	 * @param entityIdValue
+	 *            an item or property
+	 * @return the key of the class record
+	 */
+	private int getClassKey(EntityIdValue entityIdValue) {
+		if (entityIdValue instanceof PropertyIdValue) {
+			return -getNumericId(entityIdValue);
 		} else {
-			return this.propertyRecords.get(property);
+			return getNumericId(entityIdValue);
 		}
 	}
 
-	private void countCooccurringProperties(ItemDocument itemDocument,
-			UsageRecord usageRecord, PropertyIdValue thisPropertyIdValue) {
-		for (StatementGroup sg : itemDocument.getStatementGroups()) {
-			if (!sg.getProperty().equals(thisPropertyIdValue)) {
-				if (!usageRecord.propertyCoCounts.containsKey(sg.getProperty())) {
-					usageRecord.propertyCoCounts.put(sg.getProperty(), 1);
-				} else {
-					usageRecord.propertyCoCounts
-							.put(sg.getProperty(), usageRecord.propertyCoCounts
-									.get(sg.getProperty()) + 1);
-				}
+	/**
+	 * Returns the numeric part of the id of an item or property, e.g., 42 for
+	 * "Q42".
+	 *
+	 * @param entityIdValue
+	 *            an item or property
+	 * @return the numeric id
+	 */
+	private int getNumericId(EntityIdValue entityIdValue) {
+		return EntityIds.getNumericId(entityIdValue.getId());
+	}
+
+	/**
+	 * Counts the properties of a document as co-occurring with the given
+	 * property or class.
+	 *
+	 * @param propertyIds
+	 *            the numeric ids of the properties of the document
+	 * @param usageRecord
+	 *            the record of the property or class
+	 * @param thisPropertyId
+	 *            the numeric id of the property of the record, which is not
+	 *            counted, or -1 if the record is about a class
+	 */
+	private void countCooccurringProperties(int[] propertyIds,
+			UsageRecord usageRecord, int thisPropertyId) {
+		for (int propertyId : propertyIds) {
+			if (propertyId != thisPropertyId) {
+				usageRecord.propertyCoCounts.increment(propertyId);
 			}
 		}
 	}
@@ -499,11 +581,15 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 					+ ",Uses in qualifiers" + ",Uses in references"
 					+ ",Uses total" + ",Related properties");
 
-			List<Entry<PropertyIdValue, PropertyRecord>> list = new ArrayList<Entry<PropertyIdValue, PropertyRecord>>(
-					this.propertyRecords.entrySet());
+			List<PropertyRecord> list = new ArrayList<>(
+					this.propertyRecords.size());
+			for (int key : this.propertyRecords.getKeys()) {
+				list.add(this.propertyRecords.get(key));
+			}
 			Collections.sort(list, new UsageRecordComparator());
-			for (Entry<PropertyIdValue, PropertyRecord> entry : list) {
-				printPropertyRecord(out, entry.getValue(), entry.getKey());
+			for (PropertyRecord propertyRecord : list) {
+				printPropertyRecord(out, propertyRecord,
+						propertyRecord.propertyIdValue);
 			}
 
 		} catch (IOException e) {
@@ -524,13 +610,15 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 					+ ",Number of direct subclasses" + ",Direct superclasses"
 					+ ",All superclasses" + ",Related properties");
 
-			List<Entry<EntityIdValue, ClassRecord>> list = new ArrayList<>(
-					this.classRecords.entrySet());
+			List<ClassRecord> list = new ArrayList<>(this.classRecords.size());
+			for (int key : this.classRecords.getKeys()) {
+				list.add(this.classRecords.get(key));
+			}
 			Collections.sort(list, new ClassUsageRecordComparator());
-			for (Entry<EntityIdValue, ClassRecord> entry : list) {
-				if (entry.getValue().itemCount > 0
-						|| entry.getValue().subclassCount > 0) {
-					printClassRecord(out, entry.getValue(), entry.getKey());
+			for (ClassRecord classRecord : list) {
+				if (classRecord.itemCount > 0 || classRecord.subclassCount > 0) {
+					printClassRecord(out, classRecord,
+							classRecord.entityIdValue);
 				}
 			}
 
@@ -605,7 +693,8 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 			return;
 		}
 		superClasses.add(itemIdValue);
-		ClassRecord classRecord = this.classRecords.get(itemIdValue);
+		ClassRecord classRecord = this.classRecords
+				.get(getClassKey(itemIdValue));
 		if (classRecord == null) {
 			return;
 		}
@@ -804,20 +893,20 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 
 		List<ImmutablePair<PropertyIdValue, Double>> list = new ArrayList<ImmutablePair<PropertyIdValue, Double>>(
 				usageRecord.propertyCoCounts.size());
-		for (Entry<PropertyIdValue, Integer> coCountEntry : usageRecord.propertyCoCounts
-				.entrySet()) {
-			double otherThisItemRate = (double) coCountEntry.getValue()
-					/ usageRecord.itemCount;
-			double otherGlobalItemRate = (double) this.propertyRecords
-					.get(coCountEntry.getKey()).itemCount
+		for (int propertyKey : usageRecord.propertyCoCounts.getKeys()) {
+			// co-occurring properties always have a record of their own
+			PropertyRecord otherRecord = this.propertyRecords.get(propertyKey);
+			double otherThisItemRate = (double) usageRecord.propertyCoCounts
+					.get(propertyKey) / usageRecord.itemCount;
+			double otherGlobalItemRate = (double) otherRecord.itemCount
 					/ this.countPropertyItems;
 			double otherThisItemRateStep = 1 / (1 + Math.exp(6 * (-2
 					* otherThisItemRate + 0.5)));
 			double otherInvGlobalItemRateStep = 1 / (1 + Math.exp(6 * (-2
 					* (1 - otherGlobalItemRate) + 0.5)));
 
-			list.add(new ImmutablePair<PropertyIdValue, Double>(coCountEntry
-					.getKey(), otherThisItemRateStep
+			list.add(new ImmutablePair<PropertyIdValue, Double>(
+					otherRecord.propertyIdValue, otherThisItemRateStep
 					* otherInvGlobalItemRateStep * otherThisItemRate
 					/ otherGlobalItemRate));
 		}
@@ -857,7 +946,7 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 */
 	private String getPropertyLabel(PropertyIdValue propertyIdValue) {
 		PropertyRecord propertyRecord = this.propertyRecords
-				.get(propertyIdValue);
+				.get(getNumericId(propertyIdValue));
 		if (propertyRecord == null || propertyRecord.propertyDocument == null) {
 			return propertyIdValue.getId();
 		} else {
@@ -875,7 +964,8 @@ public class ClassPropertyUsageAnalyzer implements EntityDocumentProcessor {
 	 * @return the label
 	 */
 	private String getClassLabel(EntityIdValue entityIdValue) {
-		ClassRecord classRecord = this.classRecords.get(entityIdValue);
+		ClassRecord classRecord = this.classRecords
+				.get(getClassKey(entityIdValue));
 		String label;
 		if (classRecord == null || classRecord.itemDocument == null) {
 			label = entityIdValue.getId();
@@ -25,8 +25,9 @@ import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.Map.Entry;
 
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MergeableEntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ParallelEntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.Reference;
@@ -41,11 +42,17 @@ import org.wikidata.wdtk.datamodel.interfaces.TermedDocument;
  * statistics that are printed to the standard output. Moreover, it counts shows
  * how often each property is used in the data. The result is stored in a CSV
  * file under the name property-counts.csv.
+ * <p>
+ * The dump is processed on several threads, each of which gathers statistics
+ * for a part of the documents. The results are merged in the end.
+ * Intermediate reports are printed by one of the threads, and only cover
+ * the documents that this thread has processed.
  *
  * @author Markus Kroetzsch
  *
  */
-class EntityStatisticsProcessor implements EntityDocumentProcessor {
+class EntityStatisticsProcessor implements
+		MergeableEntityDocumentProcessor<EntityStatisticsProcessor> {
 
 	/**
 	 * Simple record class to keep track of some usage numbers for one type of
@@ -66,12 +73,55 @@ class EntityStatisticsProcessor implements EntityDocumentProcessor {
 		final HashMap<PropertyIdValue, Integer> propertyCountsQualifier = new HashMap<PropertyIdValue, Integer>();
 		final HashMap<PropertyIdValue, Integer> propertyCountsReferences = new HashMap<PropertyIdValue, Integer>();
 
+		/**
+		 * Adds the numbers of the given statistics object to the numbers of
+		 * this one.
+		 *
+		 * @param usageStatistics
+		 *            the statistics to add
+		 */
+		void add(UsageStatistics usageStatistics) {
+			this.count += usageStatistics.count;
+			this.countLabels += usageStatistics.countLabels;
+			this.countDescriptions += usageStatistics.countDescriptions;
+			this.countAliases += usageStatistics.countAliases;
+			this.countStatements += usageStatistics.countStatements;
+
+			for (Entry<PropertyIdValue, Integer> entry : usageStatistics.propertyCountsMain
+					.entrySet()) {
+				PropertyIdValue property = entry.getKey();
+				addPropertyCounters(this, property);
+				this.propertyCountsMain.put(property,
+						this.propertyCountsMain.get(property) + entry.getValue());
+				this.propertyCountsQualifier.put(property,
+						this.propertyCountsQualifier.get(property)
+								+ usageStatistics.propertyCountsQualifier
+										.get(property));
+				this.propertyCountsReferences.put(property,
+						this.propertyCountsReferences.get(property)
+								+ usageStatistics.propertyCountsReferences
+										.get(property));
+			}
+		}
+
 	}
 
 	UsageStatistics itemStatistics = new UsageStatistics();
 	UsageStatistics propertyStatistics = new UsageStatistics();
 	long countSiteLinks = 0;
 
+	/**
+	 * True if a status report should be printed from time to time. Only the
+	 * first partial processor prints reports, so that progress is shown once.
+	 * Its numbers only cover the documents of its own thread.
+	 */
+	boolean printStatusReports = true;
+
+	/**
+	 * Number of partial processors that have been created from this one.
+	 */
+	int partialProcessorCount = 0;
+
 	/**
 	 * Main method. Processes the whole dump using this processor and writes the
 	 * results to a file. To change which dump file to use and whether to run in
@@ -85,11 +135,29 @@ class EntityStatisticsProcessor implements EntityDocumentProcessor {
 		EntityStatisticsProcessor.printDocumentation();
 
 		EntityStatisticsProcessor entityStatisticsProcessor = new EntityStatisticsProcessor();
-		ExampleHelpers
-				.processEntitiesFromWikidataDump(entityStatisticsProcessor);
+		ParallelEntityDocumentProcessor<EntityStatisticsProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				entityStatisticsProcessor);
+		parallelProcessor.open();
+		ExampleHelpers.processEntitiesFromWikidataDump(parallelProcessor);
+		parallelProcessor.close();
 		entityStatisticsProcessor.writeFinalResults();
 	}
 
+	@Override
+	public EntityStatisticsProcessor createPartialProcessor() {
+		EntityStatisticsProcessor partialProcessor = new EntityStatisticsProcessor();
+		partialProcessor.printStatusReports = (this.partialProcessorCount == 0);
+		this.partialProcessorCount++;
+		return partialProcessor;
+	}
+
+	@Override
+	public void merge(EntityStatisticsProcessor partialProcessor) {
+		this.itemStatistics.add(partialProcessor.itemStatistics);
+		this.propertyStatistics.add(partialProcessor.propertyStatistics);
+		this.countSiteLinks += partialProcessor.countSiteLinks;
+	}
+
 	@Override
 	public void processItemDocument(ItemDocument itemDocument) {
 		// Count items:
@@ -102,7 +170,7 @@ class EntityStatisticsProcessor implements EntityDocumentProcessor {
 		this.countSiteLinks += itemDocument.getSiteLinks().size();
 
 		// Print a report every 10000 items:
-		if (this.itemStatistics.count % 10000 == 0) {
+		if (this.printStatusReports && this.itemStatistics.count % 10000 == 0) {
 			printStatus();
 		}
 	}
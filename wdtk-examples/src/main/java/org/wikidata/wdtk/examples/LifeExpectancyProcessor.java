@@ -23,8 +23,9 @@ package org.wikidata.wdtk.examples;
 import java.io.IOException;
 import java.io.PrintStream;
 
-import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MergeableEntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ParallelEntityDocumentProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 import org.wikidata.wdtk.datamodel.interfaces.Statement;
 import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
@@ -40,14 +41,24 @@ import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
  * Note that the computation of life expectancies based on the life spans of
  * people who have died already has some systematic bias, since none of the
  * sampled person is expected to die in the future.
+ * <p>
+ * The dump is processed on several threads, each of which gathers data for a
+ * part of the documents. The results are merged in the end.
+ * Intermediate reports are printed by one of the threads, and only cover
+ * the documents that this thread has processed.
  *
  * @author Markus Kroetzsch
  *
  */
-public class LifeExpectancyProcessor implements EntityDocumentProcessor {
+public class LifeExpectancyProcessor implements
+		MergeableEntityDocumentProcessor<LifeExpectancyProcessor> {
 	long totalPeopleCount = 0;
 	long totalLifeSpan = 0;
 	boolean printedStatus = true;
+	// Only the first partial processor prints status reports, which cover
+	// the documents of its own thread:
+	boolean printStatusReports = true;
+	int partialProcessorCount = 0;
 
 	// Simply store data indexed by year of birth, in a range from 0 to 2100:
 	final long[] lifeSpans = new long[2100];
@@ -66,10 +77,32 @@ public class LifeExpectancyProcessor implements EntityDocumentProcessor {
 		LifeExpectancyProcessor.printDocumentation();
 
 		LifeExpectancyProcessor processor = new LifeExpectancyProcessor();
-		ExampleHelpers.processEntitiesFromWikidataDump(processor);
+		ParallelEntityDocumentProcessor<LifeExpectancyProcessor> parallelProcessor = new ParallelEntityDocumentProcessor<>(
+				processor);
+		parallelProcessor.open();
+		ExampleHelpers.processEntitiesFromWikidataDump(parallelProcessor);
+		parallelProcessor.close();
 		processor.writeFinalResults();
 	}
 
+	@Override
+	public LifeExpectancyProcessor createPartialProcessor() {
+		LifeExpectancyProcessor partialProcessor = new LifeExpectancyProcessor();
+		partialProcessor.printStatusReports = (partialProcessorCount == 0);
+		partialProcessorCount++;
+		return partialProcessor;
+	}
+
+	@Override
+	public void merge(LifeExpectancyProcessor partialProcessor) {
+		for (int i = 0; i < lifeSpans.length; i++) {
+			lifeSpans[i] += partialProcessor.lifeSpans[i];
+			peopleCount[i] += partialProcessor.peopleCount[i];
+		}
+		totalLifeSpan += partialProcessor.totalLifeSpan;
+		totalPeopleCount += partialProcessor.totalPeopleCount;
+	}
+
 	@Override
 	public void processItemDocument(ItemDocument itemDocument) {
 		int birthYear = Integer.MIN_VALUE;
@@ -99,7 +132,8 @@ public class LifeExpectancyProcessor implements EntityDocumentProcessor {
 		}
 
 		// Print the status once in a while:
-		if (!printedStatus && totalPeopleCount % 10000 == 0) {
+		if (printStatusReports && !printedStatus
+				&& totalPeopleCount % 10000 == 0) {
 			printStatus();
 			printedStatus = true;
 		}
@@ -41,8 +41,8 @@ import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.datamodel.interfaces.QuantityValue;
 import org.wikidata.wdtk.datamodel.interfaces.StringValue;
 import org.wikidata.wdtk.datamodel.interfaces.TimeValue;
+import org.wikidata.wdtk.util.HttpClientWebResourceFetcher;
 import org.wikidata.wdtk.util.WebResourceFetcher;
-import org.wikidata.wdtk.util.WebResourceFetcherImpl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -69,7 +69,8 @@ public class WikidataPropertyTypes implements PropertyTypes {
 	PropertyIdValue propertyRegister = null;
 	String webAPIUrl;
 
-	WebResourceFetcher webResourceFetcher = new WebResourceFetcherImpl();
+	WebResourceFetcher webResourceFetcher = HttpClientWebResourceFetcher
+			.getDefault();
 
 	public WikidataPropertyTypes() {
 		this.propertyTypes = new HashMap<String, String>();
@@ -160,10 +161,11 @@ public class WikidataPropertyTypes implements PropertyTypes {
 		uriBuilder.setParameter("ids", propertyIdValue.getId());
 		uriBuilder.setParameter("format", "json");
 		uriBuilder.setParameter("props", "datatype");
-		InputStream inStream = this.webResourceFetcher
-				.getInputStreamForUrl(uriBuilder.toString());
-
-		JsonNode jsonNode = this.objectMapper.readTree(inStream);
+		JsonNode jsonNode;
+		try (InputStream inStream = this.webResourceFetcher
+				.getInputStreamForUrl(uriBuilder.toString())) {
+			jsonNode = this.objectMapper.readTree(inStream);
+		}
 		String datatype = jsonNode.path("entities")
 				.path(propertyIdValue.getId()).path("datatype").asText();
 		if (datatype == null || "".equals(datatype)) {
@@ -0,0 +1,117 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Sparse matrix of <b>int</b> counts with <b>int</b> row and column indexes,
+ * such as the numbers of items on which two properties are used together.
+ * Each row is stored as an {@link IntIntHashMap}, so that rows can be read
+ * without looking at other rows. Missing entries have the value 0.
+ */
+public class IntCountMatrix {
+
+	final IntObjectHashMap<IntIntHashMap> rows = new IntObjectHashMap<>();
+
+	/**
+	 * Returns the count for the given row and column.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param column
+	 *            the column index
+	 * @return the count
+	 */
+	public int get(int row, int column) {
+		IntIntHashMap rowMap = this.rows.get(row);
+		return rowMap == null ? 0 : rowMap.get(column);
+	}
+
+	/**
+	 * Adds the given number to the count for the given row and column.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param column
+	 *            the column index
+	 * @param delta
+	 *            the number to add
+	 * @return the new count
+	 */
+	public int add(int row, int column, int delta) {
+		return getOrCreateRow(row).add(column, delta);
+	}
+
+	/**
+	 * Adds 1 to the count for the given row and column.
+	 *
+	 * @param row
+	 *            the row index
+	 * @param column
+	 *            the column index
+	 * @return the new count
+	 */
+	public int increment(int row, int column) {
+		return add(row, column, 1);
+	}
+
+	/**
+	 * Returns the counts of the given row, indexed by column, or null if the
+	 * row has no entries. The returned map is the one used by the matrix, so
+	 * changes to it affect the matrix.
+	 *
+	 * @param row
+	 *            the row index
+	 * @return map from column indexes to counts, or null
+	 */
+	public IntIntHashMap getRow(int row) {
+		return this.rows.get(row);
+	}
+
+	/**
+	 * Returns the counts of the given row, indexed by column, creating an
+	 * empty row if necessary. The returned map is the one used by the matrix,
+	 * so changes to it affect the matrix. This can be used to avoid repeated
+	 * row lookups when many columns of the same row are counted.
+	 *
+	 * @param row
+	 *            the row index
+	 * @return map from column indexes to counts
+	 */
+	public IntIntHashMap getOrCreateRow(int row) {
+		IntIntHashMap rowMap = this.rows.get(row);
+		if (rowMap == null) {
+			rowMap = new IntIntHashMap();
+			this.rows.put(row, rowMap);
+		}
+		return rowMap;
+	}
+
+	/**
+	 * Returns the indexes of all rows that have entries, in no particular
+	 * order.
+	 *
+	 * @return array of row indexes
+	 */
+	public int[] getRowIndexes() {
+		return this.rows.getKeys();
+	}
+
+}
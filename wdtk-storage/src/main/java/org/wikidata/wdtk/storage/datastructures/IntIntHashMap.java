@@ -0,0 +1,124 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Hash map from <b>int</b> keys to <b>int</b> values that does not create any
+ * objects for its entries. This is useful for counting things that are
+ * identified by numeric ids, such as the uses of properties. Missing entries
+ * have the value 0.
+ *
+ * @see IntKeyHashTable
+ */
+public class IntIntHashMap extends IntKeyHashTable {
+
+	int[] values;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public IntIntHashMap() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map with room for the given number of entries before
+	 * it needs to grow.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public IntIntHashMap(int expectedSize) {
+		super(expectedSize);
+		this.values = new int[this.keys.length];
+	}
+
+	/**
+	 * Returns the value for the given key, or 0 if there is no entry for it.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return the value
+	 */
+	public int get(int key) {
+		int index = indexOf(key);
+		return index < 0 ? 0 : this.values[index];
+	}
+
+	/**
+	 * Sets the value for the given key.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the new value
+	 */
+	public void put(int key, int value) {
+		// addKey may replace the value array, so it must be called first
+		int index = addKey(key);
+		this.values[index] = value;
+	}
+
+	/**
+	 * Adds the given number to the value for the given key. Keys without an
+	 * entry are treated as having value 0.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param delta
+	 *            the number to add
+	 * @return the new value
+	 */
+	public int add(int key, int delta) {
+		int index = addKey(key);
+		return this.values[index] += delta;
+	}
+
+	/**
+	 * Adds 1 to the value for the given key.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @return the new value
+	 */
+	public int increment(int key) {
+		return add(key, 1);
+	}
+
+	@Override
+	void moveValues(int[] newIndexes, int length) {
+		int[] newValues = new int[length];
+		for (int i = 0; i < newIndexes.length; i++) {
+			if (newIndexes[i] >= 0) {
+				newValues[newIndexes[i]] = this.values[i];
+			}
+		}
+		this.values = newValues;
+	}
+
+	@Override
+	void clearValues() {
+		Arrays.fill(this.values, 0);
+	}
+
+}
@@ -0,0 +1,247 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.Validate;
+
+/**
+ * Common base of hash tables with keys of type <b>int</b>, such as
+ * {@link IntIntHashMap}. Keys are stored in an <b>int</b> array with open
+ * addressing and linear probing, so that no objects are created for entries.
+ * Subclasses store the values in arrays that are indexed by the same slots as
+ * the keys.
+ * <p>
+ * The value 0 marks free slots. The key 0 is therefore stored in an extra
+ * slot at the end of the arrays. Entries cannot be removed individually; the
+ * table is meant for accumulating data such as counts. Objects of this class
+ * are not thread-safe.
+ */
+public abstract class IntKeyHashTable {
+
+	static final int MINIMUM_CAPACITY = 4;
+
+	/**
+	 * The keys of the table, followed by the slot for key 0. The number of
+	 * other slots is a power of two.
+	 */
+	int[] keys;
+
+	/**
+	 * Number of bits of a slot index, not counting the slot for key 0.
+	 */
+	int bits;
+
+	/**
+	 * Number of entries in the table.
+	 */
+	int size = 0;
+
+	/**
+	 * True if there is an entry for key 0.
+	 */
+	boolean hasZeroKey = false;
+
+	/**
+	 * Creates a table with room for the given number of entries before it
+	 * needs to grow.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	IntKeyHashTable(int expectedSize) {
+		Validate.isTrue(expectedSize >= 0,
+				"Expected size must not be negative.");
+		this.bits = Integer.numberOfTrailingZeros(MINIMUM_CAPACITY);
+		while ((1 << this.bits) * 3L / 4 < expectedSize) {
+			this.bits++;
+		}
+		this.keys = new int[(1 << this.bits) + 1];
+	}
+
+	/**
+	 * Returns the number of entries in the table.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if there is an entry for the given key.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return true if the key was found
+	 */
+	public boolean containsKey(int key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns the keys of all entries, in no particular order. A new array is
+	 * created on each call.
+	 *
+	 * @return array of keys
+	 */
+	public int[] getKeys() {
+		int[] result = new int[this.size];
+		int position = 0;
+		int capacity = this.keys.length - 1;
+		for (int i = 0; i < capacity; i++) {
+			if (this.keys[i] != 0) {
+				result[position++] = this.keys[i];
+			}
+		}
+		if (this.hasZeroKey) {
+			result[position] = 0;
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all entries. The capacity of the table is not changed.
+	 */
+	public void clear() {
+		Arrays.fill(this.keys, 0);
+		this.size = 0;
+		this.hasZeroKey = false;
+		clearValues();
+	}
+
+	/**
+	 * Returns the slot of the given key, or -1 if there is no entry for it.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return slot index or -1
+	 */
+	final int indexOf(int key) {
+		if (key == 0) {
+			return this.hasZeroKey ? this.keys.length - 1 : -1;
+		}
+		int mask = this.keys.length - 2;
+		int index = slot(key);
+		int current;
+		while ((current = this.keys[index]) != 0) {
+			if (current == key) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the slot of the given key, creating an entry for it if
+	 * necessary. The values of new entries are the default values of the
+	 * value arrays (0 or null).
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return slot index
+	 */
+	final int addKey(int key) {
+		if (key == 0) {
+			if (!this.hasZeroKey) {
+				this.hasZeroKey = true;
+				this.size++;
+			}
+			return this.keys.length - 1;
+		}
+		int mask = this.keys.length - 2;
+		int index = slot(key);
+		int current;
+		while ((current = this.keys[index]) != 0) {
+			if (current == key) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+
+		if ((this.size + 1) * 4L > (mask + 1) * 3L) {
+			grow();
+			return addKey(key);
+		}
+		this.keys[index] = key;
+		this.size++;
+		return index;
+	}
+
+	/**
+	 * Returns the preferred slot for a key. Keys are multiplied with a large
+	 * odd constant so that the upper bits of the result, which are used, depend
+	 * on all bits of the key; consecutive ids thus end up spread over the
+	 * table.
+	 */
+	final int slot(int key) {
+		return (key * 0x9E3779B9) >>> (32 - this.bits);
+	}
+
+	/**
+	 * Doubles the capacity of the table and moves all entries to their new
+	 * slots.
+	 */
+	void grow() {
+		int[] oldKeys = this.keys;
+		int oldCapacity = oldKeys.length - 1;
+		this.bits++;
+		this.keys = new int[(1 << this.bits) + 1];
+		int mask = this.keys.length - 2;
+
+		int[] newIndexes = new int[oldKeys.length];
+		for (int i = 0; i < oldCapacity; i++) {
+			int key = oldKeys[i];
+			if (key == 0) {
+				newIndexes[i] = -1;
+				continue;
+			}
+			int index = slot(key);
+			while (this.keys[index] != 0) {
+				index = (index + 1) & mask;
+			}
+			this.keys[index] = key;
+			newIndexes[i] = index;
+		}
+		newIndexes[oldCapacity] = this.keys.length - 1;
+		moveValues(newIndexes, this.keys.length);
+	}
+
+	/**
+	 * Moves the values to new arrays of the given length after the table has
+	 * grown.
+	 *
+	 * @param newIndexes
+	 *            array that maps each old slot index to the new slot index,
+	 *            or to -1 if the slot was free
+	 * @param length
+	 *            length of the new value arrays
+	 */
+	abstract void moveValues(int[] newIndexes, int length);
+
+	/**
+	 * Resets all values to their default.
+	 */
+	abstract void clearValues();
+
+}
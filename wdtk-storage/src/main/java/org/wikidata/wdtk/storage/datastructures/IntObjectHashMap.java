@@ -0,0 +1,105 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Hash map from <b>int</b> keys to objects that does not create any objects
+ * for its entries. This is useful for records about things that are
+ * identified by numeric ids, such as classes and properties. Missing entries
+ * have the value null.
+ *
+ * @see IntKeyHashTable
+ * @param <V>
+ *            the type of values
+ */
+public class IntObjectHashMap<V> extends IntKeyHashTable {
+
+	Object[] values;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public IntObjectHashMap() {
+		this(0);
+	}
+
+	/**
+	 * Creates an empty map with room for the given number of entries before
+	 * it needs to grow.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public IntObjectHashMap(int expectedSize) {
+		super(expectedSize);
+		this.values = new Object[this.keys.length];
+	}
+
+	/**
+	 * Returns the value for the given key, or null if there is no entry for
+	 * it.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return the value or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int index = indexOf(key);
+		return index < 0 ? null : (V) this.values[index];
+	}
+
+	/**
+	 * Sets the value for the given key.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param value
+	 *            the new value
+	 * @return the previous value, or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		int index = addKey(key);
+		V previous = (V) this.values[index];
+		this.values[index] = value;
+		return previous;
+	}
+
+	@Override
+	void moveValues(int[] newIndexes, int length) {
+		Object[] newValues = new Object[length];
+		for (int i = 0; i < newIndexes.length; i++) {
+			if (newIndexes[i] >= 0) {
+				newValues[newIndexes[i]] = this.values[i];
+			}
+		}
+		this.values = newValues;
+	}
+
+	@Override
+	void clearValues() {
+		Arrays.fill(this.values, null);
+	}
+
+}
@@ -0,0 +1,385 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.wikidata.wdtk.datamodel.helpers.EntityIds;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.storage.datastructures.IntIntHashMap;
+import org.wikidata.wdtk.storage.datastructures.IntObjectHashMap;
+
+/**
+ * Graph of items that are connected by statements with certain properties, as
+ * written by {@link ItemGraphBuilder}. For every property, the file contains
+ * the edges in compressed sparse row (CSR) format, once ordered by source item
+ * and once ordered by target item, so that both successors and predecessors
+ * can be found quickly. The file is mapped into memory, so that opening a
+ * graph is cheap.
+ * <p>
+ * Items are given by their numeric ids. For example, with property P279
+ * (subclass of), {@link #getAncestors(PropertyIdValue, int)} returns all
+ * direct and indirect superclasses of a class, and
+ * {@link #getDescendants(PropertyIdValue, int)} returns all of its
+ * subclasses.
+ * <p>
+ * The file format is as follows. The file starts with {@link #FORMAT_ID} and
+ * the number of properties. Then follows a section for every property,
+ * consisting of the numeric id of the property, the forward graph and the
+ * reverse graph. Each graph consists of the number of nodes n and edges m,
+ * the ascending ids of the n items that have edges, n+1 offsets into the
+ * edge list, the m target item ids, ascending for each node, and for each of
+ * the m targets its index in the list of nodes, or -1 if it has no edges.
+ * The latter allows searches to follow edges without looking up nodes. The
+ * file ends with {@link #FORMAT_ID} again. All numbers are written as ints.
+ */
+public class ItemGraph implements Closeable {
+
+	/**
+	 * Identifier at the start and end of graph files.
+	 */
+	public static final int FORMAT_ID = 0x57494701;
+
+	/**
+	 * Location of one graph in compressed sparse row format within the file.
+	 */
+	static class CsrGraph {
+		final int nodeCount;
+		final int edgeCount;
+		final long nodesPosition;
+		final long offsetsPosition;
+		final long targetsPosition;
+		final long targetNodesPosition;
+
+		CsrGraph(int nodeCount, int edgeCount, long nodesPosition) {
+			this.nodeCount = nodeCount;
+			this.edgeCount = edgeCount;
+			this.nodesPosition = nodesPosition;
+			this.offsetsPosition = nodesPosition + 4L * nodeCount;
+			this.targetsPosition = this.offsetsPosition + 4L
+					* (nodeCount + 1);
+			this.targetNodesPosition = this.targetsPosition + 4L * edgeCount;
+		}
+
+		/**
+		 * Returns the position after the last byte of this graph.
+		 */
+		long getEndPosition() {
+			return this.targetNodesPosition + 4L * this.edgeCount;
+		}
+	}
+
+	final FileChannel channel;
+	final MappedFile file;
+
+	/**
+	 * Forward graphs, indexed by numeric property id.
+	 */
+	final IntObjectHashMap<CsrGraph> forwardGraphs = new IntObjectHashMap<>();
+	/**
+	 * Reverse graphs, indexed by numeric property id.
+	 */
+	final IntObjectHashMap<CsrGraph> reverseGraphs = new IntObjectHashMap<>();
+
+	/**
+	 * Opens the graph in the given file.
+	 *
+	 * @param graphFile
+	 *            the file that the graph was written to
+	 * @throws IOException
+	 *             if the file could not be read or is not a graph file
+	 */
+	public ItemGraph(Path graphFile) throws IOException {
+		this(graphFile, MappedFile.DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Opens the graph in the given file, mapping it in segments of 2 to the
+	 * power of the given number of bytes. Only used for testing.
+	 *
+	 * @param graphFile
+	 *            the file that the graph was written to
+	 * @param segmentBits
+	 *            the binary logarithm of the number of bytes per mapped
+	 *            segment
+	 * @throws IOException
+	 *             if the file could not be read or is not a graph file
+	 */
+	ItemGraph(Path graphFile, int segmentBits) throws IOException {
+		this.channel = FileChannel.open(graphFile, StandardOpenOption.READ);
+		try {
+			this.file = new MappedFile(this.channel, segmentBits);
+			long size = this.file.size();
+			if (size < 12 || this.file.getInt(0) != FORMAT_ID
+					|| this.file.getInt(size - 4) != FORMAT_ID) {
+				throw new IOException("File " + graphFile
+						+ " is not an item graph");
+			}
+
+			int propertyCount = this.file.getInt(4);
+			long position = 8;
+			for (int i = 0; i < propertyCount; i++) {
+				int propertyId = this.file.getInt(position);
+				CsrGraph forward = readGraph(position + 4);
+				CsrGraph reverse = readGraph(forward.getEndPosition());
+				this.forwardGraphs.put(propertyId, forward);
+				this.reverseGraphs.put(propertyId, reverse);
+				position = reverse.getEndPosition();
+			}
+			if (position != size - 4) {
+				throw new IOException("Item graph file " + graphFile
+						+ " is truncated or corrupted");
+			}
+		} catch (IOException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of edges for the given property.
+	 *
+	 * @param property
+	 *            the property whose edges should be counted
+	 * @return number of edges
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int getEdgeCount(PropertyIdValue property) {
+		return getGraph(property, false).edgeCount;
+	}
+
+	/**
+	 * Returns the items that the given item links to with the given property,
+	 * e.g., the direct superclasses of a class for property P279.
+	 *
+	 * @param property
+	 *            the property of the edges
+	 * @param itemId
+	 *            the numeric id of the item
+	 * @return numeric ids of the successors in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int[] getSuccessors(PropertyIdValue property, int itemId) {
+		return getNeighbors(getGraph(property, false), itemId);
+	}
+
+	/**
+	 * Returns the items that link to the given item with the given property,
+	 * e.g., the direct subclasses of a class for property P279.
+	 *
+	 * @param property
+	 *            the property of the edges
+	 * @param itemId
+	 *            the numeric id of the item
+	 * @return numeric ids of the predecessors in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int[] getPredecessors(PropertyIdValue property, int itemId) {
+		return getNeighbors(getGraph(property, true), itemId);
+	}
+
+	/**
+	 * Returns all items that can be reached from the given item by following
+	 * edges of the given property, e.g., all superclasses of a class for
+	 * property P279. The item itself is only included if it is on a cycle.
+	 *
+	 * @param property
+	 *            the property of the edges
+	 * @param itemId
+	 *            the numeric id of the item
+	 * @return numeric ids of the ancestors in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int[] getAncestors(PropertyIdValue property, int itemId) {
+		return sorted(breadthFirstSearch(property, new int[] { itemId },
+				false, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Returns all items that can reach the given item by following edges of
+	 * the given property, e.g., all subclasses of a class for property P279.
+	 * The item itself is only included if it is on a cycle.
+	 *
+	 * @param property
+	 *            the property of the edges
+	 * @param itemId
+	 *            the numeric id of the item
+	 * @return numeric ids of the descendants in ascending order
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int[] getDescendants(PropertyIdValue property, int itemId) {
+		return sorted(breadthFirstSearch(property, new int[] { itemId },
+				true, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Performs a breadth-first search from the given items. Every reachable
+	 * item is returned once, in the order in which it was found. Start items
+	 * are only returned if they are reached from another start item.
+	 *
+	 * @param property
+	 *            the property of the edges
+	 * @param startIds
+	 *            the numeric ids of the items to start from
+	 * @param reverse
+	 *            if true, edges are followed from their target to their
+	 *            source
+	 * @param maxDepth
+	 *            the maximal number of edges to follow from a start item
+	 * @return numeric ids of the reached items in breadth-first order
+	 * @throws IllegalArgumentException
+	 *             if the graph does not contain edges for this property
+	 */
+	public int[] breadthFirstSearch(PropertyIdValue property, int[] startIds,
+			boolean reverse, int maxDepth) {
+		CsrGraph graph = getGraph(property, reverse);
+
+		// the queue holds node indexes, the result item ids
+		IntIntHashMap found = new IntIntHashMap();
+		int[] queue = new int[16];
+		int queueEnd = 0;
+		int[] result = new int[16];
+		int resultSize = 0;
+
+		// start items are queued but not marked as found
+		for (int startId : startIds) {
+			int nodeIndex = findNode(graph, startId);
+			if (nodeIndex >= 0) {
+				if (queueEnd == queue.length) {
+					queue = Arrays.copyOf(queue, queueEnd * 2);
+				}
+				queue[queueEnd++] = nodeIndex;
+			}
+		}
+
+		int queueStart = 0;
+		int depth = 0;
+		while (queueStart < queueEnd && depth < maxDepth) {
+			int levelEnd = queueEnd;
+			for (; queueStart < levelEnd; queueStart++) {
+				int nodeIndex = queue[queueStart];
+				int start = this.file.getInt(graph.offsetsPosition + 4L
+						* nodeIndex);
+				int end = this.file.getInt(graph.offsetsPosition + 4L
+						* (nodeIndex + 1));
+				for (int i = start; i < end; i++) {
+					int target = this.file.getInt(graph.targetsPosition + 4L
+							* i);
+					if (found.containsKey(target)) {
+						continue;
+					}
+					found.put(target, 1);
+					if (resultSize == result.length) {
+						result = Arrays.copyOf(result, resultSize * 2);
+					}
+					result[resultSize++] = target;
+
+					int targetNode = this.file
+							.getInt(graph.targetNodesPosition + 4L * i);
+					if (targetNode >= 0) {
+						if (queueEnd == queue.length) {
+							queue = Arrays.copyOf(queue, queueEnd * 2);
+						}
+						queue[queueEnd++] = targetNode;
+					}
+				}
+			}
+			depth++;
+		}
+		return Arrays.copyOf(result, resultSize);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	CsrGraph readGraph(long position) {
+		return new CsrGraph(this.file.getInt(position),
+				this.file.getInt(position + 4), position + 8);
+	}
+
+	CsrGraph getGraph(PropertyIdValue property, boolean reverse) {
+		int propertyId = EntityIds.getNumericId(property.getId());
+		CsrGraph graph = reverse ? this.reverseGraphs.get(propertyId)
+				: this.forwardGraphs.get(propertyId);
+		if (graph == null) {
+			throw new IllegalArgumentException("The graph has no edges for "
+					+ property.getId());
+		}
+		return graph;
+	}
+
+	int[] getNeighbors(CsrGraph graph, int itemId) {
+		int nodeIndex = findNode(graph, itemId);
+		if (nodeIndex < 0) {
+			return new int[0];
+		}
+		int start = this.file.getInt(graph.offsetsPosition + 4L * nodeIndex);
+		int end = this.file.getInt(graph.offsetsPosition + 4L
+				* (nodeIndex + 1));
+		int[] result = new int[end - start];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = this.file.getInt(graph.targetsPosition + 4L
+					* (start + i));
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the index of the given item in the node list of the graph using
+	 * binary search.
+	 *
+	 * @return the index, or -1 if the item has no edges in this graph
+	 */
+	int findNode(CsrGraph graph, int itemId) {
+		int low = 0;
+		int high = graph.nodeCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int nodeId = this.file.getInt(graph.nodesPosition + 4L * middle);
+			if (nodeId < itemId) {
+				low = middle + 1;
+			} else if (nodeId > itemId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	static int[] sorted(int[] ids) {
+		Arrays.sort(ids);
+		return ids;
+	}
+
+}
@@ -0,0 +1,629 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.EntityIds;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+import org.wikidata.wdtk.storage.datastructures.IntObjectHashMap;
+
+/**
+ * Processor that builds an {@link ItemGraph} from the item documents that it
+ * receives, and writes it to a file when it is closed. Every statement of an
+ * item whose main snak has one of the given properties and an item as its
+ * value leads to an edge from the item to the value. Property documents are
+ * ignored.
+ * <p>
+ * Edges are collected in memory, using eight bytes per edge, and are sorted
+ * only when they are written. Documents can therefore be processed in any
+ * order. When the collected edges exceed the memory limit given in the
+ * constructor, they are written to a temporary file as a sorted run, and the
+ * memory is freed. When the processor is closed, all runs are merged into the
+ * graph; while one graph is merged, its nodes are kept in memory, using eight
+ * bytes per node. The graph and the runs are written to temporary files next
+ * to the target file, and the graph is then moved into place.
+ */
+public class ItemGraphBuilder implements EntityDocumentDumpProcessor {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(ItemGraphBuilder.class);
+
+	/**
+	 * Default number of bytes that collected edges may use before they are
+	 * written to a run file.
+	 */
+	public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+	/**
+	 * Growable list of edges, each encoded as a long with the source item in
+	 * the upper and the target item in the lower 32 bits.
+	 */
+	static class EdgeBuffer {
+		long[] edges = new long[16];
+		int size = 0;
+
+		/**
+		 * Adds an edge to the list.
+		 *
+		 * @return the number of bytes by which the list has grown
+		 */
+		int add(int source, int target) {
+			int growth = 0;
+			if (this.size == this.edges.length) {
+				this.edges = Arrays.copyOf(this.edges, this.size * 2);
+				growth = 8 * this.size;
+			}
+			this.edges[this.size++] = encode(source, target);
+			return growth;
+		}
+	}
+
+	/**
+	 * Reader for a run file, which contains the forward and the reverse
+	 * graph of every property, in the order of
+	 * {@link ItemGraphBuilder#propertyIds}. Each graph consists of the number
+	 * of its edges (int) followed by the encoded edges (long) in ascending
+	 * order, without duplicates.
+	 */
+	static class RunReader implements Closeable {
+
+		final DataInputStream in;
+		int remainingEdges = 0;
+
+		RunReader(Path file) throws IOException {
+			this.in = PropertyValueIndexBuilder.openInput(file);
+		}
+
+		/**
+		 * Starts reading the next graph of the run.
+		 */
+		void nextGraph() throws IOException {
+			this.remainingEdges = this.in.readInt();
+		}
+
+		/**
+		 * Reads the next edge of the current graph.
+		 *
+		 * @return the encoded edge, or -1 if there are no more edges
+		 */
+		long nextEdge() throws IOException {
+			if (this.remainingEdges == 0) {
+				return -1;
+			}
+			this.remainingEdges--;
+			return this.in.readLong();
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+	}
+
+	final Path graphFile;
+	final long memoryLimit;
+
+	/**
+	 * Numeric ids of the properties whose edges are collected, in ascending
+	 * order.
+	 */
+	final int[] propertyIds;
+
+	/**
+	 * Collected edges, indexed by numeric property id.
+	 */
+	final IntObjectHashMap<EdgeBuffer> edges = new IntObjectHashMap<>();
+
+	/**
+	 * Number of bytes by which the buffers in {@link #edges} have grown.
+	 */
+	long edgesSize = 0;
+
+	/**
+	 * Run files that have been written since the processor was opened.
+	 */
+	final List<Path> runFiles = new ArrayList<>();
+
+	int itemCount = 0;
+
+	/**
+	 * True if the graph has been written since the processor was created or
+	 * last opened.
+	 */
+	boolean closed = false;
+
+	/**
+	 * Constructor. Edges may use about {@link #DEFAULT_MEMORY_LIMIT} bytes
+	 * before they are written to a run file.
+	 *
+	 * @param graphFile
+	 *            the file to write the graph to when the processor is closed
+	 * @param properties
+	 *            the properties whose statements should be recorded as edges
+	 */
+	public ItemGraphBuilder(Path graphFile, Set<PropertyIdValue> properties) {
+		this(graphFile, properties, DEFAULT_MEMORY_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param graphFile
+	 *            the file to write the graph to when the processor is closed
+	 * @param properties
+	 *            the properties whose statements should be recorded as edges
+	 * @param memoryLimit
+	 *            the approximate number of bytes that edges may use before
+	 *            they are written to a run file
+	 */
+	public ItemGraphBuilder(Path graphFile, Set<PropertyIdValue> properties,
+			long memoryLimit) {
+		if (memoryLimit < 1) {
+			throw new IllegalArgumentException("Illegal memory limit: "
+					+ memoryLimit);
+		}
+		this.graphFile = graphFile;
+		this.memoryLimit = memoryLimit;
+		this.propertyIds = new int[properties.size()];
+		int i = 0;
+		for (PropertyIdValue property : properties) {
+			this.propertyIds[i++] = EntityIds.getNumericId(property.getId());
+		}
+		Arrays.sort(this.propertyIds);
+		clearEdges();
+	}
+
+	@Override
+	public void open() {
+		clearEdges();
+		deleteRunFiles();
+		this.itemCount = 0;
+		this.closed = false;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		int source = EntityIds.getNumericId(itemDocument.getItemId().getId());
+		this.itemCount++;
+
+		for (StatementGroup sg : itemDocument.getStatementGroups()) {
+			EdgeBuffer buffer = this.edges.get(EntityIds.getNumericId(sg
+					.getProperty().getId()));
+			if (buffer == null) {
+				continue;
+			}
+			for (Statement statement : sg.getStatements()) {
+				Snak mainSnak = statement.getClaim().getMainSnak();
+				if (!(mainSnak instanceof ValueSnak)) {
+					continue;
+				}
+				Value value = ((ValueSnak) mainSnak).getValue();
+				if (value instanceof ItemIdValue) {
+					this.edgesSize += buffer.add(source,
+							EntityIds.getNumericId(((ItemIdValue) value)
+									.getId()));
+				}
+			}
+		}
+
+		if (this.edgesSize > this.memoryLimit) {
+			try {
+				writeRun();
+			} catch (IOException e) {
+				logger.error("Failed to write edges: " + e.toString());
+				throw new RuntimeException(e.toString(), e);
+			}
+		}
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		// property documents are not part of the graph
+	}
+
+	/**
+	 * Writes the graph. Further calls have no effect until the processor is
+	 * opened again, so that the graph is not replaced by an empty one.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		Path tempFile = PropertyValueIndexBuilder.getTempFile(this.graphFile,
+				".tmp");
+		try {
+			if (this.runFiles.isEmpty()) {
+				writeGraph(tempFile);
+			} else {
+				writeRun();
+				mergeRuns(tempFile);
+			}
+			Files.move(tempFile, this.graphFile,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			logger.error("Failed to write item graph: " + e.toString());
+			throw new RuntimeException(e.toString(), e);
+		} finally {
+			clearEdges();
+			deleteRunFiles();
+		}
+		logger.info("Wrote item graph for " + this.itemCount + " items to "
+				+ this.graphFile);
+	}
+
+	/**
+	 * Returns the number of item documents processed since the processor was
+	 * opened.
+	 *
+	 * @return number of items
+	 */
+	public int getItemCount() {
+		return this.itemCount;
+	}
+
+	/**
+	 * Replaces the collected edges by empty buffers.
+	 */
+	void clearEdges() {
+		this.edges.clear();
+		for (int propertyId : this.propertyIds) {
+			this.edges.put(propertyId, new EdgeBuffer());
+		}
+		this.edgesSize = 0;
+	}
+
+	/**
+	 * Writes the graph of the edges in memory in the format described in
+	 * {@link ItemGraph}. The reverse graphs are created in the arrays of the
+	 * forward graphs, so that no edges are copied.
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	void writeGraph(Path file) throws IOException {
+		try (DataOutputStream out = PropertyValueIndexBuilder
+				.openOutput(file)) {
+			out.writeInt(ItemGraph.FORMAT_ID);
+			out.writeInt(this.propertyIds.length);
+			for (int propertyId : this.propertyIds) {
+				EdgeBuffer buffer = this.edges.get(propertyId);
+				int edgeCount = sortUnique(buffer.edges, buffer.size);
+
+				out.writeInt(propertyId);
+				writeCsrGraph(out, buffer.edges, edgeCount);
+				reverse(buffer.edges, edgeCount);
+				writeCsrGraph(out, buffer.edges, edgeCount);
+				// release memory as early as possible
+				buffer.edges = null;
+			}
+			out.writeInt(ItemGraph.FORMAT_ID);
+		}
+	}
+
+	/**
+	 * Writes the edges in memory to a new run file and releases their
+	 * memory.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	void writeRun() throws IOException {
+		Path runFile = PropertyValueIndexBuilder.getTempFile(this.graphFile,
+				".run" + this.runFiles.size());
+		this.runFiles.add(runFile);
+		try (DataOutputStream out = PropertyValueIndexBuilder
+				.openOutput(runFile)) {
+			for (int propertyId : this.propertyIds) {
+				EdgeBuffer buffer = this.edges.get(propertyId);
+				int edgeCount = sortUnique(buffer.edges, buffer.size);
+				writeRunGraph(out, buffer.edges, edgeCount);
+				reverse(buffer.edges, edgeCount);
+				writeRunGraph(out, buffer.edges, edgeCount);
+				buffer.edges = null;
+			}
+		}
+		clearEdges();
+	}
+
+	/**
+	 * Writes a graph to a run file, in the format that is read by
+	 * {@link RunReader}.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param edges
+	 *            the encoded edges, in ascending order and without duplicates
+	 * @param edgeCount
+	 *            the number of edges in the array
+	 * @throws IOException
+	 *             if the graph could not be written
+	 */
+	static void writeRunGraph(DataOutputStream out, long[] edges,
+			int edgeCount) throws IOException {
+		out.writeInt(edgeCount);
+		for (int i = 0; i < edgeCount; i++) {
+			out.writeLong(edges[i]);
+		}
+	}
+
+	/**
+	 * Merges all run files into a graph in the format described in
+	 * {@link ItemGraph}.
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	void mergeRuns(Path file) throws IOException {
+		Path targetsFile = PropertyValueIndexBuilder.getTempFile(
+				this.graphFile, ".targets");
+		List<RunReader> readers = new ArrayList<>(this.runFiles.size());
+		try (DataOutputStream out = PropertyValueIndexBuilder
+				.openOutput(file)) {
+			for (Path runFile : this.runFiles) {
+				readers.add(new RunReader(runFile));
+			}
+
+			out.writeInt(ItemGraph.FORMAT_ID);
+			out.writeInt(this.propertyIds.length);
+			for (int propertyId : this.propertyIds) {
+				out.writeInt(propertyId);
+				// forward and reverse graph
+				for (int i = 0; i < 2; i++) {
+					for (RunReader reader : readers) {
+						reader.nextGraph();
+					}
+					writeMergedCsrGraph(out, readers, targetsFile);
+				}
+			}
+			out.writeInt(ItemGraph.FORMAT_ID);
+		} finally {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+			Files.deleteIfExists(targetsFile);
+		}
+	}
+
+	/**
+	 * Writes a graph in compressed sparse row format, merging the current
+	 * graphs of the given runs. The numbers of nodes and edges are only known
+	 * after the merge, so the targets of the edges are written to a temporary
+	 * file first, and copied from there afterwards.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param readers
+	 *            the runs, all of which are at the start of the same graph
+	 * @param targetsFile
+	 *            the temporary file for the targets
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	static void writeMergedCsrGraph(DataOutputStream out,
+			List<RunReader> readers, Path targetsFile) throws IOException {
+		int[] nodes = new int[16];
+		int[] offsets = new int[16];
+		int nodeCount = 0;
+		int edgeCount = 0;
+
+		try (DataOutputStream targetsOut = PropertyValueIndexBuilder
+				.openOutput(targetsFile)) {
+			long[] heads = new long[readers.size()];
+			for (int i = 0; i < heads.length; i++) {
+				heads[i] = readers.get(i).nextEdge();
+			}
+			long previous = -1;
+			while (true) {
+				int next = -1;
+				for (int i = 0; i < heads.length; i++) {
+					if (heads[i] >= 0 && (next < 0 || heads[i] < heads[next])) {
+						next = i;
+					}
+				}
+				if (next < 0) {
+					break;
+				}
+				long edge = heads[next];
+				heads[next] = readers.get(next).nextEdge();
+				if (edge == previous) {
+					continue;
+				}
+
+				if (previous < 0 || getSource(edge) != getSource(previous)) {
+					if (nodeCount == nodes.length) {
+						nodes = Arrays.copyOf(nodes, 2 * nodeCount);
+						offsets = Arrays.copyOf(offsets, 2 * nodeCount);
+					}
+					nodes[nodeCount] = getSource(edge);
+					offsets[nodeCount] = edgeCount;
+					nodeCount++;
+				}
+				targetsOut.writeInt(getTarget(edge));
+				edgeCount++;
+				previous = edge;
+			}
+		}
+
+		out.writeInt(nodeCount);
+		out.writeInt(edgeCount);
+		for (int i = 0; i < nodeCount; i++) {
+			out.writeInt(nodes[i]);
+		}
+		for (int i = 0; i < nodeCount; i++) {
+			out.writeInt(offsets[i]);
+		}
+		out.writeInt(edgeCount);
+		try (DataInputStream in = PropertyValueIndexBuilder
+				.openInput(targetsFile)) {
+			for (int i = 0; i < edgeCount; i++) {
+				out.writeInt(in.readInt());
+			}
+		}
+		try (DataInputStream in = PropertyValueIndexBuilder
+				.openInput(targetsFile)) {
+			for (int i = 0; i < edgeCount; i++) {
+				int nodeIndex = Arrays.binarySearch(nodes, 0, nodeCount,
+						in.readInt());
+				out.writeInt(nodeIndex >= 0 ? nodeIndex : -1);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the first edges of the given array and removes duplicates.
+	 *
+	 * @param edges
+	 *            the encoded edges
+	 * @param size
+	 *            the number of edges in the array
+	 * @return the number of distinct edges, which are now at the start of the
+	 *         array
+	 */
+	static int sortUnique(long[] edges, int size) {
+		Arrays.sort(edges, 0, size);
+		int edgeCount = 0;
+		for (int i = 0; i < size; i++) {
+			if (edgeCount == 0 || edges[i] != edges[edgeCount - 1]) {
+				edges[edgeCount++] = edges[i];
+			}
+		}
+		return edgeCount;
+	}
+
+	/**
+	 * Reverses the direction of the first edges of the given array, and sorts
+	 * them again.
+	 *
+	 * @param edges
+	 *            the encoded edges
+	 * @param size
+	 *            the number of edges in the array
+	 */
+	static void reverse(long[] edges, int size) {
+		for (int i = 0; i < size; i++) {
+			edges[i] = encode(getTarget(edges[i]), getSource(edges[i]));
+		}
+		Arrays.sort(edges, 0, size);
+	}
+
+	/**
+	 * Writes a graph in compressed sparse row format.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param edges
+	 *            the encoded edges, in ascending order and without duplicates
+	 * @param edgeCount
+	 *            the number of edges in the array
+	 * @throws IOException
+	 *             if the graph could not be written
+	 */
+	static void writeCsrGraph(DataOutputStream out, long[] edges,
+			int edgeCount) throws IOException {
+		int nodeCount = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			if (i == 0 || getSource(edges[i]) != getSource(edges[i - 1])) {
+				nodeCount++;
+			}
+		}
+
+		int[] nodes = new int[nodeCount];
+		nodeCount = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			if (i == 0 || getSource(edges[i]) != getSource(edges[i - 1])) {
+				nodes[nodeCount++] = getSource(edges[i]);
+			}
+		}
+
+		out.writeInt(nodeCount);
+		out.writeInt(edgeCount);
+		for (int node : nodes) {
+			out.writeInt(node);
+		}
+		for (int i = 0; i < edgeCount; i++) {
+			if (i == 0 || getSource(edges[i]) != getSource(edges[i - 1])) {
+				out.writeInt(i);
+			}
+		}
+		out.writeInt(edgeCount);
+		for (int i = 0; i < edgeCount; i++) {
+			out.writeInt(getTarget(edges[i]));
+		}
+		for (int i = 0; i < edgeCount; i++) {
+			int nodeIndex = Arrays.binarySearch(nodes, getTarget(edges[i]));
+			out.writeInt(nodeIndex >= 0 ? nodeIndex : -1);
+		}
+	}
+
+	void deleteRunFiles() {
+		for (Path runFile : this.runFiles) {
+			try {
+				Files.deleteIfExists(runFile);
+			} catch (IOException e) {
+				logger.warn("Could not delete temporary file " + runFile
+						+ ": " + e.toString());
+			}
+		}
+		this.runFiles.clear();
+	}
+
+	static long encode(int source, int target) {
+		return ((long) source << 32) | (target & 0xffffffffL);
+	}
+
+	static int getSource(long edge) {
+		return (int) (edge >>> 32);
+	}
+
+	static int getTarget(long edge) {
+		return (int) edge;
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view of a file that is mapped into memory. Since a single mapping
+ * can cover at most 2GB, the file is mapped in segments, and values that cross
+ * segment boundaries are read byte by byte.
+ */
+class MappedFile {
+
+	/**
+	 * Default binary logarithm of the number of bytes per mapped segment.
+	 */
+	static final int DEFAULT_SEGMENT_BITS = 30;
+
+	final MappedByteBuffer[] segments;
+	final int segmentBits;
+	final int segmentSize;
+	final long segmentMask;
+	final long size;
+
+	/**
+	 * Maps the whole content of the given channel into memory.
+	 *
+	 * @param channel
+	 *            the channel to map
+	 * @param segmentBits
+	 *            the binary logarithm of the number of bytes per mapped
+	 *            segment
+	 * @throws IOException
+	 *             if the file could not be mapped
+	 */
+	MappedFile(FileChannel channel, int segmentBits) throws IOException {
+		this.segmentBits = segmentBits;
+		this.segmentSize = 1 << segmentBits;
+		this.segmentMask = this.segmentSize - 1;
+		int segmentSize = this.segmentSize;
+		this.size = channel.size();
+		int segmentCount = (int) ((this.size + segmentSize - 1) / segmentSize);
+		this.segments = new MappedByteBuffer[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			long start = (long) i * segmentSize;
+			this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+					start, Math.min(segmentSize, this.size - start));
+		}
+	}
+
+	/**
+	 * Returns the size of the file in bytes.
+	 *
+	 * @return file size
+	 */
+	long size() {
+		return this.size;
+	}
+
+	byte getByte(long position) {
+		return this.segments[(int) (position >>> this.segmentBits)]
+				.get((int) (position & this.segmentMask));
+	}
+
+	int getInt(long position) {
+		int segment = (int) (position >>> this.segmentBits);
+		int offset = (int) (position & this.segmentMask);
+		if (offset + 4 <= this.segmentSize) {
+			return this.segments[segment].getInt(offset);
+		}
+		int result = 0;
+		for (int i = 0; i < 4; i++) {
+			result = (result << 8) | (getByte(position + i) & 0xff);
+		}
+		return result;
+	}
+
+	long getLong(long position) {
+		return ((long) getInt(position) << 32)
+				| (getInt(position + 4) & 0xffffffffL);
+	}
+
+	/**
+	 * Reads a UTF-8 string of the given length in bytes.
+	 *
+	 * @param position
+	 *            the position of the first byte
+	 * @param length
+	 *            the number of bytes to read
+	 * @return the decoded string
+	 */
+	String getString(long position, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = getByte(position + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
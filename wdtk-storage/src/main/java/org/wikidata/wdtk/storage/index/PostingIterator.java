@@ -0,0 +1,115 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over a sorted list of numeric entity ids in a
+ * {@link PropertyValueIndex}. The ids are decoded from the memory-mapped index
+ * file while iterating, so that long lists do not need to be loaded into
+ * memory at once.
+ */
+public class PostingIterator {
+
+	final MappedFile file;
+	final int size;
+
+	long position;
+	int remaining;
+	int current;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file
+	 *            the file to read from; may be null if size is 0
+	 * @param position
+	 *            the position of the first encoded id in the file
+	 * @param size
+	 *            the number of ids in the list
+	 */
+	PostingIterator(MappedFile file, long position, int size) {
+		this.file = file;
+		this.position = position;
+		this.size = size;
+		this.remaining = size;
+		this.current = 0;
+	}
+
+	/**
+	 * Returns the total number of ids in the list, including those that have
+	 * already been returned.
+	 *
+	 * @return number of ids
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns true if there are more ids in the list.
+	 *
+	 * @return true if {@link #next()} can be called
+	 */
+	public boolean hasNext() {
+		return this.remaining > 0;
+	}
+
+	/**
+	 * Returns the next id in the list. Ids are returned in ascending order.
+	 *
+	 * @return the next id
+	 * @throws NoSuchElementException
+	 *             if there are no more ids
+	 */
+	public int next() {
+		if (this.remaining == 0) {
+			throw new NoSuchElementException();
+		}
+		this.remaining--;
+
+		int delta = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.file.getByte(this.position++);
+			delta |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		this.current += delta;
+		return this.current;
+	}
+
+	/**
+	 * Returns all remaining ids in an array.
+	 *
+	 * @return array of ids in ascending order
+	 */
+	public int[] toArray() {
+		int[] result = new int[this.remaining];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = next();
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,350 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.StringValue;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+/**
+ * Inverted index that finds items by the properties and values of their
+ * statements, as written by {@link PropertyValueIndexBuilder}. The index file
+ * is mapped into memory, so that opening an index is cheap and queries only
+ * read the parts of the file that they need.
+ * <p>
+ * For every property, the index records the numeric ids of all items that
+ * have a statement with this property. For every property and value, it
+ * records the items that have a statement with this property and value as
+ * their main snak. Values are only indexed if they are entity ids or strings.
+ * <p>
+ * The file format is as follows. The file starts with {@link #FORMAT_ID}. Then
+ * follow the posting lists, each being a sequence of ascending ids encoded as
+ * differences to their predecessor (the first id is encoded as is), using
+ * variable-length integers with seven bits per byte. Then follow the key
+ * records, each consisting of the variable-length byte length of the key, its
+ * UTF-8 bytes, the variable-length size of its posting list and the position
+ * of the posting list in the file as a long. Then follows a table with the
+ * position of every key record as a long, ordered by key. The file ends with
+ * the position of this table (long), the number of keys (int) and
+ * {@link #FORMAT_ID} again.
+ */
+public class PropertyValueIndex implements Closeable {
+
+	/**
+	 * Identifier at the start and end of index files.
+	 */
+	public static final int FORMAT_ID = 0x57504901;
+
+	/**
+	 * Number of bytes at the end of the file that hold the position of the
+	 * key table, the number of keys and the format id.
+	 */
+	static final int TRAILER_SIZE = 16;
+
+	final FileChannel channel;
+	final MappedFile file;
+	final long keyTablePosition;
+	final int keyCount;
+
+	/**
+	 * Opens the index in the given file.
+	 *
+	 * @param indexFile
+	 *            the file that the index was written to
+	 * @throws IOException
+	 *             if the file could not be read or is not an index file
+	 */
+	public PropertyValueIndex(Path indexFile) throws IOException {
+		this(indexFile, MappedFile.DEFAULT_SEGMENT_BITS);
+	}
+
+	/**
+	 * Opens the index in the given file, mapping it in segments of 2 to the
+	 * power of the given number of bytes. Only used for testing.
+	 *
+	 * @param indexFile
+	 *            the file that the index was written to
+	 * @param segmentBits
+	 *            the binary logarithm of the number of bytes per mapped
+	 *            segment
+	 * @throws IOException
+	 *             if the file could not be read or is not an index file
+	 */
+	PropertyValueIndex(Path indexFile, int segmentBits) throws IOException {
+		this.channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+		try {
+			this.file = new MappedFile(this.channel, segmentBits);
+			long size = this.file.size();
+			if (size < 4 + TRAILER_SIZE || this.file.getInt(0) != FORMAT_ID
+					|| this.file.getInt(size - 4) != FORMAT_ID) {
+				throw new IOException("File " + indexFile
+						+ " is not a property value index");
+			}
+			this.keyTablePosition = this.file.getLong(size - TRAILER_SIZE);
+			this.keyCount = this.file.getInt(size - TRAILER_SIZE + 8);
+		} catch (IOException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of keys in the index, i.e., the number of properties
+	 * plus the number of indexed property-value combinations.
+	 *
+	 * @return number of keys
+	 */
+	public int getKeyCount() {
+		return this.keyCount;
+	}
+
+	/**
+	 * Returns the ids of all items that have a statement with the given
+	 * property.
+	 *
+	 * @param property
+	 *            the property to look for
+	 * @return iterator over the numeric ids of the items
+	 */
+	public PostingIterator getItems(PropertyIdValue property) {
+		return getPostings(getKey(property));
+	}
+
+	/**
+	 * Returns the ids of all items that have a statement with the given
+	 * property and value.
+	 *
+	 * @param property
+	 *            the property to look for
+	 * @param value
+	 *            the value to look for; must be an {@link EntityIdValue} or a
+	 *            {@link StringValue}
+	 * @return iterator over the numeric ids of the items
+	 * @throws IllegalArgumentException
+	 *             if values of this type are not indexed
+	 */
+	public PostingIterator getItems(PropertyIdValue property, Value value) {
+		String key = getKey(property, value);
+		if (key == null) {
+			throw new IllegalArgumentException("Values of type "
+					+ value.getClass().getSimpleName() + " are not indexed");
+		}
+		return getPostings(key);
+	}
+
+	/**
+	 * Returns the ids that occur in all of the given lists. The lists are
+	 * consumed in the process.
+	 *
+	 * @param lists
+	 *            the lists to intersect
+	 * @return array of common ids in ascending order
+	 */
+	public static int[] intersect(PostingIterator... lists) {
+		if (lists.length == 0) {
+			return new int[0];
+		}
+		// start with the shortest list to skip as many ids as possible
+		PostingIterator[] iterators = lists.clone();
+		Arrays.sort(iterators, new Comparator<PostingIterator>() {
+			@Override
+			public int compare(PostingIterator o1, PostingIterator o2) {
+				return Integer.compare(o1.size(), o2.size());
+			}
+		});
+
+		int[] result = new int[iterators[0].size()];
+		int resultSize = 0;
+		int[] heads = new int[iterators.length];
+		for (int i = 0; i < iterators.length; i++) {
+			if (!iterators[i].hasNext()) {
+				return new int[0];
+			}
+			heads[i] = iterators[i].next();
+		}
+
+		int candidate = heads[0];
+		while (true) {
+			boolean match = true;
+			for (int i = 0; i < iterators.length; i++) {
+				while (heads[i] < candidate) {
+					if (!iterators[i].hasNext()) {
+						return Arrays.copyOf(result, resultSize);
+					}
+					heads[i] = iterators[i].next();
+				}
+				if (heads[i] > candidate) {
+					candidate = heads[i];
+					match = false;
+					break;
+				}
+			}
+			if (match) {
+				result[resultSize++] = candidate;
+				if (!iterators[0].hasNext()) {
+					return Arrays.copyOf(result, resultSize);
+				}
+				heads[0] = iterators[0].next();
+				candidate = heads[0];
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids that occur in any of the given lists. The lists are
+	 * consumed in the process.
+	 *
+	 * @param lists
+	 *            the lists to unite
+	 * @return array of ids in ascending order, without duplicates
+	 */
+	public static int[] union(PostingIterator... lists) {
+		int[] result = new int[0];
+		for (PostingIterator list : lists) {
+			result = merge(result, list.toArray());
+		}
+		return result;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Returns the key under which the items using the given property are
+	 * stored.
+	 *
+	 * @param property
+	 *            the property
+	 * @return the key
+	 */
+	static String getKey(PropertyIdValue property) {
+		return property.getId();
+	}
+
+	/**
+	 * Returns the key under which the items using the given property with the
+	 * given value are stored, or null if values of this type are not indexed.
+	 *
+	 * @param property
+	 *            the property
+	 * @param value
+	 *            the value
+	 * @return the key or null
+	 */
+	static String getKey(PropertyIdValue property, Value value) {
+		if (value instanceof EntityIdValue) {
+			return property.getId() + "=" + ((EntityIdValue) value).getId();
+		} else if (value instanceof StringValue) {
+			return property.getId() + "=" + ((StringValue) value).getString();
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Finds the posting list for the given key using binary search on the key
+	 * table.
+	 *
+	 * @param key
+	 *            the key to look for
+	 * @return the posting list, which is empty if the key was not found
+	 */
+	PostingIterator getPostings(String key) {
+		int low = 0;
+		int high = this.keyCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long recordPosition = this.file.getLong(this.keyTablePosition
+					+ 8L * middle);
+			long[] varint = readVarint(recordPosition);
+			int keyLength = (int) varint[0];
+			long keyPosition = varint[1];
+			int comparison = this.file.getString(keyPosition, keyLength)
+					.compareTo(key);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				varint = readVarint(keyPosition + keyLength);
+				return new PostingIterator(this.file,
+						this.file.getLong(varint[1]), (int) varint[0]);
+			}
+		}
+		return new PostingIterator(null, 0, 0);
+	}
+
+	/**
+	 * Reads a variable-length integer.
+	 *
+	 * @param position
+	 *            the position of its first byte
+	 * @return array with the value and the position after its last byte
+	 */
+	long[] readVarint(long position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = this.file.getByte(position++);
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return new long[] { value, position };
+	}
+
+	/**
+	 * Merges two sorted arrays without duplicates.
+	 */
+	static int[] merge(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				result[k++] = a[i++];
+			} else if (a[i] > b[j]) {
+				result[k++] = b[j++];
+			} else {
+				result[k++] = a[i++];
+				j++;
+			}
+		}
+		while (i < a.length) {
+			result[k++] = a[i++];
+		}
+		while (j < b.length) {
+			result[k++] = b[j++];
+		}
+		return k == result.length ? result : Arrays.copyOf(result, k);
+	}
+
+}
@@ -0,0 +1,647 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.ValueSnak;
+
+/**
+ * Processor that builds a {@link PropertyValueIndex} from the item documents
+ * that it receives, and writes it to a file when it is closed. Property
+ * documents are ignored.
+ * <p>
+ * The posting lists are collected in memory, using four bytes per occurrence
+ * of an item in a list, and are sorted and compressed only when they are
+ * written. Documents can therefore be processed in any order. When the
+ * collected data exceeds the memory limit given in the constructor, the
+ * posting lists are written to a temporary file as a sorted run, and the
+ * memory is freed. When the processor is closed, all runs are merged into
+ * the index without loading them into memory again. The index and the runs
+ * are written to temporary files next to the target file, and the index is
+ * then moved into place.
+ */
+public class PropertyValueIndexBuilder implements EntityDocumentDumpProcessor {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(PropertyValueIndexBuilder.class);
+
+	/**
+	 * Default number of bytes that collected posting lists may use before
+	 * they are written to a run file.
+	 */
+	public static final long DEFAULT_MEMORY_LIMIT = 256L * 1024 * 1024;
+
+	/**
+	 * Estimated number of bytes that a new key uses in memory, apart from its
+	 * characters.
+	 */
+	static final int KEY_OVERHEAD = 96;
+
+	/**
+	 * Growable list of item ids.
+	 */
+	static class PostingBuffer {
+		int[] ids = new int[4];
+		int size = 0;
+
+		/**
+		 * Adds an id to the list.
+		 *
+		 * @return the number of bytes by which the list has grown
+		 */
+		int add(int id) {
+			// consecutive duplicates are common for repeated values
+			if (this.size > 0 && this.ids[this.size - 1] == id) {
+				return 0;
+			}
+			int growth = 0;
+			if (this.size == this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, this.size * 2);
+				growth = 4 * this.size;
+			}
+			this.ids[this.size++] = id;
+			return growth;
+		}
+	}
+
+	/**
+	 * Writer for the index file format described in
+	 * {@link PropertyValueIndex}. Keys must be added in ascending order, and
+	 * the ids of each key in ascending order, where duplicates are ignored.
+	 * The key records and the key table are written to temporary files while
+	 * the posting lists are written, so that no key needs to be kept in
+	 * memory.
+	 */
+	static class IndexWriter implements Closeable {
+
+		final Path keyRecordFile;
+		final Path keyTableFile;
+		final DataOutputStream out;
+		final DataOutputStream keyRecordOut;
+		final DataOutputStream keyTableOut;
+
+		long position = 0;
+		long keyRecordPosition = 0;
+		int keyCount = 0;
+
+		long postingPosition;
+		int postingSize;
+		int previousId;
+
+		IndexWriter(Path file) throws IOException {
+			this.keyRecordFile = getTempFile(file, ".keys");
+			this.keyTableFile = getTempFile(file, ".table");
+			this.out = openOutput(file);
+			this.keyRecordOut = openOutput(this.keyRecordFile);
+			this.keyTableOut = openOutput(this.keyTableFile);
+
+			this.out.writeInt(PropertyValueIndex.FORMAT_ID);
+			this.position += 4;
+		}
+
+		void startKey() {
+			this.postingPosition = this.position;
+			this.postingSize = 0;
+			this.previousId = 0;
+		}
+
+		void addId(int id) throws IOException {
+			if (this.postingSize > 0 && id == this.previousId) {
+				return;
+			}
+			this.position += writeVarint(this.out, id - this.previousId);
+			this.previousId = id;
+			this.postingSize++;
+		}
+
+		void endKey(String key) throws IOException {
+			this.keyTableOut.writeLong(this.keyRecordPosition);
+			byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+			this.keyRecordPosition += writeVarint(this.keyRecordOut,
+					keyBytes.length);
+			this.keyRecordOut.write(keyBytes);
+			this.keyRecordPosition += keyBytes.length;
+			this.keyRecordPosition += writeVarint(this.keyRecordOut,
+					this.postingSize);
+			this.keyRecordOut.writeLong(this.postingPosition);
+			this.keyRecordPosition += 8;
+			this.keyCount++;
+		}
+
+		/**
+		 * Appends the key records and the key table to the posting lists.
+		 */
+		void finish() throws IOException {
+			this.keyRecordOut.close();
+			this.keyTableOut.close();
+
+			long keyRecordsPosition = this.position;
+			Files.copy(this.keyRecordFile, this.out);
+			long keyTablePosition = keyRecordsPosition
+					+ this.keyRecordPosition;
+			try (DataInputStream in = openInput(this.keyTableFile)) {
+				for (int i = 0; i < this.keyCount; i++) {
+					this.out.writeLong(keyRecordsPosition + in.readLong());
+				}
+			}
+
+			this.out.writeLong(keyTablePosition);
+			this.out.writeInt(this.keyCount);
+			this.out.writeInt(PropertyValueIndex.FORMAT_ID);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				this.out.close();
+				this.keyRecordOut.close();
+				this.keyTableOut.close();
+			} finally {
+				Files.deleteIfExists(this.keyRecordFile);
+				Files.deleteIfExists(this.keyTableFile);
+			}
+		}
+	}
+
+	/**
+	 * Reader for a run file, which contains the number of keys (int) followed
+	 * by the sorted keys, each with the variable-length byte length of the
+	 * key, its UTF-8 bytes, the variable-length size of its posting list and
+	 * the ids of the list, encoded as in the index.
+	 */
+	static class RunReader implements Closeable {
+
+		final DataInputStream in;
+		int remainingKeys;
+
+		String key;
+		int remainingIds;
+		int id;
+
+		RunReader(Path file) throws IOException {
+			this.in = openInput(file);
+			this.remainingKeys = this.in.readInt();
+		}
+
+		/**
+		 * Reads the next key of the run.
+		 *
+		 * @return false if there are no more keys
+		 */
+		boolean nextKey() throws IOException {
+			if (this.remainingKeys == 0) {
+				this.key = null;
+				return false;
+			}
+			this.remainingKeys--;
+			byte[] keyBytes = new byte[readVarint(this.in)];
+			this.in.readFully(keyBytes);
+			this.key = new String(keyBytes, StandardCharsets.UTF_8);
+			this.remainingIds = readVarint(this.in);
+			this.id = 0;
+			return true;
+		}
+
+		boolean hasNextId() {
+			return this.remainingIds > 0;
+		}
+
+		/**
+		 * Reads the next id of the posting list of the current key.
+		 */
+		int nextId() throws IOException {
+			this.remainingIds--;
+			this.id += readVarint(this.in);
+			return this.id;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+	}
+
+	final Path indexFile;
+	final long memoryLimit;
+
+	final Map<String, PostingBuffer> postings = new HashMap<>();
+
+	/**
+	 * Estimated number of bytes used by {@link #postings}.
+	 */
+	long postingsSize = 0;
+
+	/**
+	 * Run files that have been written since the processor was opened.
+	 */
+	final List<Path> runFiles = new ArrayList<>();
+
+	int itemCount = 0;
+
+	/**
+	 * Constructor. Posting lists may use about
+	 * {@link #DEFAULT_MEMORY_LIMIT} bytes before they are written to a run
+	 * file.
+	 *
+	 * @param indexFile
+	 *            the file to write the index to when the processor is closed
+	 */
+	public PropertyValueIndexBuilder(Path indexFile) {
+		this(indexFile, DEFAULT_MEMORY_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param indexFile
+	 *            the file to write the index to when the processor is closed
+	 * @param memoryLimit
+	 *            the approximate number of bytes that posting lists may use
+	 *            before they are written to a run file
+	 */
+	public PropertyValueIndexBuilder(Path indexFile, long memoryLimit) {
+		if (memoryLimit < 1) {
+			throw new IllegalArgumentException("Illegal memory limit: "
+					+ memoryLimit);
+		}
+		this.indexFile = indexFile;
+		this.memoryLimit = memoryLimit;
+	}
+
+	@Override
+	public void open() {
+		this.postings.clear();
+		this.postingsSize = 0;
+		deleteRunFiles();
+		this.itemCount = 0;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		int id = Integer.parseInt(itemDocument.getItemId().getId()
+				.substring(1));
+		this.itemCount++;
+
+		for (StatementGroup sg : itemDocument.getStatementGroups()) {
+			addPosting(PropertyValueIndex.getKey(sg.getProperty()), id);
+			for (Statement statement : sg.getStatements()) {
+				Snak mainSnak = statement.getClaim().getMainSnak();
+				if (mainSnak instanceof ValueSnak) {
+					String key = PropertyValueIndex.getKey(sg.getProperty(),
+							((ValueSnak) mainSnak).getValue());
+					if (key != null) {
+						addPosting(key, id);
+					}
+				}
+			}
+		}
+
+		if (this.postingsSize > this.memoryLimit) {
+			try {
+				writeRun();
+			} catch (IOException e) {
+				logger.error("Failed to write posting lists: " + e.toString());
+				throw new RuntimeException(e.toString(), e);
+			}
+		}
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		// property documents are not indexed
+	}
+
+	@Override
+	public void close() {
+		Path tempFile = getTempFile(this.indexFile, ".tmp");
+		int keyCount;
+		try {
+			if (this.runFiles.isEmpty()) {
+				keyCount = writeIndex(tempFile);
+			} else {
+				writeRun();
+				keyCount = mergeRuns(tempFile);
+			}
+			Files.move(tempFile, this.indexFile,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			logger.error("Failed to write property value index: "
+					+ e.toString());
+			throw new RuntimeException(e.toString(), e);
+		} finally {
+			this.postings.clear();
+			this.postingsSize = 0;
+			deleteRunFiles();
+		}
+		logger.info("Wrote property value index with " + keyCount
+				+ " keys for " + this.itemCount + " items to "
+				+ this.indexFile);
+	}
+
+	/**
+	 * Returns the number of item documents processed since the processor was
+	 * opened.
+	 *
+	 * @return number of items
+	 */
+	public int getItemCount() {
+		return this.itemCount;
+	}
+
+	void addPosting(String key, int id) {
+		PostingBuffer buffer = this.postings.get(key);
+		if (buffer == null) {
+			buffer = new PostingBuffer();
+			this.postings.put(key, buffer);
+			this.postingsSize += KEY_OVERHEAD + 2 * key.length();
+		}
+		this.postingsSize += buffer.add(id);
+	}
+
+	/**
+	 * Returns the keys of {@link #postings} in ascending order.
+	 *
+	 * @return sorted keys
+	 */
+	List<String> getSortedKeys() {
+		List<String> keys = new ArrayList<>(this.postings.keySet());
+		Collections.sort(keys);
+		return keys;
+	}
+
+	/**
+	 * Returns the sorted ids of the posting list for the given key, and
+	 * releases the memory of the list afterwards.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the sorted ids, which may contain duplicates
+	 */
+	int[] removeSortedIds(String key) {
+		PostingBuffer buffer = this.postings.remove(key);
+		Arrays.sort(buffer.ids, 0, buffer.size);
+		return Arrays.copyOf(buffer.ids, buffer.size);
+	}
+
+	/**
+	 * Writes the index for the posting lists in memory.
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @return the number of keys in the index
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	int writeIndex(Path file) throws IOException {
+		try (IndexWriter writer = new IndexWriter(file)) {
+			for (String key : getSortedKeys()) {
+				writer.startKey();
+				for (int id : removeSortedIds(key)) {
+					writer.addId(id);
+				}
+				writer.endKey(key);
+			}
+			writer.finish();
+			return writer.keyCount;
+		}
+	}
+
+	/**
+	 * Writes the posting lists in memory to a new run file and releases their
+	 * memory.
+	 *
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	void writeRun() throws IOException {
+		Path runFile = getTempFile(this.indexFile, ".run"
+				+ this.runFiles.size());
+		this.runFiles.add(runFile);
+		try (DataOutputStream out = openOutput(runFile)) {
+			out.writeInt(this.postings.size());
+			for (String key : getSortedKeys()) {
+				byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+				writeVarint(out, keyBytes.length);
+				out.write(keyBytes);
+
+				int[] ids = removeSortedIds(key);
+				int size = 0;
+				for (int i = 0; i < ids.length; i++) {
+					if (i == 0 || ids[i] != ids[i - 1]) {
+						ids[size++] = ids[i];
+					}
+				}
+				writeVarint(out, size);
+				int previous = 0;
+				for (int i = 0; i < size; i++) {
+					writeVarint(out, ids[i] - previous);
+					previous = ids[i];
+				}
+			}
+		}
+		this.postingsSize = 0;
+	}
+
+	/**
+	 * Merges all run files into an index.
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @return the number of keys in the index
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	int mergeRuns(Path file) throws IOException {
+		List<RunReader> readers = new ArrayList<>(this.runFiles.size());
+		try (IndexWriter writer = new IndexWriter(file)) {
+			PriorityQueue<RunReader> queue = new PriorityQueue<>(
+					this.runFiles.size(), new Comparator<RunReader>() {
+						@Override
+						public int compare(RunReader o1, RunReader o2) {
+							return o1.key.compareTo(o2.key);
+						}
+					});
+			for (Path runFile : this.runFiles) {
+				RunReader reader = new RunReader(runFile);
+				readers.add(reader);
+				if (reader.nextKey()) {
+					queue.add(reader);
+				}
+			}
+
+			List<RunReader> current = new ArrayList<>();
+			while (!queue.isEmpty()) {
+				String key = queue.peek().key;
+				while (!queue.isEmpty() && queue.peek().key.equals(key)) {
+					current.add(queue.poll());
+				}
+
+				writer.startKey();
+				mergeIds(current, writer);
+				writer.endKey(key);
+
+				for (RunReader reader : current) {
+					if (reader.nextKey()) {
+						queue.add(reader);
+					}
+				}
+				current.clear();
+			}
+			writer.finish();
+			return writer.keyCount;
+		} finally {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes the ids of the current posting lists of the given runs in
+	 * ascending order.
+	 *
+	 * @param readers
+	 *            the runs, all of which are at the same key
+	 * @param writer
+	 *            the writer to add the ids to
+	 * @throws IOException
+	 *             if a file could not be read or written
+	 */
+	static void mergeIds(List<RunReader> readers, IndexWriter writer)
+			throws IOException {
+		int[] heads = new int[readers.size()];
+		for (int i = 0; i < heads.length; i++) {
+			heads[i] = readers.get(i).nextId();
+		}
+		while (true) {
+			int next = -1;
+			for (int i = 0; i < heads.length; i++) {
+				if (heads[i] >= 0 && (next < 0 || heads[i] < heads[next])) {
+					next = i;
+				}
+			}
+			if (next < 0) {
+				return;
+			}
+			writer.addId(heads[next]);
+			RunReader reader = readers.get(next);
+			heads[next] = reader.hasNextId() ? reader.nextId() : -1;
+		}
+	}
+
+	void deleteRunFiles() {
+		for (Path runFile : this.runFiles) {
+			try {
+				Files.deleteIfExists(runFile);
+			} catch (IOException e) {
+				logger.warn("Could not delete temporary file " + runFile
+						+ ": " + e.toString());
+			}
+		}
+		this.runFiles.clear();
+	}
+
+	static Path getTempFile(Path file, String suffix) {
+		return file.resolveSibling(file.getFileName() + suffix);
+	}
+
+	static DataOutputStream openOutput(Path file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(
+				Files.newOutputStream(file)));
+	}
+
+	static DataInputStream openInput(Path file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(
+				Files.newInputStream(file)));
+	}
+
+	/**
+	 * Writes a variable-length integer with seven bits per byte.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param value
+	 *            the value to write, interpreted as unsigned
+	 * @return the number of bytes written
+	 * @throws IOException
+	 *             if the value could not be written
+	 */
+	static int writeVarint(DataOutputStream out, int value)
+			throws IOException {
+		int count = 1;
+		while ((value & ~0x7f) != 0) {
+			out.writeByte((value & 0x7f) | 0x80);
+			value >>>= 7;
+			count++;
+		}
+		out.writeByte(value);
+		return count;
+	}
+
+	/**
+	 * Reads a variable-length integer as written by
+	 * {@link #writeVarint(DataOutputStream, int)}.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @return the value
+	 * @throws IOException
+	 *             if the value could not be read
+	 */
+	static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = in.readUnsignedByte();
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+}
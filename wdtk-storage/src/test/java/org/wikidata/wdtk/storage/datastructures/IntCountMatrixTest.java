@@ -0,0 +1,67 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link IntCountMatrix}.
+ */
+public class IntCountMatrixTest {
+
+	@Test
+	public void testCounts() {
+		IntCountMatrix matrix = new IntCountMatrix();
+		matrix.increment(31, 279);
+		matrix.increment(31, 279);
+		matrix.add(31, 18, 5);
+		matrix.increment(18, 31);
+
+		Assert.assertEquals(2, matrix.get(31, 279));
+		Assert.assertEquals(5, matrix.get(31, 18));
+		Assert.assertEquals(1, matrix.get(18, 31));
+		Assert.assertEquals(0, matrix.get(279, 31));
+		Assert.assertEquals(0, matrix.get(1, 1));
+	}
+
+	@Test
+	public void testRows() {
+		IntCountMatrix matrix = new IntCountMatrix();
+		Assert.assertNull(matrix.getRow(5));
+
+		IntIntHashMap row = matrix.getOrCreateRow(5);
+		row.increment(1);
+		row.increment(2);
+		matrix.increment(7, 1);
+
+		Assert.assertSame(row, matrix.getRow(5));
+		Assert.assertEquals(1, matrix.get(5, 2));
+		Assert.assertEquals(2, matrix.getRow(5).size());
+
+		int[] rows = matrix.getRowIndexes();
+		Arrays.sort(rows);
+		Assert.assertArrayEquals(new int[] { 5, 7 }, rows);
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link IntIntHashMap} and {@link IntLongHashMap}.
+ */
+public class IntIntHashMapTest {
+
+	@Test
+	public void testEmptyMap() {
+		IntIntHashMap map = new IntIntHashMap();
+		Assert.assertEquals(0, map.size());
+		Assert.assertEquals(0, map.get(42));
+		Assert.assertFalse(map.containsKey(42));
+		Assert.assertFalse(map.containsKey(0));
+		Assert.assertEquals(0, map.getKeys().length);
+	}
+
+	@Test
+	public void testPutAndAdd() {
+		IntIntHashMap map = new IntIntHashMap();
+		map.put(31, 5);
+		Assert.assertEquals(5, map.get(31));
+		Assert.assertEquals(6, map.increment(31));
+		Assert.assertEquals(-4, map.add(279, -4));
+		map.put(31, 1);
+
+		Assert.assertEquals(1, map.get(31));
+		Assert.assertEquals(-4, map.get(279));
+		Assert.assertEquals(2, map.size());
+	}
+
+	@Test
+	public void testSpecialKeys() {
+		IntIntHashMap map = new IntIntHashMap();
+		map.increment(0);
+		map.increment(0);
+		map.increment(-1);
+		map.increment(Integer.MIN_VALUE);
+		map.increment(Integer.MAX_VALUE);
+
+		Assert.assertEquals(4, map.size());
+		Assert.assertTrue(map.containsKey(0));
+		Assert.assertEquals(2, map.get(0));
+		Assert.assertEquals(1, map.get(-1));
+		Assert.assertEquals(1, map.get(Integer.MIN_VALUE));
+		Assert.assertEquals(1, map.get(Integer.MAX_VALUE));
+
+		int[] keys = map.getKeys();
+		Arrays.sort(keys);
+		Assert.assertArrayEquals(new int[] { Integer.MIN_VALUE, -1, 0,
+				Integer.MAX_VALUE }, keys);
+	}
+
+	@Test
+	public void testGrowthMatchesHashMap() {
+		IntIntHashMap map = new IntIntHashMap();
+		Map<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			// consecutive ids as well as random ones
+			int key = (i % 2 == 0) ? i / 2 : random.nextInt();
+			int delta = random.nextInt(10);
+			map.add(key, delta);
+			Integer value = expected.get(key);
+			expected.put(key, (value == null ? 0 : value) + delta);
+		}
+
+		Assert.assertEquals(expected.size(), map.size());
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			Assert.assertEquals(entry.getValue().intValue(),
+					map.get(entry.getKey()));
+		}
+		Assert.assertEquals(expected.size(), map.getKeys().length);
+	}
+
+	@Test
+	public void testPutWithGrowth() {
+		IntIntHashMap map = new IntIntHashMap();
+		IntLongHashMap longMap = new IntLongHashMap();
+		for (int i = 1; i <= 1000; i++) {
+			map.put(i, -i);
+			longMap.put(i, -i);
+		}
+
+		Assert.assertEquals(1000, map.size());
+		for (int i = 1; i <= 1000; i++) {
+			Assert.assertEquals(-i, map.get(i));
+			Assert.assertEquals(-i, longMap.get(i));
+		}
+	}
+
+	@Test
+	public void testClear() {
+		IntIntHashMap map = new IntIntHashMap(100);
+		for (int i = 0; i < 100; i++) {
+			map.put(i, i + 1);
+		}
+		map.clear();
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertEquals(0, map.get(0));
+		Assert.assertEquals(0, map.get(50));
+		map.increment(50);
+		Assert.assertEquals(1, map.get(50));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeExpectedSize() {
+		new IntIntHashMap(-1);
+	}
+
+	@Test
+	public void testLongValues() {
+		IntLongHashMap map = new IntLongHashMap();
+		for (int i = 0; i < 1000; i++) {
+			map.add(i % 10, Integer.MAX_VALUE);
+		}
+		map.put(0, 7);
+
+		Assert.assertEquals(10, map.size());
+		Assert.assertEquals(7, map.get(0));
+		Assert.assertEquals(100L * Integer.MAX_VALUE, map.get(9));
+		Assert.assertEquals(0, map.get(10));
+	}
+
+}
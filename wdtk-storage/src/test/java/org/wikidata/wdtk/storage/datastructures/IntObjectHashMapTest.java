@@ -0,0 +1,72 @@
+package org.wikidata.wdtk.storage.datastructures;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class for {@link IntObjectHashMap}.
+ */
+public class IntObjectHashMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		IntObjectHashMap<String> map = new IntObjectHashMap<>();
+		Assert.assertNull(map.put(5, "Q5"));
+		Assert.assertNull(map.put(0, "Q0"));
+		Assert.assertEquals("Q5", map.put(5, "human"));
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("human", map.get(5));
+		Assert.assertEquals("Q0", map.get(0));
+		Assert.assertNull(map.get(6));
+		Assert.assertFalse(map.containsKey(6));
+	}
+
+	@Test
+	public void testGrowth() {
+		IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+		for (int i = -5000; i < 5000; i++) {
+			map.put(i * 31, i);
+		}
+
+		Assert.assertEquals(10000, map.size());
+		for (int i = -5000; i < 5000; i++) {
+			Assert.assertEquals(Integer.valueOf(i), map.get(i * 31));
+		}
+		Assert.assertNull(map.get(1));
+	}
+
+	@Test
+	public void testClear() {
+		IntObjectHashMap<String> map = new IntObjectHashMap<>();
+		map.put(1, "a");
+		map.put(0, "b");
+		map.clear();
+
+		Assert.assertEquals(0, map.size());
+		Assert.assertNull(map.get(1));
+		Assert.assertNull(map.get(0));
+		Assert.assertEquals(0, map.getKeys().length);
+	}
+
+}
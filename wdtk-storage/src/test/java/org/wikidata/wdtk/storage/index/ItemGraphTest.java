@@ -0,0 +1,311 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+/**
+ * Test class for {@link ItemGraphBuilder} and {@link ItemGraph}.
+ */
+public class ItemGraphTest {
+
+	static final PropertyIdValue P31 = Datamodel
+			.makeWikidataPropertyIdValue("P31");
+	static final PropertyIdValue P279 = Datamodel
+			.makeWikidataPropertyIdValue("P279");
+	static final PropertyIdValue P361 = Datamodel
+			.makeWikidataPropertyIdValue("P361");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Path graphFile;
+
+	@Before
+	public void setUp() throws IOException {
+		this.graphFile = this.folder.getRoot().toPath().resolve("graph.bin");
+
+		ItemGraphBuilder builder = new ItemGraphBuilder(this.graphFile,
+				new HashSet<>(Arrays.asList(P31, P279)));
+		builder.open();
+		// Q5 -> Q215627 -> Q35120, Q2 -> Q5, Q3 -> Q2 and Q3 -> Q5
+		builder.processItemDocument(makeItemDocument(5,
+				makeStatementGroup(5, P279, item(215627))));
+		builder.processItemDocument(makeItemDocument(3,
+				makeStatementGroup(3, P279, item(2), item(5), item(5))));
+		builder.processItemDocument(makeItemDocument(215627,
+				makeStatementGroup(215627, P279, item(35120))));
+		builder.processItemDocument(makeItemDocument(2,
+				makeStatementGroup(2, P279, item(5), null)));
+		// cycle Q10 -> Q11 -> Q10
+		builder.processItemDocument(makeItemDocument(10,
+				makeStatementGroup(10, P279, item(11))));
+		builder.processItemDocument(makeItemDocument(11,
+				makeStatementGroup(11, P279, item(10))));
+		// instances, and edges that are not recorded
+		builder.processItemDocument(makeItemDocument(42,
+				makeStatementGroup(42, P31, item(5),
+						Datamodel.makeStringValue("Q6")),
+				makeStatementGroup(42, P361, item(3))));
+		Assert.assertEquals(7, builder.getItemCount());
+		builder.close();
+	}
+
+	@Test
+	public void testNeighbors() throws IOException {
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			Assert.assertArrayEquals(new int[] { 2, 5 },
+					graph.getSuccessors(P279, 3));
+			Assert.assertArrayEquals(new int[] { 2, 3 },
+					graph.getPredecessors(P279, 5));
+			Assert.assertArrayEquals(new int[] { 5 },
+					graph.getSuccessors(P31, 42));
+			Assert.assertArrayEquals(new int[] { 42 },
+					graph.getPredecessors(P31, 5));
+			Assert.assertArrayEquals(new int[0], graph.getSuccessors(P279, 42));
+			Assert.assertArrayEquals(new int[0],
+					graph.getPredecessors(P279, 12345));
+			Assert.assertEquals(7, graph.getEdgeCount(P279));
+			Assert.assertEquals(1, graph.getEdgeCount(P31));
+		}
+	}
+
+	@Test
+	public void testClosure() throws IOException {
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			Assert.assertArrayEquals(new int[] { 2, 5, 35120, 215627 },
+					graph.getAncestors(P279, 3));
+			Assert.assertArrayEquals(new int[] { 2, 3, 5, 215627 },
+					graph.getDescendants(P279, 35120));
+			Assert.assertArrayEquals(new int[0],
+					graph.getDescendants(P279, 3));
+			// items on a cycle reach themselves
+			Assert.assertArrayEquals(new int[] { 10, 11 },
+					graph.getAncestors(P279, 10));
+		}
+	}
+
+	@Test
+	public void testBreadthFirstSearch() throws IOException {
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			Assert.assertArrayEquals(new int[] { 215627, 5 },
+					graph.breadthFirstSearch(P279, new int[] { 35120 }, true,
+							2));
+			Assert.assertArrayEquals(new int[] { 215627, 5, 2, 3 },
+					graph.breadthFirstSearch(P279, new int[] { 35120 }, true,
+							Integer.MAX_VALUE));
+			// start item Q2 is reached from start item Q3
+			Assert.assertArrayEquals(new int[] { 2, 5 },
+					graph.breadthFirstSearch(P279, new int[] { 3, 2 }, false,
+							1));
+		}
+	}
+
+	@Test
+	public void testSmallSegments() throws IOException {
+		try (ItemGraph graph = new ItemGraph(this.graphFile, 1)) {
+			Assert.assertArrayEquals(new int[] { 2, 5, 35120, 215627 },
+					graph.getAncestors(P279, 3));
+			Assert.assertArrayEquals(new int[] { 42 },
+					graph.getPredecessors(P31, 5));
+		}
+	}
+
+	@Test
+	public void testLargeTree() throws IOException {
+		// random tree where the parent of item i is some item below i
+		int size = 100000;
+		int[] parents = new int[size + 1];
+		Random random = new Random(42);
+		ItemGraphBuilder builder = new ItemGraphBuilder(this.graphFile,
+				Collections.singleton(P279));
+		builder.open();
+		for (int i = size; i >= 2; i--) {
+			parents[i] = 1 + random.nextInt(i - 1);
+			builder.processItemDocument(makeItemDocument(i,
+					makeStatementGroup(i, P279, item(parents[i]))));
+		}
+		builder.close();
+
+		// count the descendants of item 2 directly
+		int expected = 0;
+		for (int i = 3; i <= size; i++) {
+			int ancestor = parents[i];
+			while (ancestor > 2) {
+				ancestor = parents[ancestor];
+			}
+			if (ancestor == 2) {
+				expected++;
+			}
+		}
+
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			Assert.assertEquals(size - 1, graph.getEdgeCount(P279));
+			Assert.assertEquals(size - 1, graph.getDescendants(P279, 1).length);
+			Assert.assertEquals(expected,
+					graph.getDescendants(P279, 2).length);
+		}
+	}
+
+	@Test
+	public void testRunFiles() throws IOException {
+		Path otherFile = this.folder.getRoot().toPath().resolve("runs.bin");
+		ItemGraphBuilder builder = new ItemGraphBuilder(this.graphFile,
+				new HashSet<>(Arrays.asList(P31, P279)));
+		ItemGraphBuilder runBuilder = new ItemGraphBuilder(otherFile,
+				new HashSet<>(Arrays.asList(P31, P279)), 1000);
+		builder.open();
+		runBuilder.open();
+		Random random = new Random(42);
+		// every item is processed twice, so that runs contain duplicates
+		for (int i = 0; i < 2000; i++) {
+			int id = 1 + random.nextInt(1000);
+			ItemDocument itemDocument = makeItemDocument(id,
+					makeStatementGroup(id, P31, item(1 + random.nextInt(50))),
+					makeStatementGroup(id, P279,
+							item(1 + random.nextInt(1000)),
+							item(1 + random.nextInt(1000))));
+			builder.processItemDocument(itemDocument);
+			runBuilder.processItemDocument(itemDocument);
+		}
+		Assert.assertFalse(runBuilder.runFiles.isEmpty());
+		builder.close();
+		runBuilder.close();
+
+		Assert.assertArrayEquals(Files.readAllBytes(this.graphFile),
+				Files.readAllBytes(otherFile));
+		try (ItemGraph graph = new ItemGraph(otherFile)) {
+			Assert.assertTrue(graph.getEdgeCount(P279) > 0);
+		}
+		// no temporary files are left
+		Assert.assertEquals(2, this.folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testWithoutOpen() throws IOException {
+		ItemGraphBuilder builder = new ItemGraphBuilder(this.graphFile,
+				Collections.singleton(P279));
+		builder.processItemDocument(makeItemDocument(2,
+				makeStatementGroup(2, P279, item(1))));
+		builder.close();
+		// closing again must not replace the graph by an empty one
+		builder.close();
+
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			Assert.assertEquals(1, graph.getEdgeCount(P279));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMemoryLimit() {
+		new ItemGraphBuilder(this.graphFile, Collections.singleton(P279), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownProperty() throws IOException {
+		try (ItemGraph graph = new ItemGraph(this.graphFile)) {
+			graph.getSuccessors(P361, 42);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		Path file = this.folder.getRoot().toPath().resolve("other.bin");
+		Files.write(file, "This is not a graph file".getBytes());
+		new ItemGraph(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncatedFile() throws IOException {
+		byte[] bytes = Files.readAllBytes(this.graphFile);
+		Path file = this.folder.getRoot().toPath().resolve("truncated.bin");
+		// keep the format id at the end but drop some edges
+		byte[] truncated = Arrays.copyOf(bytes, bytes.length - 8);
+		System.arraycopy(bytes, bytes.length - 4, truncated,
+				truncated.length - 4, 4);
+		Files.write(file, truncated);
+		new ItemGraph(file);
+	}
+
+	static Value item(int id) {
+		return Datamodel.makeWikidataItemIdValue("Q" + id);
+	}
+
+	/**
+	 * Creates a statement group with one statement for each value. Null
+	 * values lead to statements with some value snaks.
+	 */
+	StatementGroup makeStatementGroup(int subject, PropertyIdValue property,
+			Value... values) {
+		List<Statement> statements = new ArrayList<>();
+		for (Value value : values) {
+			Snak mainSnak;
+			if (value == null) {
+				mainSnak = Datamodel.makeSomeValueSnak(property);
+			} else {
+				mainSnak = Datamodel.makeValueSnak(property, value);
+			}
+			statements.add(Datamodel.makeStatement(Datamodel.makeClaim(
+					Datamodel.makeWikidataItemIdValue("Q" + subject),
+					mainSnak, Collections.<SnakGroup> emptyList()),
+					Collections.<Reference> emptyList(), StatementRank.NORMAL,
+					""));
+		}
+		return Datamodel.makeStatementGroup(statements);
+	}
+
+	ItemDocument makeItemDocument(int id, StatementGroup... statementGroups) {
+		return Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue("Q" + id),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Arrays.asList(statementGroups),
+				Collections.<String, SiteLink> emptyMap());
+	}
+
+}
@@ -0,0 +1,310 @@
+package org.wikidata.wdtk.storage.index;
+
+/*
+ * #%L
+ * Wikidata Toolkit Storage
+ * %%
+ * Copyright (C) 2014 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.Reference;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.Snak;
+import org.wikidata.wdtk.datamodel.interfaces.SnakGroup;
+import org.wikidata.wdtk.datamodel.interfaces.Statement;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
+import org.wikidata.wdtk.datamodel.interfaces.Value;
+
+/**
+ * Test class for {@link PropertyValueIndexBuilder} and
+ * {@link PropertyValueIndex}.
+ */
+public class PropertyValueIndexTest {
+
+	static final PropertyIdValue P31 = Datamodel
+			.makeWikidataPropertyIdValue("P31");
+	static final PropertyIdValue P625 = Datamodel
+			.makeWikidataPropertyIdValue("P625");
+	static final PropertyIdValue P1476 = Datamodel
+			.makeWikidataPropertyIdValue("P1476");
+	static final ItemIdValue Q5 = Datamodel.makeWikidataItemIdValue("Q5");
+	static final ItemIdValue Q515 = Datamodel.makeWikidataItemIdValue("Q515");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Path indexFile;
+
+	@Before
+	public void setUp() throws IOException {
+		this.indexFile = this.folder.getRoot().toPath().resolve("index.bin");
+
+		buildIndex(new PropertyValueIndexBuilder(this.indexFile));
+	}
+
+	void buildIndex(PropertyValueIndexBuilder builder) {
+		builder.open();
+		// documents are not in order of their ids
+		builder.processItemDocument(makeItemDocument("Q42",
+				makeStatement("Q42", P31, Q5)));
+		builder.processItemDocument(makeItemDocument("Q1",
+				makeStatement("Q1", P31, Q515),
+				makeStatement("Q1", P31, Q5),
+				makeSomeValueStatement("Q1", P625)));
+		builder.processItemDocument(makeItemDocument("Q64",
+				makeStatement("Q64", P31, Q515),
+				makeSomeValueStatement("Q64", P625),
+				makeStatement("Q64", P1476,
+						Datamodel.makeStringValue("Berlin"))));
+		builder.processItemDocument(makeItemDocument("Q1000000",
+				makeStatement("Q1000000", P31, Q5),
+				makeStatement("Q1000000", P31, Q5)));
+		builder.processPropertyDocument(Datamodel.makePropertyDocument(P31,
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Datamodel.makeDatatypeIdValue(DatatypeIdValue.DT_ITEM)));
+		Assert.assertEquals(4, builder.getItemCount());
+		builder.close();
+	}
+
+	@Test
+	public void testPropertyUse() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			Assert.assertArrayEquals(new int[] { 1, 42, 64, 1000000 }, index
+					.getItems(P31).toArray());
+			Assert.assertArrayEquals(new int[] { 1, 64 }, index.getItems(P625)
+					.toArray());
+			Assert.assertEquals(2, index.getItems(P625).size());
+			// P31, P625, P1476, P31=Q5, P31=Q515, P1476=Berlin
+			Assert.assertEquals(6, index.getKeyCount());
+		}
+	}
+
+	@Test
+	public void testPropertyValues() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			Assert.assertArrayEquals(new int[] { 1, 42, 1000000 }, index
+					.getItems(P31, Q5).toArray());
+			Assert.assertArrayEquals(new int[] { 1, 64 },
+					index.getItems(P31, Q515).toArray());
+			Assert.assertArrayEquals(
+					new int[] { 64 },
+					index.getItems(P1476, Datamodel.makeStringValue("Berlin"))
+							.toArray());
+		}
+	}
+
+	@Test
+	public void testMissingKeys() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			Assert.assertEquals(0,
+					index.getItems(Datamodel.makeWikidataPropertyIdValue("P2"))
+							.size());
+			PostingIterator postings = index.getItems(P31,
+					Datamodel.makeWikidataItemIdValue("Q6"));
+			Assert.assertFalse(postings.hasNext());
+			Assert.assertEquals(0, postings.toArray().length);
+		}
+	}
+
+	@Test
+	public void testIntersectAndUnion() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			Assert.assertArrayEquals(new int[] { 1 }, PropertyValueIndex
+					.intersect(index.getItems(P31, Q5),
+							index.getItems(P31, Q515)));
+			Assert.assertArrayEquals(new int[] { 1, 64 }, PropertyValueIndex
+					.intersect(index.getItems(P31), index.getItems(P625)));
+			Assert.assertArrayEquals(new int[0], PropertyValueIndex.intersect(
+					index.getItems(P1476), index.getItems(P31, Q5)));
+			Assert.assertArrayEquals(new int[] { 1, 42, 64, 1000000 },
+					PropertyValueIndex.union(index.getItems(P31, Q5),
+							index.getItems(P31, Q515)));
+			Assert.assertArrayEquals(new int[] { 1, 64 }, PropertyValueIndex
+					.union(index.getItems(P625)));
+		}
+	}
+
+	@Test
+	public void testSmallSegments() throws IOException {
+		// posting lists and keys cross the boundaries of mapped segments
+		try (PropertyValueIndex index = new PropertyValueIndex(
+				this.indexFile, 1)) {
+			Assert.assertArrayEquals(new int[] { 1, 42, 1000000 }, index
+					.getItems(P31, Q5).toArray());
+			Assert.assertArrayEquals(
+					new int[] { 64 },
+					index.getItems(P1476, Datamodel.makeStringValue("Berlin"))
+							.toArray());
+		}
+	}
+
+	@Test
+	public void testLongPostingList() throws IOException {
+		PropertyValueIndexBuilder builder = new PropertyValueIndexBuilder(
+				this.indexFile);
+		builder.open();
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 1; i <= 10000; i++) {
+			ids.add(i * 37);
+		}
+		Collections.shuffle(ids);
+		for (int id : ids) {
+			builder.processItemDocument(makeItemDocument("Q" + id,
+					makeStatement("Q" + id, P31, Q5)));
+		}
+		builder.close();
+
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			PostingIterator postings = index.getItems(P31, Q5);
+			Assert.assertEquals(10000, postings.size());
+			for (int i = 1; i <= 10000; i++) {
+				Assert.assertEquals(i * 37, postings.next());
+			}
+			Assert.assertFalse(postings.hasNext());
+		}
+	}
+
+	@Test
+	public void testRunsAreMerged() throws IOException {
+		// every document is written to a run of its own
+		Path mergedFile = this.folder.getRoot().toPath().resolve("merged.bin");
+		buildIndex(new PropertyValueIndexBuilder(mergedFile, 1));
+
+		Assert.assertArrayEquals(Files.readAllBytes(this.indexFile),
+				Files.readAllBytes(mergedFile));
+		// only the two index files remain
+		Assert.assertEquals(2, this.folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testLongPostingListFromRuns() throws IOException {
+		PropertyValueIndexBuilder builder = new PropertyValueIndexBuilder(
+				this.indexFile, 1000);
+		builder.open();
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 1; i <= 10000; i++) {
+			ids.add(i * 37);
+		}
+		Collections.shuffle(ids);
+		for (int id : ids) {
+			builder.processItemDocument(makeItemDocument("Q" + id,
+					makeStatement("Q" + id, P31, Q5)));
+		}
+		Assert.assertTrue(builder.runFiles.size() > 1);
+		builder.close();
+
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			PostingIterator postings = index.getItems(P31, Q5);
+			Assert.assertEquals(10000, postings.size());
+			for (int i = 1; i <= 10000; i++) {
+				Assert.assertEquals(i * 37, postings.next());
+			}
+			Assert.assertFalse(postings.hasNext());
+			Assert.assertEquals(2, index.getKeyCount());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMemoryLimit() {
+		new PropertyValueIndexBuilder(this.indexFile, 0);
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNextAfterEnd() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			PostingIterator postings = index.getItems(P1476);
+			postings.next();
+			postings.next();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedValue() throws IOException {
+		try (PropertyValueIndex index = new PropertyValueIndex(this.indexFile)) {
+			index.getItems(P31, Datamodel.makeMonolingualTextValue("a", "en"));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidFile() throws IOException {
+		Path file = this.folder.getRoot().toPath().resolve("other.bin");
+		Files.write(file, "This is not an index file".getBytes());
+		new PropertyValueIndex(file);
+	}
+
+	ItemDocument makeItemDocument(String id, Statement... statements) {
+		List<StatementGroup> statementGroups = new ArrayList<>();
+		List<Statement> group = new ArrayList<>();
+		for (Statement statement : statements) {
+			if (!group.isEmpty()
+					&& !group.get(0).getClaim().getMainSnak().getPropertyId()
+							.equals(statement.getClaim().getMainSnak()
+									.getPropertyId())) {
+				statementGroups.add(Datamodel.makeStatementGroup(group));
+				group = new ArrayList<>();
+			}
+			group.add(statement);
+		}
+		if (!group.isEmpty()) {
+			statementGroups.add(Datamodel.makeStatementGroup(group));
+		}
+		return Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue(id),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				statementGroups, Collections.<String, SiteLink> emptyMap());
+	}
+
+	Statement makeStatement(String subject, PropertyIdValue property,
+			Value value) {
+		return makeStatement(subject, Datamodel.makeValueSnak(property, value));
+	}
+
+	Statement makeSomeValueStatement(String subject, PropertyIdValue property) {
+		return makeStatement(subject, Datamodel.makeSomeValueSnak(property));
+	}
+
+	Statement makeStatement(String subject, Snak mainSnak) {
+		return Datamodel.makeStatement(Datamodel.makeClaim(
+				Datamodel.makeWikidataItemIdValue(subject), mainSnak,
+				Collections.<SnakGroup> emptyList()), Collections
+				.<Reference> emptyList(), StatementRank.NORMAL, "");
+	}
+
+}
@@ -37,6 +37,9 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
 import org.wikidata.wdtk.util.CompressionType;
 import org.wikidata.wdtk.util.DirectoryManager;
 
@@ -66,6 +69,28 @@ public class MockDirectoryManager implements DirectoryManager {
 	 */
 	public static HashMap<Path, byte[]> files = new HashMap<>();
 
+	/**
+	 * Mocked files whose contents are generated when they are read. They are
+	 * cleared together with {@link #files}.
+	 */
+	static HashMap<Path, SyntheticFile> syntheticFiles = new HashMap<>();
+
+	/**
+	 * Settings of a mocked file with generated contents.
+	 */
+	static class SyntheticFile {
+		final SyntheticDumpGenerator generator;
+		final DumpFormat dumpFormat;
+		final CompressionType compressionType;
+
+		SyntheticFile(SyntheticDumpGenerator generator, DumpFormat dumpFormat,
+				CompressionType compressionType) {
+			this.generator = generator;
+			this.dumpFormat = dumpFormat;
+			this.compressionType = compressionType;
+		}
+	}
+
 	final Path directory;
 	boolean returnFailingReaders;
 
@@ -96,6 +121,7 @@ public class MockDirectoryManager implements DirectoryManager {
 
 		if (resetFileSystem) {
 			files = new HashMap<>();
+			syntheticFiles = new HashMap<>();
 		}
 
 		if (files.containsKey(directory)
@@ -159,6 +185,34 @@ public class MockDirectoryManager implements DirectoryManager {
 		}
 	}
 
+	/**
+	 * Sets the contents of the file at the given path to a dump that is
+	 * generated by the given generator, and creates all parent directories in
+	 * our mocked view of the file system. The dump is generated anew whenever
+	 * the file is read and is never stored in memory as a whole, so that
+	 * files of arbitrary size can be mocked.
+	 *
+	 * @param path
+	 * @param generator
+	 *            the generator for the dump
+	 * @param dumpFormat
+	 *            the format of the dump
+	 * @param compressionType
+	 *            the compression of the file
+	 * @throws IOException
+	 */
+	public void setFileContents(Path path, SyntheticDumpGenerator generator,
+			DumpFormat dumpFormat, CompressionType compressionType)
+			throws IOException {
+		files.remove(path);
+		syntheticFiles.put(path, new SyntheticFile(generator, dumpFormat,
+				compressionType));
+		Path parent = path.getParent();
+		if (parent != null) {
+			setFileContents(parent, DIRECTORY_MARKER_STRING);
+		}
+	}
+
 	/**
 	 * Create the given directory and all parent directories in our mocked view
 	 * of the file system.
@@ -188,6 +242,9 @@ public class MockDirectoryManager implements DirectoryManager {
 	@Override
 	public boolean hasFile(String fileName) {
 		Path filePath = this.directory.resolve(fileName);
+		if (syntheticFiles.containsKey(filePath)) {
+			return true;
+		}
 		return files.containsKey(filePath)
 				&& !Arrays.equals(files.get(filePath), DIRECTORY_MARKER);
 	}
@@ -204,6 +261,7 @@ public class MockDirectoryManager implements DirectoryManager {
 		out.close();
 
 		Path filePath = this.directory.resolve(fileName);
+		syntheticFiles.remove(filePath);
 		files.put(filePath, out.toByteArray());
 
 		return out.size();
@@ -251,7 +309,13 @@ public class MockDirectoryManager implements DirectoryManager {
 			return new GZIPInputStream(getInputStreamForMockFile(fileName));
 		} else if (compressionType == CompressionType.BZ2) {
 			return new BZip2CompressorInputStream(
+					getInputStreamForMockFile(fileName), true);
+		} else if (compressionType == CompressionType.ZSTD) {
+			return new ZstdCompressorInputStream(
 					getInputStreamForMockFile(fileName));
+		} else if (compressionType == CompressionType.LZ4) {
+			return new FramedLZ4CompressorInputStream(
+					getInputStreamForMockFile(fileName), true);
 		} else {
 			return getInputStreamForMockFile(fileName);
 		}
@@ -264,9 +328,12 @@ public class MockDirectoryManager implements DirectoryManager {
 	 * @param fileName
 	 * @return input stream for file
 	 * @throws FileNotFoundException
+	 *             if the file does not exist
+	 * @throws IOException
+	 *             if the contents of a generated file could not be prepared
 	 */
 	InputStream getInputStreamForMockFile(String fileName)
-			throws FileNotFoundException {
+			throws IOException {
 		if (!hasFile(fileName)) {
 			throw new FileNotFoundException("Could not find file \"" + fileName
 					+ "\" in current directory \"" + this.directory.toString()
@@ -277,6 +344,11 @@ public class MockDirectoryManager implements DirectoryManager {
 			return MockStringContentFactory.getFailingInputStream();
 		} else {
 			Path filePath = this.directory.resolve(fileName);
+			SyntheticFile syntheticFile = syntheticFiles.get(filePath);
+			if (syntheticFile != null) {
+				return syntheticFile.generator.getDumpStream(
+						syntheticFile.dumpFormat, syntheticFile.compressionType);
+			}
 			return MockStringContentFactory.newMockInputStream(files
 					.get(filePath));
 		}
@@ -287,7 +359,9 @@ public class MockDirectoryManager implements DirectoryManager {
 		List<String> result = new ArrayList<String>();
 		PathMatcher pathMatcher = FileSystems.getDefault().getPathMatcher(
 				"glob:" + glob);
-		for (Path path : files.keySet()) {
+		List<Path> paths = new ArrayList<>(files.keySet());
+		paths.addAll(syntheticFiles.keySet());
+		for (Path path : paths) {
 			if (!this.directory.equals(path.getParent())) {
 				continue;
 			}
@@ -35,6 +35,7 @@ public class MockOutputStream extends ByteArrayOutputStream {
 	@Override
 	public void close() throws IOException {
 		super.close();
+		MockDirectoryManager.syntheticFiles.remove(this.tartgetPath);
 		MockDirectoryManager.files.put(this.tartgetPath, this.toByteArray());
 	}
 }
@@ -26,12 +26,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
 import org.mockito.Mockito;
 import org.wikidata.wdtk.util.CompressionType;
 
@@ -168,18 +171,12 @@ public class MockStringContentFactory {
 			return string.getBytes(StandardCharsets.UTF_8);
 		case BZ2:
 		case GZIP:
+		case ZSTD:
+		case LZ4:
 			ByteArrayOutputStream out = new ByteArrayOutputStream();
-			OutputStreamWriter ow;
-			if (compressionType == CompressionType.GZIP) {
-				ow = new OutputStreamWriter(
-						new GzipCompressorOutputStream(out),
-						StandardCharsets.UTF_8);
-			} else {
-				ow = new OutputStreamWriter(
-						new BZip2CompressorOutputStream(out),
-						StandardCharsets.UTF_8);
-			}
-
+			OutputStreamWriter ow = new OutputStreamWriter(
+					getCompressorOutputStream(out, compressionType),
+					StandardCharsets.UTF_8);
 			ow.write(string);
 			ow.close();
 			return out.toByteArray();
@@ -188,4 +185,35 @@ public class MockStringContentFactory {
 					+ compressionType);
 		}
 	}
+
+	/**
+	 * Returns an output stream that compresses the data written to it and
+	 * writes the compressed data to the given stream.
+	 *
+	 * @param out
+	 *            the stream to write compressed data to
+	 * @param compressionType
+	 *            the compression to use
+	 * @return the compressing output stream, or the given stream if no
+	 *         compression is used
+	 * @throws IOException
+	 */
+	public static OutputStream getCompressorOutputStream(OutputStream out,
+			CompressionType compressionType) throws IOException {
+		switch (compressionType) {
+		case NONE:
+			return out;
+		case GZIP:
+			return new GzipCompressorOutputStream(out);
+		case BZ2:
+			return new BZip2CompressorOutputStream(out);
+		case ZSTD:
+			return new ZstdCompressorOutputStream(out);
+		case LZ4:
+			return new FramedLZ4CompressorOutputStream(out);
+		default:
+			throw new RuntimeException("Unknown compression type "
+					+ compressionType);
+		}
+	}
 }
@@ -25,6 +25,8 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.HashMap;
 
+import org.wikidata.wdtk.testing.MockDirectoryManager.SyntheticFile;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
 import org.wikidata.wdtk.util.CompressionType;
 import org.wikidata.wdtk.util.WebResourceFetcher;
 
@@ -37,6 +39,7 @@ import org.wikidata.wdtk.util.WebResourceFetcher;
 public class MockWebResourceFetcher implements WebResourceFetcher {
 
 	public final HashMap<String, byte[]> webResources;
+	final HashMap<String, SyntheticFile> syntheticWebResources;
 	boolean returnFailingReaders;
 
 	/**
@@ -45,6 +48,7 @@ public class MockWebResourceFetcher implements WebResourceFetcher {
 	 */
 	public MockWebResourceFetcher() {
 		this.webResources = new HashMap<String, byte[]>();
+		this.syntheticWebResources = new HashMap<>();
 	}
 
 	/**
@@ -87,10 +91,33 @@ public class MockWebResourceFetcher implements WebResourceFetcher {
 	 */
 	public void setWebResourceContents(String url, String contents,
 			CompressionType compressionType) throws IOException {
+		this.syntheticWebResources.remove(url);
 		this.webResources.put(url, MockStringContentFactory.getBytesFromString(
 				contents, compressionType));
 	}
 
+	/**
+	 * Defines the contents of a new web resource as a dump that is generated
+	 * by the given generator. The dump is generated anew whenever the
+	 * resource is read and is never stored in memory as a whole.
+	 *
+	 * @param url
+	 *            the URL string
+	 * @param generator
+	 *            the generator for the dump
+	 * @param dumpFormat
+	 *            the format of the dump
+	 * @param compressionType
+	 *            the compression to use on the mocked contents
+	 */
+	public void setWebResourceContents(String url,
+			SyntheticDumpGenerator generator, DumpFormat dumpFormat,
+			CompressionType compressionType) {
+		this.webResources.remove(url);
+		this.syntheticWebResources.put(url, new SyntheticFile(generator,
+				dumpFormat, compressionType));
+	}
+
 	/**
 	 * Defines the contents of a new web resource by taking the string from a
 	 * given (Java) resource.
@@ -154,12 +181,19 @@ public class MockWebResourceFetcher implements WebResourceFetcher {
 	 */
 	InputStream getInputStreamForMockWebResource(String urlString)
 			throws IOException {
-		if (!this.webResources.containsKey(urlString)) {
+		if (!this.webResources.containsKey(urlString)
+				&& !this.syntheticWebResources.containsKey(urlString)) {
 			throw new IOException("Inaccessible URL (not mocked): " + urlString);
 		}
 
 		if (this.returnFailingReaders) {
 			return MockStringContentFactory.getFailingInputStream();
+		}
+
+		SyntheticFile syntheticFile = this.syntheticWebResources.get(urlString);
+		if (syntheticFile != null) {
+			return syntheticFile.generator.getDumpStream(
+					syntheticFile.dumpFormat, syntheticFile.compressionType);
 		} else {
 			return MockStringContentFactory
 					.newMockInputStream(this.webResources.get(urlString));
@@ -0,0 +1,330 @@
+package org.wikidata.wdtk.testing;
+
+
+/*
+ * #%L
+ * Wikidata Toolkit Testing Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.wikidata.wdtk.util.CompressionType;
+
+/**
+ * Generates JSON dumps and MediaWiki XML revision dumps of Wikidata-like
+ * entities of arbitrary size. The dumps are produced as streams, so that
+ * even dumps with many millions of entities can be processed without
+ * keeping them in memory or on disk. They can be made available as files of
+ * a {@link MockDirectoryManager} or as resources of a
+ * {@link MockWebResourceFetcher}.
+ * <p>
+ * Generation is seeded: the same seed and settings always lead to the same
+ * dump. Each entity only depends on the seed, the settings, the size of the
+ * dump and its position in the dump, so that entities can be generated
+ * independently and dumps can be streamed with constant memory.
+ * The numbers of labels, statements, site links and so on of each entity are
+ * drawn from geometric distributions with configurable means; this leads to
+ * many small entities and a few large ones, like in Wikidata. The first
+ * entities of each dump are properties, all others are items.
+ */
+public class SyntheticDumpGenerator {
+
+	/**
+	 * Formats of the generated dumps.
+	 */
+	public enum DumpFormat {
+		/**
+		 * JSON array of entities, one entity per line, as in the JSON dumps
+		 * of Wikidata.
+		 */
+		JSON,
+		/**
+		 * MediaWiki XML export format with one page per entity, as in the
+		 * XML dumps of Wikidata.
+		 */
+		XML
+	}
+
+	final long seed;
+	final long entityCount;
+
+	int propertyCount = 100;
+	double labelsPerEntity = 3.0;
+	double descriptionsPerEntity = 2.0;
+	double aliasesPerEntity = 1.0;
+	double statementsPerItem = 6.0;
+	double qualifiersPerStatement = 0.3;
+	double referencesPerStatement = 0.7;
+	double siteLinksPerItem = 2.0;
+	double revisionsPerPage = 1.0;
+	int[] valueTypeWeights = { 50, 20, 10, 6, 6, 3 };
+
+	/**
+	 * Constructor.
+	 *
+	 * @param seed
+	 *            the seed for generating random data
+	 * @param entityCount
+	 *            the total number of entities (properties and items) in the
+	 *            dump
+	 */
+	public SyntheticDumpGenerator(long seed, long entityCount) {
+		if (entityCount < 0) {
+			throw new IllegalArgumentException(
+					"The number of entities must not be negative");
+		}
+		this.seed = seed;
+		this.entityCount = entityCount;
+	}
+
+	/**
+	 * Returns the total number of entities (properties and items) in the
+	 * dump.
+	 *
+	 * @return number of entities
+	 */
+	public long getEntityCount() {
+		return this.entityCount;
+	}
+
+	/**
+	 * Returns the number of properties in the dump. Properties are the first
+	 * entities of each dump.
+	 *
+	 * @return number of properties
+	 */
+	public int getPropertyCount() {
+		return (int) Math.min(this.propertyCount, this.entityCount);
+	}
+
+	/**
+	 * Returns the number of items in the dump.
+	 *
+	 * @return number of items
+	 */
+	public long getItemCount() {
+		return this.entityCount - getPropertyCount();
+	}
+
+	/**
+	 * Sets the number of properties. If there are not enough entities, all
+	 * entities will be properties. The default is 100.
+	 *
+	 * @param propertyCount
+	 *            number of properties, at least 1
+	 */
+	public void setPropertyCount(int propertyCount) {
+		if (propertyCount < 1) {
+			throw new IllegalArgumentException(
+					"There must be at least one property");
+		}
+		this.propertyCount = propertyCount;
+	}
+
+	/**
+	 * Sets the mean number of labels of each entity. The default is 3.
+	 *
+	 * @param mean
+	 *            mean number of labels
+	 */
+	public void setLabelsPerEntity(double mean) {
+		this.labelsPerEntity = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of descriptions of each entity. The default is 2.
+	 *
+	 * @param mean
+	 *            mean number of descriptions
+	 */
+	public void setDescriptionsPerEntity(double mean) {
+		this.descriptionsPerEntity = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of aliases of each entity. The default is 1.
+	 *
+	 * @param mean
+	 *            mean number of aliases
+	 */
+	public void setAliasesPerEntity(double mean) {
+		this.aliasesPerEntity = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of statements of each item. The default is 6.
+	 *
+	 * @param mean
+	 *            mean number of statements
+	 */
+	public void setStatementsPerItem(double mean) {
+		this.statementsPerItem = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of qualifiers of each statement. The default is
+	 * 0.3.
+	 *
+	 * @param mean
+	 *            mean number of qualifiers
+	 */
+	public void setQualifiersPerStatement(double mean) {
+		this.qualifiersPerStatement = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of references of each statement. The default is
+	 * 0.7.
+	 *
+	 * @param mean
+	 *            mean number of references
+	 */
+	public void setReferencesPerStatement(double mean) {
+		this.referencesPerStatement = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of site links of each item. The default is 2.
+	 *
+	 * @param mean
+	 *            mean number of site links
+	 */
+	public void setSiteLinksPerItem(double mean) {
+		this.siteLinksPerItem = checkMean(mean);
+	}
+
+	/**
+	 * Sets the mean number of revisions of each page in XML dumps. Every page
+	 * has at least one revision. The default is 1, which leads to dumps with
+	 * only the current revision of each page.
+	 *
+	 * @param mean
+	 *            mean number of revisions, at least 1
+	 */
+	public void setRevisionsPerPage(double mean) {
+		if (mean < 1) {
+			throw new IllegalArgumentException(
+					"Every page must have at least one revision");
+		}
+		this.revisionsPerPage = mean;
+	}
+
+	/**
+	 * Sets the relative frequency of the types of values of properties. The
+	 * datatype of each property is chosen according to these weights; values
+	 * of statements follow the datatype of their property. The defaults are
+	 * 50, 20, 10, 6, 6 and 3.
+	 *
+	 * @param item
+	 *            weight of item values
+	 * @param string
+	 *            weight of string values
+	 * @param time
+	 *            weight of time values
+	 * @param quantity
+	 *            weight of quantity values
+	 * @param globeCoordinates
+	 *            weight of globe coordinates values
+	 * @param monolingualText
+	 *            weight of monolingual text values
+	 */
+	public void setValueTypeWeights(int item, int string, int time,
+			int quantity, int globeCoordinates, int monolingualText) {
+		int[] weights = { item, string, time, quantity, globeCoordinates,
+				monolingualText };
+		int sum = 0;
+		for (int weight : weights) {
+			if (weight < 0) {
+				throw new IllegalArgumentException(
+						"Weights must not be negative");
+			}
+			sum += weight;
+		}
+		if (sum == 0) {
+			throw new IllegalArgumentException(
+					"At least one weight must be positive");
+		}
+		this.valueTypeWeights = weights;
+	}
+
+	/**
+	 * Returns a new stream of the dump in the given format and with the given
+	 * compression. The data is generated while it is read.
+	 *
+	 * @param dumpFormat
+	 *            the format of the dump
+	 * @param compressionType
+	 *            the compression of the data
+	 * @return stream of the dump
+	 * @throws IOException
+	 *             if the compressor could not be created
+	 */
+	public InputStream getDumpStream(DumpFormat dumpFormat,
+			CompressionType compressionType) throws IOException {
+		return new SyntheticDumpInputStream(new SyntheticDumpWriter(this,
+				dumpFormat), compressionType);
+	}
+
+	/**
+	 * Writes the dump in the given format to the given stream. The stream is
+	 * not closed.
+	 *
+	 * @param dumpFormat
+	 *            the format of the dump
+	 * @param out
+	 *            the stream to write to
+	 * @throws IOException
+	 *             if the data could not be written
+	 */
+	public void writeDump(DumpFormat dumpFormat, OutputStream out)
+			throws IOException {
+		SyntheticDumpWriter writer = new SyntheticDumpWriter(this, dumpFormat);
+		while (writer.writeNext(out)) {
+			// continue
+		}
+	}
+
+	/**
+	 * Returns a random generator for the entity at the given position of the
+	 * dump, so that each entity can be generated independently of all others.
+	 * The seed of the generator is scrambled, since the first numbers of
+	 * {@link Random} objects with similar seeds are very similar as well.
+	 *
+	 * @param index
+	 *            the position of the entity in the dump
+	 * @return random generator
+	 */
+	Random getRandom(long index) {
+		long z = this.seed * 0x9E3779B97F4A7C15L + index;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return new Random(z ^ (z >>> 31));
+	}
+
+	static double checkMean(double mean) {
+		if (mean < 0) {
+			throw new IllegalArgumentException("Means must not be negative");
+		}
+		return mean;
+	}
+
+}
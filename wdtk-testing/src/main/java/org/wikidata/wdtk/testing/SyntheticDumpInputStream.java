@@ -0,0 +1,125 @@
+package org.wikidata.wdtk.testing;
+
+
+/*
+ * #%L
+ * Wikidata Toolkit Testing Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.wikidata.wdtk.util.CompressionType;
+
+/**
+ * Input stream that serves the data of a {@link SyntheticDumpWriter}. The
+ * data is generated (and compressed, if requested) only when it is read, so
+ * that dumps of arbitrary size can be served with constant memory.
+ */
+class SyntheticDumpInputStream extends InputStream {
+
+	/**
+	 * Buffer that gives access to its internal array, so that data can be
+	 * read from it without copying.
+	 */
+	static class Buffer extends ByteArrayOutputStream {
+		Buffer() {
+			super(64 * 1024);
+		}
+
+		byte[] getBytes() {
+			return this.buf;
+		}
+	}
+
+	final SyntheticDumpWriter writer;
+	final Buffer buffer = new Buffer();
+	final OutputStream sink;
+
+	int position = 0;
+	boolean closed = false;
+
+	SyntheticDumpInputStream(SyntheticDumpWriter writer,
+			CompressionType compressionType) throws IOException {
+		this.writer = writer;
+		this.sink = MockStringContentFactory.getCompressorOutputStream(
+				this.buffer, compressionType);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return this.buffer.getBytes()[this.position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = Math.min(len, this.buffer.size() - this.position);
+		System.arraycopy(this.buffer.getBytes(), this.position, b, off, count);
+		this.position += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return this.buffer.size() - this.position;
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+	}
+
+	/**
+	 * Makes sure that there is unread data in the buffer, generating more
+	 * data if needed.
+	 *
+	 * @return false if the end of the dump has been reached
+	 * @throws IOException
+	 *             if the data could not be generated
+	 */
+	boolean fill() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		while (this.position >= this.buffer.size()) {
+			this.buffer.reset();
+			this.position = 0;
+			if (this.writer.finished) {
+				return false;
+			}
+			this.writer.writeNext(this.sink);
+			if (this.writer.finished) {
+				this.sink.close();
+			}
+		}
+		return true;
+	}
+
+}
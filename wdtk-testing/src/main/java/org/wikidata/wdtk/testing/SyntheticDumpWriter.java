@@ -0,0 +1,677 @@
+package org.wikidata.wdtk.testing;
+
+
+/*
+ * #%L
+ * Wikidata Toolkit Testing Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
+
+/**
+ * Writes the data of a {@link SyntheticDumpGenerator} piece by piece: first
+ * the header of the dump, then one entity (or page) per call, and finally the
+ * footer. Objects of this class are not thread-safe.
+ */
+class SyntheticDumpWriter {
+
+	static final String[] LANGUAGES = { "en", "de", "fr", "es", "it", "nl",
+			"ru", "pl", "sv", "ja", "zh", "pt", "uk", "ca", "fi", "cs", "hu",
+			"ar", "he", "ko" };
+
+	static final int TYPE_ITEM = 0;
+	static final int TYPE_STRING = 1;
+	static final int TYPE_TIME = 2;
+	static final int TYPE_QUANTITY = 3;
+	static final int TYPE_GLOBE_COORDINATES = 4;
+	static final int TYPE_MONOLINGUAL_TEXT = 5;
+
+	static final String[] DATATYPES = { "wikibase-item", "string", "time",
+			"quantity", "globe-coordinate", "monolingualtext" };
+
+	static final String CALENDAR_MODEL = "http://www.wikidata.org/entity/Q1985727";
+	static final String GLOBE = "http://www.wikidata.org/entity/Q2";
+
+	/**
+	 * Upper bound for all numbers drawn from geometric distributions, to keep
+	 * single entities at a reasonable size.
+	 */
+	static final int MAX_COUNT = 1000;
+
+	/**
+	 * Timestamp of the first revision, in milliseconds.
+	 */
+	static final long FIRST_REVISION_TIME = 1351468800000L;
+
+	static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	final SyntheticDumpGenerator generator;
+	final DumpFormat dumpFormat;
+	final long entityCount;
+	final int propertyCount;
+	final long itemCount;
+
+	/**
+	 * Datatypes of the properties, given as one of the TYPE_* constants for
+	 * each property. The property P1 is at index 0.
+	 */
+	final int[] propertyTypes;
+
+	final StringBuilder builder = new StringBuilder();
+	final StringBuilder entityBuilder = new StringBuilder();
+	final SimpleDateFormat timestampFormat;
+
+	long index = -1;
+	long revisionId = 0;
+	boolean finished = false;
+
+	SyntheticDumpWriter(SyntheticDumpGenerator generator,
+			DumpFormat dumpFormat) {
+		this.generator = generator;
+		this.dumpFormat = dumpFormat;
+		this.entityCount = generator.getEntityCount();
+		this.propertyCount = generator.getPropertyCount();
+		this.itemCount = generator.getItemCount();
+
+		Random random = generator.getRandom(-1);
+		this.propertyTypes = new int[Math.max(this.propertyCount, 1)];
+		int weightSum = 0;
+		for (int weight : generator.valueTypeWeights) {
+			weightSum += weight;
+		}
+		for (int i = 0; i < this.propertyTypes.length; i++) {
+			int pick = random.nextInt(weightSum);
+			int type = 0;
+			while (pick >= generator.valueTypeWeights[type]) {
+				pick -= generator.valueTypeWeights[type];
+				type++;
+			}
+			this.propertyTypes[i] = type;
+		}
+
+		this.timestampFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+		this.timestampFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+	}
+
+	/**
+	 * Writes the next piece of the dump to the given stream.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @return false if the dump was complete already and nothing was written
+	 * @throws IOException
+	 *             if the data could not be written
+	 */
+	boolean writeNext(OutputStream out) throws IOException {
+		if (this.finished) {
+			return false;
+		}
+
+		this.builder.setLength(0);
+		if (this.index < 0) {
+			appendHeader();
+		} else if (this.index < this.entityCount) {
+			if (this.dumpFormat == DumpFormat.JSON) {
+				if (this.index > 0) {
+					this.builder.append(",\n");
+				}
+				appendEntity(this.builder, this.index, 1.0);
+			} else {
+				appendPage(this.index);
+			}
+		} else {
+			appendFooter();
+			this.finished = true;
+		}
+		this.index++;
+
+		out.write(this.builder.toString().getBytes(StandardCharsets.UTF_8));
+		return true;
+	}
+
+	void appendHeader() {
+		if (this.dumpFormat == DumpFormat.JSON) {
+			this.builder.append("[\n");
+		} else {
+			this.builder
+					.append("<mediawiki xmlns=\"http://www.mediawiki.org/xml/export-0.8/\" version=\"0.8\" xml:lang=\"en\">\n")
+					.append("  <siteinfo>\n")
+					.append("    <sitename>Wikidata</sitename>\n")
+					.append("    <base>http://www.wikidata.org/wiki/Main_Page</base>\n")
+					.append("    <generator>SyntheticDumpGenerator</generator>\n")
+					.append("    <case>first-letter</case>\n")
+					.append("    <namespaces>\n")
+					.append("      <namespace key=\"0\" case=\"first-letter\" />\n")
+					.append("      <namespace key=\"1\" case=\"first-letter\">Talk</namespace>\n")
+					.append("      <namespace key=\"120\" case=\"first-letter\">Property</namespace>\n")
+					.append("    </namespaces>\n")
+					.append("  </siteinfo>\n");
+		}
+	}
+
+	void appendFooter() {
+		if (this.dumpFormat == DumpFormat.JSON) {
+			this.builder.append("\n]\n");
+		} else {
+			this.builder.append("</mediawiki>\n");
+		}
+	}
+
+	/**
+	 * Appends the page of the entity at the given position of the dump to the
+	 * XML. Older revisions contain fewer statements than newer ones.
+	 */
+	void appendPage(long index) {
+		boolean isProperty = index < this.propertyCount;
+		String id = getEntityId(index);
+		int revisionCount = 1 + pickCount(this.generator.getRandom(-2 - index),
+				this.generator.revisionsPerPage - 1);
+
+		this.builder.append("  <page>\n    <title>");
+		if (isProperty) {
+			this.builder.append("Property:");
+		}
+		this.builder.append(id).append("</title>\n    <ns>")
+				.append(isProperty ? 120 : 0).append("</ns>\n    <id>")
+				.append(index + 1).append("</id>\n");
+		for (int i = 0; i < revisionCount; i++) {
+			this.revisionId++;
+			this.builder.append("    <revision>\n      <id>")
+					.append(this.revisionId).append("</id>\n");
+			if (i > 0) {
+				this.builder.append("      <parentid>")
+						.append(this.revisionId - 1).append("</parentid>\n");
+			}
+			this.builder
+					.append("      <timestamp>")
+					.append(this.timestampFormat.format(new Date(
+							FIRST_REVISION_TIME + this.revisionId * 60000L)))
+					.append("</timestamp>\n")
+					.append("      <contributor>\n")
+					.append("        <username>SyntheticBot</username>\n")
+					.append("        <id>1</id>\n")
+					.append("      </contributor>\n")
+					.append("      <comment>Synthetic edit ").append(i + 1)
+					.append("</comment>\n")
+					.append("      <text xml:space=\"preserve\">");
+
+			this.entityBuilder.setLength(0);
+			appendEntity(this.entityBuilder, index, (i + 1.0) / revisionCount);
+			appendXmlEscaped(this.builder, this.entityBuilder);
+
+			this.builder.append("</text>\n")
+					.append("      <sha1>unknown</sha1>\n")
+					.append("      <model>")
+					.append(isProperty ? "wikibase-property" : "wikibase-item")
+					.append("</model>\n")
+					.append("      <format>application/json</format>\n")
+					.append("    </revision>\n");
+		}
+		this.builder.append("  </page>\n");
+	}
+
+	/**
+	 * Appends the JSON of the entity at the given position of the dump.
+	 *
+	 * @param sb
+	 *            the builder to append to
+	 * @param index
+	 *            the position of the entity in the dump
+	 * @param statementFraction
+	 *            the fraction of statements to include, used for older
+	 *            revisions
+	 */
+	void appendEntity(StringBuilder sb, long index, double statementFraction) {
+		Random random = this.generator.getRandom(index);
+		boolean isProperty = index < this.propertyCount;
+		String id = getEntityId(index);
+
+		sb.append("{\"id\":\"").append(id).append("\",\"type\":\"")
+				.append(isProperty ? "property" : "item").append('"');
+		if (isProperty) {
+			sb.append(",\"datatype\":\"")
+					.append(DATATYPES[this.propertyTypes[(int) index]])
+					.append('"');
+		}
+
+		sb.append(",\"labels\":");
+		appendTerms(sb, random, this.generator.labelsPerEntity, true);
+		sb.append(",\"descriptions\":");
+		appendTerms(sb, random, this.generator.descriptionsPerEntity, false);
+		sb.append(",\"aliases\":");
+		appendAliases(sb, random);
+
+		sb.append(",\"claims\":");
+		if (isProperty) {
+			sb.append("{}");
+		} else {
+			int statementCount = (int) Math.round(pickCount(random,
+					this.generator.statementsPerItem) * statementFraction);
+			appendStatements(sb, random, id, statementCount);
+
+			sb.append(",\"sitelinks\":{");
+			boolean first = true;
+			for (String language : pickLanguages(random, pickCount(random,
+					this.generator.siteLinksPerItem))) {
+				if (!first) {
+					sb.append(',');
+				}
+				first = false;
+				sb.append('"').append(language).append("wiki\":{\"site\":\"")
+						.append(language).append("wiki\",\"title\":\"");
+				appendText(sb, random, language, 1, 3);
+				sb.append("\",\"badges\":[]}");
+			}
+			sb.append('}');
+		}
+		sb.append('}');
+	}
+
+	void appendTerms(StringBuilder sb, Random random, double mean,
+			boolean isLabel) {
+		int count = pickCount(random, mean);
+		if (isLabel && count == 0) {
+			count = 1; // almost all entities have a label
+		}
+		sb.append('{');
+		boolean first = true;
+		for (String language : pickLanguages(random, count)) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append('"').append(language).append("\":");
+			appendTerm(sb, random, language, isLabel ? 1 : 3,
+					isLabel ? 3 : 8);
+		}
+		sb.append('}');
+	}
+
+	void appendAliases(StringBuilder sb, Random random) {
+		int count = pickCount(random, this.generator.aliasesPerEntity);
+		Map<String, Integer> aliasCounts = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			String language = LANGUAGES[Math.min(LANGUAGES.length - 1,
+					pickCount(random, 2.0))];
+			Integer languageCount = aliasCounts.get(language);
+			aliasCounts.put(language, languageCount == null ? 1
+					: languageCount + 1);
+		}
+
+		sb.append('{');
+		boolean first = true;
+		for (Map.Entry<String, Integer> entry : aliasCounts.entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append('"').append(entry.getKey()).append("\":[");
+			for (int i = 0; i < entry.getValue(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendTerm(sb, random, entry.getKey(), 1, 3);
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+	}
+
+	void appendTerm(StringBuilder sb, Random random, String language,
+			int minWords, int maxWords) {
+		sb.append("{\"language\":\"").append(language)
+				.append("\",\"value\":\"");
+		appendText(sb, random, language, minWords, maxWords);
+		sb.append("\"}");
+	}
+
+	void appendStatements(StringBuilder sb, Random random, String subjectId,
+			int count) {
+		Map<Integer, Integer> propertyCounts = pickProperties(random, count);
+		sb.append('{');
+		boolean first = true;
+		for (Map.Entry<Integer, Integer> entry : propertyCounts.entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			int property = entry.getKey();
+			sb.append("\"P").append(property + 1).append("\":[");
+			for (int i = 0; i < entry.getValue(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendStatement(sb, random, subjectId, property);
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+	}
+
+	void appendStatement(StringBuilder sb, Random random, String subjectId,
+			int property) {
+		sb.append("{\"id\":\"").append(subjectId).append('$');
+		appendUuid(sb, random);
+		sb.append("\",\"mainsnak\":");
+		int kind = random.nextInt(100);
+		if (kind == 0) {
+			sb.append("{\"snaktype\":\"somevalue\",\"property\":\"P")
+					.append(property + 1).append("\"}");
+		} else if (kind == 1) {
+			sb.append("{\"snaktype\":\"novalue\",\"property\":\"P")
+					.append(property + 1).append("\"}");
+		} else {
+			appendValueSnak(sb, random, property);
+		}
+		sb.append(",\"type\":\"statement\",\"rank\":\"");
+		int rank = random.nextInt(40);
+		sb.append(rank == 0 ? "preferred" : (rank == 1 ? "deprecated"
+				: "normal"));
+		sb.append('"');
+
+		int qualifierCount = pickCount(random,
+				this.generator.qualifiersPerStatement);
+		if (qualifierCount > 0) {
+			appendSnakGroups(sb, random, qualifierCount, "qualifiers");
+		}
+
+		int referenceCount = pickCount(random,
+				this.generator.referencesPerStatement);
+		if (referenceCount > 0) {
+			sb.append(",\"references\":[");
+			for (int i = 0; i < referenceCount; i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				sb.append("{\"hash\":\"");
+				for (int j = 0; j < 40; j++) {
+					sb.append(HEX_DIGITS[random.nextInt(16)]);
+				}
+				sb.append('"');
+				appendSnakGroups(sb, random, 1 + pickCount(random, 1.0),
+						"snaks");
+				sb.append('}');
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+	}
+
+	/**
+	 * Appends the given number of snaks, grouped by property, as the value of
+	 * the given key, followed by the order of the properties.
+	 */
+	void appendSnakGroups(StringBuilder sb, Random random, int count,
+			String key) {
+		Map<Integer, Integer> propertyCounts = pickProperties(random, count);
+		sb.append(",\"").append(key).append("\":{");
+		boolean first = true;
+		for (Map.Entry<Integer, Integer> entry : propertyCounts.entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append("\"P").append(entry.getKey() + 1).append("\":[");
+			for (int i = 0; i < entry.getValue(); i++) {
+				if (i > 0) {
+					sb.append(',');
+				}
+				appendValueSnak(sb, random, entry.getKey());
+			}
+			sb.append(']');
+		}
+		sb.append("},\"").append(key).append("-order\":[");
+		first = true;
+		for (Integer property : propertyCounts.keySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			sb.append("\"P").append(property + 1).append('"');
+		}
+		sb.append(']');
+	}
+
+	void appendValueSnak(StringBuilder sb, Random random, int property) {
+		int type = this.propertyTypes[property];
+		sb.append("{\"snaktype\":\"value\",\"property\":\"P")
+				.append(property + 1).append("\",\"datatype\":\"")
+				.append(DATATYPES[type]).append("\",\"datavalue\":");
+		switch (type) {
+		case TYPE_ITEM:
+			sb.append("{\"value\":{\"entity-type\":\"item\",\"numeric-id\":")
+					.append(pickItemNumber(random))
+					.append("},\"type\":\"wikibase-entityid\"}");
+			break;
+		case TYPE_STRING:
+			sb.append("{\"value\":\"");
+			if (random.nextBoolean()) {
+				sb.append(random.nextInt(Integer.MAX_VALUE));
+			} else {
+				appendText(sb, random, "en", 1, 4);
+			}
+			sb.append("\",\"type\":\"string\"}");
+			break;
+		case TYPE_TIME:
+			sb.append("{\"value\":{\"time\":\"+0000000")
+					.append(1000 + random.nextInt(1015)).append('-');
+			appendTwoDigits(sb, 1 + random.nextInt(12));
+			sb.append('-');
+			appendTwoDigits(sb, 1 + random.nextInt(28));
+			sb.append("T00:00:00Z\",\"timezone\":0,\"before\":0,\"after\":0,\"precision\":")
+					.append(9 + random.nextInt(3))
+					.append(",\"calendarmodel\":\"").append(CALENDAR_MODEL)
+					.append("\"},\"type\":\"time\"}");
+			break;
+		case TYPE_QUANTITY:
+			int amount = random.nextInt(10000000);
+			sb.append("{\"value\":{\"amount\":\"+").append(amount)
+					.append("\",\"unit\":\"1\",\"upperBound\":\"+")
+					.append(amount + 1).append("\",\"lowerBound\":\"")
+					.append(amount == 0 ? "-" : "+")
+					.append(Math.abs(amount - 1))
+					.append("\"},\"type\":\"quantity\"}");
+			break;
+		case TYPE_GLOBE_COORDINATES:
+			sb.append("{\"value\":{\"latitude\":")
+					.append(random.nextInt(1800000) / 10000.0 - 90)
+					.append(",\"longitude\":")
+					.append(random.nextInt(3600000) / 10000.0 - 180)
+					.append(",\"altitude\":null,\"precision\":1.0E-4,\"globe\":\"")
+					.append(GLOBE).append("\"},\"type\":\"globecoordinate\"}");
+			break;
+		default: // TYPE_MONOLINGUAL_TEXT
+			String language = pickLanguages(random, 1).get(0);
+			sb.append("{\"value\":{\"text\":\"");
+			appendText(sb, random, language, 1, 5);
+			sb.append("\",\"language\":\"").append(language)
+					.append("\"},\"type\":\"monolingualtext\"}");
+		}
+		sb.append('}');
+	}
+
+	/**
+	 * Picks properties for the given number of snaks. Properties with small
+	 * ids are used much more often than others.
+	 *
+	 * @return map from property indexes to the number of snaks, in the order
+	 *         in which the properties were picked first
+	 */
+	Map<Integer, Integer> pickProperties(Random random, int count) {
+		Map<Integer, Integer> result = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			int property = Math.min(this.propertyTypes.length - 1,
+					pickCount(random, this.propertyTypes.length / 10.0));
+			Integer propertyCount = result.get(property);
+			result.put(property, propertyCount == null ? 1 : propertyCount + 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Picks the number of an item that is used as a value. Items with small
+	 * ids are used much more often than others.
+	 */
+	long pickItemNumber(Random random) {
+		double max = Math.max(this.itemCount, 1);
+		return Math.min((long) max,
+				(long) Math.exp(random.nextDouble() * Math.log(max)) + 1);
+	}
+
+	/**
+	 * Picks the given number of distinct languages, or all languages if there
+	 * are fewer. English is picked most often, followed by German and so on.
+	 */
+	List<String> pickLanguages(Random random, int count) {
+		List<String> result = new ArrayList<>(count);
+		if (count >= LANGUAGES.length) {
+			for (String language : LANGUAGES) {
+				result.add(language);
+			}
+			return result;
+		}
+		while (result.size() < count) {
+			String language = LANGUAGES[Math.min(LANGUAGES.length - 1,
+					pickCount(random, 3.0))];
+			if (!result.contains(language)) {
+				result.add(language);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a random text of the given number of words. Texts in Chinese,
+	 * Japanese and Korean use CJK characters, other texts mostly use Latin
+	 * letters.
+	 */
+	void appendText(StringBuilder sb, Random random, String language,
+			int minWords, int maxWords) {
+		boolean cjk = "zh".equals(language) || "ja".equals(language)
+				|| "ko".equals(language);
+		int words = minWords + random.nextInt(maxWords - minWords + 1);
+		for (int i = 0; i < words; i++) {
+			if (cjk) {
+				int length = 1 + random.nextInt(3);
+				for (int j = 0; j < length; j++) {
+					sb.append((char) (0x4E00 + random.nextInt(0x5000)));
+				}
+				continue;
+			}
+			if (i > 0) {
+				sb.append(' ');
+			}
+			int length = 2 + random.nextInt(9);
+			for (int j = 0; j < length; j++) {
+				char c = (char) ('a' + random.nextInt(26));
+				if (i == 0 && j == 0) {
+					c = Character.toUpperCase(c);
+				}
+				sb.append(c);
+			}
+			if (random.nextInt(20) == 0) {
+				sb.append(random.nextBoolean() ? 'é' : 'ü');
+			}
+		}
+	}
+
+	String getEntityId(long index) {
+		if (index < this.propertyCount) {
+			return "P" + (index + 1);
+		} else {
+			return "Q" + (index - this.propertyCount + 1);
+		}
+	}
+
+	static void appendUuid(StringBuilder sb, Random random) {
+		long high = random.nextLong();
+		long low = random.nextLong();
+		appendHex(sb, high >>> 32, 8);
+		sb.append('-');
+		appendHex(sb, high >>> 16, 4);
+		sb.append('-');
+		appendHex(sb, high, 4);
+		sb.append('-');
+		appendHex(sb, low >>> 48, 4);
+		sb.append('-');
+		appendHex(sb, low, 12);
+	}
+
+	static void appendHex(StringBuilder sb, long bits, int digits) {
+		for (int i = digits - 1; i >= 0; i--) {
+			sb.append(HEX_DIGITS[(int) (bits >>> (4 * i)) & 0xf]);
+		}
+	}
+
+	static void appendTwoDigits(StringBuilder sb, int number) {
+		if (number < 10) {
+			sb.append('0');
+		}
+		sb.append(number);
+	}
+
+	static void appendXmlEscaped(StringBuilder sb, CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("&quot;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns a number drawn from a geometric distribution with the given
+	 * mean.
+	 */
+	static int pickCount(Random random, double mean) {
+		if (mean <= 0) {
+			return 0;
+		}
+		double p = 1 / (mean + 1);
+		double count = Math.floor(Math.log(1 - random.nextDouble())
+				/ Math.log(1 - p));
+		return (int) Math.min(MAX_COUNT, count);
+	}
+
+}
@@ -59,6 +59,12 @@ public class MockDirectoryManagerTest {
 		mdm.setFileContents(
 				basePath.resolve("anotherdir").resolve("test.txt.gz"),
 				"Test GZIP contents", CompressionType.GZIP);
+		mdm.setFileContents(
+				basePath.resolve("anotherdir").resolve("test.txt.zst"),
+				"Test ZSTD contents", CompressionType.ZSTD);
+		mdm.setFileContents(
+				basePath.resolve("anotherdir").resolve("test.txt.lz4"),
+				"Test LZ4 contents", CompressionType.LZ4);
 	}
 
 	@Test
@@ -125,6 +131,24 @@ public class MockDirectoryManagerTest {
 		assertEquals("Test GZIP contents", content);
 	}
 
+	@Test
+	public void readZstdFile() throws IOException {
+		DirectoryManager submdm = mdm.getSubdirectoryManager("anotherdir");
+		String content = MockStringContentFactory
+				.getStringFromInputStream(submdm.getInputStreamForFile(
+						"test.txt.zst", CompressionType.ZSTD));
+		assertEquals("Test ZSTD contents", content);
+	}
+
+	@Test
+	public void readLz4File() throws IOException {
+		DirectoryManager submdm = mdm.getSubdirectoryManager("anotherdir");
+		String content = MockStringContentFactory
+				.getStringFromInputStream(submdm.getInputStreamForFile(
+						"test.txt.lz4", CompressionType.LZ4));
+		assertEquals("Test LZ4 contents", content);
+	}
+
 	@Test
 	public void createFileFromInputStream() throws IOException {
 		InputStream inputStream = MockStringContentFactory
@@ -0,0 +1,239 @@
+package org.wikidata.wdtk.testing;
+
+
+/*
+ * #%L
+ * Wikidata Toolkit Testing Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.junit.Test;
+import org.wikidata.wdtk.testing.SyntheticDumpGenerator.DumpFormat;
+import org.wikidata.wdtk.util.CompressionType;
+
+public class SyntheticDumpGeneratorTest {
+
+	static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int count;
+		while ((count = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, count);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	static byte[] getDump(SyntheticDumpGenerator generator,
+			DumpFormat dumpFormat) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.writeDump(dumpFormat, out);
+		return out.toByteArray();
+	}
+
+	static int countOccurrences(String text, String part) {
+		int count = 0;
+		int index = text.indexOf(part);
+		while (index >= 0) {
+			count++;
+			index = text.indexOf(part, index + part.length());
+		}
+		return count;
+	}
+
+	@Test
+	public void testDumpsAreDeterministic() throws IOException {
+		byte[] dump1 = getDump(new SyntheticDumpGenerator(42, 300),
+				DumpFormat.JSON);
+		byte[] dump2 = getDump(new SyntheticDumpGenerator(42, 300),
+				DumpFormat.JSON);
+		byte[] dump3 = getDump(new SyntheticDumpGenerator(43, 300),
+				DumpFormat.JSON);
+
+		assertArrayEquals(dump1, dump2);
+		assertFalse(new String(dump1, StandardCharsets.UTF_8)
+				.equals(new String(dump3, StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testJsonDump() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(1, 250);
+		generator.setPropertyCount(50);
+		String dump = new String(getDump(generator, DumpFormat.JSON),
+				StandardCharsets.UTF_8);
+		String[] lines = dump.split("\n");
+
+		assertEquals(50, generator.getPropertyCount());
+		assertEquals(200, generator.getItemCount());
+		assertEquals(252, lines.length);
+		assertEquals("[", lines[0]);
+		assertEquals("]", lines[251]);
+		assertTrue(lines[1].startsWith("{\"id\":\"P1\",\"type\":\"property\""));
+		assertTrue(lines[50].startsWith("{\"id\":\"P50\","));
+		assertTrue(lines[51].startsWith("{\"id\":\"Q1\",\"type\":\"item\""));
+		assertTrue(lines[250].startsWith("{\"id\":\"Q200\","));
+		for (int i = 1; i < 250; i++) {
+			assertTrue(lines[i].endsWith("},"));
+		}
+		assertTrue(lines[250].endsWith("}"));
+	}
+
+	@Test
+	public void testEmptyJsonDump() throws IOException {
+		String dump = new String(getDump(new SyntheticDumpGenerator(1, 0),
+				DumpFormat.JSON), StandardCharsets.UTF_8);
+		assertEquals("[\n\n]\n", dump);
+	}
+
+	@Test
+	public void testXmlDump() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(1, 120);
+		generator.setPropertyCount(20);
+		generator.setRevisionsPerPage(3.0);
+		String dump = new String(getDump(generator, DumpFormat.XML),
+				StandardCharsets.UTF_8);
+
+		assertTrue(dump.startsWith("<mediawiki "));
+		assertTrue(dump.endsWith("</mediawiki>\n"));
+		assertEquals(120, countOccurrences(dump, "<page>"));
+		assertEquals(20, countOccurrences(dump, "<ns>120</ns>"));
+		assertEquals(100, countOccurrences(dump, "<ns>0</ns>"));
+		assertTrue(dump.contains("<title>Property:P20</title>"));
+		assertTrue(dump.contains("<title>Q100</title>"));
+		assertFalse(dump.contains("<title>Q101</title>"));
+
+		int revisions = countOccurrences(dump, "<revision>");
+		assertTrue(revisions > 120);
+		assertEquals(revisions, countOccurrences(dump, "<text "));
+		assertEquals(revisions - 120, countOccurrences(dump, "<parentid>"));
+		assertFalse(dump.contains("<text xml:space=\"preserve\">{\"id"));
+	}
+
+	@Test
+	public void testSettingsAffectDumps() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(7, 200);
+		generator.setStatementsPerItem(0);
+		generator.setSiteLinksPerItem(0);
+		String dump = new String(getDump(generator, DumpFormat.JSON),
+				StandardCharsets.UTF_8);
+		assertFalse(dump.contains("\"mainsnak\""));
+		assertFalse(dump.contains("wiki\",\"title\""));
+
+		generator = new SyntheticDumpGenerator(7, 200);
+		generator.setValueTypeWeights(0, 0, 1, 0, 0, 0);
+		dump = new String(getDump(generator, DumpFormat.JSON),
+				StandardCharsets.UTF_8);
+		assertTrue(dump.contains("\"datatype\":\"time\""));
+		assertFalse(dump.contains("\"datatype\":\"wikibase-item\""));
+	}
+
+	@Test
+	public void testStreamMatchesWrittenDump() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(3, 500);
+		byte[] dump = getDump(generator, DumpFormat.XML);
+
+		assertArrayEquals(dump, readAll(generator.getDumpStream(
+				DumpFormat.XML, CompressionType.NONE)));
+
+		InputStream in = generator.getDumpStream(DumpFormat.XML,
+				CompressionType.NONE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) >= 0) {
+			out.write(b);
+		}
+		assertArrayEquals(dump, out.toByteArray());
+	}
+
+	@Test
+	public void testCompressedStreams() throws IOException {
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(5, 400);
+		byte[] dump = getDump(generator, DumpFormat.JSON);
+
+		byte[] gzip = readAll(generator.getDumpStream(DumpFormat.JSON,
+				CompressionType.GZIP));
+		assertTrue(gzip.length < dump.length);
+		assertArrayEquals(dump, readAll(new GZIPInputStream(
+				MockStringContentFactory.newMockInputStream(gzip))));
+
+		byte[] bz2 = readAll(generator.getDumpStream(DumpFormat.JSON,
+				CompressionType.BZ2));
+		assertArrayEquals(dump, readAll(new BZip2CompressorInputStream(
+				MockStringContentFactory.newMockInputStream(bz2))));
+	}
+
+	@Test
+	public void testMockDirectoryManager() throws IOException {
+		Path path = Paths.get("/dumps/20150101/wikidata-all.json.gz");
+		MockDirectoryManager dm = new MockDirectoryManager(Paths.get("/"));
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(9, 100);
+		dm.setFileContents(path, generator, DumpFormat.JSON,
+				CompressionType.GZIP);
+
+		MockDirectoryManager subdm = new MockDirectoryManager(
+				path.getParent(), false);
+		assertTrue(dm.hasSubdirectory("dumps"));
+		assertTrue(subdm.hasFile("wikidata-all.json.gz"));
+		assertArrayEquals(getDump(generator, DumpFormat.JSON),
+				readAll(subdm.getInputStreamForFile("wikidata-all.json.gz",
+						CompressionType.GZIP)));
+
+		subdm.createFile("wikidata-all.json.gz",
+				MockStringContentFactory.newMockInputStream(new byte[0]));
+		assertEquals(0, readAll(subdm.getInputStreamForFile(
+				"wikidata-all.json.gz", CompressionType.NONE)).length);
+	}
+
+	@Test
+	public void testMockWebResourceFetcher() throws IOException {
+		MockWebResourceFetcher mwrf = new MockWebResourceFetcher();
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(9, 100);
+		mwrf.setWebResourceContents("http://example.com/dump.xml.bz2",
+				generator, DumpFormat.XML, CompressionType.BZ2);
+
+		assertArrayEquals(getDump(generator, DumpFormat.XML),
+				readAll(new BZip2CompressorInputStream(mwrf
+						.getInputStreamForUrl("http://example.com/dump.xml.bz2"))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRevisionsPerPage() {
+		new SyntheticDumpGenerator(1, 10).setRevisionsPerPage(0.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidValueTypeWeights() {
+		new SyntheticDumpGenerator(1, 10).setValueTypeWeights(0, 0, 0, 0, 0,
+				0);
+	}
+
+}
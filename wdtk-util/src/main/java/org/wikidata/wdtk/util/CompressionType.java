@@ -22,11 +22,13 @@ package org.wikidata.wdtk.util;
 
 /**
  * Enum for denoting several basic file types for which we provide transparent
- * decompression.
+ * decompression. {@link #ZSTD} (Zstandard frames) and {@link #LZ4} (LZ4
+ * frames) are much faster to decompress than the other formats, and are thus
+ * useful for intermediate files that are read many times.
  * 
  * @author Markus Kroetzsch
  * 
  */
 public enum CompressionType {
-	NONE, GZIP, BZ2
+	NONE, GZIP, BZ2, ZSTD, LZ4
 }
@@ -40,6 +40,12 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.wikidata.wdtk.util.metrics.Counter;
+import org.wikidata.wdtk.util.metrics.CountingInputStream;
+import org.wikidata.wdtk.util.metrics.Histogram;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
 
 /**
  * Class to read and write files from one directory. It is guaranteed that the
@@ -50,6 +56,19 @@ import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
  */
 public class DirectoryManagerImpl implements DirectoryManager {
 
+	/**
+	 * Metrics for reading files. The time for reading decompressed data
+	 * includes the time for reading the compressed data.
+	 */
+	static final Counter readBytesCounter = MetricsRegistry.getDefault()
+			.getCounter("file.read.bytes");
+	static final Histogram readTimeHistogram = MetricsRegistry.getDefault()
+			.getHistogram("file.read.time");
+	static final Counter decompressedBytesCounter = MetricsRegistry
+			.getDefault().getCounter("file.decompressed.bytes");
+	static final Histogram decompressedTimeHistogram = MetricsRegistry
+			.getDefault().getHistogram("file.decompressed.time");
+
 	/**
 	 * The directory that this object is managing.
 	 */
@@ -164,20 +183,34 @@ public class DirectoryManagerImpl implements DirectoryManager {
 	public InputStream getInputStreamForFile(String fileName,
 			CompressionType compressionType) throws IOException {
 		Path filePath = this.directory.resolve(fileName);
-		InputStream fileInputStream = Files.newInputStream(filePath,
-				StandardOpenOption.READ);
+		InputStream fileInputStream = new CountingInputStream(
+				Files.newInputStream(filePath, StandardOpenOption.READ),
+				readBytesCounter, readTimeHistogram);
+		InputStream decompressedInputStream;
 		switch (compressionType) {
 		case NONE:
 			return fileInputStream;
 		case GZIP:
-			return new GZIPInputStream(fileInputStream);
+			decompressedInputStream = new GZIPInputStream(fileInputStream);
+			break;
 		case BZ2:
-			return new BZip2CompressorInputStream(new BufferedInputStream(
-					fileInputStream));
+			decompressedInputStream = new BZip2CompressorInputStream(
+					new BufferedInputStream(fileInputStream), true);
+			break;
+		case ZSTD:
+			decompressedInputStream = new ZstdCompressorInputStream(
+					new BufferedInputStream(fileInputStream));
+			break;
+		case LZ4:
+			decompressedInputStream = new FramedLZ4CompressorInputStream(
+					new BufferedInputStream(fileInputStream), true);
+			break;
 		default:
 			throw new IllegalArgumentException("Unsupported compresion type: "
 					+ compressionType);
 		}
+		return new CountingInputStream(decompressedInputStream,
+				decompressedBytesCounter, decompressedTimeHistogram);
 
 	}
 
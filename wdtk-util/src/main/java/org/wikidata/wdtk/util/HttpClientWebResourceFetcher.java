@@ -0,0 +1,400 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.util.metrics.Counter;
+import org.wikidata.wdtk.util.metrics.CountingInputStream;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
+
+/**
+ * Implementation of {@link WebResourceFetcher} that is optimized for many
+ * small requests, such as requests to the Web API of Wikibase. Connections
+ * are kept alive and reused through a pool, responses are transferred with
+ * gzip compression if the server supports it, and failed requests are
+ * retried with increasing, randomly varied delays. The number of connections
+ * to each host is limited; further requests wait until a connection becomes
+ * free. Proxies are used as configured by the system properties of Java,
+ * such as "http.proxyHost" and "http.nonProxyHosts".
+ * <p>
+ * A connection is only returned to the pool when the stream of its response
+ * is closed, so callers must always close the streams they get. Closing a
+ * stream reads the rest of the response, which makes this class less suited
+ * for large downloads that may be aborted, such as dump files.
+ * <p>
+ * Settings only take effect for requests that are made after the next call
+ * of {@link #close()}, or if they are made before the first request.
+ * Objects of this class are thread-safe.
+ */
+public class HttpClientWebResourceFetcher implements WebResourceFetcher {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(HttpClientWebResourceFetcher.class);
+
+	static final Counter retryCounter = MetricsRegistry.getDefault()
+			.getCounter("download.retries");
+
+	static final HttpClientWebResourceFetcher defaultFetcher = new HttpClientWebResourceFetcher();
+
+	volatile int connectTimeout = 10000;
+	volatile int readTimeout = 60000;
+	volatile int maxRetries = 3;
+	volatile long retryDelay = 500;
+	volatile long maxRetryDelay = 30000;
+	volatile long maxRetryAfter = 600000;
+	volatile int maxConnectionsPerHost = 4;
+	volatile int maxConnections = 20;
+
+	/**
+	 * The client used for all requests, or null if it has not been created
+	 * yet.
+	 */
+	CloseableHttpClient httpClient = null;
+
+	/**
+	 * Returns a fetcher that is shared by all components of Wikidata Toolkit
+	 * that make Web API requests, so that they use the same connections and
+	 * respect the same limits.
+	 *
+	 * @return default fetcher
+	 */
+	public static HttpClientWebResourceFetcher getDefault() {
+		return defaultFetcher;
+	}
+
+	/**
+	 * Sets the maximal time in milliseconds for establishing a connection.
+	 * The default is 10 seconds.
+	 *
+	 * @param connectTimeout
+	 *            timeout in milliseconds; 0 for no timeout
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		if (connectTimeout < 0) {
+			throw new IllegalArgumentException(
+					"Timeout must not be negative.");
+		}
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Sets the maximal time in milliseconds to wait for data of a response.
+	 * The default is 60 seconds.
+	 *
+	 * @param readTimeout
+	 *            timeout in milliseconds; 0 for no timeout
+	 */
+	public void setReadTimeout(int readTimeout) {
+		if (readTimeout < 0) {
+			throw new IllegalArgumentException(
+					"Timeout must not be negative.");
+		}
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Sets how often a request is retried if it fails with a network error
+	 * or with a status code that indicates a temporary problem (429 and 5xx).
+	 * The default is 3.
+	 *
+	 * @param maxRetries
+	 *            maximal number of retries
+	 */
+	public void setMaxRetries(int maxRetries) {
+		if (maxRetries < 0) {
+			throw new IllegalArgumentException(
+					"Number of retries must not be negative.");
+		}
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Sets the delay in milliseconds before the first retry. The delay is
+	 * doubled for every further retry, up to 30 seconds. Each delay is
+	 * shortened by a random amount of up to one half, so that clients that
+	 * failed at the same time do not retry at the same time. A longer delay
+	 * is used if the server asks for it with a Retry-After header. The
+	 * default is 500.
+	 *
+	 * @param retryDelay
+	 *            delay in milliseconds
+	 */
+	public void setRetryDelay(long retryDelay) {
+		if (retryDelay < 0) {
+			throw new IllegalArgumentException(
+					"Delay must not be negative.");
+		}
+		this.retryDelay = retryDelay;
+	}
+
+	/**
+	 * Sets the longest delay in milliseconds that the server may ask for with
+	 * a Retry-After header. If the server asks for a longer delay, the
+	 * request fails without further retries. The default is 10 minutes.
+	 *
+	 * @param maxRetryAfter
+	 *            delay in milliseconds
+	 */
+	public void setMaxRetryAfter(long maxRetryAfter) {
+		if (maxRetryAfter < 0) {
+			throw new IllegalArgumentException(
+					"Delay must not be negative.");
+		}
+		this.maxRetryAfter = maxRetryAfter;
+	}
+
+	/**
+	 * Sets the maximal number of connections to a single host that are open
+	 * at the same time. The default is 4.
+	 *
+	 * @param maxConnectionsPerHost
+	 *            maximal number of connections per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException(
+					"Number of connections must be positive.");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Sets the maximal number of connections that are open at the same time.
+	 * The default is 20.
+	 *
+	 * @param maxConnections
+	 *            maximal number of connections
+	 */
+	public void setMaxConnections(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException(
+					"Number of connections must be positive.");
+		}
+		this.maxConnections = maxConnections;
+	}
+
+	@Override
+	public InputStream getInputStreamForUrl(String urlString)
+			throws IOException {
+		HttpGet request;
+		try {
+			request = new HttpGet(urlString);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid URL: " + urlString, e);
+		}
+		request.setHeader("User-Agent", WebResourceFetcherImpl.getUserAgent());
+
+		CloseableHttpClient client = getHttpClient();
+		// Settings are read once, so that they do not change during retries
+		int maxRetries = this.maxRetries;
+		long maxRetryDelay = this.maxRetryDelay;
+		long maxRetryAfter = this.maxRetryAfter;
+		long backoffDelay = this.retryDelay;
+		long delay = 0;
+		for (int attempt = 0;; attempt++) {
+			if (attempt > 0) {
+				retryCounter.increment();
+				sleep(delay);
+				backoffDelay = Math.min(2 * backoffDelay, maxRetryDelay);
+			}
+
+			CloseableHttpResponse response;
+			try {
+				response = client.execute(request);
+			} catch (IOException e) {
+				if (attempt >= maxRetries) {
+					throw e;
+				}
+				logger.warn("Request to " + urlString + " failed ("
+						+ e.toString() + "); retrying.");
+				delay = addJitter(backoffDelay);
+				continue;
+			}
+
+			int status = response.getStatusLine().getStatusCode();
+			if (status >= 200 && status < 300) {
+				return getResponseStream(response);
+			}
+
+			long retryAfter = getRetryAfter(response);
+			EntityUtils.consumeQuietly(response.getEntity());
+			response.close();
+			IOException error = new IOException("Server returned HTTP status "
+					+ status + " for " + urlString);
+			if ((status != 429 && status < 500) || attempt >= maxRetries) {
+				throw error;
+			}
+			if (retryAfter > maxRetryAfter) {
+				throw new IOException(error.getMessage()
+						+ "; server asked to retry after " + retryAfter
+						+ " ms, which is longer than the maximum of "
+						+ maxRetryAfter + " ms");
+			}
+			logger.warn(error.getMessage() + "; retrying.");
+			// The delay that the server asked for is not shortened
+			delay = Math.max(addJitter(backoffDelay), retryAfter);
+		}
+	}
+
+	/**
+	 * Closes all connections. Later requests create a new connection pool
+	 * with the current settings.
+	 *
+	 * @throws IOException
+	 *             if the connections could not be closed
+	 */
+	public synchronized void close() throws IOException {
+		if (this.httpClient != null) {
+			this.httpClient.close();
+			this.httpClient = null;
+		}
+	}
+
+	/**
+	 * Returns the client for making requests, creating it if necessary.
+	 *
+	 * @return client
+	 */
+	synchronized CloseableHttpClient getHttpClient() {
+		if (this.httpClient == null) {
+			PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+					60, TimeUnit.SECONDS);
+			connectionManager.setMaxTotal(this.maxConnections);
+			connectionManager.setDefaultMaxPerRoute(this.maxConnectionsPerHost);
+
+			RequestConfig requestConfig = RequestConfig.custom()
+					.setConnectTimeout(this.connectTimeout)
+					.setSocketTimeout(this.readTimeout)
+					.setStaleConnectionCheckEnabled(true).build();
+
+			// Gzip compression is requested and decoded by default
+			this.httpClient = HttpClients.custom().useSystemProperties()
+					.setConnectionManager(connectionManager)
+					.setDefaultRequestConfig(requestConfig)
+					.disableAutomaticRetries().build();
+		}
+		return this.httpClient;
+	}
+
+	/**
+	 * Returns a stream for the body of the given successful response. The
+	 * response is closed when the stream is closed.
+	 *
+	 * @param response
+	 *            the response
+	 * @return stream of the body
+	 * @throws IOException
+	 *             if the body could not be read
+	 */
+	static InputStream getResponseStream(final CloseableHttpResponse response)
+			throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			response.close();
+			return new ByteArrayInputStream(new byte[0]);
+		}
+
+		InputStream content;
+		try {
+			content = entity.getContent();
+		} catch (IOException | RuntimeException e) {
+			response.close();
+			throw e;
+		}
+
+		return new CountingInputStream(new FilterInputStream(content) {
+			@Override
+			public void close() throws IOException {
+				try {
+					// Reads the rest of the response so that the
+					// connection can be reused
+					super.close();
+				} finally {
+					response.close();
+				}
+			}
+		}, WebResourceFetcherImpl.downloadBytesCounter, null);
+	}
+
+	/**
+	 * Returns the delay in milliseconds that the server asked for in the
+	 * Retry-After header of the given response, or 0 if there is no such
+	 * header. Only delays given in seconds are supported.
+	 *
+	 * @param response
+	 *            the response
+	 * @return delay in milliseconds
+	 */
+	static long getRetryAfter(CloseableHttpResponse response) {
+		Header header = response.getFirstHeader("Retry-After");
+		if (header == null) {
+			return 0;
+		}
+		try {
+			return Math.max(0, Long.parseLong(header.getValue().trim()) * 1000);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a random delay between one half of the given delay and the
+	 * given delay.
+	 *
+	 * @param delay
+	 *            delay in milliseconds
+	 * @return delay in milliseconds
+	 */
+	static long addJitter(long delay) {
+		long halfDelay = delay / 2;
+		return delay - halfDelay
+				+ ThreadLocalRandom.current().nextLong(halfDelay + 1);
+	}
+
+	static void sleep(long milliseconds) throws IOException {
+		try {
+			Thread.sleep(milliseconds);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to retry request",
+					e);
+		}
+	}
+
+}
@@ -0,0 +1,354 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Compressing {@link OutputStream} that uses several threads for compression.
+ * The data is cut into blocks of fixed size, and each block is compressed
+ * independently on a thread pool. The compressed blocks are written to the
+ * underlying stream in their original order.
+ * <p>
+ * Each block is written as a complete stream of its own, so that the result
+ * is a multi-member gzip file, a multi-stream bzip2 file, or a sequence of
+ * Zstandard or LZ4 frames. These are valid files that can be read by standard
+ * tools and by
+ * {@link DirectoryManager#getInputStreamForFile(String, CompressionType)}.
+ * For bzip2, blocks are aligned with the bzip2 block size that corresponds to
+ * the chosen compression level, so the compression ratio is almost the same as
+ * for single-threaded compression.
+ * <p>
+ * Like {@link java.util.zip.GZIPOutputStream}, calling {@link #flush()} does
+ * not force incomplete blocks to be compressed; it only writes all blocks that
+ * have already been compressed. Closing the stream writes all remaining data
+ * and closes the underlying stream.
+ */
+public class ParallelCompressorOutputStream extends OutputStream {
+
+	/**
+	 * Size of uncompressed blocks for gzip compression.
+	 */
+	static final int GZIP_BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * Size of uncompressed blocks for Zstandard and LZ4 compression.
+	 */
+	static final int FRAME_BLOCK_SIZE = 1024 * 1024 * 4;
+
+	/**
+	 * Size of the bzip2 block size unit; the bzip2 block size is this value
+	 * times the compression level.
+	 */
+	static final int BZ2_BLOCK_SIZE_UNIT = 100000;
+
+	/**
+	 * The compression level that is used if none is given explicitly.
+	 */
+	public static final int DEFAULT_COMPRESSION_LEVEL = -1;
+
+	/**
+	 * Counter for naming threads.
+	 */
+	static final AtomicInteger threadCounter = new AtomicInteger();
+
+	final OutputStream out;
+	final CompressionType compressionType;
+	final int compressionLevel;
+	final int maxPendingBlocks;
+	final ExecutorService executorService;
+
+	/**
+	 * Compression tasks that have been submitted but whose results have not
+	 * been written yet, in the order in which they have to be written.
+	 */
+	final Queue<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+
+	/**
+	 * Buffer for the current block of uncompressed data.
+	 */
+	byte[] buffer;
+	/**
+	 * Number of bytes used in {@link #buffer}.
+	 */
+	int bufferPosition = 0;
+
+	boolean closed = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out
+	 *            the stream to write compressed data to
+	 * @param compressionType
+	 *            the compression to use; all types other than
+	 *            {@link CompressionType#NONE} are supported
+	 * @param compressionLevel
+	 *            the compression level (0-9 for gzip, 1-9 for bzip2, 1-22 for
+	 *            Zstandard, ignored for LZ4), or
+	 *            {@link #DEFAULT_COMPRESSION_LEVEL} to use a default
+	 * @param threadCount
+	 *            the number of threads to use for compression
+	 */
+	public ParallelCompressorOutputStream(OutputStream out,
+			CompressionType compressionType, int compressionLevel,
+			int threadCount) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(
+					"Number of compression threads must be positive, but was "
+							+ threadCount);
+		}
+
+		this.out = out;
+		this.compressionType = compressionType;
+		this.maxPendingBlocks = 2 * threadCount;
+
+		int blockSize;
+		switch (compressionType) {
+		case GZIP:
+			if (compressionLevel == DEFAULT_COMPRESSION_LEVEL) {
+				compressionLevel = 7;
+			} else if (compressionLevel < 0 || compressionLevel > 9) {
+				throw new IllegalArgumentException(
+						"Compression level for gzip must be between 0 and 9, but was "
+								+ compressionLevel);
+			}
+			blockSize = GZIP_BLOCK_SIZE;
+			break;
+		case BZ2:
+			if (compressionLevel == DEFAULT_COMPRESSION_LEVEL) {
+				compressionLevel = BZip2CompressorOutputStream.MAX_BLOCKSIZE;
+			} else if (compressionLevel < BZip2CompressorOutputStream.MIN_BLOCKSIZE
+					|| compressionLevel > BZip2CompressorOutputStream.MAX_BLOCKSIZE) {
+				throw new IllegalArgumentException(
+						"Compression level for bzip2 must be between 1 and 9, but was "
+								+ compressionLevel);
+			}
+			// Stay slightly below the block size, since bzip2 applies a
+			// run-length encoding before filling its block:
+			blockSize = BZ2_BLOCK_SIZE_UNIT * compressionLevel - 1000;
+			break;
+		case ZSTD:
+			if (compressionLevel == DEFAULT_COMPRESSION_LEVEL) {
+				compressionLevel = 3;
+			} else if (compressionLevel < 1 || compressionLevel > 22) {
+				throw new IllegalArgumentException(
+						"Compression level for Zstandard must be between 1 and 22, but was "
+								+ compressionLevel);
+			}
+			blockSize = FRAME_BLOCK_SIZE;
+			break;
+		case LZ4:
+			blockSize = FRAME_BLOCK_SIZE;
+			break;
+		default:
+			throw new IllegalArgumentException(
+					"Unsupported compression type for parallel compression: "
+							+ compressionType);
+		}
+		this.compressionLevel = compressionLevel;
+		this.buffer = new byte[blockSize];
+
+		this.executorService = Executors.newFixedThreadPool(threadCount,
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable,
+								"parallel-compressor-"
+										+ threadCounter.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		this.buffer[this.bufferPosition++] = (byte) b;
+		if (this.bufferPosition == this.buffer.length) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			int count = Math.min(len, this.buffer.length - this.bufferPosition);
+			System.arraycopy(b, off, this.buffer, this.bufferPosition, count);
+			this.bufferPosition += count;
+			off += count;
+			len -= count;
+			if (this.bufferPosition == this.buffer.length) {
+				submitBlock();
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		while (!this.pendingBlocks.isEmpty()
+				&& this.pendingBlocks.peek().isDone()) {
+			writeNextBlock();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+
+		try {
+			if (this.bufferPosition > 0) {
+				submitBlock();
+			}
+			while (!this.pendingBlocks.isEmpty()) {
+				writeNextBlock();
+			}
+		} finally {
+			this.executorService.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	/**
+	 * Hands the current buffer over to the thread pool for compression and
+	 * starts a new buffer. If too many blocks are already waiting, the method
+	 * waits until the oldest block has been written; this bounds the memory
+	 * that is used.
+	 *
+	 * @throws IOException
+	 *             if a previous block could not be compressed or written
+	 */
+	void submitBlock() throws IOException {
+		final byte[] block = this.buffer;
+		final int length = this.bufferPosition;
+
+		this.pendingBlocks.add(this.executorService
+				.submit(new Callable<byte[]>() {
+					@Override
+					public byte[] call() throws IOException {
+						return compressBlock(block, length);
+					}
+				}));
+
+		this.buffer = new byte[block.length];
+		this.bufferPosition = 0;
+
+		while (this.pendingBlocks.size() > this.maxPendingBlocks) {
+			writeNextBlock();
+		}
+	}
+
+	/**
+	 * Waits for the oldest pending block to be compressed and writes it to
+	 * the underlying stream.
+	 *
+	 * @throws IOException
+	 *             if the block could not be compressed or written
+	 */
+	void writeNextBlock() throws IOException {
+		Future<byte[]> future = this.pendingBlocks.remove();
+		try {
+			this.out.write(future.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for compression",
+					e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to compress data block: "
+					+ e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Compresses the given data into a complete gzip member, bzip2 stream,
+	 * or Zstandard or LZ4 frame.
+	 *
+	 * @param block
+	 *            array of data to compress
+	 * @param length
+	 *            number of bytes from the start of the array to compress
+	 * @return compressed data
+	 * @throws IOException
+	 *             if compression failed
+	 */
+	byte[] compressBlock(byte[] block, int length) throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+				length / 3);
+		OutputStream compressor;
+		switch (this.compressionType) {
+		case GZIP:
+			GzipParameters gzipParameters = new GzipParameters();
+			gzipParameters.setCompressionLevel(this.compressionLevel);
+			compressor = new GzipCompressorOutputStream(compressed,
+					gzipParameters);
+			break;
+		case BZ2:
+			compressor = new BZip2CompressorOutputStream(compressed,
+					this.compressionLevel);
+			break;
+		case ZSTD:
+			compressor = new ZstdCompressorOutputStream(compressed,
+					this.compressionLevel);
+			break;
+		default:
+			compressor = new LZ4FrameOutputStream(compressed,
+					LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB);
+		}
+		compressor.write(block, 0, length);
+		compressor.close();
+		return compressed.toByteArray();
+	}
+
+	void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+}
@@ -0,0 +1,370 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link OutputStream} that hands all data over to a separate thread, which
+ * writes it to another output stream. This is useful to move expensive
+ * operations such as compression out of the thread that produces the data.
+ * <p>
+ * Data is passed through a ring buffer that is shared between exactly one
+ * producer (the thread that writes to this stream) and one consumer (the
+ * thread that is created by this object). The two threads only communicate
+ * through two position counters, so that no locks are needed. The consumer
+ * always writes all data that is available in one chunk, so that the data is
+ * copied only once into the buffer and then directly written from there.
+ * Threads that have to wait for the other side are parked rather than polling
+ * in fixed intervals. To avoid waking up the consumer for every small write,
+ * it is only woken up once a sixteenth of the buffer is filled, or when the
+ * stream is flushed or closed; otherwise it picks up the data after at most
+ * {@link #MAX_PARK_NANOS}.
+ * <p>
+ * Calling {@link #flush()} waits until all data written so far has been
+ * passed to the underlying stream and this stream has been flushed. Calling
+ * {@link #close()} waits until all data has been written and then closes the
+ * underlying stream. Exceptions that occur in the writer thread are passed on
+ * to the producer on the next operation.
+ * <p>
+ * The stream records the total time that the producer had to wait for free
+ * space in the buffer; see {@link #getProducerStallTime()}.
+ */
+public class RingBufferOutputStream extends OutputStream {
+
+	/**
+	 * Default size of the buffer in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024 * 8;
+
+	/**
+	 * Maximal time in nanoseconds that a waiting thread is parked before
+	 * checking the state again. Threads are woken up explicitly whenever new
+	 * data or space is available; this timeout is only a safety net.
+	 */
+	static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	final OutputStream out;
+	final byte[] buffer;
+	final int mask;
+	/**
+	 * Minimal number of bytes in the buffer for which the consumer is woken
+	 * up before its parking time is over.
+	 */
+	final int wakeUpThreshold;
+
+	/**
+	 * Total number of bytes written to the buffer. Only modified by the
+	 * producer.
+	 */
+	final AtomicLong writePosition = new AtomicLong();
+	/**
+	 * Total number of bytes taken from the buffer. Only modified by the
+	 * consumer.
+	 */
+	final AtomicLong readPosition = new AtomicLong();
+	/**
+	 * Value of {@link #readPosition} as last seen by the producer. Used to
+	 * avoid reading the position of the consumer on every write.
+	 */
+	long cachedReadPosition = 0;
+	/**
+	 * Position up to which the producer has requested a flush.
+	 */
+	volatile long flushRequestPosition = 0;
+	/**
+	 * Position up to which the consumer has flushed the underlying stream.
+	 */
+	volatile long flushedPosition = 0;
+
+	volatile boolean producerWaiting = false;
+	volatile boolean consumerWaiting = false;
+	volatile boolean closed = false;
+	volatile IOException consumerException = null;
+
+	final Thread consumerThread;
+	volatile Thread producerThread = null;
+
+	/**
+	 * Total time in nanoseconds that the producer waited for space.
+	 */
+	volatile long producerStallTime = 0;
+
+	/**
+	 * Constructor. Creates a stream with a buffer of
+	 * {@link #DEFAULT_BUFFER_SIZE} bytes.
+	 *
+	 * @param out
+	 *            the output stream to write to in a separate thread
+	 */
+	public RingBufferOutputStream(OutputStream out) {
+		this(out, DEFAULT_BUFFER_SIZE, "async-output-stream");
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out
+	 *            the output stream to write to in a separate thread
+	 * @param bufferSize
+	 *            minimal size of the buffer in bytes; will be rounded up to
+	 *            the next power of two
+	 * @param threadName
+	 *            name of the thread that writes to the output stream
+	 */
+	public RingBufferOutputStream(OutputStream out, int bufferSize,
+			String threadName) {
+		if (bufferSize < 1 || bufferSize > (1 << 30)) {
+			throw new IllegalArgumentException("Illegal buffer size: "
+					+ bufferSize);
+		}
+		int capacity = Integer.highestOneBit(bufferSize);
+		if (capacity < bufferSize) {
+			capacity <<= 1;
+		}
+
+		this.out = out;
+		this.buffer = new byte[capacity];
+		this.mask = capacity - 1;
+		this.wakeUpThreshold = Math.max(1, capacity >> 4);
+
+		this.consumerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, threadName);
+		this.consumerThread.start();
+	}
+
+	/**
+	 * Returns the total time in nanoseconds that the producer had to wait for
+	 * the writer thread to make space in the buffer. A high value indicates
+	 * that the writer thread (e.g., compression) is the bottleneck.
+	 *
+	 * @return stall time in nanoseconds
+	 */
+	public long getProducerStallTime() {
+		return this.producerStallTime;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		long position = this.writePosition.get();
+		if (position - this.cachedReadPosition == this.buffer.length) {
+			waitForSpace(position);
+		}
+		this.buffer[(int) position & this.mask] = (byte) b;
+		publish(position + 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		long position = this.writePosition.get();
+		while (len > 0) {
+			int free = this.buffer.length
+					- (int) (position - this.cachedReadPosition);
+			if (free < len) {
+				this.cachedReadPosition = this.readPosition.get();
+				free = this.buffer.length
+						- (int) (position - this.cachedReadPosition);
+			}
+			if (free == 0) {
+				waitForSpace(position);
+				continue;
+			}
+			int index = (int) position & this.mask;
+			int count = Math.min(Math.min(len, free), this.buffer.length
+					- index);
+			System.arraycopy(b, off, this.buffer, index, count);
+			position += count;
+			off += count;
+			len -= count;
+			publish(position);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		long target = this.writePosition.get();
+		this.flushRequestPosition = target;
+		LockSupport.unpark(this.consumerThread);
+		this.producerThread = Thread.currentThread();
+		while (this.flushedPosition < target) {
+			checkConsumer();
+			this.producerWaiting = true;
+			if (this.flushedPosition < target) {
+				LockSupport.parkNanos(this, MAX_PARK_NANOS);
+			}
+			this.producerWaiting = false;
+		}
+		checkConsumer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		LockSupport.unpark(this.consumerThread);
+		boolean interrupted = false;
+		while (this.consumerThread.isAlive()) {
+			try {
+				this.consumerThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		checkConsumer();
+	}
+
+	/**
+	 * Makes the bytes up to the given position visible to the consumer and
+	 * wakes it up if it is waiting and enough data is available.
+	 *
+	 * @param position
+	 *            the new write position
+	 */
+	void publish(long position) {
+		this.writePosition.set(position);
+		if (this.consumerWaiting
+				&& position - this.readPosition.get() >= this.wakeUpThreshold) {
+			LockSupport.unpark(this.consumerThread);
+		}
+	}
+
+	/**
+	 * Waits until the consumer has freed some space in the buffer.
+	 *
+	 * @param position
+	 *            the current write position
+	 * @throws IOException
+	 *             if the consumer has failed in the meantime
+	 */
+	void waitForSpace(long position) throws IOException {
+		long start = System.nanoTime();
+		this.producerThread = Thread.currentThread();
+		while (position - this.readPosition.get() == this.buffer.length) {
+			checkConsumer();
+			this.producerWaiting = true;
+			if (position - this.readPosition.get() == this.buffer.length) {
+				LockSupport.parkNanos(this, MAX_PARK_NANOS);
+			}
+			this.producerWaiting = false;
+		}
+		this.cachedReadPosition = this.readPosition.get();
+		this.producerStallTime += System.nanoTime() - start;
+	}
+
+	/**
+	 * Main loop of the writer thread.
+	 */
+	void consume() {
+		try {
+			// true if the last park was not ended early, so that all
+			// remaining data should be written now
+			boolean parked = false;
+			while (true) {
+				long position = this.readPosition.get();
+				long available = this.writePosition.get() - position;
+				if (available > 0
+						&& (parked || available >= this.wakeUpThreshold
+								|| this.closed || this.flushRequestPosition > position)) {
+					int index = (int) position & this.mask;
+					int count = (int) Math.min(available, this.buffer.length
+							- index);
+					this.out.write(this.buffer, index, count);
+					this.readPosition.set(position + count);
+					parked = false;
+					wakeUpProducer();
+				} else if (this.flushRequestPosition > this.flushedPosition) {
+					this.out.flush();
+					this.flushedPosition = position;
+					wakeUpProducer();
+				} else if (this.closed) {
+					if (this.writePosition.get() == position) {
+						break;
+					}
+				} else {
+					this.consumerWaiting = true;
+					if (this.writePosition.get() - position < this.wakeUpThreshold
+							&& !this.closed
+							&& this.flushRequestPosition <= this.flushedPosition) {
+						LockSupport.parkNanos(this, MAX_PARK_NANOS);
+					}
+					this.consumerWaiting = false;
+					parked = true;
+				}
+			}
+		} catch (IOException e) {
+			this.consumerException = e;
+		} catch (RuntimeException e) {
+			this.consumerException = new IOException(e.toString(), e);
+		} finally {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				if (this.consumerException == null) {
+					this.consumerException = e;
+				}
+			}
+			wakeUpProducer();
+		}
+	}
+
+	void wakeUpProducer() {
+		Thread producer = this.producerThread;
+		if (this.producerWaiting && producer != null) {
+			LockSupport.unpark(producer);
+		}
+	}
+
+	void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		checkConsumer();
+	}
+
+	void checkConsumer() throws IOException {
+		IOException e = this.consumerException;
+		if (e != null) {
+			throw new IOException("Writing in separate thread failed: "
+					+ e.getMessage(), e);
+		}
+	}
+
+}
@@ -25,6 +25,10 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 
+import org.wikidata.wdtk.util.metrics.Counter;
+import org.wikidata.wdtk.util.metrics.CountingInputStream;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
+
 /**
  * Standard implementation of {@link WebResourceFetcher}.
  *
@@ -33,6 +37,9 @@ import java.net.URLConnection;
  */
 public class WebResourceFetcherImpl implements WebResourceFetcher {
 
+	static final Counter downloadBytesCounter = MetricsRegistry.getDefault()
+			.getCounter("download.bytes");
+
 	protected static String userAgent = "Wikidata Toolkit; Java "
 			+ System.getProperty("java.version");
 
@@ -65,7 +72,8 @@ public class WebResourceFetcherImpl implements WebResourceFetcher {
 		URLConnection urlConnection = url.openConnection();
 		urlConnection.setRequestProperty("User-Agent", userAgent);
 
-		return urlConnection.getInputStream();
+		return new CountingInputStream(urlConnection.getInputStream(),
+				downloadBytesCounter, null);
 	}
 
 }
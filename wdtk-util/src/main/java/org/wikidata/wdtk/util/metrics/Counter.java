@@ -0,0 +1,109 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for events or amounts, such as the number of bytes read from a
+ * file. Counters are meant to be updated very frequently from several
+ * threads. To avoid contention, every counter keeps a separate value for
+ * each of a few groups of threads, which are only added up when the counter
+ * is read. Updating a counter therefore costs about as much as updating an
+ * {@link java.util.concurrent.atomic.AtomicLong} that is used by a single
+ * thread.
+ */
+public class Counter {
+
+	final String name;
+
+	/**
+	 * Values of the stripes. Each stripe uses its own cache line to avoid
+	 * false sharing.
+	 */
+	final AtomicLongArray values = new AtomicLongArray(Stripes.COUNT
+			* Stripes.PADDING);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            the name of the counter
+	 */
+	public Counter(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the counter.
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Adds one to the counter.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Adds the given amount to the counter.
+	 *
+	 * @param amount
+	 *            the amount to add
+	 */
+	public void add(long amount) {
+		this.values.getAndAdd(Stripes.getIndex() * Stripes.PADDING, amount);
+	}
+
+	/**
+	 * Returns the current value of the counter. Updates that happen at the
+	 * same time may or may not be included.
+	 *
+	 * @return value
+	 */
+	public long getCount() {
+		long result = 0;
+		for (int i = 0; i < this.values.length(); i += Stripes.PADDING) {
+			result += this.values.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the counter to zero.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.values.length(); i += Stripes.PADDING) {
+			this.values.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.name + ": " + getCount();
+	}
+
+}
@@ -0,0 +1,93 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that counts the bytes that are read from another stream, and
+ * optionally records the time needed for each read operation.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	final Counter byteCounter;
+	final Histogram readTimeHistogram;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @param byteCounter
+	 *            the counter to add the number of read bytes to
+	 * @param readTimeHistogram
+	 *            the histogram to record the time of each read operation in,
+	 *            or null if times should not be recorded
+	 */
+	public CountingInputStream(InputStream in, Counter byteCounter,
+			Histogram readTimeHistogram) {
+		super(in);
+		this.byteCounter = byteCounter;
+		this.readTimeHistogram = readTimeHistogram;
+	}
+
+	@Override
+	public int read() throws IOException {
+		long startTime = startTime();
+		int result = super.read();
+		if (result >= 0) {
+			this.byteCounter.increment();
+		}
+		recordTime(startTime);
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		long startTime = startTime();
+		int result = super.read(b, off, len);
+		if (result > 0) {
+			this.byteCounter.add(result);
+		}
+		recordTime(startTime);
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		this.byteCounter.add(result);
+		return result;
+	}
+
+	long startTime() {
+		return this.readTimeHistogram == null ? 0 : System.nanoTime();
+	}
+
+	void recordTime(long startTime) {
+		if (this.readTimeHistogram != null) {
+			this.readTimeHistogram.recordElapsedTime(startTime);
+		}
+	}
+
+}
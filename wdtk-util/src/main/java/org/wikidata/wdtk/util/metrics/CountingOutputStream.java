@@ -0,0 +1,59 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that counts the bytes that are written to another stream.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	final Counter byteCounter;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @param byteCounter
+	 *            the counter to add the number of written bytes to
+	 */
+	public CountingOutputStream(OutputStream out, Counter byteCounter) {
+		super(out);
+		this.byteCounter = byteCounter;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		this.out.write(b);
+		this.byteCounter.increment();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		this.out.write(b, off, len);
+		this.byteCounter.add(len);
+	}
+
+}
@@ -0,0 +1,184 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, such as the time needed for parsing a
+ * document. Values are counted in buckets whose bounds grow exponentially,
+ * with eight buckets for each power of two, so that quantiles can be
+ * estimated with an error of at most 12.5% while memory usage is constant.
+ * The exact number, sum, and maximum of the values are recorded, too.
+ * <p>
+ * Like {@link Counter}, histograms keep separate data for groups of threads
+ * to avoid contention, so that recording a value is cheap enough to be done
+ * for every document of a dump. Times should be recorded in nanoseconds.
+ */
+public class Histogram {
+
+	/**
+	 * Number of bits of a value that are used to find its bucket within a
+	 * power of two.
+	 */
+	static final int SUB_BUCKET_BITS = 3;
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Number of buckets needed for all non-negative long values.
+	 */
+	static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+			+ (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	/**
+	 * Positions of the sum and the maximum of values in each stripe.
+	 */
+	static final int SUM_INDEX = BUCKET_COUNT;
+	static final int MAX_INDEX = BUCKET_COUNT + 1;
+
+	/**
+	 * Number of longs between the start of two stripes.
+	 */
+	static final int STRIDE = (MAX_INDEX + Stripes.PADDING)
+			/ Stripes.PADDING * Stripes.PADDING;
+
+	final String name;
+	final AtomicLongArray values = new AtomicLongArray(Stripes.COUNT * STRIDE);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            the name of the histogram
+	 */
+	public Histogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the histogram.
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value
+	 *            the value to record
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		int offset = Stripes.getIndex() * STRIDE;
+		this.values.getAndIncrement(offset + getBucket(value));
+		this.values.getAndAdd(offset + SUM_INDEX, value);
+		long max = this.values.get(offset + MAX_INDEX);
+		while (value > max
+				&& !this.values.compareAndSet(offset + MAX_INDEX, max, value)) {
+			max = this.values.get(offset + MAX_INDEX);
+		}
+	}
+
+	/**
+	 * Records the time that has passed since the given time.
+	 *
+	 * @param startTime
+	 *            a time in nanoseconds as returned by
+	 *            {@link System#nanoTime()}
+	 */
+	public void recordElapsedTime(long startTime) {
+		record(System.nanoTime() - startTime);
+	}
+
+	/**
+	 * Returns the current state of the histogram. Values that are recorded
+	 * at the same time may or may not be included, or may only be included
+	 * in some of the numbers.
+	 *
+	 * @return snapshot of the values
+	 */
+	public HistogramSnapshot getSnapshot() {
+		long[] bucketCounts = new long[BUCKET_COUNT];
+		long sum = 0;
+		long max = 0;
+		for (int offset = 0; offset < this.values.length(); offset += STRIDE) {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				bucketCounts[i] += this.values.get(offset + i);
+			}
+			sum += this.values.get(offset + SUM_INDEX);
+			max = Math.max(max, this.values.get(offset + MAX_INDEX));
+		}
+		return new HistogramSnapshot(this.name, bucketCounts, sum, max);
+	}
+
+	/**
+	 * Removes all values from the histogram.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.values.length(); i++) {
+			this.values.set(i, 0);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getSnapshot().toString();
+	}
+
+	/**
+	 * Returns the bucket of the given value.
+	 *
+	 * @param value
+	 *            non-negative value
+	 * @return bucket index
+	 */
+	static int getBucket(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT
+				+ ((int) (value >>> shift) & (SUB_BUCKET_COUNT - 1));
+	}
+
+	/**
+	 * Returns the smallest value of the given bucket.
+	 *
+	 * @param bucket
+	 *            bucket index
+	 * @return lower bound of the bucket
+	 */
+	static long getLowerBound(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		long mantissa = SUB_BUCKET_COUNT + (bucket % SUB_BUCKET_COUNT);
+		return mantissa << shift;
+	}
+
+}
@@ -0,0 +1,149 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Immutable state of a {@link Histogram} at some point in time.
+ */
+public class HistogramSnapshot {
+
+	final String name;
+	final long[] bucketCounts;
+	final long count;
+	final long sum;
+	final long max;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            the name of the histogram
+	 * @param bucketCounts
+	 *            the number of values in each bucket of the histogram
+	 * @param sum
+	 *            the sum of all values
+	 * @param max
+	 *            the largest value
+	 */
+	HistogramSnapshot(String name, long[] bucketCounts, long sum, long max) {
+		this.name = name;
+		this.bucketCounts = bucketCounts;
+		long count = 0;
+		for (long bucketCount : bucketCounts) {
+			count += bucketCount;
+		}
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Returns the name of the histogram.
+	 *
+	 * @return name
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the number of recorded values.
+	 *
+	 * @return number of values
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the sum of all recorded values.
+	 *
+	 * @return sum
+	 */
+	public long getSum() {
+		return this.sum;
+	}
+
+	/**
+	 * Returns the largest recorded value, or 0 if no values were recorded.
+	 *
+	 * @return maximum
+	 */
+	public long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * Returns the average of the recorded values, or 0 if no values were
+	 * recorded.
+	 *
+	 * @return average
+	 */
+	public double getMean() {
+		if (this.count == 0) {
+			return 0;
+		}
+		return (double) this.sum / this.count;
+	}
+
+	/**
+	 * Returns an estimate of the value below which the given percentage of
+	 * recorded values lies. The estimate is the middle of the bucket that
+	 * contains this value, but never more than the largest value.
+	 *
+	 * @param percentile
+	 *            number between 0 and 100
+	 * @return estimated value, or 0 if no values were recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Illegal percentile: "
+					+ percentile);
+		}
+		long rank = (long) Math.ceil(percentile / 100 * this.count);
+		if (rank < 1) {
+			rank = 1;
+		}
+		long seen = 0;
+		for (int i = 0; i < this.bucketCounts.length; i++) {
+			seen += this.bucketCounts[i];
+			if (seen >= rank) {
+				if (i + 1 == this.bucketCounts.length) {
+					return this.max;
+				}
+				long lowerBound = Histogram.getLowerBound(i);
+				long upperBound = Histogram.getLowerBound(i + 1);
+				return Math.min(this.max, lowerBound
+						+ (upperBound - lowerBound) / 2);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + ": count " + this.count + ", mean "
+				+ Math.round(getMean()) + ", median "
+				+ getValueAtPercentile(50) + ", 99% "
+				+ getValueAtPercentile(99) + ", max " + this.max;
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link MetricsReporter} that writes all metrics that have been used to the
+ * log. Histograms whose name ends in "time" are assumed to contain
+ * nanoseconds and are reported in microseconds.
+ */
+public class LoggingMetricsReporter implements MetricsReporter {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(LoggingMetricsReporter.class);
+
+	@Override
+	public void report(MetricsRegistry registry) {
+		for (Counter counter : registry.getCounters().values()) {
+			long count = counter.getCount();
+			if (count != 0) {
+				logger.info(counter.getName() + ": " + count);
+			}
+		}
+		for (Histogram histogram : registry.getHistograms().values()) {
+			HistogramSnapshot snapshot = histogram.getSnapshot();
+			if (snapshot.getCount() == 0) {
+				continue;
+			}
+			if (snapshot.getName().endsWith("time")) {
+				logger.info(snapshot.getName() + ": count "
+						+ snapshot.getCount() + ", total "
+						+ snapshot.getSum() / 1000000 + " ms, mean "
+						+ formatMicroseconds(Math.round(snapshot.getMean()))
+						+ ", median "
+						+ formatMicroseconds(snapshot.getValueAtPercentile(50))
+						+ ", 99% "
+						+ formatMicroseconds(snapshot.getValueAtPercentile(99))
+						+ ", max " + formatMicroseconds(snapshot.getMax()));
+			} else {
+				logger.info(snapshot.toString());
+			}
+		}
+	}
+
+	static String formatMicroseconds(long nanoseconds) {
+		return (nanoseconds / 100) / 10.0 + " us";
+	}
+
+}
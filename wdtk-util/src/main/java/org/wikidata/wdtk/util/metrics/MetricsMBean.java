@@ -0,0 +1,142 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+
+/**
+ * JMX bean that publishes the metrics of a {@link MetricsRegistry} as
+ * read-only attributes. The set of attributes is determined anew whenever
+ * the bean is inspected, so that metrics that are created later on are
+ * published, too.
+ *
+ * @see MetricsRegistry#registerMBean(String)
+ */
+class MetricsMBean implements DynamicMBean {
+
+	static final String[] HISTOGRAM_SUFFIXES = { ".count", ".mean", ".p50",
+			".p99", ".max" };
+
+	final MetricsRegistry registry;
+
+	MetricsMBean(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	@Override
+	public Object getAttribute(String attribute)
+			throws AttributeNotFoundException {
+		Counter counter = this.registry.counters.get(attribute);
+		if (counter != null) {
+			return counter.getCount();
+		}
+		int dot = attribute.lastIndexOf('.');
+		if (dot > 0) {
+			Histogram histogram = this.registry.histograms.get(attribute
+					.substring(0, dot));
+			if (histogram != null) {
+				HistogramSnapshot snapshot = histogram.getSnapshot();
+				switch (attribute.substring(dot)) {
+				case ".count":
+					return snapshot.getCount();
+				case ".mean":
+					return snapshot.getMean();
+				case ".p50":
+					return snapshot.getValueAtPercentile(50);
+				case ".p99":
+					return snapshot.getValueAtPercentile(99);
+				case ".max":
+					return snapshot.getMax();
+				}
+			}
+		}
+		throw new AttributeNotFoundException("Unknown metric: " + attribute);
+	}
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList result = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				result.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException e) {
+				// unknown attributes are omitted from the result
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void setAttribute(Attribute attribute)
+			throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("Metrics are read-only: "
+				+ attribute.getName());
+	}
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(String actionName, Object[] params,
+			String[] signature) throws ReflectionException {
+		if ("reset".equals(actionName)
+				&& (params == null || params.length == 0)) {
+			this.registry.reset();
+			return null;
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<>();
+		for (String name : this.registry.getCounters().keySet()) {
+			attributes.add(new MBeanAttributeInfo(name, "long", "Counter "
+					+ name, true, false, false));
+		}
+		for (String name : this.registry.getHistograms().keySet()) {
+			for (String suffix : HISTOGRAM_SUFFIXES) {
+				String type = ".mean".equals(suffix) ? "double" : "long";
+				attributes.add(new MBeanAttributeInfo(name + suffix, type,
+						"Histogram " + name, true, false, false));
+			}
+		}
+		MBeanOperationInfo reset = new MBeanOperationInfo("reset",
+				"Resets all metrics", null, "void", MBeanOperationInfo.ACTION);
+		return new MBeanInfo(MetricsRegistry.class.getName(),
+				"Wikidata Toolkit metrics",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]),
+				null, new MBeanOperationInfo[] { reset }, null);
+	}
+
+}
@@ -0,0 +1,253 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of named {@link Counter} and {@link Histogram} objects. The
+ * components of Wikidata Toolkit record their metrics in the default
+ * registry, which is returned by {@link #getDefault()}. The metrics can be
+ * read at any time, published through JMX using {@link #registerMBean()},
+ * or passed to a {@link MetricsReporter} at regular intervals using
+ * {@link #startReporting(MetricsReporter, long, TimeUnit)}.
+ * <p>
+ * The following metrics are recorded by Wikidata Toolkit:
+ * <ul>
+ * <li>download.bytes: bytes read from web resources</li>
+ * <li>file.read.bytes, file.read.time: bytes read from files, and
+ * nanoseconds needed for each read</li>
+ * <li>file.decompressed.bytes, file.decompressed.time: bytes read from
+ * compressed files after decompression, and nanoseconds needed for each read,
+ * including the time for reading the compressed data</li>
+ * <li>json.parse.time: nanoseconds needed to parse each entity document of a
+ * JSON dump</li>
+ * <li>processor.&lt;class name&gt;.time: nanoseconds needed by each entity
+ * document processor for each document</li>
+ * <li>output.bytes: bytes written to output files by the client</li>
+ * </ul>
+ */
+public class MetricsRegistry {
+
+	/**
+	 * Name under which the default registry is published through JMX.
+	 */
+	public static final String DEFAULT_MBEAN_NAME = "org.wikidata.wdtk:type=Metrics";
+
+	static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+	final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+	final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+	ScheduledExecutorService reportingExecutor = null;
+	final List<MetricsReporter> reporters = new ArrayList<>();
+
+	/**
+	 * Returns the registry that is used by all components of Wikidata
+	 * Toolkit.
+	 *
+	 * @return default registry
+	 */
+	public static MetricsRegistry getDefault() {
+		return defaultRegistry;
+	}
+
+	/**
+	 * Returns the counter of the given name, creating it if necessary.
+	 * Callers should keep the counter rather than looking it up for every
+	 * update.
+	 *
+	 * @param name
+	 *            the name of the counter
+	 * @return counter
+	 */
+	public Counter getCounter(String name) {
+		Counter counter = this.counters.get(name);
+		if (counter == null) {
+			Counter newCounter = new Counter(name);
+			counter = this.counters.putIfAbsent(name, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * Returns the histogram of the given name, creating it if necessary.
+	 * Callers should keep the histogram rather than looking it up for every
+	 * update.
+	 *
+	 * @param name
+	 *            the name of the histogram
+	 * @return histogram
+	 */
+	public Histogram getHistogram(String name) {
+		Histogram histogram = this.histograms.get(name);
+		if (histogram == null) {
+			Histogram newHistogram = new Histogram(name);
+			histogram = this.histograms.putIfAbsent(name, newHistogram);
+			if (histogram == null) {
+				histogram = newHistogram;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Returns all counters of the registry, ordered by name.
+	 *
+	 * @return map from names to counters
+	 */
+	public SortedMap<String, Counter> getCounters() {
+		return new TreeMap<>(this.counters);
+	}
+
+	/**
+	 * Returns all histograms of the registry, ordered by name.
+	 *
+	 * @return map from names to histograms
+	 */
+	public SortedMap<String, Histogram> getHistograms() {
+		return new TreeMap<>(this.histograms);
+	}
+
+	/**
+	 * Resets all counters and histograms of the registry.
+	 */
+	public void reset() {
+		for (Counter counter : this.counters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : this.histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Publishes the metrics of this registry through JMX under the name
+	 * {@link #DEFAULT_MBEAN_NAME}.
+	 *
+	 * @throws JMException
+	 *             if the registry could not be published, e.g., since
+	 *             another object was published under this name already
+	 */
+	public void registerMBean() throws JMException {
+		registerMBean(DEFAULT_MBEAN_NAME);
+	}
+
+	/**
+	 * Publishes the metrics of this registry through JMX under the given
+	 * name. Every counter becomes an attribute of the same name. Every
+	 * histogram becomes several attributes, whose names consist of the name
+	 * of the histogram followed by ".count", ".mean", ".p50", ".p99" or
+	 * ".max".
+	 *
+	 * @param objectName
+	 *            the JMX object name to use
+	 * @throws JMException
+	 *             if the registry could not be published
+	 */
+	public void registerMBean(String objectName) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(new MetricsMBean(this),
+				new ObjectName(objectName));
+	}
+
+	/**
+	 * Removes the metrics of this registry from JMX.
+	 *
+	 * @param objectName
+	 *            the JMX object name that was used for publishing
+	 * @throws JMException
+	 *             if the registry could not be removed
+	 */
+	public void unregisterMBean(String objectName) throws JMException {
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+				new ObjectName(objectName));
+	}
+
+	/**
+	 * Calls the given reporter at regular intervals from a background thread
+	 * until {@link #stopReporting()} is called.
+	 *
+	 * @param reporter
+	 *            the reporter to call
+	 * @param period
+	 *            the time between two reports
+	 * @param unit
+	 *            the unit of the period
+	 */
+	public synchronized void startReporting(final MetricsReporter reporter,
+			long period, TimeUnit unit) {
+		if (this.reportingExecutor == null) {
+			this.reportingExecutor = Executors
+					.newSingleThreadScheduledExecutor(new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"metrics-reporter");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		this.reporters.add(reporter);
+		this.reportingExecutor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				reporter.report(MetricsRegistry.this);
+			}
+		}, period, period, unit);
+	}
+
+	/**
+	 * Stops all reporting that was started with
+	 * {@link #startReporting(MetricsReporter, long, TimeUnit)}. Every
+	 * reporter is called one last time, so that the final state of the
+	 * metrics is reported.
+	 */
+	public synchronized void stopReporting() {
+		if (this.reportingExecutor == null) {
+			return;
+		}
+		this.reportingExecutor.shutdownNow();
+		this.reportingExecutor = null;
+		for (MetricsReporter reporter : this.reporters) {
+			reporter.report(this);
+		}
+		this.reporters.clear();
+	}
+
+}
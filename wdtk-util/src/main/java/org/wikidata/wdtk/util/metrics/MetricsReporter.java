@@ -0,0 +1,41 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Interface for classes that publish the metrics of a
+ * {@link MetricsRegistry}, e.g., by writing them to a log or by sending them
+ * to a monitoring system.
+ *
+ * @see MetricsRegistry#startReporting(MetricsReporter, long,
+ *      java.util.concurrent.TimeUnit)
+ */
+public interface MetricsReporter {
+
+	/**
+	 * Publishes the current state of the metrics of the given registry.
+	 *
+	 * @param registry
+	 *            the registry to report on
+	 */
+	void report(MetricsRegistry registry);
+
+}
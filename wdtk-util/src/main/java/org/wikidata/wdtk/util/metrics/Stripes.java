@@ -0,0 +1,61 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Helper class that assigns threads to stripes of striped counters, so that
+ * threads that update the same counter at the same time usually update
+ * different memory locations.
+ */
+class Stripes {
+
+	/**
+	 * Number of stripes; the smallest power of two that is at least the
+	 * number of available processors, but no more than 64.
+	 */
+	static final int COUNT;
+
+	/**
+	 * Number of longs between the start of two stripes, so that each stripe
+	 * is on its own cache line.
+	 */
+	static final int PADDING = 8;
+
+	static {
+		int processors = Math.min(64, Runtime.getRuntime()
+				.availableProcessors());
+		int count = Integer.highestOneBit(processors);
+		if (count < processors) {
+			count <<= 1;
+		}
+		COUNT = count;
+	}
+
+	/**
+	 * Returns the stripe of the current thread.
+	 *
+	 * @return stripe index between 0 and {@link #COUNT} - 1
+	 */
+	static int getIndex() {
+		return (int) Thread.currentThread().getId() & (COUNT - 1);
+	}
+
+}
@@ -0,0 +1,394 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpClientWebResourceFetcherTest {
+
+	HttpServer server;
+	ExecutorService executor;
+	HttpClientWebResourceFetcher fetcher;
+
+	final AtomicInteger requestCount = new AtomicInteger();
+
+	@Before
+	public void setUp() throws IOException {
+		this.executor = Executors.newCachedThreadPool();
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0),
+				0);
+		this.server.setExecutor(this.executor);
+		this.server.start();
+
+		this.fetcher = new HttpClientWebResourceFetcher();
+		this.fetcher.setRetryDelay(1);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		this.fetcher.close();
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	String getUrl(String path) {
+		return "http://127.0.0.1:" + this.server.getAddress().getPort() + path;
+	}
+
+	static void respond(HttpExchange exchange, int status, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	static String readString(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int count;
+		try {
+			while ((count = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, count);
+			}
+		} finally {
+			in.close();
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Registers a handler that fails with the given status for the given
+	 * number of requests and then answers "ok".
+	 */
+	void addFailingHandler(String path, final int status, final int failures) {
+		this.server.createContext(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (requestCount.incrementAndGet() <= failures) {
+					respond(exchange, status, "error");
+				} else {
+					respond(exchange, 200, "ok");
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testGzipResponse() throws IOException {
+		final String text = "{\"entities\":{}} {\"entities\":{}} {\"entities\":{}}";
+		this.server.createContext("/gzip", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String acceptEncoding = exchange.getRequestHeaders().getFirst(
+						"Accept-Encoding");
+				if (acceptEncoding == null || !acceptEncoding.contains("gzip")) {
+					respond(exchange, 400, "gzip expected");
+					return;
+				}
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+					gzip.write(text.getBytes(StandardCharsets.UTF_8));
+				}
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, bytes.size());
+				try (OutputStream out = exchange.getResponseBody()) {
+					bytes.writeTo(out);
+				}
+			}
+		});
+
+		assertEquals(text,
+				readString(this.fetcher.getInputStreamForUrl(getUrl("/gzip"))));
+	}
+
+	@Test
+	public void testUserAgent() throws IOException {
+		this.server.createContext("/agent", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, exchange.getRequestHeaders().getFirst(
+						"User-Agent"));
+			}
+		});
+
+		assertEquals(WebResourceFetcherImpl.getUserAgent(),
+				readString(this.fetcher.getInputStreamForUrl(getUrl("/agent"))));
+	}
+
+	@Test
+	public void testConnectionsAreReused() throws IOException {
+		final Set<Integer> clientPorts = Collections
+				.synchronizedSet(new HashSet<Integer>());
+		this.server.createContext("/reuse", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				respond(exchange, 200, "ok");
+			}
+		});
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals("ok", readString(this.fetcher
+					.getInputStreamForUrl(getUrl("/reuse"))));
+		}
+		assertEquals(1, clientPorts.size());
+	}
+
+	@Test
+	public void testRetryOnServerError() throws IOException {
+		addFailingHandler("/retry", 503, 2);
+		long retries = HttpClientWebResourceFetcher.retryCounter.getCount();
+
+		assertEquals("ok",
+				readString(this.fetcher.getInputStreamForUrl(getUrl("/retry"))));
+		assertEquals(3, this.requestCount.get());
+		assertEquals(retries + 2,
+				HttpClientWebResourceFetcher.retryCounter.getCount());
+	}
+
+	@Test
+	public void testRetriesExhausted() {
+		addFailingHandler("/fail", 500, 100);
+		this.fetcher.setMaxRetries(2);
+
+		try {
+			this.fetcher.getInputStreamForUrl(getUrl("/fail"));
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("500"));
+		}
+		assertEquals(3, this.requestCount.get());
+	}
+
+	/**
+	 * Registers a handler that fails with status 503 and the given
+	 * Retry-After header for the first request and then answers "ok".
+	 */
+	void addRetryAfterHandler(String path, final String retryAfter) {
+		this.server.createContext(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (requestCount.incrementAndGet() <= 1) {
+					exchange.getResponseHeaders().set("Retry-After",
+							retryAfter);
+					respond(exchange, 503, "error");
+				} else {
+					respond(exchange, 200, "ok");
+				}
+			}
+		});
+	}
+
+	@Test
+	public void testRetryAfterLongerThanMaxRetryDelay() throws IOException {
+		addRetryAfterHandler("/later", "1");
+		this.fetcher.maxRetryDelay = 10;
+
+		long start = System.nanoTime();
+		assertEquals("ok",
+				readString(this.fetcher.getInputStreamForUrl(getUrl("/later"))));
+		assertTrue(System.nanoTime() - start >= 1000000000L);
+		assertEquals(2, this.requestCount.get());
+	}
+
+	@Test
+	public void testRetryAfterLongerThanMaxRetryAfter() {
+		addRetryAfterHandler("/much-later", "3600");
+		this.fetcher.setMaxRetryAfter(60000);
+
+		try {
+			this.fetcher.getInputStreamForUrl(getUrl("/much-later"));
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("3600000"));
+		}
+		assertEquals(1, this.requestCount.get());
+	}
+
+	@Test
+	public void testJitter() {
+		for (int i = 0; i < 100; i++) {
+			long delay = HttpClientWebResourceFetcher.addJitter(1000);
+			assertTrue(delay >= 500 && delay <= 1000);
+		}
+		assertEquals(0, HttpClientWebResourceFetcher.addJitter(0));
+		assertEquals(1, HttpClientWebResourceFetcher.addJitter(1));
+	}
+
+	@Test
+	public void testNoRetryOnClientError() {
+		addFailingHandler("/missing", 404, 100);
+
+		try {
+			this.fetcher.getInputStreamForUrl(getUrl("/missing"));
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("404"));
+		}
+		assertEquals(1, this.requestCount.get());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadTimeout() throws IOException {
+		this.server.createContext("/slow", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(2000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				respond(exchange, 200, "late");
+			}
+		});
+		this.fetcher.setReadTimeout(200);
+		this.fetcher.setMaxRetries(0);
+
+		this.fetcher.getInputStreamForUrl(getUrl("/slow"));
+	}
+
+	@Test
+	public void testMaxConnectionsPerHost() throws Exception {
+		final AtomicInteger activeRequests = new AtomicInteger();
+		final AtomicInteger maxActiveRequests = new AtomicInteger();
+		this.server.createContext("/limit", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				int active = activeRequests.incrementAndGet();
+				synchronized (maxActiveRequests) {
+					maxActiveRequests.set(Math.max(active,
+							maxActiveRequests.get()));
+				}
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				activeRequests.decrementAndGet();
+				respond(exchange, 200, "ok");
+			}
+		});
+		this.fetcher.setMaxConnectionsPerHost(1);
+
+		final AtomicInteger successes = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					try {
+						if ("ok".equals(readString(fetcher
+								.getInputStreamForUrl(getUrl("/limit"))))) {
+							successes.incrementAndGet();
+						}
+					} catch (IOException e) {
+						// counted as failure
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(3, successes.get());
+		assertEquals(1, maxActiveRequests.get());
+	}
+
+	@Test
+	public void testSystemProxySettings() throws IOException {
+		this.server.createContext("/proxied", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, 200, exchange.getRequestURI().toString());
+			}
+		});
+		String proxyHost = System.getProperty("http.proxyHost");
+		String proxyPort = System.getProperty("http.proxyPort");
+		System.setProperty("http.proxyHost", "127.0.0.1");
+		System.setProperty("http.proxyPort",
+				String.valueOf(this.server.getAddress().getPort()));
+		try {
+			// The host cannot be resolved, so only the proxy can answer
+			assertEquals("http://example.invalid/proxied",
+					readString(this.fetcher
+							.getInputStreamForUrl("http://example.invalid/proxied")));
+		} finally {
+			restoreProperty("http.proxyHost", proxyHost);
+			restoreProperty("http.proxyPort", proxyPort);
+		}
+	}
+
+	static void restoreProperty(String key, String value) {
+		if (value == null) {
+			System.clearProperty(key);
+		} else {
+			System.setProperty(key, value);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testInvalidUrl() throws IOException {
+		this.fetcher.getInputStreamForUrl("not a URL");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxConnectionsPerHost() {
+		this.fetcher.setMaxConnectionsPerHost(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalReadTimeout() {
+		this.fetcher.setReadTimeout(-1);
+	}
+
+}
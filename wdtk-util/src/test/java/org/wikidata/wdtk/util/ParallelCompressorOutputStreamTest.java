@@ -0,0 +1,160 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.junit.Test;
+
+public class ParallelCompressorOutputStreamTest {
+
+	/**
+	 * Creates compressible test data of the given size.
+	 *
+	 * @param size
+	 * @return test data
+	 */
+	byte[] makeTestData(int size) {
+		Random random = new Random(42);
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+		return data;
+	}
+
+	byte[] compress(byte[] data, CompressionType compressionType,
+			int compressionLevel, int threads) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		OutputStream pcos = new ParallelCompressorOutputStream(out,
+				compressionType, compressionLevel, threads);
+		// write in uneven chunks and single bytes to cover all code paths
+		int pos = 0;
+		int chunkSize = 1;
+		while (pos < data.length) {
+			int len = Math.min(chunkSize, data.length - pos);
+			if (len == 1) {
+				pcos.write(data[pos]);
+			} else {
+				pcos.write(data, pos, len);
+			}
+			pos += len;
+			chunkSize = (chunkSize * 7 + 3) % 100003;
+		}
+		pcos.flush();
+		pcos.close();
+		return out.toByteArray();
+	}
+
+	byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int len;
+		while ((len = in.read(buffer)) > 0) {
+			out.write(buffer, 0, len);
+		}
+		in.close();
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testGzipMultiMember() throws IOException {
+		byte[] data = makeTestData(3 * ParallelCompressorOutputStream.GZIP_BLOCK_SIZE + 1234);
+		byte[] compressed = compress(data, CompressionType.GZIP,
+				ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL, 3);
+		byte[] result = readFully(new GZIPInputStream(
+				new ByteArrayInputStream(compressed)));
+		assertArrayEquals(data, result);
+	}
+
+	@Test
+	public void testBz2MultiStream() throws IOException {
+		byte[] data = makeTestData(3 * ParallelCompressorOutputStream.BZ2_BLOCK_SIZE_UNIT + 567);
+		byte[] compressed = compress(data, CompressionType.BZ2, 1, 2);
+		byte[] result = readFully(new BZip2CompressorInputStream(
+				new ByteArrayInputStream(compressed), true));
+		assertArrayEquals(data, result);
+	}
+
+	@Test
+	public void testZstdMultiFrame() throws IOException {
+		byte[] data = makeTestData(2 * ParallelCompressorOutputStream.FRAME_BLOCK_SIZE + 89);
+		byte[] compressed = compress(data, CompressionType.ZSTD,
+				ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL, 2);
+		byte[] result = readFully(new ZstdCompressorInputStream(
+				new ByteArrayInputStream(compressed)));
+		assertArrayEquals(data, result);
+	}
+
+	@Test
+	public void testLz4MultiFrame() throws IOException {
+		byte[] data = makeTestData(2 * ParallelCompressorOutputStream.FRAME_BLOCK_SIZE + 89);
+		byte[] compressed = compress(data, CompressionType.LZ4,
+				ParallelCompressorOutputStream.DEFAULT_COMPRESSION_LEVEL, 2);
+		byte[] result = readFully(new FramedLZ4CompressorInputStream(
+				new ByteArrayInputStream(compressed), true));
+		assertArrayEquals(data, result);
+	}
+
+	@Test
+	public void testEmptyStream() throws IOException {
+		byte[] compressed = compress(new byte[0], CompressionType.GZIP, 1, 2);
+		assertArrayEquals(new byte[0], compressed);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		OutputStream pcos = new ParallelCompressorOutputStream(
+				new ByteArrayOutputStream(), CompressionType.GZIP, 5, 1);
+		pcos.close();
+		pcos.write(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedCompression() {
+		new ParallelCompressorOutputStream(new ByteArrayOutputStream(),
+				CompressionType.NONE, 5, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalCompressionLevel() {
+		new ParallelCompressorOutputStream(new ByteArrayOutputStream(),
+				CompressionType.BZ2, 0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalThreadCount() {
+		new ParallelCompressorOutputStream(new ByteArrayOutputStream(),
+				CompressionType.GZIP, 5, 0);
+	}
+
+}
@@ -0,0 +1,136 @@
+package org.wikidata.wdtk.util;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RingBufferOutputStreamTest {
+
+	/**
+	 * Output stream that records if it was closed and if it was flushed.
+	 */
+	static class RecordingOutputStream extends ByteArrayOutputStream {
+		boolean closed = false;
+		int flushedSize = -1;
+
+		@Override
+		public void flush() {
+			this.flushedSize = size();
+		}
+
+		@Override
+		public void close() {
+			this.closed = true;
+		}
+	}
+
+	@Test
+	public void testWriteAndClose() throws IOException {
+		byte[] data = new byte[100000];
+		new Random(42).nextBytes(data);
+
+		RecordingOutputStream target = new RecordingOutputStream();
+		// Small buffer to force many wrap-arounds:
+		RingBufferOutputStream out = new RingBufferOutputStream(target, 100,
+				"test-output-stream");
+		int pos = 0;
+		int chunkSize = 1;
+		while (pos < data.length) {
+			int len = Math.min(chunkSize, data.length - pos);
+			if (len == 1) {
+				out.write(data[pos]);
+			} else {
+				out.write(data, pos, len);
+			}
+			pos += len;
+			chunkSize = (chunkSize * 7 + 3) % 1001;
+		}
+		out.close();
+
+		assertTrue(target.closed);
+		assertArrayEquals(data, target.toByteArray());
+		assertTrue(out.getProducerStallTime() >= 0);
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		RecordingOutputStream target = new RecordingOutputStream();
+		RingBufferOutputStream out = new RingBufferOutputStream(target, 16,
+				"test-output-stream");
+		out.write(new byte[50]);
+		out.flush();
+		assertEquals(50, target.flushedSize);
+		out.write(new byte[3]);
+		out.flush();
+		assertEquals(53, target.flushedSize);
+		out.close();
+	}
+
+	@Test
+	public void testDoubleClose() throws IOException {
+		RecordingOutputStream target = new RecordingOutputStream();
+		RingBufferOutputStream out = new RingBufferOutputStream(target);
+		out.close();
+		out.close();
+		assertTrue(target.closed);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		RingBufferOutputStream out = new RingBufferOutputStream(
+				new ByteArrayOutputStream());
+		out.close();
+		out.write(1);
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriterException() throws IOException {
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Test exception");
+			}
+		};
+		RingBufferOutputStream out = new RingBufferOutputStream(failing, 16,
+				"test-output-stream");
+		// writing more than the buffer size must fail eventually:
+		for (int i = 0; i < 100; i++) {
+			out.write(new byte[10]);
+		}
+		out.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalBufferSize() {
+		new RingBufferOutputStream(new ByteArrayOutputStream(), 0,
+				"test-output-stream");
+	}
+
+}
@@ -0,0 +1,124 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testCounter() {
+		Counter counter = new Counter("test");
+		counter.increment();
+		counter.add(41);
+		assertEquals(42, counter.getCount());
+		assertEquals("test: 42", counter.toString());
+
+		counter.reset();
+		assertEquals(0, counter.getCount());
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws InterruptedException {
+		final Counter counter = new Counter("test");
+		final Histogram histogram = new Histogram("test");
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						counter.increment();
+						histogram.record(i);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, counter.getCount());
+		HistogramSnapshot snapshot = histogram.getSnapshot();
+		assertEquals(40000, snapshot.getCount());
+		assertEquals(4L * 9999 * 10000 / 2, snapshot.getSum());
+		assertEquals(9999, snapshot.getMax());
+	}
+
+	@Test
+	public void testBuckets() {
+		for (long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1000,
+				123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE }) {
+			int bucket = Histogram.getBucket(value);
+			assertTrue(bucket < Histogram.BUCKET_COUNT);
+			assertTrue(Histogram.getLowerBound(bucket) <= value);
+			if (bucket + 1 < Histogram.BUCKET_COUNT) {
+				assertTrue(value < Histogram.getLowerBound(bucket + 1));
+			}
+		}
+		for (int bucket = 1; bucket < Histogram.BUCKET_COUNT; bucket++) {
+			assertEquals(bucket,
+					Histogram.getBucket(Histogram.getLowerBound(bucket)));
+			assertEquals(bucket - 1,
+					Histogram.getBucket(Histogram.getLowerBound(bucket) - 1));
+		}
+	}
+
+	@Test
+	public void testSnapshot() {
+		Histogram histogram = new Histogram("time");
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000);
+		}
+		histogram.record(-5);
+		HistogramSnapshot snapshot = histogram.getSnapshot();
+
+		assertEquals("time", snapshot.getName());
+		assertEquals(1001, snapshot.getCount());
+		assertEquals(500500000, snapshot.getSum());
+		assertEquals(1000000, snapshot.getMax());
+		assertEquals(500000, snapshot.getMean(), 1000);
+		assertEquals(0, snapshot.getValueAtPercentile(0));
+		assertEquals(500000, snapshot.getValueAtPercentile(50), 500000 / 8);
+		assertEquals(990000, snapshot.getValueAtPercentile(99), 990000 / 8);
+		assertEquals(1000000, snapshot.getValueAtPercentile(100));
+
+		histogram.reset();
+		snapshot = histogram.getSnapshot();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getMean(), 0);
+		assertEquals(0, snapshot.getValueAtPercentile(50));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalPercentile() {
+		new Histogram("test").getSnapshot().getValueAtPercentile(101);
+	}
+
+}
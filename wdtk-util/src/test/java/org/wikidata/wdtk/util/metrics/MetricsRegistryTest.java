@@ -0,0 +1,153 @@
+package org.wikidata.wdtk.util.metrics;
+
+/*
+ * #%L
+ * Wikidata Toolkit Utilities
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+	@Test
+	public void testMetricsAreShared() {
+		MetricsRegistry registry = new MetricsRegistry();
+		assertSame(registry.getCounter("a"), registry.getCounter("a"));
+		assertSame(registry.getHistogram("a"), registry.getHistogram("a"));
+		registry.getCounter("b");
+
+		assertEquals("[a, b]", registry.getCounters().keySet().toString());
+		assertEquals("[a]", registry.getHistograms().keySet().toString());
+		assertSame(MetricsRegistry.getDefault(), MetricsRegistry.getDefault());
+	}
+
+	@Test
+	public void testReset() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.getCounter("a").add(5);
+		registry.getHistogram("b").record(5);
+		registry.reset();
+
+		assertEquals(0, registry.getCounter("a").getCount());
+		assertEquals(0, registry.getHistogram("b").getSnapshot().getCount());
+	}
+
+	@Test
+	public void testMBean() throws JMException {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.getCounter("bytes").add(1234);
+		registry.getHistogram("parse.time").record(100);
+		String name = "org.wikidata.wdtk:type=MetricsTest";
+		registry.registerMBean(name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(name);
+
+			assertEquals(1234L, server.getAttribute(objectName, "bytes"));
+			assertEquals(1L,
+					server.getAttribute(objectName, "parse.time.count"));
+			assertEquals(100L,
+					server.getAttribute(objectName, "parse.time.max"));
+			assertEquals(1 + 5,
+					server.getMBeanInfo(objectName).getAttributes().length);
+
+			server.invoke(objectName, "reset", null, null);
+			assertEquals(0L, server.getAttribute(objectName, "bytes"));
+		} finally {
+			registry.unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void testReporting() throws InterruptedException {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.getCounter("a").increment();
+		registry.getHistogram("b.time").record(1000);
+		final AtomicInteger reportCount = new AtomicInteger();
+
+		registry.startReporting(new MetricsReporter() {
+			@Override
+			public void report(MetricsRegistry registry) {
+				reportCount.incrementAndGet();
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+		registry.startReporting(new LoggingMetricsReporter(), 1,
+				TimeUnit.HOURS);
+		long start = System.currentTimeMillis();
+		while (reportCount.get() < 2
+				&& System.currentTimeMillis() - start < 10000) {
+			Thread.sleep(1);
+		}
+		registry.stopReporting();
+		int count = reportCount.get();
+		assertTrue(count >= 3);
+
+		registry.stopReporting();
+		assertEquals(count, reportCount.get());
+	}
+
+	@Test
+	public void testCountingStreams() throws IOException {
+		Counter inputCounter = new Counter("in");
+		Histogram readTime = new Histogram("in.time");
+		Counter outputCounter = new Counter("out");
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new CountingOutputStream(bytes, outputCounter)) {
+			out.write(data, 0, 999);
+			out.write(data[999]);
+		}
+		assertEquals(1000, outputCounter.getCount());
+		assertArrayEquals(data, bytes.toByteArray());
+
+		byte[] result = new byte[1000];
+		try (InputStream in = new CountingInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()), inputCounter, readTime)) {
+			result[0] = (byte) in.read();
+			assertEquals(10, in.skip(10));
+			assertEquals(989, in.read(result, 11, 989));
+			assertEquals(-1, in.read(result, 0, 1));
+		}
+		assertEquals(1000, inputCounter.getCount());
+		assertEquals(3, readTime.getSnapshot().getCount());
+		assertEquals(data[999], result[999]);
+	}
+
+}
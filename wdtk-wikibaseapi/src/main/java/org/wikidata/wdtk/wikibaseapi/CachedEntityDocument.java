@@ -0,0 +1,206 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.interfaces.TermedDocument;
+
+/**
+ * Entry of an {@link EntityDocumentCache}: an entity document together with
+ * the information that is needed to decide if it is still current. Objects
+ * of this class are immutable.
+ */
+public class CachedEntityDocument {
+
+	/**
+	 * Size that is given for documents whose size is not known yet. Caches
+	 * that serialize documents use the size of the serialization instead;
+	 * other caches use the estimate of {@link #estimateSize(EntityDocument)}.
+	 */
+	public static final int UNKNOWN_SIZE = -1;
+
+	/**
+	 * Estimated number of bytes of a term (label, description or alias) in
+	 * JSON, in addition to its text.
+	 */
+	static final int TERM_SIZE_ESTIMATE = 40;
+	/**
+	 * Estimated number of bytes of a site link in JSON, in addition to its
+	 * title.
+	 */
+	static final int SITE_LINK_SIZE_ESTIMATE = 60;
+	/**
+	 * Estimated number of bytes of a statement in JSON. Statements of
+	 * Wikidata, including references, are mostly a few hundred bytes long.
+	 */
+	static final int STATEMENT_SIZE_ESTIMATE = 400;
+
+	final EntityDocument document;
+	final long revisionId;
+	final long fetchTime;
+	final int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param document
+	 *            the cached document
+	 * @param revisionId
+	 *            the id of the revision that the document was taken from, or
+	 *            0 if it is not known
+	 * @param fetchTime
+	 *            the time when the document was fetched or last found to be
+	 *            current, in milliseconds as given by
+	 *            {@link System#currentTimeMillis()}
+	 * @param size
+	 *            the size of the document, usually the number of bytes of its
+	 *            JSON serialization; used to limit the size of caches; or
+	 *            {@link #UNKNOWN_SIZE} if the cache should determine it
+	 */
+	public CachedEntityDocument(EntityDocument document, long revisionId,
+			long fetchTime, int size) {
+		this.document = document;
+		this.revisionId = revisionId;
+		this.fetchTime = fetchTime;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the cached document.
+	 *
+	 * @return entity document
+	 */
+	public EntityDocument getDocument() {
+		return this.document;
+	}
+
+	/**
+	 * Returns the id of the revision that the document was taken from, or 0
+	 * if it is not known.
+	 *
+	 * @return revision id
+	 */
+	public long getRevisionId() {
+		return this.revisionId;
+	}
+
+	/**
+	 * Returns the time when the document was fetched or last found to be
+	 * current, in milliseconds as given by {@link System#currentTimeMillis()}.
+	 *
+	 * @return fetch time
+	 */
+	public long getFetchTime() {
+		return this.fetchTime;
+	}
+
+	/**
+	 * Returns the size of the document, usually the number of bytes of its
+	 * JSON serialization. If the size was not given, it is estimated.
+	 *
+	 * @return size of the document
+	 */
+	public int getSize() {
+		if (this.size == UNKNOWN_SIZE) {
+			return estimateSize(this.document);
+		}
+		return this.size;
+	}
+
+	/**
+	 * Returns a copy of this entry with the given fetch time. This is used
+	 * when a document has been found to be still current.
+	 *
+	 * @param fetchTime
+	 *            the new fetch time
+	 * @return new entry
+	 */
+	public CachedEntityDocument withFetchTime(long fetchTime) {
+		return new CachedEntityDocument(this.document, this.revisionId,
+				fetchTime, this.size);
+	}
+
+	/**
+	 * Estimates the number of bytes of the JSON serialization of the given
+	 * document from the length of its strings and the number of its
+	 * statements, without serializing it.
+	 *
+	 * @param document
+	 *            the document
+	 * @return estimated size of the document
+	 */
+	public static int estimateSize(EntityDocument document) {
+		int size = TERM_SIZE_ESTIMATE;
+		if (document instanceof TermedDocument) {
+			TermedDocument termedDocument = (TermedDocument) document;
+			for (MonolingualTextValue label : termedDocument.getLabels()
+					.values()) {
+				size += estimateTermSize(label);
+			}
+			for (MonolingualTextValue description : termedDocument
+					.getDescriptions().values()) {
+				size += estimateTermSize(description);
+			}
+			for (List<MonolingualTextValue> aliases : termedDocument
+					.getAliases().values()) {
+				for (MonolingualTextValue alias : aliases) {
+					size += estimateTermSize(alias);
+				}
+			}
+		}
+		if (document instanceof StatementDocument) {
+			for (StatementGroup statementGroup : ((StatementDocument) document)
+					.getStatementGroups()) {
+				size += STATEMENT_SIZE_ESTIMATE
+						* statementGroup.getStatements().size();
+			}
+		}
+		if (document instanceof ItemDocument) {
+			for (SiteLink siteLink : ((ItemDocument) document).getSiteLinks()
+					.values()) {
+				size += SITE_LINK_SIZE_ESTIMATE
+						+ siteLink.getPageTitle().length();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Estimates the number of bytes of the JSON serialization of the given
+	 * term.
+	 *
+	 * @param term
+	 *            the term
+	 * @return estimated size of the term
+	 */
+	static int estimateTermSize(MonolingualTextValue term) {
+		return TERM_SIZE_ESTIMATE + term.getText().length()
+				+ 2 * term.getLanguageCode().length();
+	}
+
+}
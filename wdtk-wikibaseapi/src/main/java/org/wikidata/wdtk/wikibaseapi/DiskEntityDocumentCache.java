@@ -0,0 +1,199 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+import org.wikidata.wdtk.util.CompressionType;
+import org.wikidata.wdtk.util.DirectoryManager;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link EntityDocumentCache} that stores each entry as a JSON file in a
+ * directory, so that entries are kept between runs. This is usually used as
+ * the second-level cache of a {@link MemoryEntityDocumentCache}. Only
+ * documents that were read with Jackson (as done by
+ * {@link WikibaseDataFetcher}) can be stored; other documents are ignored.
+ * <p>
+ * Problems with reading or writing files are logged but otherwise treated
+ * like missing entries, so that a damaged cache never stops data from being
+ * fetched.
+ */
+public class DiskEntityDocumentCache implements EntityDocumentCache {
+
+	static final Logger logger = LoggerFactory
+			.getLogger(DiskEntityDocumentCache.class);
+
+	final DirectoryManager directoryManager;
+
+	final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directoryManager
+	 *            the directory where the entries are stored
+	 */
+	public DiskEntityDocumentCache(DirectoryManager directoryManager) {
+		this.directoryManager = directoryManager;
+	}
+
+	@Override
+	public CachedEntityDocument get(String key) {
+		String fileName = getFileName(key);
+		if (!this.directoryManager.hasFile(fileName)) {
+			return null;
+		}
+
+		try (InputStream in = this.directoryManager.getInputStreamForFile(
+				fileName, CompressionType.NONE)) {
+			JsonNode node = this.mapper.readTree(in);
+			if (node == null || !key.equals(node.path("key").asText())
+					|| !node.has("document")) {
+				return null;
+			}
+			JacksonTermedStatementDocument document = this.mapper
+					.treeToValue(node.get("document"),
+							JacksonTermedStatementDocument.class);
+			document.setSiteIri(node.path("site").asText());
+			return new CachedEntityDocument(document, node.path("revision")
+					.asLong(), node.path("fetched").asLong(), node.path("size")
+					.asInt());
+		} catch (IOException e) {
+			logger.warn("Could not read cached entity document from file "
+					+ fileName + ": " + e.toString());
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String key, CachedEntityDocument entry) {
+		if (!(entry.getDocument() instanceof JacksonTermedStatementDocument)) {
+			return;
+		}
+
+		// The document is serialized only once, and its size is measured
+		// while it is written if it is not known yet
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			try (JsonGenerator generator = this.mapper.getFactory()
+					.createGenerator(out)) {
+				generator.writeStartObject();
+				generator.writeStringField("key", key);
+				generator.writeNumberField("revision", entry.getRevisionId());
+				generator.writeNumberField("fetched", entry.getFetchTime());
+				generator.writeStringField("site", entry.getDocument()
+						.getEntityId().getSiteIri());
+				generator.writeFieldName("document");
+				generator.flush();
+				int start = out.size();
+				generator.writeObject(entry.getDocument());
+				generator.flush();
+				int size = entry.size;
+				if (size == CachedEntityDocument.UNKNOWN_SIZE) {
+					// Not counting the ":" that is written before the document
+					size = out.size() - start - 1;
+				}
+				generator.writeNumberField("size", size);
+				generator.writeEndObject();
+			}
+			writeFile(getFileName(key), out.toByteArray());
+		} catch (IOException e) {
+			logger.warn("Could not write cached entity document for " + key
+					+ ": " + e.toString());
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		String fileName = getFileName(key);
+		if (!this.directoryManager.hasFile(fileName)) {
+			return;
+		}
+		// DirectoryManager cannot delete files; empty files are ignored
+		try {
+			writeFile(fileName, new byte[0]);
+		} catch (IOException e) {
+			logger.warn("Could not remove cached entity document for " + key
+					+ ": " + e.toString());
+		}
+	}
+
+	/**
+	 * Replaces the contents of the given file. The data is written with a
+	 * single call, so that concurrent readers of the same file are unlikely
+	 * to see incomplete data; if they do, they treat the entry as missing.
+	 *
+	 * @param fileName
+	 *            the name of the file
+	 * @param bytes
+	 *            the new contents
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	void writeFile(String fileName, byte[] bytes) throws IOException {
+		try (OutputStream out = this.directoryManager
+				.getOutputStreamForFile(fileName)) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Returns the name of the file for the given key. It consists of the
+	 * first part of the key (usually the entity id) and a hash of the whole
+	 * key. Since different keys may have the same hash, the key is also
+	 * stored in the file.
+	 *
+	 * @param key
+	 *            the key of an entry
+	 * @return file name
+	 */
+	static String getFileName(String key) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < key.length() && i < 40; i++) {
+			char c = key.charAt(i);
+			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+					|| (c >= '0' && c <= '9')) {
+				builder.append(c);
+			} else {
+				break;
+			}
+		}
+
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return builder.append('-').append(Long.toHexString(hash))
+				.append(".json").toString();
+	}
+
+}
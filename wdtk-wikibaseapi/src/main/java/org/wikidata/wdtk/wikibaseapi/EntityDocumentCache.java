@@ -0,0 +1,62 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Cache for entity documents that were fetched from the Web API, used by
+ * {@link WikibaseDataFetcher#setEntityDocumentCache(EntityDocumentCache)}.
+ * Entries are stored under string keys that identify the entity as well as
+ * the settings of the request, so that documents that were fetched with
+ * different filters are kept apart. Implementations must be thread-safe.
+ */
+public interface EntityDocumentCache {
+
+	/**
+	 * Returns the entry for the given key, or null if there is no such entry.
+	 * Entries are returned even if they are old; it is up to the caller to
+	 * decide if they can still be used.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @return the cached entry or null
+	 */
+	CachedEntityDocument get(String key);
+
+	/**
+	 * Stores the given entry under the given key, replacing any previous
+	 * entry.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the entry to store
+	 */
+	void put(String key, CachedEntityDocument entry);
+
+	/**
+	 * Removes the entry for the given key, if any.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 */
+	void remove(String key);
+
+}
@@ -0,0 +1,71 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+import java.util.Map;
+
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+
+/**
+ * Object that provides entity documents for given entity ids, such as
+ * {@link WikibaseDataFetcher}, which gets them from the Web API, or
+ * {@link HybridEntityDocumentSource}, which prefers locally stored data.
+ * Code that only looks up documents can use this interface to work with
+ * either of them.
+ */
+public interface EntityDocumentSource {
+
+	/**
+	 * Returns the document for the entity of the given string ID, or null if
+	 * the data could not be found.
+	 *
+	 * @param entityId
+	 *            string ID (e.g., "P31" or "Q42") of the requested entity
+	 * @return entity document or null
+	 */
+	EntityDocument getEntityDocument(String entityId);
+
+	/**
+	 * Returns the documents for the entities of the given string IDs. The
+	 * result is a map from entity IDs to {@link EntityDocument} objects. It is
+	 * possible that a requested ID could not be found: then this key is not set
+	 * in the map.
+	 *
+	 * @param entityIds
+	 *            string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return map from IDs for which data could be found to the documents
+	 */
+	Map<String, EntityDocument> getEntityDocuments(String... entityIds);
+
+	/**
+	 * Returns the documents for the entities of the given string IDs. The
+	 * result is a map from entity IDs to {@link EntityDocument} objects. It is
+	 * possible that a requested ID could not be found: then this key is not set
+	 * in the map.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return map from IDs for which data could be found to the documents
+	 */
+	Map<String, EntityDocument> getEntityDocuments(List<String> entityIds);
+
+}
@@ -0,0 +1,113 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+
+/**
+ * {@link EntityDocumentProcessor} that writes all documents to an
+ * {@link EntityDocumentCache}, indexed by entity id, so that they can be used
+ * as the local store of a {@link HybridEntityDocumentSource}. This is
+ * typically used to load the documents of a dump. All documents are stored
+ * with the same fetch time, usually the time when the dump was created, so
+ * that they are considered as old as the dump.
+ * <p>
+ * Documents are converted to Jackson objects if necessary, so that they can
+ * be written to a {@link DiskEntityDocumentCache}.
+ */
+public class EntityDocumentStoreProcessor implements EntityDocumentProcessor {
+
+	final EntityDocumentCache localStore;
+	final long fetchTime;
+
+	final DatamodelConverter converter = new DatamodelConverter(
+			new JacksonObjectFactory());
+
+	int documentCount = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localStore
+	 *            the store to write documents to
+	 * @param fetchTime
+	 *            the time at which the processed data was current, usually
+	 *            the creation time of the dump, in milliseconds as given by
+	 *            {@link System#currentTimeMillis()}
+	 */
+	public EntityDocumentStoreProcessor(EntityDocumentCache localStore,
+			long fetchTime) {
+		this.localStore = localStore;
+		this.fetchTime = fetchTime;
+	}
+
+	@Override
+	public void processItemDocument(ItemDocument itemDocument) {
+		if (!(itemDocument instanceof JacksonTermedStatementDocument)) {
+			itemDocument = this.converter.copy(itemDocument);
+		}
+		storeDocument(itemDocument);
+	}
+
+	@Override
+	public void processPropertyDocument(PropertyDocument propertyDocument) {
+		if (!(propertyDocument instanceof JacksonTermedStatementDocument)) {
+			propertyDocument = this.converter.copy(propertyDocument);
+		}
+		storeDocument(propertyDocument);
+	}
+
+	/**
+	 * Returns the number of documents that have been stored so far.
+	 *
+	 * @return number of documents
+	 */
+	public int getDocumentCount() {
+		return this.documentCount;
+	}
+
+	/**
+	 * Writes the given document to the store. Its revision id is kept if it
+	 * is known, as for documents from the API or from revision dumps. The
+	 * size is determined by the store when the document is written.
+	 *
+	 * @param document
+	 *            the document to store
+	 */
+	void storeDocument(EntityDocument document) {
+		long revisionId = 0;
+		if (document instanceof JacksonTermedStatementDocument) {
+			revisionId = ((JacksonTermedStatementDocument) document)
+					.getRevisionId();
+		}
+		this.localStore.put(document.getEntityId().getId(),
+				new CachedEntityDocument(document, revisionId, this.fetchTime,
+						CachedEntityDocument.UNKNOWN_SIZE));
+		this.documentCount++;
+	}
+
+}
@@ -0,0 +1,336 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.wikidata.wdtk.datamodel.helpers.FilteredItemDocument;
+import org.wikidata.wdtk.datamodel.helpers.FilteredPropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.util.metrics.Counter;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
+
+/**
+ * {@link EntityDocumentSource} that answers requests from a local store of
+ * entity documents, and uses a {@link WikibaseDataFetcher} only for entities
+ * that are not stored locally or whose stored documents are too old. The
+ * local store is usually filled from a dump with an
+ * {@link EntityDocumentStoreProcessor}. Documents that are fetched from the
+ * API are written back to the store, so that they are available locally from
+ * then on.
+ * <p>
+ * The store contains complete documents under their entity ids. Therefore,
+ * the filter of the given fetcher should not be used; the filter of this
+ * object (see {@link #getFilter()}) is applied to all returned documents
+ * instead, using views that do not copy any data. If the filter of the
+ * fetcher restricts the data nevertheless, fetched documents are incomplete
+ * and are not written back to the store.
+ * <p>
+ * Stored documents are used without further requests if they are younger
+ * than the maximal age (see {@link #setMaxAge(long)}). For older documents
+ * with a known revision id, a cheap request is made to check if the entity
+ * has been edited, and the document is only fetched again if this is the
+ * case. All requests are made in batches as with
+ * {@link WikibaseDataFetcher#getEntityDocuments(List)}.
+ */
+public class HybridEntityDocumentSource implements EntityDocumentSource {
+
+	/**
+	 * Default maximal age of stored documents: documents are used no matter
+	 * how old they are.
+	 */
+	public final static long DEFAULT_MAX_AGE = Long.MAX_VALUE;
+
+	static final Counter localHitCounter = MetricsRegistry.getDefault()
+			.getCounter("wikibaseapi.local.hits");
+	static final Counter fallbackCounter = MetricsRegistry.getDefault()
+			.getCounter("wikibaseapi.local.fallbacks");
+
+	final EntityDocumentCache localStore;
+	final WikibaseDataFetcher wikibaseDataFetcher;
+
+	/**
+	 * Filter that is applied to returned documents.
+	 */
+	private final DocumentDataFilter filter = new DocumentDataFilter();
+
+	/**
+	 * Time in milliseconds for which stored documents are used without
+	 * checking if they are still current.
+	 */
+	long maxAge = DEFAULT_MAX_AGE;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param localStore
+	 *            the store of complete documents, indexed by entity id
+	 * @param wikibaseDataFetcher
+	 *            the fetcher that is used for entities that are not found in
+	 *            the store
+	 */
+	public HybridEntityDocumentSource(EntityDocumentCache localStore,
+			WikibaseDataFetcher wikibaseDataFetcher) {
+		this.localStore = localStore;
+		this.wikibaseDataFetcher = wikibaseDataFetcher;
+	}
+
+	/**
+	 * Returns the {@link DocumentDataFilter} object that is used to filter
+	 * returned documents. Changes to this object take effect for all later
+	 * requests.
+	 *
+	 * @return the filter used by this object
+	 */
+	public DocumentDataFilter getFilter() {
+		return this.filter;
+	}
+
+	/**
+	 * Returns the time in milliseconds for which stored documents are used
+	 * without checking if they are still current.
+	 *
+	 * @return maximal age in milliseconds
+	 */
+	public long getMaxAge() {
+		return this.maxAge;
+	}
+
+	/**
+	 * Sets the time in milliseconds for which stored documents are used
+	 * without checking if they are still current. The age of documents that
+	 * were loaded from a dump is measured from the time given to the
+	 * {@link EntityDocumentStoreProcessor}. The default is
+	 * {@link #DEFAULT_MAX_AGE}.
+	 *
+	 * @param maxAge
+	 *            maximal age in milliseconds; 0 to check all documents
+	 */
+	public void setMaxAge(long maxAge) {
+		if (maxAge < 0) {
+			throw new IllegalArgumentException(
+					"Maximal age must not be negative.");
+		}
+		this.maxAge = maxAge;
+	}
+
+	@Override
+	public EntityDocument getEntityDocument(String entityId) {
+		return getEntityDocuments(entityId).get(entityId);
+	}
+
+	@Override
+	public Map<String, EntityDocument> getEntityDocuments(String... entityIds) {
+		return getEntityDocuments(Arrays.asList(entityIds));
+	}
+
+	@Override
+	public Map<String, EntityDocument> getEntityDocuments(List<String> entityIds) {
+		long now = System.currentTimeMillis();
+		Map<String, EntityDocument> result = new HashMap<>(entityIds.size());
+		List<String> missingIds = new ArrayList<>();
+		Map<String, CachedEntityDocument> staleEntries = new HashMap<>();
+
+		for (String entityId : new LinkedHashSet<>(entityIds)) {
+			CachedEntityDocument entry = this.localStore.get(entityId);
+			if (entry == null) {
+				missingIds.add(entityId);
+			} else if (now - entry.getFetchTime() < this.maxAge) {
+				result.put(entityId, filterDocument(entry.getDocument()));
+				localHitCounter.increment();
+			} else if (entry.getRevisionId() > 0) {
+				staleEntries.put(entityId, entry);
+			} else {
+				missingIds.add(entityId);
+			}
+		}
+
+		if (!staleEntries.isEmpty()) {
+			revalidateEntries(staleEntries, now, result, missingIds);
+		}
+
+		if (!missingIds.isEmpty()) {
+			fallbackCounter.add(missingIds.size());
+			for (Map.Entry<String, EntityDocument> document : fetchEntityDocuments(
+					missingIds).entrySet()) {
+				result.put(document.getKey(),
+						filterDocument(document.getValue()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks which of the given stored documents are still current. Current
+	 * documents are added to the result and marked as current in the store;
+	 * the ids of all other entities are added to the list of missing ids.
+	 *
+	 * @param staleEntries
+	 *            map from entity ids to stored documents that are too old
+	 * @param now
+	 *            the current time
+	 * @param result
+	 *            map to store current documents in
+	 * @param missingIds
+	 *            list to store the ids of entities that must be fetched in
+	 */
+	void revalidateEntries(Map<String, CachedEntityDocument> staleEntries,
+			long now, Map<String, EntityDocument> result,
+			List<String> missingIds) {
+		Map<String, Long> revisionIds = new HashMap<>();
+		for (List<String> batch : this.wikibaseDataFetcher
+				.getBatches(new ArrayList<>(staleEntries.keySet()))) {
+			revisionIds.putAll(this.wikibaseDataFetcher
+					.requestRevisionIds(batch));
+		}
+
+		for (Map.Entry<String, CachedEntityDocument> staleEntry : staleEntries
+				.entrySet()) {
+			String entityId = staleEntry.getKey();
+			CachedEntityDocument entry = staleEntry.getValue();
+			Long revisionId = revisionIds.get(entityId);
+			if (revisionId != null
+					&& revisionId.longValue() == entry.getRevisionId()) {
+				this.localStore.put(entityId, entry.withFetchTime(now));
+				result.put(entityId, filterDocument(entry.getDocument()));
+				WikibaseDataFetcher.cacheRevalidationCounter.increment();
+			} else {
+				missingIds.add(entityId);
+			}
+		}
+	}
+
+	/**
+	 * Fetches the documents for the given entities from the API and writes
+	 * them to the local store. The requests for several batches run in
+	 * parallel if the fetcher allows this.
+	 *
+	 * @param entityIds
+	 *            list of string IDs of requested entities
+	 * @return map from IDs for which data could be found to the documents
+	 *         that were retrieved
+	 */
+	Map<String, EntityDocument> fetchEntityDocuments(List<String> entityIds) {
+		List<List<String>> batches = this.wikibaseDataFetcher
+				.getBatches(entityIds);
+		Map<String, EntityDocument> result = new HashMap<>(entityIds.size());
+
+		if (batches.size() == 1
+				|| this.wikibaseDataFetcher.getMaxParallelRequests() == 1) {
+			for (List<String> batch : batches) {
+				result.putAll(fetchEntityDocumentBatch(batch));
+			}
+			return result;
+		}
+
+		ExecutorService executor = this.wikibaseDataFetcher
+				.getExecutorService();
+		List<Future<Map<String, EntityDocument>>> futures = new ArrayList<>(
+				batches.size());
+		for (final List<String> batch : batches) {
+			futures.add(executor
+					.submit(new Callable<Map<String, EntityDocument>>() {
+						@Override
+						public Map<String, EntityDocument> call() {
+							return fetchEntityDocumentBatch(batch);
+						}
+					}));
+		}
+		for (Future<Map<String, EntityDocument>> future : futures) {
+			result.putAll(this.wikibaseDataFetcher.getBatchResult(future));
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches the documents for the given entities with a single API request
+	 * and writes them to the local store. Documents are not written to the
+	 * store if the filter of the fetcher restricts the data, since they are
+	 * not complete then.
+	 *
+	 * @param entityIds
+	 *            list of string IDs of requested entities
+	 * @return map from IDs for which data could be found to the documents
+	 *         that were retrieved
+	 */
+	Map<String, EntityDocument> fetchEntityDocumentBatch(List<String> entityIds) {
+		if (hasRestrictions(this.wikibaseDataFetcher.getFilter())) {
+			return this.wikibaseDataFetcher.requestEntityDocumentBatch(
+					entityIds, null);
+		}
+
+		Map<String, CachedEntityDocument> entries = new HashMap<>();
+		Map<String, EntityDocument> documents = this.wikibaseDataFetcher
+				.requestEntityDocumentBatch(entityIds, entries);
+		for (Map.Entry<String, CachedEntityDocument> entry : entries
+				.entrySet()) {
+			this.localStore.put(entry.getKey(), entry.getValue());
+		}
+		return documents;
+	}
+
+	/**
+	 * Applies the filter of this object to the given document. If the filter
+	 * does not restrict any data, the document is returned as it is.
+	 *
+	 * @param document
+	 *            the document to filter
+	 * @return filtered view of the document
+	 */
+	EntityDocument filterDocument(EntityDocument document) {
+		if (!hasRestrictions(this.filter)) {
+			return document;
+		} else if (document instanceof ItemDocument) {
+			return new FilteredItemDocument((ItemDocument) document,
+					this.filter);
+		} else if (document instanceof PropertyDocument) {
+			return new FilteredPropertyDocument((PropertyDocument) document,
+					this.filter);
+		} else {
+			return document;
+		}
+	}
+
+	/**
+	 * Returns true if the given filter excludes any data from documents.
+	 *
+	 * @param filter
+	 *            the filter to check
+	 * @return true if some data is filtered
+	 */
+	static boolean hasRestrictions(DocumentDataFilter filter) {
+		return filter.getLanguageFilter() != null
+				|| filter.getPropertyFilter() != null
+				|| filter.getSiteLinkFilter() != null;
+	}
+
+}
@@ -0,0 +1,177 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link EntityDocumentCache} that keeps entries in memory. The total size of
+ * all entries (as given by {@link CachedEntityDocument#getSize()}) is
+ * bounded; if it is exceeded, the entries that have not been used for the
+ * longest time are removed.
+ * <p>
+ * Optionally, a second-level cache (such as a
+ * {@link DiskEntityDocumentCache}) can be given. All entries are stored in
+ * both caches, and entries that are not found in memory are looked up in the
+ * second-level cache and kept in memory from then on.
+ */
+public class MemoryEntityDocumentCache implements EntityDocumentCache {
+
+	/**
+	 * Default maximal total size of all entries: 64 MB of JSON data.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+	final long maxSize;
+	final EntityDocumentCache secondLevelCache;
+
+	/**
+	 * The entries, in the order of their last use.
+	 */
+	final LinkedHashMap<String, CachedEntityDocument> entries = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	/**
+	 * Total size of all entries.
+	 */
+	long size = 0;
+
+	/**
+	 * Creates a cache with the default maximal size and no second-level
+	 * cache.
+	 */
+	public MemoryEntityDocumentCache() {
+		this(DEFAULT_MAX_SIZE, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize
+	 *            maximal total size of all entries in memory
+	 * @param secondLevelCache
+	 *            cache that is used for entries that are not in memory, or
+	 *            null if there is no such cache
+	 */
+	public MemoryEntityDocumentCache(long maxSize,
+			EntityDocumentCache secondLevelCache) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException(
+					"The size of the cache must not be negative.");
+		}
+		this.maxSize = maxSize;
+		this.secondLevelCache = secondLevelCache;
+	}
+
+	@Override
+	public CachedEntityDocument get(String key) {
+		CachedEntityDocument entry;
+		synchronized (this) {
+			entry = this.entries.get(key);
+		}
+		if (entry == null && this.secondLevelCache != null) {
+			entry = this.secondLevelCache.get(key);
+			if (entry != null) {
+				putInMemory(key, entry);
+			}
+		}
+		return entry;
+	}
+
+	@Override
+	public void put(String key, CachedEntityDocument entry) {
+		if (entry.size == CachedEntityDocument.UNKNOWN_SIZE) {
+			// The second-level cache may determine the size itself
+			putInMemory(key, new CachedEntityDocument(entry.getDocument(),
+					entry.getRevisionId(), entry.getFetchTime(),
+					CachedEntityDocument.estimateSize(entry.getDocument())));
+		} else {
+			putInMemory(key, entry);
+		}
+		if (this.secondLevelCache != null) {
+			this.secondLevelCache.put(key, entry);
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		synchronized (this) {
+			CachedEntityDocument entry = this.entries.remove(key);
+			if (entry != null) {
+				this.size -= entry.getSize();
+			}
+		}
+		if (this.secondLevelCache != null) {
+			this.secondLevelCache.remove(key);
+		}
+	}
+
+	/**
+	 * Returns the number of entries in memory.
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Returns the total size of all entries in memory.
+	 *
+	 * @return size of the cache
+	 */
+	public synchronized long getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Stores the given entry in memory and removes the least recently used
+	 * entries if the cache has become too large. Entries that are larger than
+	 * the whole cache are not stored at all.
+	 *
+	 * @param key
+	 *            the key of the entry
+	 * @param entry
+	 *            the entry to store
+	 */
+	synchronized void putInMemory(String key, CachedEntityDocument entry) {
+		CachedEntityDocument previous = this.entries.remove(key);
+		if (previous != null) {
+			this.size -= previous.getSize();
+		}
+		if (entry.getSize() > this.maxSize) {
+			return;
+		}
+
+		this.entries.put(key, entry);
+		this.size += entry.getSize();
+
+		Iterator<Map.Entry<String, CachedEntityDocument>> iterator = this.entries
+				.entrySet().iterator();
+		while (this.size > this.maxSize) {
+			this.size -= iterator.next().getValue().getSize();
+			iterator.remove();
+		}
+	}
+
+}
@@ -23,11 +23,28 @@ package org.wikidata.wdtk.wikibaseapi;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.client.utils.URIBuilder;
 import org.slf4j.Logger;
@@ -35,22 +52,49 @@ import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.DocumentDataFilter;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.EntityDocumentDecoder;
 import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+import org.wikidata.wdtk.util.HttpClientWebResourceFetcher;
 import org.wikidata.wdtk.util.WebResourceFetcher;
-import org.wikidata.wdtk.util.WebResourceFetcherImpl;
+import org.wikidata.wdtk.util.metrics.Counter;
+import org.wikidata.wdtk.util.metrics.MetricsRegistry;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /**
  * Simple class to fetch data from Wikibase via the online API. Only anonymous,
  * read-only access is supported here.
+ * <p>
+ * Long lists of entities are split into several requests, each of which
+ * contains at most {@link #getMaxEntitiesPerRequest()} entities, as required
+ * by the API. These requests can be run in parallel (see
+ * {@link #setMaxParallelRequests(int)}), and a minimal delay between two
+ * requests can be set to limit the load on the server (see
+ * {@link #setMinRequestInterval(long)}).
+ * <p>
+ * Documents can be cached to avoid repeated requests for the same entities
+ * (see {@link #setEntityDocumentCache(EntityDocumentCache)}). Cached
+ * documents are used without further requests for a limited time (see
+ * {@link #setCacheTimeToLive(long)}); after that, a cheap request is made to
+ * check if the entity has been edited, and the document is only fetched again
+ * if this is the case. If several threads request the same entity at the
+ * same time, only one request is made.
  *
  * @author Markus Kroetzsch
  *
  */
-public class WikibaseDataFetcher {
+public class WikibaseDataFetcher implements EntityDocumentSource {
 
 	static final Logger logger = LoggerFactory
 			.getLogger(WikibaseDataFetcher.class);
@@ -61,10 +105,37 @@ public class WikibaseDataFetcher {
 	final static String WIKIDATA_API_URL = "http://www.wikidata.org/w/api.php";
 
 	/**
-	 * Object used to make web requests. Package-private so that it can be
-	 * overwritten with a mock object in tests.
+	 * Maximal number of entities that the API allows to fetch in one request
+	 * for anonymous users.
 	 */
-	WebResourceFetcher webResourceFetcher = new WebResourceFetcherImpl();
+	public final static int DEFAULT_MAX_ENTITIES_PER_REQUEST = 50;
+
+	/**
+	 * Counter for naming threads.
+	 */
+	static final AtomicInteger threadCounter = new AtomicInteger();
+
+	/**
+	 * Default time in milliseconds for which cached documents are used
+	 * without checking if they are still current: one hour.
+	 */
+	public final static long DEFAULT_CACHE_TIME_TO_LIVE = 60 * 60 * 1000;
+
+	static final Counter cacheHitCounter = MetricsRegistry.getDefault()
+			.getCounter("wikibaseapi.cache.hits");
+	static final Counter cacheMissCounter = MetricsRegistry.getDefault()
+			.getCounter("wikibaseapi.cache.misses");
+	static final Counter cacheRevalidationCounter = MetricsRegistry
+			.getDefault().getCounter("wikibaseapi.cache.revalidations");
+	static final Counter sharedRequestCounter = MetricsRegistry.getDefault()
+			.getCounter("wikibaseapi.cache.shared");
+
+	/**
+	 * Object used to make web requests. By default, the shared pooled fetcher
+	 * is used, so that connections are kept alive across requests.
+	 */
+	WebResourceFetcher webResourceFetcher = HttpClientWebResourceFetcher
+			.getDefault();
 
 	/**
 	 * The URL where the MediaWiki API can be found.
@@ -81,11 +152,100 @@ public class WikibaseDataFetcher {
 	 */
 	final ObjectMapper mapper = new ObjectMapper();
 
+	/**
+	 * Hand-written decoder that can be used instead of {@link #mapper} for
+	 * reading entity documents.
+	 */
+	final EntityDocumentDecoder documentDecoder = new EntityDocumentDecoder(
+			this.mapper.getFactory());
+
+	/**
+	 * True if entity documents are read with {@link #documentDecoder} rather
+	 * than with Jackson data binding.
+	 */
+	boolean useDocumentDecoder = false;
+
 	/**
 	 * Filter that is used to restrict API requests.
 	 */
 	private final DocumentDataFilter filter = new DocumentDataFilter();
 
+	/**
+	 * Maximal number of entities fetched in one API request.
+	 */
+	int maxEntitiesPerRequest = DEFAULT_MAX_ENTITIES_PER_REQUEST;
+
+	/**
+	 * Maximal number of API requests that are run at the same time.
+	 */
+	volatile int maxParallelRequests = 1;
+
+	/**
+	 * Minimal time in milliseconds between the start of two API requests.
+	 */
+	volatile long minRequestInterval = 0;
+
+	/**
+	 * Time (as given by {@link System#nanoTime()}) when the next request may
+	 * be started at the earliest. Only accessed while synchronized on this
+	 * object.
+	 */
+	long nextRequestTime = System.nanoTime();
+
+	/**
+	 * Executor used for running requests in parallel, or null if it has not
+	 * been created yet.
+	 */
+	ExecutorService executorService = null;
+
+	/**
+	 * Cache for fetched documents, or null if documents are not cached.
+	 */
+	EntityDocumentCache entityDocumentCache = null;
+
+	/**
+	 * Time in milliseconds for which cached documents are used without
+	 * checking if they are still current.
+	 */
+	long cacheTimeToLive = DEFAULT_CACHE_TIME_TO_LIVE;
+
+	/**
+	 * Requests that are currently running for entities that are not in the
+	 * cache, indexed by cache key. Used to avoid fetching the same entity
+	 * several times in parallel.
+	 */
+	final ConcurrentMap<String, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+	/**
+	 * Request for some entities that is run by one thread and whose result
+	 * may be used by other threads.
+	 */
+	static class PendingRequest {
+
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Map<String, EntityDocument> result = Collections
+				.<String, EntityDocument> emptyMap();
+
+		void finish(Map<String, EntityDocument> result) {
+			this.result = result;
+			this.done.countDown();
+		}
+
+		/**
+		 * Waits for the request to finish and returns the documents that were
+		 * fetched, or an empty map if the thread was interrupted.
+		 */
+		Map<String, EntityDocument> getResult() {
+			try {
+				this.done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return Collections.<String, EntityDocument> emptyMap();
+			}
+			return this.result;
+		}
+	}
+
 	/**
 	 * Creates an object to fetch data from wikidata.org.
 	 */
@@ -111,6 +271,19 @@ public class WikibaseDataFetcher {
 		this.siteIri = siteUri;
 	}
 
+	/**
+	 * Sets the object that is used to make web requests. By default, the
+	 * shared fetcher {@link HttpClientWebResourceFetcher#getDefault()} is
+	 * used. Other fetchers can be used, e.g., to read API results from a local
+	 * copy.
+	 *
+	 * @param webResourceFetcher
+	 *            the fetcher to use for all further requests
+	 */
+	public void setWebResourceFetcher(WebResourceFetcher webResourceFetcher) {
+		this.webResourceFetcher = webResourceFetcher;
+	}
+
 	/**
 	 * Returns the {@link DocumentDataFilter} object that is used to filter API
 	 * requests. Settings made in this object will affect the API request, and
@@ -126,6 +299,150 @@ public class WikibaseDataFetcher {
 		return this.filter;
 	}
 
+	/**
+	 * Returns the maximal number of entities that are fetched in one API
+	 * request. Longer lists of entities are split into several requests.
+	 *
+	 * @return maximal number of entities per request
+	 */
+	public int getMaxEntitiesPerRequest() {
+		return this.maxEntitiesPerRequest;
+	}
+
+	/**
+	 * Sets the maximal number of entities that are fetched in one API request.
+	 * The default is {@link #DEFAULT_MAX_ENTITIES_PER_REQUEST}, which is the
+	 * limit for anonymous access. Larger values only work for sites with other
+	 * limits.
+	 *
+	 * @param maxEntitiesPerRequest
+	 *            maximal number of entities per request; must be positive
+	 */
+	public void setMaxEntitiesPerRequest(int maxEntitiesPerRequest) {
+		if (maxEntitiesPerRequest < 1) {
+			throw new IllegalArgumentException(
+					"Number of entities per request must be positive.");
+		}
+		this.maxEntitiesPerRequest = maxEntitiesPerRequest;
+	}
+
+	/**
+	 * Returns the maximal number of API requests that are made at the same
+	 * time.
+	 *
+	 * @return maximal number of parallel requests
+	 */
+	public int getMaxParallelRequests() {
+		return this.maxParallelRequests;
+	}
+
+	/**
+	 * Sets the maximal number of API requests that are made at the same time.
+	 * The default is 1, i.e., requests are made one after the other. Please be
+	 * considerate when choosing higher values, since each request puts load on
+	 * the server.
+	 *
+	 * @param maxParallelRequests
+	 *            maximal number of parallel requests; must be positive
+	 */
+	public synchronized void setMaxParallelRequests(int maxParallelRequests) {
+		if (maxParallelRequests < 1) {
+			throw new IllegalArgumentException(
+					"Number of parallel requests must be positive.");
+		}
+		this.maxParallelRequests = maxParallelRequests;
+		if (this.executorService != null) {
+			this.executorService.shutdown();
+			this.executorService = null;
+		}
+	}
+
+	/**
+	 * Returns the minimal time in milliseconds between the start of two API
+	 * requests.
+	 *
+	 * @return minimal request interval in milliseconds
+	 */
+	public long getMinRequestInterval() {
+		return this.minRequestInterval;
+	}
+
+	/**
+	 * Sets the minimal time in milliseconds between the start of two API
+	 * requests. This can be used to limit the rate of requests, no matter how
+	 * many requests are made in parallel. The default is 0 (no limit).
+	 *
+	 * @param minRequestInterval
+	 *            minimal request interval in milliseconds
+	 */
+	public void setMinRequestInterval(long minRequestInterval) {
+		this.minRequestInterval = minRequestInterval;
+	}
+
+	/**
+	 * Sets whether entity documents should be read with the hand-written
+	 * {@link EntityDocumentDecoder} instead of Jackson data binding. Both
+	 * create the same objects, but the decoder is faster. Data binding is used
+	 * by default.
+	 *
+	 * @param useDocumentDecoder
+	 *            true if the decoder should be used
+	 */
+	public void setUseDocumentDecoder(boolean useDocumentDecoder) {
+		this.useDocumentDecoder = useDocumentDecoder;
+	}
+
+	/**
+	 * Returns the cache that is used for fetched documents, or null if
+	 * documents are not cached.
+	 *
+	 * @return the cache or null
+	 */
+	public EntityDocumentCache getEntityDocumentCache() {
+		return this.entityDocumentCache;
+	}
+
+	/**
+	 * Sets the cache that is used for fetched documents. Documents are stored
+	 * under keys that depend on the entity and on the settings of
+	 * {@link #getFilter()}, so that changing the filter does not lead to
+	 * wrongly filtered documents. The default is null, i.e., documents are
+	 * not cached.
+	 *
+	 * @param entityDocumentCache
+	 *            the cache to use, or null if documents should not be cached
+	 */
+	public void setEntityDocumentCache(EntityDocumentCache entityDocumentCache) {
+		this.entityDocumentCache = entityDocumentCache;
+	}
+
+	/**
+	 * Returns the time in milliseconds for which cached documents are used
+	 * without checking if they are still current.
+	 *
+	 * @return time to live in milliseconds
+	 */
+	public long getCacheTimeToLive() {
+		return this.cacheTimeToLive;
+	}
+
+	/**
+	 * Sets the time in milliseconds for which cached documents are used
+	 * without checking if they are still current. Older documents are only
+	 * used if a request shows that the entity has not been edited since. The
+	 * default is {@link #DEFAULT_CACHE_TIME_TO_LIVE}.
+	 *
+	 * @param cacheTimeToLive
+	 *            time to live in milliseconds; 0 to check all documents
+	 */
+	public void setCacheTimeToLive(long cacheTimeToLive) {
+		if (cacheTimeToLive < 0) {
+			throw new IllegalArgumentException(
+					"Time to live must not be negative.");
+		}
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
 	/**
 	 * Fetches the documents for the entity of the given string IDs. The result
 	 * is an {@link EntityDocument} or null if the data could not be fetched.
@@ -134,6 +451,7 @@ public class WikibaseDataFetcher {
 	 *            string IDs (e.g., "P31" or "Q42") of requested entity
 	 * @return retrieved entity document or null
 	 */
+	@Override
 	public EntityDocument getEntityDocument(String entityId) {
 		return getEntityDocuments(entityId).get(entityId);
 	}
@@ -149,6 +467,7 @@ public class WikibaseDataFetcher {
 	 * @return map from IDs for which data could be found to the documents that
 	 *         were retrieved
 	 */
+	@Override
 	public Map<String, EntityDocument> getEntityDocuments(String... entityIds) {
 		return getEntityDocuments(Arrays.asList(entityIds));
 	}
@@ -164,7 +483,383 @@ public class WikibaseDataFetcher {
 	 * @return map from IDs for which data could be found to the documents that
 	 *         were retrieved
 	 */
+	@Override
 	public Map<String, EntityDocument> getEntityDocuments(List<String> entityIds) {
+		List<List<String>> batches = getBatches(entityIds);
+
+		if (batches.isEmpty()) {
+			return Collections.<String, EntityDocument> emptyMap();
+		} else if (batches.size() == 1) {
+			return fetchEntityDocumentBatch(batches.get(0));
+		}
+
+		Map<String, EntityDocument> result = new HashMap<>(entityIds.size());
+		if (this.maxParallelRequests == 1) {
+			for (List<String> batch : batches) {
+				result.putAll(fetchEntityDocumentBatch(batch));
+			}
+		} else {
+			for (Future<Map<String, EntityDocument>> future : submitBatches(batches)) {
+				result.putAll(getBatchResult(future));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs
+	 * asynchronously. The entities are split into batches that can be fetched
+	 * with one request each, and the requests are run in the background. The
+	 * result is a list of futures, one for each batch. Each future yields a
+	 * map from entity IDs to {@link EntityDocument} objects for the entities
+	 * of its batch that could be found.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return list of futures for the results of each batch
+	 */
+	public List<Future<Map<String, EntityDocument>>> getEntityDocumentsAsync(
+			List<String> entityIds) {
+		return submitBatches(getBatches(entityIds));
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs and
+	 * passes them to the given processor. Documents are passed on as soon as
+	 * the request of their batch has finished, so that processing can start
+	 * before all requests are done. The processor is always called from the
+	 * thread that calls this method, so it does not need to be thread-safe.
+	 * Entities that could not be found are not passed to the processor.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @param entityDocumentProcessor
+	 *            the processor that should receive the documents
+	 */
+	public void processEntityDocuments(List<String> entityIds,
+			EntityDocumentProcessor entityDocumentProcessor) {
+		List<List<String>> batches = getBatches(entityIds);
+		if (batches.isEmpty()) {
+			return;
+		}
+
+		if (this.maxParallelRequests == 1) {
+			for (List<String> batch : batches) {
+				processDocuments(fetchEntityDocumentBatch(batch),
+						entityDocumentProcessor);
+			}
+			return;
+		}
+
+		CompletionService<Map<String, EntityDocument>> completionService = new ExecutorCompletionService<>(
+				getExecutorService());
+		for (List<String> batch : batches) {
+			completionService.submit(makeBatchTask(batch));
+		}
+		for (int i = 0; i < batches.size(); i++) {
+			try {
+				processDocuments(getBatchResult(completionService.take()),
+						entityDocumentProcessor);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.error("Interrupted while waiting for API results.");
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Splits the given list of entity IDs into batches that can be fetched in
+	 * one request each. Duplicate IDs are removed.
+	 *
+	 * @param entityIds
+	 *            list of string IDs
+	 * @return list of batches
+	 */
+	List<List<String>> getBatches(List<String> entityIds) {
+		List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(entityIds));
+		List<List<String>> result = new ArrayList<>();
+		for (int i = 0; i < uniqueIds.size(); i += this.maxEntitiesPerRequest) {
+			result.add(uniqueIds.subList(i,
+					Math.min(i + this.maxEntitiesPerRequest, uniqueIds.size())));
+		}
+		return result;
+	}
+
+	/**
+	 * Submits a request for each batch to the executor.
+	 *
+	 * @param batches
+	 *            the batches of entity IDs to fetch
+	 * @return list of futures for the results of each batch
+	 */
+	List<Future<Map<String, EntityDocument>>> submitBatches(
+			List<List<String>> batches) {
+		ExecutorService executor = getExecutorService();
+		List<Future<Map<String, EntityDocument>>> result = new ArrayList<>(
+				batches.size());
+		for (List<String> batch : batches) {
+			result.add(executor.submit(makeBatchTask(batch)));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a task that fetches the given batch of entities.
+	 *
+	 * @param batch
+	 *            list of entity IDs
+	 * @return task
+	 */
+	Callable<Map<String, EntityDocument>> makeBatchTask(final List<String> batch) {
+		return new Callable<Map<String, EntityDocument>>() {
+			@Override
+			public Map<String, EntityDocument> call() {
+				return fetchEntityDocumentBatch(batch);
+			}
+		};
+	}
+
+	/**
+	 * Waits for the result of a batch request. Errors are logged and lead to
+	 * an empty result, as for failed requests in general.
+	 *
+	 * @param future
+	 *            the future of the batch request
+	 * @return the documents that were fetched
+	 */
+	Map<String, EntityDocument> getBatchResult(
+			Future<Map<String, EntityDocument>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.error("Interrupted while waiting for API results.");
+		} catch (ExecutionException e) {
+			logger.error("Could not retrieve data from API. Error:\n"
+					+ e.getCause().toString());
+		}
+		return Collections.<String, EntityDocument> emptyMap();
+	}
+
+	/**
+	 * Passes all given documents to the given processor.
+	 *
+	 * @param documents
+	 *            map of documents
+	 * @param entityDocumentProcessor
+	 *            the processor to use
+	 */
+	void processDocuments(Map<String, EntityDocument> documents,
+			EntityDocumentProcessor entityDocumentProcessor) {
+		for (EntityDocument document : documents.values()) {
+			if (document instanceof ItemDocument) {
+				entityDocumentProcessor
+						.processItemDocument((ItemDocument) document);
+			} else if (document instanceof PropertyDocument) {
+				entityDocumentProcessor
+						.processPropertyDocument((PropertyDocument) document);
+			}
+		}
+	}
+
+	/**
+	 * Returns the executor used to run requests in parallel, creating it if
+	 * necessary. The threads of the executor do not prevent the application
+	 * from terminating.
+	 *
+	 * @return executor service
+	 */
+	synchronized ExecutorService getExecutorService() {
+		if (this.executorService == null) {
+			this.executorService = Executors.newFixedThreadPool(
+					this.maxParallelRequests, new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable,
+									"wikibase-data-fetcher-"
+											+ threadCounter.incrementAndGet());
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return this.executorService;
+	}
+
+	/**
+	 * Waits until the next request may be made according to
+	 * {@link #getMinRequestInterval()}.
+	 */
+	void waitForRequestSlot() {
+		long minRequestInterval = this.minRequestInterval;
+		if (minRequestInterval <= 0) {
+			return;
+		}
+
+		long waitTime;
+		synchronized (this) {
+			long now = System.nanoTime();
+			// compare differences only, since nanoTime() may overflow
+			long requestTime = (now - this.nextRequestTime < 0) ? this.nextRequestTime
+					: now;
+			this.nextRequestTime = requestTime + minRequestInterval * 1000000;
+			waitTime = requestTime - now;
+		}
+
+		if (waitTime > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs, using
+	 * the cache if there is one. At most one API request is needed for the
+	 * entities that are not cached, so the list should not be longer than
+	 * {@link #getMaxEntitiesPerRequest()}.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return map from IDs for which data could be found to the documents that
+	 *         were retrieved
+	 */
+	Map<String, EntityDocument> fetchEntityDocumentBatch(List<String> entityIds) {
+		EntityDocumentCache cache = this.entityDocumentCache;
+		if (cache == null) {
+			return requestEntityDocumentBatch(entityIds, null);
+		}
+
+		String requestSignature = getRequestSignature();
+		long now = System.currentTimeMillis();
+		Map<String, EntityDocument> result = new HashMap<>(entityIds.size());
+		List<String> missingIds = new ArrayList<>();
+		Map<String, CachedEntityDocument> staleEntries = new HashMap<>();
+
+		for (String entityId : entityIds) {
+			CachedEntityDocument entry = cache.get(getCacheKey(entityId,
+					requestSignature));
+			if (entry == null) {
+				missingIds.add(entityId);
+			} else if (now - entry.getFetchTime() < this.cacheTimeToLive) {
+				result.put(entityId, entry.getDocument());
+				cacheHitCounter.increment();
+			} else if (entry.getRevisionId() > 0) {
+				staleEntries.put(entityId, entry);
+			} else {
+				missingIds.add(entityId);
+			}
+		}
+
+		if (!staleEntries.isEmpty()) {
+			Map<String, Long> revisionIds = requestRevisionIds(new ArrayList<>(
+					staleEntries.keySet()));
+			for (Map.Entry<String, CachedEntityDocument> staleEntry : staleEntries
+					.entrySet()) {
+				String entityId = staleEntry.getKey();
+				CachedEntityDocument entry = staleEntry.getValue();
+				Long revisionId = revisionIds.get(entityId);
+				if (revisionId != null
+						&& revisionId.longValue() == entry.getRevisionId()) {
+					cache.put(getCacheKey(entityId, requestSignature),
+							entry.withFetchTime(now));
+					result.put(entityId, entry.getDocument());
+					cacheRevalidationCounter.increment();
+				} else {
+					missingIds.add(entityId);
+				}
+			}
+		}
+
+		if (!missingIds.isEmpty()) {
+			fetchMissingEntityDocuments(missingIds, requestSignature, cache,
+					result);
+		}
+		return result;
+	}
+
+	/**
+	 * Fetches documents that are not in the cache and stores them in the
+	 * cache and in the given result map. Entities that are already being
+	 * fetched by another thread are not requested again; instead, the result
+	 * of the other request is used.
+	 *
+	 * @param entityIds
+	 *            list of string IDs of requested entities
+	 * @param requestSignature
+	 *            the string that identifies the current request settings
+	 * @param cache
+	 *            the cache to use
+	 * @param result
+	 *            map to store the documents in
+	 */
+	void fetchMissingEntityDocuments(List<String> entityIds,
+			String requestSignature, EntityDocumentCache cache,
+			Map<String, EntityDocument> result) {
+		PendingRequest request = new PendingRequest();
+		List<String> requestedIds = new ArrayList<>(entityIds.size());
+		Map<String, PendingRequest> otherRequests = new HashMap<>();
+		for (String entityId : entityIds) {
+			PendingRequest otherRequest = this.pendingRequests.putIfAbsent(
+					getCacheKey(entityId, requestSignature), request);
+			if (otherRequest == null) {
+				requestedIds.add(entityId);
+			} else {
+				otherRequests.put(entityId, otherRequest);
+			}
+		}
+
+		Map<String, EntityDocument> documents = Collections
+				.<String, EntityDocument> emptyMap();
+		try {
+			if (!requestedIds.isEmpty()) {
+				cacheMissCounter.add(requestedIds.size());
+				Map<String, CachedEntityDocument> entries = new HashMap<>();
+				documents = requestEntityDocumentBatch(requestedIds, entries);
+				for (Map.Entry<String, CachedEntityDocument> entry : entries
+						.entrySet()) {
+					cache.put(getCacheKey(entry.getKey(), requestSignature),
+							entry.getValue());
+				}
+				result.putAll(documents);
+			}
+		} finally {
+			for (String entityId : requestedIds) {
+				this.pendingRequests.remove(
+						getCacheKey(entityId, requestSignature), request);
+			}
+			request.finish(documents);
+		}
+
+		for (Map.Entry<String, PendingRequest> otherRequest : otherRequests
+				.entrySet()) {
+			EntityDocument document = otherRequest.getValue().getResult()
+					.get(otherRequest.getKey());
+			if (document != null) {
+				result.put(otherRequest.getKey(), document);
+			}
+			sharedRequestCounter.increment();
+		}
+	}
+
+	/**
+	 * Fetches the documents for the entities of the given string IDs with a
+	 * single API request. The list should not be longer than
+	 * {@link #getMaxEntitiesPerRequest()}.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @param cacheEntries
+	 *            map in which cache entries for all documents are stored, or
+	 *            null if no cache entries are needed
+	 * @return map from IDs for which data could be found to the documents that
+	 *         were retrieved
+	 */
+	Map<String, EntityDocument> requestEntityDocumentBatch(
+			List<String> entityIds, Map<String, CachedEntityDocument> cacheEntries) {
 		String url = getWbGetEntitiesUrl(entityIds);
 
 		if (entityIds.isEmpty() || url == null) {
@@ -173,34 +868,35 @@ public class WikibaseDataFetcher {
 
 		Map<String, EntityDocument> result = new HashMap<>(entityIds.size());
 
+		waitForRequestSlot();
+
 		try (InputStream inStream = this.webResourceFetcher
-				.getInputStreamForUrl(url)) {
+				.getInputStreamForUrl(url);
+				JsonParser parser = this.mapper.getFactory().createParser(
+						inStream)) {
 
-			JsonNode root = mapper.readTree(inStream);
-
-			if (root.has("error")) {
-				JsonNode errorNode = root.path("error");
-				logger.error("Error when reading data from API: "
-						+ errorNode.path("info").asText("DESCRIPTION MISSING")
-						+ " ["
-						+ errorNode.path("code").asText("UNKNOWN ERROR CODE")
-						+ "]");
-			} // fall through: maybe there are some entities anyway
-
-			JsonNode entities = root.path("entities");
-			for (JsonNode entityNode : entities) {
-				if (!entityNode.has("missing")) {
-					try {
-						JacksonTermedStatementDocument ed = mapper.treeToValue(
-								entityNode,
-								JacksonTermedStatementDocument.class);
-						ed.setSiteIri(this.siteIri);
-						result.put(ed.getEntityId().getId(), ed);
-					} catch (JsonProcessingException e) {
-						logger.error("Error when reading JSON for entity "
-								+ entityNode.path("id").asText("UNKNOWN")
-								+ ": " + e.toString());
-					}
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException("API result is not a JSON object",
+						parser.getCurrentLocation());
+			}
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				parser.nextToken();
+				if ("error".equals(fieldName)) {
+					JsonNode errorNode = this.mapper.readTree(parser);
+					logger.error("Error when reading data from API: "
+							+ errorNode.path("info").asText(
+									"DESCRIPTION MISSING")
+							+ " ["
+							+ errorNode.path("code").asText(
+									"UNKNOWN ERROR CODE") + "]");
+					// continue: maybe there are some entities anyway
+				} else if ("entities".equals(fieldName)
+						&& parser.getCurrentToken() == JsonToken.START_OBJECT) {
+					readEntities(parser, result, cacheEntries);
+				} else {
+					parser.skipChildren();
 				}
 			}
 
@@ -213,6 +909,172 @@ public class WikibaseDataFetcher {
 
 	}
 
+	/**
+	 * Fetches the ids of the current revisions of the entities of the given
+	 * string IDs with a single API request. The documents of the entities are
+	 * not fetched. Entities that do not exist and entities for which the
+	 * request failed are not contained in the result.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return map from entity IDs to revision ids
+	 */
+	Map<String, Long> requestRevisionIds(List<String> entityIds) {
+		String url = getWbGetEntitiesInfoUrl(entityIds);
+		if (url == null) {
+			return Collections.<String, Long> emptyMap();
+		}
+
+		waitForRequestSlot();
+
+		Map<String, Long> result = new HashMap<>(entityIds.size());
+		try (InputStream inStream = this.webResourceFetcher
+				.getInputStreamForUrl(url)) {
+			JsonNode entities = this.mapper.readTree(inStream).path("entities");
+			Iterator<Map.Entry<String, JsonNode>> iterator = entities.fields();
+			while (iterator.hasNext()) {
+				Map.Entry<String, JsonNode> entity = iterator.next();
+				long revisionId = entity.getValue().path("lastrevid").asLong();
+				if (!entity.getValue().has("missing") && revisionId > 0) {
+					result.put(entity.getKey(), revisionId);
+				}
+			}
+		} catch (IOException e) {
+			logger.error("Could not retrieve data from " + url + ". Error:\n"
+					+ e.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the entities of a wbgetentities result and stores them in the
+	 * given map. The parser must be positioned on the start of the JSON object
+	 * that contains the entities. Each entity is deserialized directly from
+	 * the parser without building a JSON tree first. Entities marked as
+	 * missing are skipped. If an entity cannot be read, an error is logged and
+	 * reading continues with the next entity.
+	 *
+	 * @param parser
+	 *            the parser to read from
+	 * @param result
+	 *            map to store the entities in
+	 * @param cacheEntries
+	 *            map to store cache entries for the entities in, or null if
+	 *            no cache entries are needed
+	 * @throws IOException
+	 *             if the JSON could not be read at all
+	 */
+	void readEntities(JsonParser parser, Map<String, EntityDocument> result,
+			Map<String, CachedEntityDocument> cacheEntries) throws IOException {
+		JsonStreamContext entitiesContext = parser.getParsingContext();
+		long fetchTime = System.currentTimeMillis();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String entityId = parser.getCurrentName();
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			long startOffset = parser.getTokenLocation().getByteOffset();
+
+			JacksonTermedStatementDocument ed = null;
+			try {
+				ed = readEntity(parser);
+				if (ed != null) {
+					ed.setSiteIri(this.siteIri);
+					result.put(ed.getEntityId().getId(), ed);
+				}
+			} catch (JsonProcessingException e) {
+				logger.error("Error when reading JSON for entity " + entityId
+						+ ": " + e.toString());
+			}
+
+			// Make sure that we continue after the current entity, no matter
+			// where deserialization stopped:
+			while (parser.getParsingContext() != entitiesContext) {
+				if (parser.nextToken() == null) {
+					return;
+				}
+			}
+
+			if (ed != null && cacheEntries != null) {
+				long size = parser.getCurrentLocation().getByteOffset()
+						- startOffset;
+				cacheEntries.put(ed.getEntityId().getId(),
+						new CachedEntityDocument(ed, ed.getRevisionId(),
+								fetchTime, (int) Math.max(1, size)));
+			}
+		}
+	}
+
+	/**
+	 * Reads a single entity from the parser, which must be positioned on the
+	 * start of the JSON object of the entity. Returns null if the entity is
+	 * marked as missing.
+	 * <p>
+	 * The simple fields at the start of the object are buffered until the
+	 * "type" or "missing" field is found. Missing entities are then skipped,
+	 * while other entities are deserialized from the buffered fields followed
+	 * by the remaining fields of the parser. In results of the API, "type" and
+	 * "missing" occur before any complex values, so that only a few tokens
+	 * need to be buffered.
+	 *
+	 * @param parser
+	 *            the parser to read from
+	 * @return the entity document or null
+	 * @throws IOException
+	 *             if there was a problem reading the entity
+	 */
+	JacksonTermedStatementDocument readEntity(JsonParser parser)
+			throws IOException {
+		TokenBuffer prefix = new TokenBuffer(parser);
+		prefix.writeStartObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			if ("missing".equals(fieldName)) {
+				parser.nextToken();
+				parser.skipChildren();
+				while (parser.nextToken() != JsonToken.END_OBJECT) {
+					parser.nextToken();
+					parser.skipChildren();
+				}
+				return null;
+			}
+
+			prefix.writeFieldName(fieldName);
+			parser.nextToken();
+			prefix.copyCurrentStructure(parser);
+
+			if ("type".equals(fieldName)) {
+				return readDocument(JsonParserSequence.createFlattened(
+						prefix.asParser(parser), parser));
+			}
+		}
+
+		// No type given; let the deserializer report the error:
+		prefix.writeEndObject();
+		return readDocument(prefix.asParser(parser));
+	}
+
+	/**
+	 * Reads an entity document from the given parser, using either the
+	 * {@link EntityDocumentDecoder} or Jackson data binding.
+	 *
+	 * @param parser
+	 *            the parser to read from
+	 * @return the document
+	 * @throws IOException
+	 *             if there was a problem reading the document
+	 */
+	JacksonTermedStatementDocument readDocument(JsonParser parser)
+			throws IOException {
+		if (this.useDocumentDecoder) {
+			return this.documentDecoder.readDocument(parser);
+		} else {
+			return this.mapper.readValue(parser,
+					JacksonTermedStatementDocument.class);
+		}
+	}
+
 	/**
 	 * Returns the URL string for a wbgetentities request to the Wikibase API,
 	 * or null if it was not possible to build such a string with the current
@@ -223,6 +1085,48 @@ public class WikibaseDataFetcher {
 	 * @return URL string
 	 */
 	String getWbGetEntitiesUrl(List<String> entityIds) {
+		URIBuilder uriBuilder = getWbGetEntitiesUriBuilder();
+		if (uriBuilder == null) {
+			return null;
+		}
+
+		uriBuilder.setParameter("props", getRequestProps());
+		setRequestLanguages(uriBuilder);
+		setRequestSitefilter(uriBuilder);
+		uriBuilder.setParameter("ids", implodeObjects(entityIds));
+
+		return uriBuilder.toString();
+	}
+
+	/**
+	 * Returns the URL string for a wbgetentities request to the Wikibase API
+	 * that only asks for basic information, such as the current revision id,
+	 * or null if it was not possible to build such a string with the current
+	 * settings.
+	 *
+	 * @param entityIds
+	 *            list of string IDs (e.g., "P31", "Q42") of requested entities
+	 * @return URL string
+	 */
+	String getWbGetEntitiesInfoUrl(List<String> entityIds) {
+		URIBuilder uriBuilder = getWbGetEntitiesUriBuilder();
+		if (uriBuilder == null) {
+			return null;
+		}
+
+		uriBuilder.setParameter("props", "info");
+		uriBuilder.setParameter("ids", implodeObjects(entityIds));
+
+		return uriBuilder.toString();
+	}
+
+	/**
+	 * Returns a URI builder for a wbgetentities request to the Wikibase API
+	 * without any specific parameters, or null if the API URL is invalid.
+	 *
+	 * @return URI builder or null
+	 */
+	private URIBuilder getWbGetEntitiesUriBuilder() {
 		URIBuilder uriBuilder;
 		try {
 			uriBuilder = new URIBuilder(this.apiBaseUrl);
@@ -234,22 +1138,55 @@ public class WikibaseDataFetcher {
 
 		uriBuilder.setParameter("action", "wbgetentities");
 		uriBuilder.setParameter("format", "json");
-		setRequestProps(uriBuilder);
-		setRequestLanguages(uriBuilder);
-		setRequestSitefilter(uriBuilder);
-		uriBuilder.setParameter("ids", implodeObjects(entityIds));
+		return uriBuilder;
+	}
 
-		return uriBuilder.toString();
+	/**
+	 * Returns the string that identifies the current settings of requests,
+	 * i.e., the API URL and the filters. It is part of the cache keys of
+	 * documents, so that documents that were fetched with other settings are
+	 * not used.
+	 *
+	 * @return signature of the request settings
+	 */
+	String getRequestSignature() {
+		StringBuilder builder = new StringBuilder(this.apiBaseUrl);
+		builder.append(' ').append(getRequestProps());
+		if (!this.filter.excludeAllLanguages()
+				&& this.filter.getLanguageFilter() != null) {
+			builder.append(" languages=").append(
+					implodeObjects(new TreeSet<>(this.filter
+							.getLanguageFilter())));
+		}
+		if (!this.filter.excludeAllSiteLinks()
+				&& this.filter.getSiteLinkFilter() != null) {
+			builder.append(" sitefilter=").append(
+					implodeObjects(new TreeSet<>(this.filter
+							.getSiteLinkFilter())));
+		}
+		return builder.toString();
 	}
 
 	/**
-	 * Sets the value for the API's "props" parameter based on the current
+	 * Returns the key under which the document of the given entity is cached.
+	 *
+	 * @param entityId
+	 *            string ID of the entity
+	 * @param requestSignature
+	 *            the result of {@link #getRequestSignature()}
+	 * @return cache key
+	 */
+	static String getCacheKey(String entityId, String requestSignature) {
+		return entityId + " " + requestSignature;
+	}
+
+	/**
+	 * Returns the value for the API's "props" parameter based on the current
 	 * settings.
 	 *
-	 * @param uriBuilder
-	 *            the URI builder to set the parameter in
+	 * @return value of the parameter
 	 */
-	private void setRequestProps(URIBuilder uriBuilder) {
+	private String getRequestProps() {
 		StringBuilder builder = new StringBuilder();
 		builder.append("datatype");
 		if (!this.filter.excludeAllLanguages()) {
@@ -261,8 +1198,7 @@ public class WikibaseDataFetcher {
 		if (!this.filter.excludeAllSiteLinks()) {
 			builder.append("|sitelinks");
 		}
-
-		uriBuilder.setParameter("props", builder.toString());
+		return builder.toString();
 	}
 
 	/**
@@ -0,0 +1,209 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.testing.MockDirectoryManager;
+import org.wikidata.wdtk.testing.MockWebResourceFetcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class EntityDocumentCacheTest {
+
+	static CachedEntityDocument makeEntry(String id, int size) {
+		return new CachedEntityDocument(Datamodel.makeItemDocument(
+				Datamodel.makeWikidataItemIdValue(id),
+				Collections.singletonList(Datamodel.makeMonolingualTextValue(
+						id, "en")),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Collections.<String, SiteLink> emptyMap()), 1, 1000, size);
+	}
+
+	/**
+	 * Fetches the document of Q42 from the mock answer of the API, which is
+	 * an object of the Jackson implementation.
+	 */
+	static EntityDocument getJacksonDocument() throws IOException {
+		WikibaseDataFetcher wdf = new WikibaseDataFetcher();
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json",
+				EntityDocumentCacheTest.class);
+		wdf.webResourceFetcher = wrf;
+		return wdf.getEntityDocument("Q42");
+	}
+
+	@Test
+	public void testMemoryCacheEvictsLeastRecentlyUsed() {
+		MemoryEntityDocumentCache cache = new MemoryEntityDocumentCache(100,
+				null);
+		cache.put("Q1", makeEntry("Q1", 40));
+		cache.put("Q2", makeEntry("Q2", 40));
+		assertEquals(80, cache.getSize());
+
+		cache.get("Q1");
+		cache.put("Q3", makeEntry("Q3", 40));
+
+		assertEquals(2, cache.getEntryCount());
+		assertEquals(80, cache.getSize());
+		assertTrue(cache.get("Q1") != null);
+		assertNull(cache.get("Q2"));
+		assertTrue(cache.get("Q3") != null);
+	}
+
+	@Test
+	public void testMemoryCacheReplaceAndRemove() {
+		MemoryEntityDocumentCache cache = new MemoryEntityDocumentCache(100,
+				null);
+		cache.put("Q1", makeEntry("Q1", 40));
+		cache.put("Q1", makeEntry("Q1", 10));
+		assertEquals(10, cache.getSize());
+
+		cache.put("Q2", makeEntry("Q2", 200));
+		assertNull(cache.get("Q2"));
+
+		cache.remove("Q1");
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@Test
+	public void testSecondLevelCache() {
+		MemoryEntityDocumentCache secondLevel = new MemoryEntityDocumentCache(
+				1000, null);
+		MemoryEntityDocumentCache cache = new MemoryEntityDocumentCache(50,
+				secondLevel);
+		CachedEntityDocument entry1 = makeEntry("Q1", 40);
+		cache.put("Q1", entry1);
+		cache.put("Q2", makeEntry("Q2", 40));
+
+		assertEquals(1, cache.getEntryCount());
+		assertEquals(2, secondLevel.getEntryCount());
+
+		assertSame(entry1, cache.get("Q1"));
+		assertEquals(1, cache.getEntryCount());
+		assertSame(entry1, cache.get("Q1"));
+
+		cache.remove("Q1");
+		assertNull(secondLevel.get("Q1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxSize() {
+		new MemoryEntityDocumentCache(-1, null);
+	}
+
+	@Test
+	public void testDiskCache() throws IOException {
+		Path path = Paths.get("/cache");
+		DiskEntityDocumentCache cache = new DiskEntityDocumentCache(
+				new MockDirectoryManager(path));
+		EntityDocument document = getJacksonDocument();
+		cache.put("Q42 settings", new CachedEntityDocument(document, 123,
+				4567, 890));
+
+		CachedEntityDocument entry = new DiskEntityDocumentCache(
+				new MockDirectoryManager(path, false)).get("Q42 settings");
+		assertEquals(document, entry.getDocument());
+		assertEquals(Datamodel.SITE_WIKIDATA, entry.getDocument()
+				.getEntityId().getSiteIri());
+		assertEquals(123, entry.getRevisionId());
+		assertEquals(4567, entry.getFetchTime());
+		assertEquals(890, entry.getSize());
+
+		assertNull(cache.get("Q42 other settings"));
+		assertNull(cache.get("Q43"));
+
+		cache.remove("Q42 settings");
+		assertNull(cache.get("Q42 settings"));
+	}
+
+	@Test
+	public void testUnknownSize() throws IOException {
+		EntityDocument document = getJacksonDocument();
+		int estimate = CachedEntityDocument.estimateSize(document);
+		assertTrue(estimate > 0);
+
+		MemoryEntityDocumentCache memoryCache = new MemoryEntityDocumentCache();
+		memoryCache.put("Q42", new CachedEntityDocument(document, 0, 0,
+				CachedEntityDocument.UNKNOWN_SIZE));
+		assertEquals(estimate, memoryCache.get("Q42").getSize());
+		assertEquals(estimate, memoryCache.getSize());
+
+		// The disk cache measures the serialization of the document
+		Path path = Paths.get("/cache");
+		new DiskEntityDocumentCache(new MockDirectoryManager(path)).put("Q42",
+				new CachedEntityDocument(document, 0, 0,
+						CachedEntityDocument.UNKNOWN_SIZE));
+		CachedEntityDocument entry = new DiskEntityDocumentCache(
+				new MockDirectoryManager(path, false)).get("Q42");
+		assertEquals(new ObjectMapper().writeValueAsBytes(document).length,
+				entry.getSize());
+	}
+
+	@Test
+	public void testDiskCacheIgnoresOtherDocuments() throws IOException {
+		DiskEntityDocumentCache cache = new DiskEntityDocumentCache(
+				new MockDirectoryManager(Paths.get("/cache")));
+		cache.put("Q1", makeEntry("Q1", 10));
+		assertNull(cache.get("Q1"));
+	}
+
+	@Test
+	public void testDiskCacheIgnoresBrokenFiles() throws IOException {
+		Path path = Paths.get("/cache");
+		MockDirectoryManager dm = new MockDirectoryManager(path);
+		dm.setFileContents(
+				path.resolve(DiskEntityDocumentCache.getFileName("Q1")),
+				"{\"key\":\"Q1\",\"document\":{\"type\":");
+		assertNull(new DiskEntityDocumentCache(dm).get("Q1"));
+	}
+
+	@Test
+	public void testDiskCacheFileNames() {
+		String fileName = DiskEntityDocumentCache
+				.getFileName("Q42 http://www.wikidata.org/w/api.php datatype");
+		assertTrue(fileName.startsWith("Q42-"));
+		assertTrue(fileName.endsWith(".json"));
+		assertTrue(!fileName.equals(DiskEntityDocumentCache
+				.getFileName("Q42 http://www.wikidata.org/w/api.php claims")));
+	}
+
+}
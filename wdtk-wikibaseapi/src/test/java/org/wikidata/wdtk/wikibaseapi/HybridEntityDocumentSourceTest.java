@@ -0,0 +1,243 @@
+package org.wikidata.wdtk.wikibaseapi;
+
+/*
+ * #%L
+ * Wikidata Toolkit Wikibase API
+ * %%
+ * Copyright (C) 2014 - 2015 Wikidata Toolkit Developers
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelConverter;
+import org.wikidata.wdtk.datamodel.helpers.FilteredItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.MonolingualTextValue;
+import org.wikidata.wdtk.datamodel.interfaces.SiteLink;
+import org.wikidata.wdtk.datamodel.interfaces.StatementGroup;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonItemDocument;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonObjectFactory;
+import org.wikidata.wdtk.datamodel.json.jackson.JacksonTermedStatementDocument;
+import org.wikidata.wdtk.testing.MockWebResourceFetcher;
+
+public class HybridEntityDocumentSourceTest {
+
+	MemoryEntityDocumentCache localStore;
+	WikibaseDataFetcher wdf;
+	MockWebResourceFetcher wrf;
+	HybridEntityDocumentSource source;
+
+	@Before
+	public void setUp() {
+		this.localStore = new MemoryEntityDocumentCache();
+		this.wdf = new WikibaseDataFetcher();
+		this.wrf = new MockWebResourceFetcher();
+		this.wdf.webResourceFetcher = this.wrf;
+		this.source = new HybridEntityDocumentSource(this.localStore, this.wdf);
+	}
+
+	ItemDocument makeItemDocument(String id) {
+		return Datamodel.makeItemDocument(Datamodel
+				.makeWikidataItemIdValue(id), Arrays.asList(
+				Datamodel.makeMonolingualTextValue("Label " + id, "en"),
+				Datamodel.makeMonolingualTextValue("Bezeichnung " + id, "de")),
+				Collections.<MonolingualTextValue> emptyList(), Collections
+						.<MonolingualTextValue> emptyList(), Collections
+						.<StatementGroup> emptyList(), Collections
+						.<String, SiteLink> emptyMap());
+	}
+
+	@Test
+	public void testLocalDocumentsAreUsed() {
+		EntityDocumentStoreProcessor processor = new EntityDocumentStoreProcessor(
+				this.localStore, System.currentTimeMillis());
+		processor.processItemDocument(makeItemDocument("Q1"));
+		processor.processItemDocument(makeItemDocument("Q2"));
+		this.wrf.setReturnFailingReaders(true);
+		long hits = HybridEntityDocumentSource.localHitCounter.getCount();
+
+		Map<String, EntityDocument> results = this.source.getEntityDocuments(
+				"Q1", "Q2", "Q1");
+
+		assertEquals(2, results.size());
+		assertEquals(makeItemDocument("Q1"), results.get("Q1"));
+		assertEquals(makeItemDocument("Q2"), results.get("Q2"));
+		assertEquals(hits + 2,
+				HybridEntityDocumentSource.localHitCounter.getCount());
+	}
+
+	@Test
+	public void testMissingDocumentsAreFetchedAndStored() throws IOException {
+		new EntityDocumentStoreProcessor(this.localStore,
+				System.currentTimeMillis())
+				.processItemDocument(makeItemDocument("Q1"));
+		this.wrf.setWebResourceContentsFromResource(
+				this.wdf.getWbGetEntitiesUrl(Arrays.asList("Q6", "Q42", "P31")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		long fallbacks = HybridEntityDocumentSource.fallbackCounter.getCount();
+
+		Map<String, EntityDocument> results = this.source.getEntityDocuments(
+				"Q1", "Q6", "Q42", "P31");
+
+		assertEquals(3, results.size());
+		assertEquals(makeItemDocument("Q1"), results.get("Q1"));
+		assertNotNull(results.get("Q42"));
+		assertNotNull(results.get("P31"));
+		assertEquals(fallbacks + 3,
+				HybridEntityDocumentSource.fallbackCounter.getCount());
+		assertEquals(196015688, this.localStore.get("Q42").getRevisionId());
+		assertNull(this.localStore.get("Q6"));
+
+		this.wrf.setReturnFailingReaders(true);
+		assertSame(results.get("Q42"), this.source.getEntityDocument("Q42"));
+	}
+
+	@Test
+	public void testOldDocumentsWithoutRevisionAreFetched() throws IOException {
+		new EntityDocumentStoreProcessor(this.localStore, 0)
+				.processItemDocument(makeItemDocument("Q42"));
+		this.source.setMaxAge(1000);
+		this.wrf.setWebResourceContentsFromResource(
+				this.wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+
+		EntityDocument document = this.source.getEntityDocument("Q42");
+
+		assertFalse(makeItemDocument("Q42").equals(document));
+		assertSame(document, this.localStore.get("Q42").getDocument());
+	}
+
+	@Test
+	public void testOldDocumentsAreRevalidated() throws IOException {
+		ItemDocument document = makeItemDocument("Q42");
+		this.localStore.put("Q42", new CachedEntityDocument(document,
+				196015688, 0, 100));
+		this.source.setMaxAge(1000);
+		this.wrf.setWebResourceContents(
+				this.wdf.getWbGetEntitiesInfoUrl(Arrays.asList("Q42")),
+				"{\"entities\":{\"Q42\":{\"pageid\":138,\"lastrevid\":196015688,\"id\":\"Q42\",\"type\":\"item\"}},\"success\":1}");
+
+		assertSame(document, this.source.getEntityDocument("Q42"));
+		assertTrue(this.localStore.get("Q42").getFetchTime() > 0);
+	}
+
+	@Test
+	public void testChangedDocumentsAreFetchedAgain() throws IOException {
+		ItemDocument document = makeItemDocument("Q42");
+		this.localStore.put("Q42", new CachedEntityDocument(document,
+				196015687, 0, 100));
+		this.source.setMaxAge(0);
+		this.wrf.setWebResourceContents(
+				this.wdf.getWbGetEntitiesInfoUrl(Arrays.asList("Q42")),
+				"{\"entities\":{\"Q42\":{\"pageid\":138,\"lastrevid\":196015688,\"id\":\"Q42\",\"type\":\"item\"}},\"success\":1}");
+		this.wrf.setWebResourceContentsFromResource(
+				this.wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+
+		EntityDocument newDocument = this.source.getEntityDocument("Q42");
+		assertNotSame(document, newDocument);
+		assertEquals(196015688, this.localStore.get("Q42").getRevisionId());
+	}
+
+	@Test
+	public void testFilterIsApplied() {
+		new EntityDocumentStoreProcessor(this.localStore,
+				System.currentTimeMillis())
+				.processItemDocument(makeItemDocument("Q1"));
+		this.source.getFilter().setLanguageFilter(
+				Collections.<String> singleton("de"));
+
+		ItemDocument document = (ItemDocument) this.source
+				.getEntityDocument("Q1");
+
+		assertTrue(document instanceof FilteredItemDocument);
+		assertEquals(Collections.singleton("de"), document.getLabels()
+				.keySet());
+		// the stored document is not changed
+		assertEquals(2, ((ItemDocument) this.localStore.get("Q1")
+				.getDocument()).getLabels().size());
+	}
+
+	@Test
+	public void testFilteredFetchesAreNotStored() throws IOException {
+		this.wdf.getFilter().setLanguageFilter(
+				Collections.<String> singleton("en"));
+		this.wrf.setWebResourceContentsFromResource(
+				this.wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+
+		assertNotNull(this.source.getEntityDocument("Q42"));
+		assertNull(this.localStore.get("Q42"));
+	}
+
+	@Test
+	public void testStoreProcessorConvertsDocuments() {
+		EntityDocumentStoreProcessor processor = new EntityDocumentStoreProcessor(
+				this.localStore, 12345);
+		processor.processItemDocument(makeItemDocument("Q1"));
+		processor.processPropertyDocument(Datamodel.makePropertyDocument(
+				Datamodel.makeWikidataPropertyIdValue("P1"),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<MonolingualTextValue> emptyList(),
+				Collections.<StatementGroup> emptyList(),
+				Datamodel.makeDatatypeIdValue(DatatypeIdValue.DT_ITEM)));
+
+		assertEquals(2, processor.getDocumentCount());
+		CachedEntityDocument entry = this.localStore.get("Q1");
+		assertTrue(entry.getDocument() instanceof JacksonTermedStatementDocument);
+		assertEquals(12345, entry.getFetchTime());
+		assertEquals(0, entry.getRevisionId());
+		assertTrue(entry.getSize() > 0);
+		assertTrue(this.localStore.get("P1").getDocument() instanceof JacksonTermedStatementDocument);
+	}
+
+	@Test
+	public void testStoreProcessorKeepsRevisionId() {
+		EntityDocumentStoreProcessor processor = new EntityDocumentStoreProcessor(
+				this.localStore, 12345);
+		JacksonItemDocument document = (JacksonItemDocument) new DatamodelConverter(
+				new JacksonObjectFactory()).copy(makeItemDocument("Q1"));
+		document.setRevisionId(4711);
+		processor.processItemDocument(document);
+
+		CachedEntityDocument entry = this.localStore.get("Q1");
+		assertSame(document, entry.getDocument());
+		assertEquals(4711, entry.getRevisionId());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxAge() {
+		this.source.setMaxAge(-1);
+	}
+
+}
@@ -22,19 +22,32 @@ package org.wikidata.wdtk.wikibaseapi;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import org.wikidata.wdtk.datamodel.helpers.Datamodel;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentProcessor;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
 import org.wikidata.wdtk.testing.MockWebResourceFetcher;
+import org.wikidata.wdtk.util.WebResourceFetcher;
 
 public class WikibaseDataFetcherTest {
 
@@ -115,6 +128,31 @@ public class WikibaseDataFetcherTest {
 		assertEquals(0, results.size());
 	}
 
+	@Test
+	public void testWbGetEntitiesMalformedEntity() throws IOException {
+		List<String> entityIds = Arrays.asList("Q1", "Q2", "Q3");
+		WikibaseDataFetcher wdf = new WikibaseDataFetcher();
+
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContents(
+				wdf.getWbGetEntitiesUrl(entityIds),
+				"{\"entities\":{"
+						+ "\"Q1\":{\"id\":\"Q1\",\"type\":\"item\",\"labels\":{}},"
+						+ "\"Q2\":{\"id\":\"Q2\",\"type\":\"item\",\"labels\":[{\"x\":[1,{}]}],\"claims\":{}},"
+						+ "\"Q3\":{\"id\":\"Q3\",\"missing\":\"\",\"x\":{\"y\":[]}},"
+						+ "\"Q4\":{\"type\":\"item\",\"id\":\"Q4\"}"
+						+ "},\"success\":1}");
+
+		wdf.webResourceFetcher = wrf;
+
+		Map<String, EntityDocument> results = wdf.getEntityDocuments(
+				"Q1", "Q2", "Q3");
+
+		assertEquals(2, results.size());
+		assertTrue(results.containsKey("Q1"));
+		assertTrue(results.containsKey("Q4"));
+	}
+
 	@Test
 	public void testWbGetEntitiesEmpty() throws IOException {
 		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
@@ -190,4 +228,268 @@ public class WikibaseDataFetcherTest {
 				"http://www.wikidata.org/w/api.php?action=wbgetentities&format=json&props=datatype%7Clabels%7Caliases%7Cdescriptions%7Cclaims%7Csitelinks&languages=zh&sitefilter=dewiki&ids=Q6%7CQ42%7CP31",
 				wdf.getWbGetEntitiesUrl(entityIds));
 	}
+
+	@Test
+	public void testGetBatches() {
+		WikibaseDataFetcher wdf = new WikibaseDataFetcher();
+		wdf.setMaxEntitiesPerRequest(2);
+		List<List<String>> batches = wdf.getBatches(Arrays.asList("Q1", "Q2",
+				"Q3", "Q2", "Q4", "Q5"));
+
+		assertEquals(3, batches.size());
+		assertEquals(Arrays.asList("Q1", "Q2"), batches.get(0));
+		assertEquals(Arrays.asList("Q3", "Q4"), batches.get(1));
+		assertEquals(Arrays.asList("Q5"), batches.get(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxEntitiesPerRequest() {
+		new WikibaseDataFetcher().setMaxEntitiesPerRequest(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalMaxParallelRequests() {
+		new WikibaseDataFetcher().setMaxParallelRequests(0);
+	}
+
+	/**
+	 * Creates a fetcher that uses two requests for Q6, Q42, and P31. The mock
+	 * answer is the same for both requests.
+	 *
+	 * @return data fetcher
+	 * @throws IOException
+	 */
+	WikibaseDataFetcher getBatchedDataFetcher() throws IOException {
+		WikibaseDataFetcher wdf = new WikibaseDataFetcher();
+		wdf.setMaxEntitiesPerRequest(2);
+
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("Q6", "Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		wrf.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("P31")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		wdf.webResourceFetcher = wrf;
+
+		return wdf;
+	}
+
+	@Test
+	public void testWbGetEntitiesBatched() throws IOException {
+		WikibaseDataFetcher wdf = getBatchedDataFetcher();
+
+		Map<String, EntityDocument> results = wdf.getEntityDocuments("Q6",
+				"Q42", "P31");
+
+		assertEquals(2, results.size());
+		assertTrue(results.containsKey("Q42"));
+		assertTrue(results.containsKey("P31"));
+	}
+
+	@Test
+	public void testWbGetEntitiesParallel() throws IOException {
+		WikibaseDataFetcher wdf = getBatchedDataFetcher();
+		wdf.setMaxParallelRequests(2);
+		wdf.setMinRequestInterval(1);
+
+		Map<String, EntityDocument> results = wdf.getEntityDocuments("Q6",
+				"Q42", "P31");
+
+		assertEquals(2, results.size());
+		assertTrue(results.containsKey("Q42"));
+		assertTrue(results.containsKey("P31"));
+	}
+
+	@Test
+	public void testWbGetEntitiesAsync() throws IOException,
+			InterruptedException, ExecutionException {
+		WikibaseDataFetcher wdf = getBatchedDataFetcher();
+
+		List<Future<Map<String, EntityDocument>>> futures = wdf
+				.getEntityDocumentsAsync(Arrays.asList("Q6", "Q42", "P31"));
+
+		assertEquals(2, futures.size());
+		assertEquals(2, futures.get(0).get().size());
+		assertEquals(2, futures.get(1).get().size());
+	}
+
+	@Test
+	public void testProcessEntityDocuments() throws IOException {
+		WikibaseDataFetcher wdf = getBatchedDataFetcher();
+		wdf.setMaxParallelRequests(2);
+
+		final List<String> itemIds = new ArrayList<>();
+		final List<String> propertyIds = new ArrayList<>();
+		wdf.processEntityDocuments(Arrays.asList("Q6", "Q42", "P31"),
+				new EntityDocumentProcessor() {
+					@Override
+					public void processItemDocument(ItemDocument itemDocument) {
+						itemIds.add(itemDocument.getEntityId().getId());
+					}
+
+					@Override
+					public void processPropertyDocument(
+							PropertyDocument propertyDocument) {
+						propertyIds.add(propertyDocument.getEntityId().getId());
+					}
+				});
+
+		// Each batch returns both documents in our mock data:
+		assertEquals(Arrays.asList("Q42", "Q42"), itemIds);
+		assertEquals(Arrays.asList("P31", "P31"), propertyIds);
+	}
+
+	/**
+	 * Creates a fetcher with a cache that uses one request for Q6, Q42, and
+	 * P31.
+	 *
+	 * @return data fetcher
+	 * @throws IOException
+	 */
+	WikibaseDataFetcher getCachingDataFetcher() throws IOException {
+		WikibaseDataFetcher wdf = new WikibaseDataFetcher();
+		wdf.setEntityDocumentCache(new MemoryEntityDocumentCache());
+
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("Q6", "Q42", "P31")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		wdf.webResourceFetcher = wrf;
+
+		return wdf;
+	}
+
+	@Test
+	public void testCachedDocumentsAreReused() throws IOException {
+		WikibaseDataFetcher wdf = getCachingDataFetcher();
+		long hits = WikibaseDataFetcher.cacheHitCounter.getCount();
+
+		Map<String, EntityDocument> results1 = wdf.getEntityDocuments("Q6",
+				"Q42", "P31");
+		((MockWebResourceFetcher) wdf.webResourceFetcher)
+				.setReturnFailingReaders(true);
+		Map<String, EntityDocument> results2 = wdf.getEntityDocuments("Q42",
+				"P31");
+
+		assertEquals(2, results2.size());
+		assertSame(results1.get("Q42"), results2.get("Q42"));
+		assertSame(results1.get("P31"), results2.get("P31"));
+		assertEquals(hits + 2, WikibaseDataFetcher.cacheHitCounter.getCount());
+	}
+
+	@Test
+	public void testCacheKeysDependOnFilter() throws IOException {
+		WikibaseDataFetcher wdf = getCachingDataFetcher();
+		String signature = wdf.getRequestSignature();
+		wdf.getEntityDocuments("Q6", "Q42", "P31");
+
+		wdf.getFilter().setLanguageFilter(Collections.<String> singleton("de"));
+		assertFalse(signature.equals(wdf.getRequestSignature()));
+		// The new request is not mocked, so nothing can be found:
+		assertEquals(0, wdf.getEntityDocuments("Q42").size());
+
+		wdf.getFilter().setLanguageFilter(null);
+		assertEquals(signature, wdf.getRequestSignature());
+		assertEquals(1, wdf.getEntityDocuments("Q42").size());
+	}
+
+	@Test
+	public void testUnchangedDocumentsAreRevalidated() throws IOException {
+		WikibaseDataFetcher wdf = getCachingDataFetcher();
+		wdf.setCacheTimeToLive(0);
+		long revalidations = WikibaseDataFetcher.cacheRevalidationCounter
+				.getCount();
+		EntityDocument document = wdf.getEntityDocuments("Q6", "Q42", "P31")
+				.get("Q42");
+
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContents(
+				wdf.getWbGetEntitiesInfoUrl(Arrays.asList("Q42")),
+				"{\"entities\":{\"Q42\":{\"pageid\":138,\"lastrevid\":196015688,\"id\":\"Q42\",\"type\":\"item\"}},\"success\":1}");
+		wdf.webResourceFetcher = wrf;
+
+		assertSame(document, wdf.getEntityDocument("Q42"));
+		assertEquals(revalidations + 1,
+				WikibaseDataFetcher.cacheRevalidationCounter.getCount());
+	}
+
+	@Test
+	public void testChangedDocumentsAreFetchedAgain() throws IOException {
+		WikibaseDataFetcher wdf = getCachingDataFetcher();
+		wdf.setCacheTimeToLive(0);
+		EntityDocument document = wdf.getEntityDocuments("Q6", "Q42", "P31")
+				.get("Q42");
+
+		MockWebResourceFetcher wrf = new MockWebResourceFetcher();
+		wrf.setWebResourceContents(
+				wdf.getWbGetEntitiesInfoUrl(Arrays.asList("Q42")),
+				"{\"entities\":{\"Q42\":{\"pageid\":138,\"lastrevid\":196015689,\"id\":\"Q42\",\"type\":\"item\"}},\"success\":1}");
+		wrf.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		wdf.webResourceFetcher = wrf;
+
+		EntityDocument newDocument = wdf.getEntityDocument("Q42");
+		assertNotSame(document, newDocument);
+		assertEquals(document, newDocument);
+	}
+
+	@Test
+	public void testConcurrentRequestsAreShared() throws Exception {
+		final WikibaseDataFetcher wdf = getCachingDataFetcher();
+		final MockWebResourceFetcher mockFetcher = new MockWebResourceFetcher();
+		mockFetcher.setWebResourceContentsFromResource(
+				wdf.getWbGetEntitiesUrl(Arrays.asList("Q42")),
+				"/wbgetentities-Q6-Q42-P31.json", this.getClass());
+		final AtomicInteger requestCount = new AtomicInteger();
+		final CountDownLatch requestStarted = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		wdf.webResourceFetcher = new WebResourceFetcher() {
+			@Override
+			public InputStream getInputStreamForUrl(String urlString)
+					throws IOException {
+				requestCount.incrementAndGet();
+				requestStarted.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return mockFetcher.getInputStreamForUrl(urlString);
+			}
+		};
+
+		final EntityDocument[] documents = new EntityDocument[2];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				documents[0] = wdf.getEntityDocument("Q42");
+			}
+		};
+		thread.start();
+		requestStarted.await(10, TimeUnit.SECONDS);
+
+		Thread otherThread = new Thread() {
+			@Override
+			public void run() {
+				documents[1] = wdf.getEntityDocument("Q42");
+			}
+		};
+		otherThread.start();
+		Thread.sleep(100);
+		release.countDown();
+		thread.join();
+		otherThread.join();
+
+		assertEquals(1, requestCount.get());
+		assertTrue(documents[0] != null);
+		assertSame(documents[0], documents[1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalCacheTimeToLive() {
+		new WikibaseDataFetcher().setCacheTimeToLive(-1);
+	}
+
 }